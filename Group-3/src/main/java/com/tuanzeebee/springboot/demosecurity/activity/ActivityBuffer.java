@@ -0,0 +1,91 @@
+package com.tuanzeebee.springboot.demosecurity.activity;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Vòng đệm nhiều producer, một consumer, không khóa. Producer giành một sequence bằng CAS, ghi các cột
+ * vào ô sequence & mask rồi đánh dấu published[ô] = sequence + 1 (ghi volatile, các cột ghi trước đó
+ * được nhìn thấy cùng lúc). Consumer đọc tuần tự các ô đã đánh dấu và dời consumed để trả ô cho producer.
+ * Đầy thì offer trả về false ngay, không bao giờ chặn request.
+ */
+final class ActivityBuffer {
+    private final int capacity;
+    private final int mask;
+    private final long[] timestamps;
+    private final byte[] types;
+    private final String[] users;
+    private final long[] recipeIds;
+    private final long[] targetIds;
+    private final int[] sessions;
+    private final AtomicLongArray published;
+    private final AtomicLong claimed = new AtomicLong();
+    // Chỉ consumer ghi
+    private volatile long consumed;
+
+    ActivityBuffer(int capacity) {
+        if (capacity < 2 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("activity-log.buffer-size phải là lũy thừa của 2: " + capacity);
+        }
+        this.capacity = capacity;
+        this.mask = capacity - 1;
+        this.timestamps = new long[capacity];
+        this.types = new byte[capacity];
+        this.users = new String[capacity];
+        this.recipeIds = new long[capacity];
+        this.targetIds = new long[capacity];
+        this.sessions = new int[capacity];
+        this.published = new AtomicLongArray(capacity);
+    }
+
+    boolean offer(long timestamp, byte type, String user, long recipeId, long targetId, int session) {
+        long sequence;
+        do {
+            sequence = claimed.get();
+            if (sequence - consumed >= capacity) {
+                return false;
+            }
+        } while (!claimed.compareAndSet(sequence, sequence + 1));
+        int slot = (int) (sequence & mask);
+        timestamps[slot] = timestamp;
+        types[slot] = type;
+        users[slot] = user;
+        recipeIds[slot] = recipeId;
+        targetIds[slot] = targetId;
+        sessions[slot] = session;
+        published.set(slot, sequence + 1);
+        return true;
+    }
+
+    // Số sự kiện đã giành chỗ nhưng chưa được consumer lấy (gần đúng khi có producer đang ghi)
+    int pending() {
+        return (int) (claimed.get() - consumed);
+    }
+
+    /**
+     * Chép các sự kiện đã ghi xong sang target tới khi target đầy hoặc gặp ô producer chưa ghi xong.
+     * Chỉ một thread được gọi tại một thời điểm.
+     */
+    int drainTo(ActivityColumns target) {
+        long sequence = consumed;
+        int drained = 0;
+        while (!target.isFull()) {
+            int slot = (int) (sequence & mask);
+            if (published.get(slot) != sequence + 1) {
+                break;
+            }
+            int row = target.size++;
+            target.timestamps[row] = timestamps[slot];
+            target.types[row] = types[slot];
+            target.users[row] = users[slot];
+            target.recipeIds[row] = recipeIds[slot];
+            target.targetIds[row] = targetIds[slot];
+            target.sessions[row] = sessions[slot];
+            users[slot] = null;
+            sequence++;
+            drained++;
+        }
+        consumed = sequence;
+        return drained;
+    }
+}
@@ -0,0 +1,44 @@
+package com.tuanzeebee.springboot.demosecurity.activity;
+
+/**
+ * Một khối sự kiện theo cột. Khi ghi: các mảng được điền từ ActivityBuffer, users chứa username
+ * (null = khách). Khi đọc segment: chỉ các cột được yêu cầu mới có dữ liệu, cột người dùng ở dạng
+ * từ điển (userDictionary) + mã từng dòng (userCodes, 0 = khách, i + 1 = userDictionary[i]).
+ */
+final class ActivityColumns {
+    final long[] timestamps;
+    final byte[] types;
+    final String[] users;
+    final long[] recipeIds;
+    final long[] targetIds;
+    final int[] sessions;
+    String[] userDictionary;
+    int[] userCodes;
+    int size;
+
+    // Khối rỗng để ghi, đủ chỗ cho capacity dòng
+    ActivityColumns(int capacity) {
+        this(new long[capacity], new byte[capacity], new String[capacity], new long[capacity], new long[capacity],
+                new int[capacity], 0);
+    }
+
+    ActivityColumns(long[] timestamps, byte[] types, String[] users, long[] recipeIds, long[] targetIds,
+                    int[] sessions, int size) {
+        this.timestamps = timestamps;
+        this.types = types;
+        this.users = users;
+        this.recipeIds = recipeIds;
+        this.targetIds = targetIds;
+        this.sessions = sessions;
+        this.size = size;
+    }
+
+    boolean isFull() {
+        return size == timestamps.length;
+    }
+
+    String user(int row) {
+        int code = userCodes[row];
+        return code == 0 ? null : userDictionary[code - 1];
+    }
+}
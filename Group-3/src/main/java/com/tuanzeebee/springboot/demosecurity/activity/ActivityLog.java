@@ -0,0 +1,231 @@
+package com.tuanzeebee.springboot.demosecurity.activity;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.servlet.http.HttpSession;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Nhật ký hoạt động người dùng (đăng nhập, xem, like, bình luận, theo dõi...) ghi ra đĩa cục bộ,
+ * không chạm MySQL. record chỉ ghi vào {@link ActivityBuffer} trong bộ nhớ; một job định kỳ gom đủ
+ * segment-rows sự kiện (hoặc sau max-segment-age) thì ghi thành một {@link ActivitySegment} mới.
+ * Segment cũ hơn retention bị xóa. Truy vấn (ActivityQueryService) chỉ thấy dữ liệu đã flush,
+ * và mỗi node chỉ thấy sự kiện của chính nó.
+ */
+@Component
+public class ActivityLog {
+    private static final Logger logger = LoggerFactory.getLogger(ActivityLog.class);
+    private static final String SEGMENT_SUFFIX = ".seg";
+
+    private final boolean enabled;
+    private final Path directory;
+    private final ActivityBuffer buffer;
+    private final int segmentRows;
+    private final long maxSegmentAgeMillis;
+    private final long retentionMillis;
+    private final List<ActivitySegment> segments = new CopyOnWriteArrayList<>();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final AtomicInteger segmentSequence = new AtomicInteger();
+    private final Counter recordedCounter;
+    private final Counter droppedCounter;
+    private volatile long lastFlushMillis = System.currentTimeMillis();
+
+    @Autowired
+    public ActivityLog(MeterRegistry meterRegistry,
+                       @Value("${activity-log.enabled:true}") boolean enabled,
+                       @Value("${activity-log.dir:data/activity}") String directory,
+                       @Value("${activity-log.buffer-size:262144}") int bufferSize,
+                       @Value("${activity-log.segment-rows:65536}") int segmentRows,
+                       @Value("${activity-log.max-segment-age:60s}") Duration maxSegmentAge,
+                       @Value("${activity-log.retention:90d}") Duration retention) {
+        this.enabled = enabled;
+        this.directory = Paths.get(directory);
+        this.buffer = new ActivityBuffer(bufferSize);
+        this.segmentRows = segmentRows;
+        this.maxSegmentAgeMillis = maxSegmentAge.toMillis();
+        this.retentionMillis = retention.toMillis();
+        this.recordedCounter = Counter.builder("app.activity.recorded").register(meterRegistry);
+        this.droppedCounter = Counter.builder("app.activity.dropped")
+                .description("Số sự kiện bị bỏ vì bộ đệm đầy")
+                .register(meterRegistry);
+        Gauge.builder("app.activity.pending", buffer, ActivityBuffer::pending).register(meterRegistry);
+        Gauge.builder("app.activity.segments", segments, List::size).register(meterRegistry);
+    }
+
+    // Mở lại các segment đã có; file .tmp là lần ghi dở khi tiến trình dừng đột ngột
+    @PostConstruct
+    public void open() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            Files.createDirectories(directory);
+            List<Path> files;
+            try (Stream<Path> listing = Files.list(directory)) {
+                files = listing.sorted().toList();
+            }
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(SEGMENT_SUFFIX + ".tmp")) {
+                    Files.deleteIfExists(file);
+                } else if (name.endsWith(SEGMENT_SUFFIX)) {
+                    try {
+                        segments.add(ActivitySegment.open(file));
+                    } catch (RuntimeException e) {
+                        logger.warn("Bỏ qua segment hoạt động hỏng {}: {}", file, e.getMessage());
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Không mở được thư mục nhật ký hoạt động " + directory, e);
+        }
+    }
+
+    /**
+     * Ghi một sự kiện của người dùng hiện tại (lấy từ SecurityContext, khách thì để trống) và phiên
+     * của request đang xử lý. recipeId / targetId null được lưu là 0.
+     */
+    public void record(ActivityType type, Long recipeId, Long targetId) {
+        record(type, currentUsername(), recipeId, targetId);
+    }
+
+    public void record(ActivityType type, String username, Long recipeId, Long targetId) {
+        if (!enabled) {
+            return;
+        }
+        record(System.currentTimeMillis(), type, username, recipeId, targetId, currentSessionHash());
+    }
+
+    void record(long timestamp, ActivityType type, String username, Long recipeId, Long targetId, int session) {
+        if (buffer.offer(timestamp, type.getCode(), username,
+                recipeId != null ? recipeId : 0L, targetId != null ? targetId : 0L, session)) {
+            recordedCounter.increment();
+        } else {
+            droppedCounter.increment();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${activity-log.flush-check-ms:1000}")
+    public void flushIfDue() {
+        int pending = buffer.pending();
+        if (pending >= segmentRows
+                || (pending > 0 && System.currentTimeMillis() - lastFlushMillis >= maxSegmentAgeMillis)) {
+            flush();
+        }
+    }
+
+    // Ghi mọi sự kiện đang chờ thành các segment tối đa segment-rows dòng
+    public void flush() {
+        if (!enabled) {
+            return;
+        }
+        flushLock.lock();
+        try {
+            int pending;
+            while ((pending = buffer.pending()) > 0) {
+                ActivityColumns block = new ActivityColumns(Math.min(pending, segmentRows));
+                if (buffer.drainTo(block) == 0) {
+                    // Producer vừa giành chỗ nhưng chưa ghi xong, lần kiểm tra sau sẽ lấy
+                    break;
+                }
+                segments.add(ActivitySegment.write(nextSegmentPath(block), block));
+            }
+            lastFlushMillis = System.currentTimeMillis();
+        } catch (RuntimeException e) {
+            logger.error("Không ghi được segment hoạt động: {}", e.getMessage());
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${activity-log.retention-check-ms:3600000}")
+    public void deleteExpiredSegments() {
+        long cutoff = System.currentTimeMillis() - retentionMillis;
+        List<ActivitySegment> expired = new ArrayList<>();
+        for (ActivitySegment segment : segments) {
+            if (segment.getMaxTimestamp() < cutoff) {
+                expired.add(segment);
+            }
+        }
+        // Truy vấn đang quét segment vẫn đọc được vùng đã map sau khi file bị xóa
+        segments.removeAll(expired);
+        for (ActivitySegment segment : expired) {
+            try {
+                Files.deleteIfExists(segment.getPath());
+            } catch (IOException e) {
+                logger.warn("Không xóa được segment hết hạn {}: {}", segment.getPath(), e.getMessage());
+            }
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        flush();
+    }
+
+    List<ActivitySegment> segments() {
+        return segments;
+    }
+
+    // Tên theo thời điểm sự kiện đầu tiên để liệt kê thư mục là đúng thứ tự thời gian
+    private Path nextSegmentPath(ActivityColumns block) {
+        long first = block.timestamps[0];
+        for (int row = 1; row < block.size; row++) {
+            first = Math.min(first, block.timestamps[row]);
+        }
+        Path path;
+        do {
+            path = directory.resolve(String.format("activity-%013d-%06d%s", first,
+                    segmentSequence.incrementAndGet() % 1_000_000, SEGMENT_SUFFIX));
+        } while (Files.exists(path));
+        return path;
+    }
+
+    private static String currentUsername() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !authentication.isAuthenticated()
+                || authentication instanceof AnonymousAuthenticationToken) {
+            return null;
+        }
+        return authentication.getName();
+    }
+
+    // Chỉ lưu mã băm của session ID: đủ để đếm phiên, không lưu được thứ dùng để chiếm phiên
+    private static int currentSessionHash() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes instanceof ServletRequestAttributes servletAttributes) {
+            HttpSession session = servletAttributes.getRequest().getSession(false);
+            if (session != null) {
+                return session.getId().hashCode();
+            }
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,206 @@
+package com.tuanzeebee.springboot.demosecurity.activity;
+
+import com.tuanzeebee.springboot.demosecurity.dao.ActivityCountDTO;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Thống kê trên nhật ký hoạt động: mỗi segment giao khoảng [from, to] được quét song song trên một
+ * nhóm thread riêng, chỉ giải nén các cột cần cho truy vấn, kết quả từng segment được gộp lại.
+ * Ngày tính theo múi giờ của máy chủ; type null nghĩa là mọi loại hoạt động.
+ */
+@Service
+public class ActivityQueryService {
+
+    private final ActivityLog activityLog;
+    private final ExecutorService scanPool;
+    private final ZoneId zone = ZoneId.systemDefault();
+
+    @Autowired
+    public ActivityQueryService(ActivityLog activityLog,
+                                @Value("${activity-log.query-threads:4}") int queryThreads) {
+        this.activityLog = activityLog;
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.scanPool = Executors.newFixedThreadPool(queryThreads, runnable -> {
+            Thread thread = new Thread(runnable, "activity-query-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scanPool.shutdownNow();
+    }
+
+    // Số sự kiện theo từng ngày, kể cả ngày không có sự kiện nào
+    public List<ActivityCountDTO> countByDay(ActivityType type, LocalDate from, LocalDate to) {
+        long[] dayStarts = dayStarts(from, to);
+        long[] totals = new long[dayStarts.length - 1];
+        for (long[] counts : scan(dayStarts, EnumSet.of(ActivitySegment.Column.TIMESTAMP, ActivitySegment.Column.TYPE),
+                block -> {
+                    long[] counts = new long[totals.length];
+                    for (int row = 0; row < block.size; row++) {
+                        int day = dayIndex(dayStarts, block.timestamps[row]);
+                        if (day >= 0 && matches(type, block.types[row])) {
+                            counts[day]++;
+                        }
+                    }
+                    return counts;
+                })) {
+            for (int day = 0; day < totals.length; day++) {
+                totals[day] += counts[day];
+            }
+        }
+        List<ActivityCountDTO> result = new ArrayList<>(totals.length);
+        for (int day = 0; day < totals.length; day++) {
+            result.add(ActivityCountDTO.of(from.plusDays(day).toString(), totals[day]));
+        }
+        return result;
+    }
+
+    // Các công thức có nhiều sự kiện nhất, bỏ qua sự kiện không gắn với công thức
+    public List<ActivityCountDTO> countByRecipe(ActivityType type, LocalDate from, LocalDate to, int limit) {
+        long[] dayStarts = dayStarts(from, to);
+        Map<Long, Long> totals = new HashMap<>();
+        for (Map<Long, Long> counts : scan(dayStarts, EnumSet.of(ActivitySegment.Column.TIMESTAMP,
+                ActivitySegment.Column.TYPE, ActivitySegment.Column.RECIPE), block -> {
+            Map<Long, Long> counts = new HashMap<>();
+            for (int row = 0; row < block.size; row++) {
+                long recipeId = block.recipeIds[row];
+                if (recipeId != 0 && dayIndex(dayStarts, block.timestamps[row]) >= 0
+                        && matches(type, block.types[row])) {
+                    counts.merge(recipeId, 1L, Long::sum);
+                }
+            }
+            return counts;
+        })) {
+            counts.forEach((recipeId, count) -> totals.merge(recipeId, count, Long::sum));
+        }
+        return top(totals, String::valueOf, limit);
+    }
+
+    // Những người dùng hoạt động nhiều nhất, bỏ qua khách
+    public List<ActivityCountDTO> countByUser(ActivityType type, LocalDate from, LocalDate to, int limit) {
+        long[] dayStarts = dayStarts(from, to);
+        Map<String, Long> totals = new HashMap<>();
+        for (Map<String, Long> counts : scan(dayStarts, EnumSet.of(ActivitySegment.Column.TIMESTAMP,
+                ActivitySegment.Column.TYPE, ActivitySegment.Column.USER), block -> {
+            // Đếm theo mã từ điển rồi mới đổi sang username
+            long[] byCode = new long[block.userDictionary.length + 1];
+            for (int row = 0; row < block.size; row++) {
+                if (block.userCodes[row] != 0 && dayIndex(dayStarts, block.timestamps[row]) >= 0
+                        && matches(type, block.types[row])) {
+                    byCode[block.userCodes[row]]++;
+                }
+            }
+            Map<String, Long> counts = new HashMap<>();
+            for (int code = 1; code < byCode.length; code++) {
+                if (byCode[code] > 0) {
+                    counts.put(block.userDictionary[code - 1], byCode[code]);
+                }
+            }
+            return counts;
+        })) {
+            counts.forEach((username, count) -> totals.merge(username, count, Long::sum));
+        }
+        return top(totals, Function.identity(), limit);
+    }
+
+    // Số người dùng đăng nhập khác nhau có ít nhất một hoạt động trong từng ngày
+    public List<ActivityCountDTO> dailyActiveUsers(LocalDate from, LocalDate to) {
+        long[] dayStarts = dayStarts(from, to);
+        List<Set<String>> totals = new ArrayList<>();
+        for (int day = 0; day < dayStarts.length - 1; day++) {
+            totals.add(new HashSet<>());
+        }
+        for (List<Set<String>> users : scan(dayStarts, EnumSet.of(ActivitySegment.Column.TIMESTAMP,
+                ActivitySegment.Column.USER), block -> {
+            List<Set<String>> users = new ArrayList<>(totals.size());
+            for (int day = 0; day < totals.size(); day++) {
+                users.add(new HashSet<>());
+            }
+            for (int row = 0; row < block.size; row++) {
+                int day = dayIndex(dayStarts, block.timestamps[row]);
+                if (day >= 0 && block.userCodes[row] != 0) {
+                    users.get(day).add(block.user(row));
+                }
+            }
+            return users;
+        })) {
+            for (int day = 0; day < totals.size(); day++) {
+                totals.get(day).addAll(users.get(day));
+            }
+        }
+        List<ActivityCountDTO> result = new ArrayList<>(totals.size());
+        for (int day = 0; day < totals.size(); day++) {
+            result.add(ActivityCountDTO.of(from.plusDays(day).toString(), totals.get(day).size()));
+        }
+        return result;
+    }
+
+    // Quét song song các segment giao khoảng thời gian, trả về kết quả của từng segment
+    private <R> List<R> scan(long[] dayStarts, Set<ActivitySegment.Column> columns,
+                             Function<ActivityColumns, R> task) {
+        long fromMillis = dayStarts[0];
+        long toMillis = dayStarts[dayStarts.length - 1];
+        List<CompletableFuture<R>> futures = activityLog.segments().stream()
+                .filter(segment -> segment.overlaps(fromMillis, toMillis))
+                .map(segment -> CompletableFuture.supplyAsync(() -> task.apply(segment.read(columns)), scanPool))
+                .collect(Collectors.toList());
+        return futures.stream().map(CompletableFuture::join).collect(Collectors.toList());
+    }
+
+    // Mốc bắt đầu của từng ngày từ from tới hết ngày to (length = số ngày + 1)
+    private long[] dayStarts(LocalDate from, LocalDate to) {
+        if (to.isBefore(from)) {
+            throw new IllegalArgumentException("Ngày kết thúc phải sau ngày bắt đầu");
+        }
+        int days = (int) (to.toEpochDay() - from.toEpochDay()) + 1;
+        long[] starts = new long[days + 1];
+        for (int day = 0; day <= days; day++) {
+            starts[day] = from.plusDays(day).atStartOfDay(zone).toInstant().toEpochMilli();
+        }
+        return starts;
+    }
+
+    // Chỉ số ngày chứa timestamp, -1 nếu nằm ngoài khoảng
+    private static int dayIndex(long[] dayStarts, long timestamp) {
+        int index = Arrays.binarySearch(dayStarts, timestamp);
+        int day = index >= 0 ? index : -index - 2;
+        return day >= 0 && day < dayStarts.length - 1 ? day : -1;
+    }
+
+    private static boolean matches(ActivityType type, byte code) {
+        return type == null || type.getCode() == code;
+    }
+
+    private static <K> List<ActivityCountDTO> top(Map<K, Long> totals, Function<K, String> key, int limit) {
+        return totals.entrySet().stream()
+                .sorted(Map.Entry.<K, Long>comparingByValue(Comparator.reverseOrder())
+                        .thenComparing(entry -> key.apply(entry.getKey())))
+                .limit(limit)
+                .map(entry -> ActivityCountDTO.of(key.apply(entry.getKey()), entry.getValue()))
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,363 @@
+package com.tuanzeebee.springboot.demosecurity.activity;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Một file segment bất biến chứa một khối sự kiện, lưu theo cột:
+ * <pre>
+ * int magic "ACT1" | int rows | long minTs | long maxTs
+ * 6 x (int rawLength, int compressedLength)  theo thứ tự {@link Column}
+ * dữ liệu từng cột, nén Deflate
+ * </pre>
+ * Thời điểm lưu delta zigzag varint (sự kiện gần như theo thứ tự nên delta rất nhỏ), người dùng lưu
+ * từ điển + mã varint, ID công thức / đối tượng lưu varint. File được map vào bộ nhớ, truy vấn chỉ giải nén
+ * những cột nó cần; minTs / maxTs trong header giúp bỏ qua cả segment nằm ngoài khoảng thời gian.
+ */
+final class ActivitySegment {
+
+    enum Column { TIMESTAMP, TYPE, USER, RECIPE, TARGET, SESSION }
+
+    private static final int MAGIC = 0x41435431;
+    private static final int HEADER_SIZE = 4 + 4 + 8 + 8 + Column.values().length * 8;
+
+    private final Path path;
+    private final MappedByteBuffer data;
+    private final int rows;
+    private final long minTimestamp;
+    private final long maxTimestamp;
+    private final int[] rawLengths = new int[Column.values().length];
+    private final int[] offsets = new int[Column.values().length];
+    private final int[] compressedLengths = new int[Column.values().length];
+
+    private ActivitySegment(Path path, MappedByteBuffer data) {
+        this.path = path;
+        this.data = data;
+        if (data.capacity() < HEADER_SIZE || data.getInt(0) != MAGIC) {
+            throw new IllegalStateException("File segment hoạt động không hợp lệ: " + path);
+        }
+        this.rows = data.getInt(4);
+        this.minTimestamp = data.getLong(8);
+        this.maxTimestamp = data.getLong(16);
+        int offset = HEADER_SIZE;
+        for (int column = 0; column < rawLengths.length; column++) {
+            rawLengths[column] = data.getInt(24 + column * 8);
+            compressedLengths[column] = data.getInt(28 + column * 8);
+            offsets[column] = offset;
+            offset += compressedLengths[column];
+        }
+        if (offset != data.capacity()) {
+            throw new IllegalStateException("File segment hoạt động bị cắt cụt: " + path);
+        }
+    }
+
+    static ActivitySegment open(Path path) {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            // Vùng map vẫn dùng được sau khi đóng channel
+            return new ActivitySegment(path, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Không mở được segment " + path, e);
+        }
+    }
+
+    /**
+     * Ghi block thành file mới: ghi ra file .tmp, fsync rồi đổi tên nguyên tử, nên segment trên đĩa
+     * luôn đầy đủ hoặc không tồn tại.
+     */
+    static ActivitySegment write(Path path, ActivityColumns block) {
+        if (block.size == 0) {
+            throw new IllegalArgumentException("Không ghi segment rỗng");
+        }
+        long minTimestamp = Long.MAX_VALUE;
+        long maxTimestamp = Long.MIN_VALUE;
+        for (int row = 0; row < block.size; row++) {
+            minTimestamp = Math.min(minTimestamp, block.timestamps[row]);
+            maxTimestamp = Math.max(maxTimestamp, block.timestamps[row]);
+        }
+        byte[][] raw = {
+                encodeTimestamps(block),
+                Arrays.copyOf(block.types, block.size),
+                encodeUsers(block),
+                encodeLongs(block.recipeIds, block.size),
+                encodeLongs(block.targetIds, block.size),
+                encodeInts(block.sessions, block.size)
+        };
+        byte[][] compressed = new byte[raw.length][];
+        int total = HEADER_SIZE;
+        for (int column = 0; column < raw.length; column++) {
+            compressed[column] = deflate(raw[column]);
+            total += compressed[column].length;
+        }
+        ByteBuffer out = ByteBuffer.allocate(total);
+        out.putInt(MAGIC).putInt(block.size).putLong(minTimestamp).putLong(maxTimestamp);
+        for (int column = 0; column < raw.length; column++) {
+            out.putInt(raw[column].length).putInt(compressed[column].length);
+        }
+        for (byte[] column : compressed) {
+            out.put(column);
+        }
+        out.flip();
+
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (out.hasRemaining()) {
+                channel.write(out);
+            }
+            channel.force(true);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Không ghi được segment " + tmp, e);
+        }
+        try {
+            Files.move(tmp, path, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Không đổi tên được segment " + tmp, e);
+        }
+        return open(path);
+    }
+
+    Path getPath() {
+        return path;
+    }
+
+    int getRows() {
+        return rows;
+    }
+
+    long getMaxTimestamp() {
+        return maxTimestamp;
+    }
+
+    boolean overlaps(long fromInclusive, long toExclusive) {
+        return minTimestamp < toExclusive && maxTimestamp >= fromInclusive;
+    }
+
+    /**
+     * Giải nén các cột được yêu cầu; cột còn lại là null. Cột USER trả về dạng từ điển + mã
+     * (userDictionary / userCodes), không dựng chuỗi cho từng dòng.
+     */
+    ActivityColumns read(Set<Column> columns) {
+        EnumSet<Column> wanted = EnumSet.copyOf(columns);
+        ActivityColumns block = new ActivityColumns(
+                wanted.contains(Column.TIMESTAMP) ? decodeTimestamps(inflate(Column.TIMESTAMP)) : null,
+                wanted.contains(Column.TYPE) ? inflate(Column.TYPE) : null,
+                null,
+                wanted.contains(Column.RECIPE) ? decodeLongs(inflate(Column.RECIPE)) : null,
+                wanted.contains(Column.TARGET) ? decodeLongs(inflate(Column.TARGET)) : null,
+                wanted.contains(Column.SESSION) ? decodeInts(inflate(Column.SESSION)) : null,
+                rows);
+        if (wanted.contains(Column.USER)) {
+            decodeUsers(inflate(Column.USER), block);
+        }
+        return block;
+    }
+
+    private byte[] inflate(Column column) {
+        int index = column.ordinal();
+        byte[] out = new byte[rawLengths[index]];
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(data.slice(offsets[index], compressedLengths[index]));
+            int read = 0;
+            while (read < out.length) {
+                int n = inflater.inflate(out, read, out.length - read);
+                if (n == 0 && (inflater.finished() || inflater.needsInput())) {
+                    break;
+                }
+                read += n;
+            }
+            if (read != out.length) {
+                throw new IllegalStateException("Cột " + column + " của segment " + path + " bị hỏng");
+            }
+            return out;
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Cột " + column + " của segment " + path + " bị hỏng", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static byte[] deflate(byte[] raw) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(raw);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, raw.length / 4));
+            byte[] chunk = new byte[8192];
+            while (!deflater.finished()) {
+                out.write(chunk, 0, deflater.deflate(chunk));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] encodeTimestamps(ActivityColumns block) {
+        VarOutput out = new VarOutput(block.size * 2);
+        long previous = 0;
+        for (int row = 0; row < block.size; row++) {
+            long delta = block.timestamps[row] - previous;
+            out.writeVarLong((delta << 1) ^ (delta >> 63));
+            previous = block.timestamps[row];
+        }
+        return out.toByteArray();
+    }
+
+    private static long[] decodeTimestamps(byte[] raw) {
+        VarInput in = new VarInput(raw);
+        long[] timestamps = new long[countVarints(raw)];
+        long previous = 0;
+        for (int row = 0; row < timestamps.length; row++) {
+            long zigzag = in.readVarLong();
+            previous += (zigzag >>> 1) ^ -(zigzag & 1);
+            timestamps[row] = previous;
+        }
+        return timestamps;
+    }
+
+    private static byte[] encodeUsers(ActivityColumns block) {
+        Map<String, Integer> codes = new HashMap<>();
+        VarOutput dictionary = new VarOutput(256);
+        VarOutput rows = new VarOutput(block.size);
+        for (int row = 0; row < block.size; row++) {
+            String user = block.users[row];
+            if (user == null) {
+                rows.writeVarLong(0);
+                continue;
+            }
+            Integer code = codes.get(user);
+            if (code == null) {
+                code = codes.size() + 1;
+                codes.put(user, code);
+                byte[] bytes = user.getBytes(StandardCharsets.UTF_8);
+                dictionary.writeVarLong(bytes.length);
+                dictionary.write(bytes);
+            }
+            rows.writeVarLong(code);
+        }
+        VarOutput out = new VarOutput(dictionary.size() + rows.size() + 5);
+        out.writeVarLong(codes.size());
+        out.write(dictionary.toByteArray());
+        out.write(rows.toByteArray());
+        return out.toByteArray();
+    }
+
+    private void decodeUsers(byte[] raw, ActivityColumns block) {
+        VarInput in = new VarInput(raw);
+        String[] dictionary = new String[(int) in.readVarLong()];
+        for (int i = 0; i < dictionary.length; i++) {
+            int length = (int) in.readVarLong();
+            dictionary[i] = new String(raw, in.position, length, StandardCharsets.UTF_8);
+            in.position += length;
+        }
+        int[] codes = new int[rows];
+        for (int row = 0; row < rows; row++) {
+            codes[row] = (int) in.readVarLong();
+        }
+        block.userDictionary = dictionary;
+        block.userCodes = codes;
+    }
+
+    private static byte[] encodeLongs(long[] values, int size) {
+        VarOutput out = new VarOutput(size * 2);
+        for (int row = 0; row < size; row++) {
+            out.writeVarLong(values[row]);
+        }
+        return out.toByteArray();
+    }
+
+    private static long[] decodeLongs(byte[] raw) {
+        VarInput in = new VarInput(raw);
+        long[] values = new long[countVarints(raw)];
+        for (int row = 0; row < values.length; row++) {
+            values[row] = in.readVarLong();
+        }
+        return values;
+    }
+
+    private static byte[] encodeInts(int[] values, int size) {
+        ByteBuffer out = ByteBuffer.allocate(size * 4);
+        for (int row = 0; row < size; row++) {
+            out.putInt(values[row]);
+        }
+        return out.array();
+    }
+
+    private static int[] decodeInts(byte[] raw) {
+        ByteBuffer in = ByteBuffer.wrap(raw);
+        int[] values = new int[raw.length / 4];
+        for (int row = 0; row < values.length; row++) {
+            values[row] = in.getInt();
+        }
+        return values;
+    }
+
+    // Mỗi varint kết thúc ở byte không có bit 0x80
+    private static int countVarints(byte[] raw) {
+        int count = 0;
+        for (byte b : raw) {
+            if (b >= 0) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static final class VarOutput extends ByteArrayOutputStream {
+        VarOutput(int size) {
+            super(size);
+        }
+
+        void writeVarLong(long value) {
+            while ((value & ~0x7FL) != 0) {
+                write((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            write((int) value);
+        }
+
+        @Override
+        public void write(byte[] bytes) {
+            write(bytes, 0, bytes.length);
+        }
+    }
+
+    private static final class VarInput {
+        private final byte[] raw;
+        private int position;
+
+        VarInput(byte[] raw) {
+            this.raw = raw;
+        }
+
+        long readVarLong() {
+            long value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = raw[position++];
+                value |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            return value;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.tuanzeebee.springboot.demosecurity.activity;
+
+/**
+ * Loại hoạt động ghi vào nhật ký. code được lưu trong file segment nên không đổi code của loại đã có,
+ * loại mới lấy code tiếp theo.
+ */
+public enum ActivityType {
+    LOGIN(1),
+    VIEW(2),
+    LIKE(3),
+    UNLIKE(4),
+    COMMENT(5),
+    // Dành cho chức năng lưu công thức (chưa có endpoint)
+    SAVE(6),
+    FOLLOW(7),
+    UNFOLLOW(8);
+
+    private static final ActivityType[] BY_CODE = new ActivityType[16];
+
+    static {
+        for (ActivityType type : values()) {
+            BY_CODE[type.code] = type;
+        }
+    }
+
+    private final byte code;
+
+    ActivityType(int code) {
+        this.code = (byte) code;
+    }
+
+    public byte getCode() {
+        return code;
+    }
+
+    public static ActivityType fromCode(byte code) {
+        ActivityType type = code >= 0 && code < BY_CODE.length ? BY_CODE[code] : null;
+        if (type == null) {
+            throw new IllegalArgumentException("Loại hoạt động không hợp lệ: " + code);
+        }
+        return type;
+    }
+}
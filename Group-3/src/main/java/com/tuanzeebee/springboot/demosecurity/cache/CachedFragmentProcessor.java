@@ -0,0 +1,80 @@
+package com.tuanzeebee.springboot.demosecurity.cache;
+
+import java.io.StringWriter;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import org.thymeleaf.TemplateSpec;
+import org.thymeleaf.context.Context;
+import org.thymeleaf.context.IContext;
+import org.thymeleaf.context.ITemplateContext;
+import org.thymeleaf.context.IWebContext;
+import org.thymeleaf.context.WebContext;
+import org.thymeleaf.engine.AttributeName;
+import org.thymeleaf.exceptions.TemplateProcessingException;
+import org.thymeleaf.model.IAttribute;
+import org.thymeleaf.model.IProcessableElementTag;
+import org.thymeleaf.processor.element.AbstractAttributeTagProcessor;
+import org.thymeleaf.processor.element.IElementTagStructureHandler;
+import org.thymeleaf.standard.expression.StandardExpressions;
+import org.thymeleaf.templatemode.TemplateMode;
+
+// Xử lý cache:fragment="template :: selector" cùng thuộc tính cache:<loại thực thể>="${id}" trên cùng thẻ.
+// Chạy sau th:each/th:if/th:with của thẻ (cùng precedence dialect, precedence processor lớn hơn)
+class CachedFragmentProcessor extends AbstractAttributeTagProcessor {
+
+    private static final String ATTRIBUTE_NAME = "fragment";
+    private static final int PRECEDENCE = 1500;
+
+    private final FragmentCache fragmentCache;
+
+    CachedFragmentProcessor(String dialectPrefix, FragmentCache fragmentCache) {
+        super(TemplateMode.HTML, dialectPrefix, null, false, ATTRIBUTE_NAME, true, PRECEDENCE, true);
+        this.fragmentCache = fragmentCache;
+    }
+
+    @Override
+    protected void doProcess(ITemplateContext context, IProcessableElementTag tag, AttributeName attributeName,
+                             String attributeValue, IElementTagStructureHandler structureHandler) {
+        int separator = attributeValue.indexOf("::");
+        if (separator < 0) {
+            throw new TemplateProcessingException("cache:fragment phải có dạng \"template :: fragment\": " + attributeValue);
+        }
+        String template = attributeValue.substring(0, separator).trim();
+        String selector = attributeValue.substring(separator + 2).trim();
+
+        EntityChange.Type type = null;
+        Long id = null;
+        for (IAttribute attribute : tag.getAllAttributes()) {
+            AttributeName name = attribute.getAttributeDefinition().getAttributeName();
+            if (!attributeName.getPrefix().equals(name.getPrefix()) || ATTRIBUTE_NAME.equals(name.getAttributeName())) {
+                continue;
+            }
+            type = EntityChange.Type.valueOf(name.getAttributeName().toUpperCase(Locale.ROOT));
+            Object value = StandardExpressions.getExpressionParser(context.getConfiguration())
+                    .parseExpression(context, attribute.getValue())
+                    .execute(context);
+            id = value == null ? null : ((Number) value).longValue();
+        }
+
+        String html = fragmentCache.get(template + " :: " + selector, type, id, () -> render(context, template, selector));
+        structureHandler.replaceWith(html, false);
+    }
+
+    // Render fragment riêng với các biến hiện có (kể cả biến cục bộ của th:each), qua cùng template engine
+    private static String render(ITemplateContext context, String template, String selector) {
+        Map<String, Object> variables = new HashMap<>();
+        for (String name : context.getVariableNames()) {
+            variables.put(name, context.getVariable(name));
+        }
+        IContext renderContext = context instanceof IWebContext webContext
+                ? new WebContext(webContext.getExchange(), context.getLocale(), variables)
+                : new Context(context.getLocale(), variables);
+        StringWriter writer = new StringWriter();
+        context.getConfiguration().getTemplateManager().parseAndProcess(
+                new TemplateSpec(template, Set.of(selector), context.getTemplateMode(), null), renderContext, writer);
+        return writer.toString();
+    }
+}
@@ -0,0 +1,16 @@
+package com.tuanzeebee.springboot.demosecurity.cache;
+
+/**
+ * Thông báo một thực thể đã đổi (sửa/xóa) để các node bỏ bản cache cục bộ của nó.
+ * version là thời điểm commit (epoch millis) trên node phát, dùng để đo độ trễ lan truyền.
+ * sequence tăng dần theo từng origin để phát hiện sự kiện bị mất; 0 nghĩa là transport
+ * đã bảo đảm giao nhận (outbox trong DB) nên không cần theo dõi.
+ */
+public record EntityChange(Type type, long id, long version, String origin, long sequence) {
+
+    public enum Type {
+        RECIPE,
+        INGREDIENT,
+        USER
+    }
+}
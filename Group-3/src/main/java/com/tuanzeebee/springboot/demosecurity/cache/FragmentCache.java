@@ -0,0 +1,65 @@
+package com.tuanzeebee.springboot.demosecurity.cache;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * HTML đã render của các fragment Thymeleaf đánh dấu cache:fragment, khóa theo (fragment, ID thực thể).
+ * Mỗi fragment là một {@link LocalEntityCache} của {@link InvalidationBus}: thực thể đổi trên node nào
+ * thì bản render của ID đó bị xóa trên mọi node, mất sự kiện thì xóa hết. Epoch của cache đóng vai trò
+ * phiên bản: bản render bắt đầu trước một lần xóa không được đưa vào cache.
+ * Bộ nhớ bị chặn bởi max-entries mỗi fragment và max-fragment-chars mỗi bản render (lớn hơn thì không cache).
+ */
+@Component
+public class FragmentCache {
+
+    // Fragment của một loại thực thể còn hiển thị dữ liệu loại khác: công thức hiện tên, icon nguyên liệu
+    private static final Map<EntityChange.Type, Set<EntityChange.Type>> ALSO_CLEARED_BY =
+            Map.of(EntityChange.Type.RECIPE, Set.of(EntityChange.Type.INGREDIENT));
+
+    private final InvalidationBus invalidationBus;
+    private final boolean enabled;
+    private final int maxEntries;
+    private final int maxFragmentChars;
+    private final ConcurrentHashMap<String, LocalEntityCache<String>> regions = new ConcurrentHashMap<>();
+
+    @Autowired
+    public FragmentCache(InvalidationBus invalidationBus,
+                         @Value("${fragment-cache.enabled:true}") boolean enabled,
+                         @Value("${fragment-cache.max-entries:2000}") int maxEntries,
+                         @Value("${fragment-cache.max-fragment-chars:65536}") int maxFragmentChars) {
+        this.invalidationBus = invalidationBus;
+        this.enabled = enabled;
+        this.maxEntries = maxEntries;
+        this.maxFragmentChars = maxFragmentChars;
+    }
+
+    public String get(String fragment, EntityChange.Type type, Long id, Supplier<String> renderer) {
+        if (!enabled || type == null || id == null) {
+            return renderer.get();
+        }
+        LocalEntityCache<String> region = regions.computeIfAbsent(type + ":" + fragment,
+                key -> createRegion(fragment, type));
+        String[] rendered = new String[1];
+        String cached = region.get(id, key -> {
+            rendered[0] = renderer.get();
+            return rendered[0].length() <= maxFragmentChars ? rendered[0] : null;
+        });
+        return cached != null ? cached : rendered[0];
+    }
+
+    private LocalEntityCache<String> createRegion(String fragment, EntityChange.Type type) {
+        LocalEntityCache<String> region = invalidationBus.createCache("fragment:" + fragment.replace(" ", ""), maxEntries);
+        invalidationBus.onChange(type, region::invalidate);
+        for (EntityChange.Type dependency : ALSO_CLEARED_BY.getOrDefault(type, Set.of())) {
+            invalidationBus.onChange(dependency, id -> region.clear());
+        }
+        return region;
+    }
+}
@@ -0,0 +1,34 @@
+package com.tuanzeebee.springboot.demosecurity.cache;
+
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.thymeleaf.dialect.AbstractProcessorDialect;
+import org.thymeleaf.processor.IProcessor;
+import org.thymeleaf.standard.StandardDialect;
+
+/**
+ * Dialect "cache" cho Thymeleaf (Spring Boot tự gắn bean IDialect vào template engine):
+ * <pre>
+ * &lt;div cache:fragment="fragments/recipe :: card" cache:recipe="${recipe.id}"&gt;&lt;/div&gt;
+ * </pre>
+ * Thẻ được thay bằng fragment đã render, lấy từ {@link FragmentCache} theo ID công thức.
+ * Tên thuộc tính thứ hai là loại thực thể ({@link EntityChange.Type}) quyết định sự kiện nào xóa cache.
+ */
+@Component
+public class FragmentCacheDialect extends AbstractProcessorDialect {
+
+    private final FragmentCache fragmentCache;
+
+    @Autowired
+    public FragmentCacheDialect(FragmentCache fragmentCache) {
+        super("Fragment Cache", "cache", StandardDialect.PROCESSOR_PRECEDENCE);
+        this.fragmentCache = fragmentCache;
+    }
+
+    @Override
+    public Set<IProcessor> getProcessors(String dialectPrefix) {
+        return Set.of(new CachedFragmentProcessor(dialectPrefix, fragmentCache));
+    }
+}
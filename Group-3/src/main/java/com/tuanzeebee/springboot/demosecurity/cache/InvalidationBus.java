@@ -0,0 +1,296 @@
+package com.tuanzeebee.springboot.demosecurity.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Bus hủy cache giữa các node. Service gọi publish khi sửa/xóa công thức, nguyên liệu, người dùng;
+ * sau khi transaction commit, bus xóa cache cục bộ và transport mang sự kiện sang node khác
+ * (outbox JDBC thì ghi ngay trong transaction). Các thay đổi trùng trong một transaction được gộp lại.
+ * Với transport không bảo đảm giao nhận, sequence bị hụt quá gap-grace được tính là mất
+ * và toàn bộ cache cục bộ bị xóa để không phục vụ dữ liệu cũ.
+ */
+@Component
+public class InvalidationBus {
+    private static final Logger logger = LoggerFactory.getLogger(InvalidationBus.class);
+
+    // Hụt nhiều hơn chừng này thì không theo dõi từng sequence nữa, coi như mất hết
+    private static final int MAX_TRACKED_GAP = 1000;
+
+    private final String nodeId = UUID.randomUUID().toString();
+    private final AtomicLong sequence = new AtomicLong();
+    private final InvalidationTransport transport;
+    private final MeterRegistry meterRegistry;
+    private final long gapGraceMillis;
+    private final Map<EntityChange.Type, List<Consumer<Long>>> listeners = new EnumMap<>(EntityChange.Type.class);
+    private final List<LocalEntityCache<?>> caches = new CopyOnWriteArrayList<>();
+    private final List<Runnable> resyncListeners = new CopyOnWriteArrayList<>();
+    private final ConcurrentHashMap<String, OriginSequence> origins = new ConcurrentHashMap<>();
+    private final Counter publishedCounter;
+    private final Counter receivedCounter;
+    private final Counter droppedCounter;
+    private final Counter resyncCounter;
+    private final Timer lagTimer;
+
+    @Autowired
+    public InvalidationBus(InvalidationTransport transport, MeterRegistry meterRegistry,
+                           @Value("${cache-invalidation.gap-grace-ms:5000}") long gapGraceMillis) {
+        this.transport = transport;
+        this.meterRegistry = meterRegistry;
+        this.gapGraceMillis = gapGraceMillis;
+        for (EntityChange.Type type : EntityChange.Type.values()) {
+            listeners.put(type, new CopyOnWriteArrayList<>());
+        }
+        this.publishedCounter = Counter.builder("app.cache.invalidation.published").register(meterRegistry);
+        this.receivedCounter = Counter.builder("app.cache.invalidation.received")
+                .description("Số sự kiện nhận từ node khác")
+                .register(meterRegistry);
+        this.droppedCounter = Counter.builder("app.cache.invalidation.dropped")
+                .description("Số sự kiện từ node khác bị mất (sequence bị hụt)")
+                .register(meterRegistry);
+        this.resyncCounter = Counter.builder("app.cache.invalidation.resyncs")
+                .description("Số lần xóa toàn bộ cache cục bộ vì đã bỏ lỡ sự kiện")
+                .register(meterRegistry);
+        this.lagTimer = Timer.builder("app.cache.invalidation.lag")
+                .description("Thời gian từ lúc node phát commit tới lúc node này xóa cache")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void startTransport() {
+        transport.start(this::receive, this::resync);
+    }
+
+    @PreDestroy
+    public void stopTransport() {
+        transport.stop();
+    }
+
+    public <V> LocalEntityCache<V> createCache(String name, int maxEntries) {
+        LocalEntityCache<V> cache = new LocalEntityCache<>(name, maxEntries);
+        caches.add(cache);
+        Gauge.builder("app.cache.size", cache, LocalEntityCache::size).tag("cache", name).register(meterRegistry);
+        FunctionCounter.builder("app.cache.requests", cache, LocalEntityCache::hits)
+                .tag("cache", name).tag("result", "hit").register(meterRegistry);
+        FunctionCounter.builder("app.cache.requests", cache, LocalEntityCache::misses)
+                .tag("cache", name).tag("result", "miss").register(meterRegistry);
+        return cache;
+    }
+
+    /**
+     * Đăng ký hành động khi thực thể loại type (ID truyền vào) đổi, trên node này hoặc node khác.
+     */
+    public void onChange(EntityChange.Type type, Consumer<Long> listener) {
+        listeners.get(type).add(listener);
+    }
+
+    /**
+     * Đăng ký hành động khi đã lỡ sự kiện từ node khác (không biết thực thể nào đổi), vd. nạp lại toàn bộ.
+     */
+    public void onResync(Runnable listener) {
+        resyncListeners.add(listener);
+    }
+
+    /**
+     * Báo thực thể đã đổi. Trong transaction thì chỉ xóa cache sau khi commit để request khác
+     * không nạp lại bản cũ trước khi dữ liệu mới được ghi; rollback thì không phát gì.
+     */
+    public void publish(EntityChange.Type type, Long id) {
+        if (id == null) {
+            return;
+        }
+        ChangeKey key = new ChangeKey(type, id);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            dispatch(Set.of(key));
+            return;
+        }
+        PendingChanges pending = (PendingChanges) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            pending = new PendingChanges();
+            TransactionSynchronizationManager.bindResource(this, pending);
+            TransactionSynchronizationManager.registerSynchronization(pending);
+        }
+        pending.keys.add(key);
+    }
+
+    // Sequence hụt mà quá hạn chờ (gói đến trễ, không theo thứ tự) vẫn chưa tới thì tính là mất
+    @Scheduled(fixedDelayString = "${cache-invalidation.gap-check-ms:1000}")
+    public void expireGaps() {
+        long now = System.currentTimeMillis();
+        long lost = 0;
+        for (OriginSequence origin : origins.values()) {
+            lost += origin.expireMissing(now - gapGraceMillis);
+        }
+        if (lost > 0) {
+            droppedCounter.increment(lost);
+            logger.warn("Mất {} sự kiện hủy cache từ node khác, xóa toàn bộ cache cục bộ", lost);
+            resync();
+        }
+        // Node đã tắt (origin mới mỗi lần khởi động) thì bỏ trạng thái
+        origins.values().removeIf(origin -> origin.lastSeen < now - TimeUnit.HOURS.toMillis(1));
+    }
+
+    private void dispatch(Set<ChangeKey> keys) {
+        List<EntityChange> changes = toChanges(keys, transport.isTransactional() ? 0 : -1);
+        applyLocal(changes);
+        sendQuietly(changes);
+    }
+
+    private List<EntityChange> toChanges(Set<ChangeKey> keys, long fixedSequence) {
+        long version = System.currentTimeMillis();
+        List<EntityChange> changes = new ArrayList<>(keys.size());
+        for (ChangeKey key : keys) {
+            long changeSequence = fixedSequence >= 0 ? fixedSequence : sequence.incrementAndGet();
+            changes.add(new EntityChange(key.type(), key.id(), version, nodeId, changeSequence));
+        }
+        publishedCounter.increment(changes.size());
+        return changes;
+    }
+
+    private void sendQuietly(List<EntityChange> changes) {
+        try {
+            transport.publish(changes);
+        } catch (RuntimeException e) {
+            logger.warn("Không thể gửi {} sự kiện hủy cache sang node khác: {}", changes.size(), e.getMessage());
+        }
+    }
+
+    private void receive(EntityChange change) {
+        if (nodeId.equals(change.origin())) {
+            return;
+        }
+        receivedCounter.increment();
+        lagTimer.record(Math.max(0, System.currentTimeMillis() - change.version()), TimeUnit.MILLISECONDS);
+        if (change.sequence() > 0) {
+            long lost = origins.computeIfAbsent(change.origin(), origin -> new OriginSequence())
+                    .accept(change.sequence(), System.currentTimeMillis());
+            if (lost > 0) {
+                droppedCounter.increment(lost);
+                logger.warn("Mất {} sự kiện hủy cache từ {}, xóa toàn bộ cache cục bộ", lost, change.origin());
+                resync();
+            }
+        }
+        applyLocal(List.of(change));
+    }
+
+    private void applyLocal(List<EntityChange> changes) {
+        for (EntityChange change : changes) {
+            for (Consumer<Long> listener : listeners.get(change.type())) {
+                listener.accept(change.id());
+            }
+        }
+    }
+
+    private void resync() {
+        resyncCounter.increment();
+        caches.forEach(LocalEntityCache::clear);
+        resyncListeners.forEach(Runnable::run);
+    }
+
+    private record ChangeKey(EntityChange.Type type, long id) {
+    }
+
+    private class PendingChanges implements TransactionSynchronization {
+        private final Set<ChangeKey> keys = new LinkedHashSet<>();
+        private List<EntityChange> written;
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            // Outbox: ghi cùng transaction, lỗi ghi làm rollback cả thao tác để không node nào giữ bản cũ
+            if (transport.isTransactional()) {
+                written = toChanges(keys, 0);
+                transport.publish(written);
+            }
+        }
+
+        @Override
+        public void afterCommit() {
+            if (written != null) {
+                applyLocal(written);
+            } else {
+                dispatch(keys);
+            }
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(InvalidationBus.this);
+        }
+    }
+
+    /**
+     * Theo dõi sequence đã nhận từ một node: các số bị bỏ qua được giữ lại kèm thời điểm phát hiện
+     * cho tới khi tới muộn hoặc quá hạn chờ.
+     */
+    private static final class OriginSequence {
+        private long highest;
+        private final TreeMap<Long, Long> missing = new TreeMap<>();
+        private volatile long lastSeen;
+
+        // Trả về số sự kiện coi như mất ngay (khoảng hụt quá lớn để theo dõi)
+        synchronized long accept(long sequence, long now) {
+            lastSeen = now;
+            if (highest == 0) {
+                // Node này khởi động giữa chừng: bắt đầu đếm từ sự kiện đầu tiên nhận được
+                highest = sequence;
+                return 0;
+            }
+            if (sequence <= highest) {
+                missing.remove(sequence);
+                return 0;
+            }
+            long gap = sequence - highest - 1;
+            long lost = 0;
+            if (gap > MAX_TRACKED_GAP) {
+                lost = gap;
+            } else {
+                for (long skipped = highest + 1; skipped < sequence; skipped++) {
+                    missing.put(skipped, now);
+                }
+            }
+            highest = sequence;
+            return lost;
+        }
+
+        synchronized long expireMissing(long detectedBefore) {
+            long expired = 0;
+            Iterator<Long> detectedAt = missing.values().iterator();
+            while (detectedAt.hasNext()) {
+                if (detectedAt.next() < detectedBefore) {
+                    detectedAt.remove();
+                    expired++;
+                }
+            }
+            return expired;
+        }
+    }
+}
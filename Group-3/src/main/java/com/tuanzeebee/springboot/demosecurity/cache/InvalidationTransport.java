@@ -0,0 +1,30 @@
+package com.tuanzeebee.springboot.demosecurity.cache;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Mang sự kiện {@link EntityChange} sang các node khác. Chọn bằng cache-invalidation.transport
+ * (none | jdbc | udp).
+ */
+public interface InvalidationTransport {
+
+    void publish(List<EntityChange> changes);
+
+    /**
+     * Bắt đầu nhận sự kiện từ node khác. resync được gọi khi transport biết chắc đã bỏ lỡ sự kiện
+     * (vd không đọc được outbox lâu hơn thời gian lưu): node phải xóa toàn bộ cache cục bộ.
+     */
+    void start(Consumer<EntityChange> sink, Runnable resync);
+
+    default void stop() {
+    }
+
+    /**
+     * true nếu publish phải chạy trong transaction của thao tác ghi (outbox): sự kiện commit
+     * hoặc rollback cùng dữ liệu nên không bao giờ mất.
+     */
+    default boolean isTransactional() {
+        return false;
+    }
+}
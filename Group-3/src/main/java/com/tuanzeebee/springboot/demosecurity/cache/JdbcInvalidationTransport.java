@@ -0,0 +1,142 @@
+package com.tuanzeebee.springboot.demosecurity.cache;
+
+import com.tuanzeebee.springboot.demosecurity.lock.ClusterLock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Outbox trong bảng cache_invalidation_outbox: dòng được ghi trong cùng transaction với thay đổi dữ liệu,
+ * mỗi node định kỳ đọc các dòng mới của node khác. Giống JdbcEventRelay, đọc lùi lại một khoảng ID nhỏ
+ * (có lọc trùng) vì các transaction đồng thời có thể commit không theo thứ tự ID.
+ * Không cần hạ tầng gì thêm ngoài DB nên là transport mặc định.
+ */
+@Component
+@ConditionalOnProperty(name = "cache-invalidation.transport", havingValue = "jdbc", matchIfMissing = true)
+public class JdbcInvalidationTransport implements InvalidationTransport {
+    private static final Logger logger = LoggerFactory.getLogger(JdbcInvalidationTransport.class);
+
+    private static final int LOOKBACK_IDS = 100;
+    private static final int MAX_ROWS = 1000;
+    private static final int SEEN_CAPACITY = 5000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Duration retention;
+    private final Map<Long, Boolean> seenIds = new LinkedHashMap<>(SEEN_CAPACITY, 0.75f, false) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Boolean> eldest) {
+            return size() > SEEN_CAPACITY;
+        }
+    };
+    private volatile Consumer<EntityChange> sink;
+    private Runnable resync;
+    private long lastId;
+    private long lastSuccessfulPoll;
+
+    @Autowired
+    public JdbcInvalidationTransport(JdbcTemplate jdbcTemplate,
+                                     @Value("${cache-invalidation.jdbc.retention:PT5M}") Duration retention) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.retention = retention;
+    }
+
+    @Override
+    public boolean isTransactional() {
+        return true;
+    }
+
+    @Override
+    public void publish(List<EntityChange> changes) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO cache_invalidation_outbox (origin, entity_type, entity_id, version, created_at) VALUES (?, ?, ?, ?, ?)",
+                changes, changes.size(), (ps, change) -> {
+                    ps.setString(1, change.origin());
+                    ps.setString(2, change.type().name());
+                    ps.setLong(3, change.id());
+                    ps.setLong(4, change.version());
+                    ps.setTimestamp(5, now);
+                });
+    }
+
+    @Override
+    public synchronized void start(Consumer<EntityChange> sink, Runnable resync) {
+        // Cache lúc khởi động đang rỗng nên chỉ cần nhận sự kiện từ đây trở đi
+        Long maxId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM cache_invalidation_outbox", Long.class);
+        this.lastId = maxId != null ? maxId : 0;
+        this.lastSuccessfulPoll = System.currentTimeMillis();
+        this.resync = resync;
+        this.sink = sink;
+    }
+
+    @Scheduled(fixedDelayString = "${cache-invalidation.jdbc.poll-ms:500}")
+    public synchronized void poll() {
+        if (sink == null) {
+            return;
+        }
+        try {
+            int rows;
+            do {
+                rows = pollOnce();
+            } while (rows == MAX_ROWS);
+        } catch (DataAccessException e) {
+            logger.warn("Không thể đọc cache_invalidation_outbox: {}", e.getMessage());
+            return;
+        }
+        long now = System.currentTimeMillis();
+        if (now - lastSuccessfulPoll > retention.toMillis()) {
+            // Các dòng phát trong lúc mất kết nối có thể đã bị dọn trước khi kịp đọc
+            logger.warn("Không đọc được outbox trong {} ms, xóa toàn bộ cache cục bộ", now - lastSuccessfulPoll);
+            resync.run();
+        }
+        lastSuccessfulPoll = now;
+    }
+
+    @ClusterLock(value = "cache-invalidation-cleanup", minHold = "${cache-invalidation.jdbc.cleanup-ms:60000}")
+    @Scheduled(fixedDelayString = "${cache-invalidation.jdbc.cleanup-ms:60000}")
+    public void deleteExpired() {
+        jdbcTemplate.update("DELETE FROM cache_invalidation_outbox WHERE created_at < ?",
+                Timestamp.valueOf(LocalDateTime.now().minus(retention)));
+    }
+
+    private int pollOnce() {
+        int[] rows = new int[1];
+        long from = lastId;
+        jdbcTemplate.query("SELECT id, origin, entity_type, entity_id, version FROM cache_invalidation_outbox"
+                        + " WHERE id > ? ORDER BY id LIMIT " + MAX_ROWS,
+                rs -> {
+                    rows[0]++;
+                    long id = rs.getLong("id");
+                    lastId = Math.max(lastId, id);
+                    if (seenIds.put(id, Boolean.TRUE) != null) {
+                        return;
+                    }
+                    EntityChange.Type type;
+                    try {
+                        type = EntityChange.Type.valueOf(rs.getString("entity_type"));
+                    } catch (IllegalArgumentException e) {
+                        // Node chạy phiên bản mới hơn có thể phát loại thực thể node này chưa biết
+                        return;
+                    }
+                    sink.accept(new EntityChange(type, rs.getLong("entity_id"), rs.getLong("version"),
+                            rs.getString("origin"), 0));
+                },
+                Math.max(0, from - LOOKBACK_IDS));
+        // Các dòng trong khoảng đọc lùi đã thấy từ lần trước không tính là trang đầy
+        return lastId > from ? rows[0] : 0;
+    }
+}
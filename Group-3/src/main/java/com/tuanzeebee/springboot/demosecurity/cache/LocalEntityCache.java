@@ -0,0 +1,78 @@
+package com.tuanzeebee.springboot.demosecurity.cache;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Cache LRU trong bộ nhớ một node, khóa theo ID thực thể. Tạo qua {@link InvalidationBus#createCache}
+ * để bị xóa khi có sự kiện thay đổi. Giá trị được dùng chung giữa các request nên không được sửa.
+ * Mỗi lần invalidate tăng epoch: kết quả nạp từ DB bắt đầu trước đó không được đưa vào cache,
+ * tránh giữ lại bản cũ đọc song song với thao tác ghi.
+ */
+public class LocalEntityCache<V> {
+
+    private final String name;
+    private final int maxEntries;
+    private final Map<Long, V> entries;
+    private long epoch;
+    private long hits;
+    private long misses;
+
+    LocalEntityCache(String name, int maxEntries) {
+        this.name = name;
+        this.maxEntries = maxEntries;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, V> eldest) {
+                return size() > LocalEntityCache.this.maxEntries;
+            }
+        };
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public V get(Long id, Function<Long, V> loader) {
+        long loadEpoch;
+        synchronized (this) {
+            V cached = entries.get(id);
+            if (cached != null) {
+                hits++;
+                return cached;
+            }
+            misses++;
+            loadEpoch = epoch;
+        }
+        V loaded = loader.apply(id);
+        synchronized (this) {
+            if (loaded != null && maxEntries > 0 && epoch == loadEpoch) {
+                entries.put(id, loaded);
+            }
+        }
+        return loaded;
+    }
+
+    public synchronized void invalidate(Long id) {
+        epoch++;
+        entries.remove(id);
+    }
+
+    public synchronized void clear() {
+        epoch++;
+        entries.clear();
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    synchronized long hits() {
+        return hits;
+    }
+
+    synchronized long misses() {
+        return misses;
+    }
+}
@@ -0,0 +1,21 @@
+package com.tuanzeebee.springboot.demosecurity.cache;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+// Chạy một node: chỉ cần bỏ cache cục bộ
+@Component
+@ConditionalOnProperty(name = "cache-invalidation.transport", havingValue = "none")
+public class NoopInvalidationTransport implements InvalidationTransport {
+
+    @Override
+    public void publish(List<EntityChange> changes) {
+    }
+
+    @Override
+    public void start(Consumer<EntityChange> sink, Runnable resync) {
+    }
+}
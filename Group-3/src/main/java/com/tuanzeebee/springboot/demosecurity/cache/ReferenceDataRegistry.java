@@ -0,0 +1,167 @@
+package com.tuanzeebee.springboot.demosecurity.cache;
+
+import com.tuanzeebee.springboot.demosecurity.dao.IngredientDTO;
+import com.tuanzeebee.springboot.demosecurity.entity.Ingredient;
+import com.tuanzeebee.springboot.demosecurity.entity.Role;
+import com.tuanzeebee.springboot.demosecurity.repository.IngredientRepository;
+import com.tuanzeebee.springboot.demosecurity.repository.RoleRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Dữ liệu tham chiếu (quyền, nguyên liệu) giữ trọn trong bộ nhớ, tra theo ID hoặc theo tên đã chuẩn hóa.
+ * Mỗi trạng thái là một {@link Snapshot} bất biến: đọc chỉ là một lần đọc biến volatile, không khóa
+ * và không chạm DB. Khi có thay đổi, snapshot mới được dựng từ bản sao của snapshot cũ rồi thay cả khối.
+ * Nạp lần đầu sau khi DataInitializer tạo xong các quyền mặc định; nguyên liệu đổi ở node này hay node
+ * khác đều đi qua sự kiện INGREDIENT của InvalidationBus, lỡ sự kiện thì nạp lại toàn bộ.
+ */
+@Component
+public class ReferenceDataRegistry {
+
+    private final RoleRepository roleRepository;
+    private final IngredientRepository ingredientRepository;
+    private volatile Snapshot snapshot;
+
+    @Autowired
+    public ReferenceDataRegistry(RoleRepository roleRepository, IngredientRepository ingredientRepository,
+                                 InvalidationBus invalidationBus, MeterRegistry meterRegistry) {
+        this.roleRepository = roleRepository;
+        this.ingredientRepository = ingredientRepository;
+        invalidationBus.onChange(EntityChange.Type.INGREDIENT, this::refreshIngredient);
+        invalidationBus.onResync(this::reload);
+        Gauge.builder("app.reference-data.size", this, registry -> registry.size(loaded -> loaded.ingredientsById))
+                .tag("type", "ingredients").register(meterRegistry);
+        Gauge.builder("app.reference-data.size", this, registry -> registry.size(loaded -> loaded.rolesById))
+                .tag("type", "roles").register(meterRegistry);
+    }
+
+    // Tên "  Thịt   Bò " và "thịt bò" là một
+    public static String normalize(String name) {
+        return name == null ? "" : name.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    public synchronized void reload() {
+        List<RoleEntry> roles = roleRepository.findAll().stream()
+                .map(role -> new RoleEntry(role.getId(), role.getName()))
+                .collect(Collectors.toList());
+        List<IngredientEntry> ingredients = ingredientRepository.findAll().stream()
+                .map(IngredientEntry::of)
+                .collect(Collectors.toList());
+        snapshot = new Snapshot(roles, ingredients);
+    }
+
+    public Optional<Role> findRole(Long id) {
+        return Optional.ofNullable(current().rolesById.get(id)).map(RoleEntry::toRole);
+    }
+
+    public Optional<Role> findRoleByName(String name) {
+        return Optional.ofNullable(current().rolesByName.get(normalize(name))).map(RoleEntry::toRole);
+    }
+
+    public List<Role> getRoles() {
+        return current().rolesById.values().stream().map(RoleEntry::toRole).collect(Collectors.toList());
+    }
+
+    public Optional<IngredientDTO> findIngredient(Long id) {
+        return Optional.ofNullable(current().ingredientsById.get(id)).map(IngredientEntry::toDTO);
+    }
+
+    public Optional<IngredientDTO> findIngredientByName(String name) {
+        return Optional.ofNullable(current().ingredientsByName.get(normalize(name))).map(IngredientEntry::toDTO);
+    }
+
+    public List<IngredientDTO> getIngredients() {
+        return current().ingredientsById.values().stream().map(IngredientEntry::toDTO).collect(Collectors.toList());
+    }
+
+    // Ghi nối tiếp nhau: đọc DB và thay snapshot trong cùng khóa để bản đọc cũ không đè bản mới hơn
+    private synchronized void refreshIngredient(Long id) {
+        if (snapshot == null) {
+            reload();
+            return;
+        }
+        Optional<IngredientEntry> loaded = ingredientRepository.findById(id).map(IngredientEntry::of);
+        List<IngredientEntry> ingredients = snapshot.ingredientsById.values().stream()
+                .filter(ingredient -> ingredient.id() != id)
+                .collect(Collectors.toList());
+        loaded.ifPresent(ingredients::add);
+        snapshot = new Snapshot(List.copyOf(snapshot.rolesById.values()), ingredients);
+    }
+
+    // Request tới trước khi khởi động xong (Tomcat đã mở cổng) thì nạp luôn, một lần duy nhất
+    private Snapshot current() {
+        Snapshot current = snapshot;
+        if (current == null) {
+            synchronized (this) {
+                if (snapshot == null) {
+                    reload();
+                }
+                current = snapshot;
+            }
+        }
+        return current;
+    }
+
+    private int size(Function<Snapshot, Map<?, ?>> part) {
+        Snapshot current = snapshot;
+        return current == null ? 0 : part.apply(current).size();
+    }
+
+    private static final class Snapshot {
+        private final Map<Long, RoleEntry> rolesById;
+        private final Map<String, RoleEntry> rolesByName;
+        private final Map<Long, IngredientEntry> ingredientsById;
+        private final Map<String, IngredientEntry> ingredientsByName;
+
+        private Snapshot(List<RoleEntry> roles, List<IngredientEntry> ingredients) {
+            this.rolesById = index(roles, RoleEntry::id, Comparator.comparingLong(RoleEntry::id));
+            this.rolesByName = index(roles, role -> normalize(role.name()), Comparator.comparingLong(RoleEntry::id));
+            this.ingredientsById = index(ingredients, IngredientEntry::id, Comparator.comparingLong(IngredientEntry::id));
+            this.ingredientsByName = index(ingredients, ingredient -> normalize(ingredient.name()),
+                    Comparator.comparingLong(IngredientEntry::id));
+        }
+
+        // Giữ thứ tự theo ID cho danh sách; trùng tên sau chuẩn hóa thì bản có ID nhỏ nhất thắng
+        private static <K, V> Map<K, V> index(List<V> values, Function<V, K> key, Comparator<V> order) {
+            Map<K, V> map = new LinkedHashMap<>();
+            values.stream().sorted(order).forEach(value -> map.putIfAbsent(key.apply(value), value));
+            return Collections.unmodifiableMap(map);
+        }
+    }
+
+    private record RoleEntry(long id, String name) {
+        // Role là entity có setter, mỗi lần trả ra một bản mới để caller không sửa được snapshot
+        Role toRole() {
+            Role role = new Role();
+            role.setId(id);
+            role.setName(name);
+            return role;
+        }
+    }
+
+    private record IngredientEntry(long id, String name, String icon) {
+        static IngredientEntry of(Ingredient ingredient) {
+            return new IngredientEntry(ingredient.getId(), ingredient.getName(), ingredient.getIcon());
+        }
+
+        IngredientDTO toDTO() {
+            IngredientDTO dto = new IngredientDTO();
+            dto.setId(id);
+            dto.setName(name);
+            dto.setIcon(icon);
+            return dto;
+        }
+    }
+}
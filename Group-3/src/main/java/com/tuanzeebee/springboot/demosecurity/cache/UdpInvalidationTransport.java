@@ -0,0 +1,110 @@
+package com.tuanzeebee.springboot.demosecurity.cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetSocketAddress;
+import java.net.SocketException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Gửi sự kiện bằng UDP tới các node đã biết trước (cache-invalidation.udp.peers=host:port,...),
+ * mặc định chỉ lắng nghe trên loopback để chạy thử nhiều node trên một máy.
+ * Gói có thể mất: InvalidationBus phát hiện qua sequence bị hụt và xóa toàn bộ cache cục bộ.
+ */
+@Component
+@ConditionalOnProperty(name = "cache-invalidation.transport", havingValue = "udp")
+public class UdpInvalidationTransport implements InvalidationTransport {
+    private static final Logger logger = LoggerFactory.getLogger(UdpInvalidationTransport.class);
+
+    private static final int MAX_PACKET_BYTES = 8192;
+
+    private final ObjectMapper objectMapper;
+    private final InetSocketAddress bindAddress;
+    private final List<InetSocketAddress> peers = new ArrayList<>();
+    private DatagramSocket socket;
+
+    @Autowired
+    public UdpInvalidationTransport(ObjectMapper objectMapper,
+                                    @Value("${cache-invalidation.udp.bind:127.0.0.1}") String bindHost,
+                                    @Value("${cache-invalidation.udp.port:9711}") int port,
+                                    @Value("${cache-invalidation.udp.peers:}") String peerList) {
+        this.objectMapper = objectMapper;
+        this.bindAddress = new InetSocketAddress(bindHost, port);
+        Arrays.stream(peerList.split(","))
+                .map(String::trim)
+                .filter(peer -> !peer.isEmpty())
+                .forEach(peer -> {
+                    int colon = peer.lastIndexOf(':');
+                    peers.add(new InetSocketAddress(peer.substring(0, colon), Integer.parseInt(peer.substring(colon + 1))));
+                });
+    }
+
+    @Override
+    public void publish(List<EntityChange> changes) {
+        for (EntityChange change : changes) {
+            byte[] payload;
+            try {
+                payload = objectMapper.writeValueAsBytes(change);
+            } catch (JsonProcessingException e) {
+                throw new RuntimeException("Không thể tuần tự hóa sự kiện: " + e.getMessage());
+            }
+            for (InetSocketAddress peer : peers) {
+                try {
+                    socket.send(new DatagramPacket(payload, payload.length, peer));
+                } catch (IOException e) {
+                    // Node nhận sẽ thấy sequence bị hụt
+                    logger.debug("Không gửi được sự kiện tới {}: {}", peer, e.getMessage());
+                }
+            }
+        }
+    }
+
+    @Override
+    public void start(Consumer<EntityChange> sink, Runnable resync) {
+        try {
+            socket = new DatagramSocket(bindAddress);
+        } catch (SocketException e) {
+            throw new RuntimeException("Không thể mở cổng UDP " + bindAddress + ": " + e.getMessage());
+        }
+        Thread receiver = new Thread(() -> receive(sink), "cache-invalidation-udp");
+        receiver.setDaemon(true);
+        receiver.start();
+    }
+
+    @Override
+    public void stop() {
+        if (socket != null) {
+            socket.close();
+        }
+    }
+
+    private void receive(Consumer<EntityChange> sink) {
+        byte[] buffer = new byte[MAX_PACKET_BYTES];
+        while (!socket.isClosed()) {
+            DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+            try {
+                socket.receive(packet);
+                sink.accept(objectMapper.readValue(packet.getData(), packet.getOffset(), packet.getLength(), EntityChange.class));
+            } catch (JsonProcessingException e) {
+                logger.warn("Bỏ qua gói UDP không đọc được từ {}: {}", packet.getSocketAddress(), e.getMessage());
+            } catch (IOException e) {
+                if (!socket.isClosed()) {
+                    logger.warn("Lỗi nhận sự kiện UDP: {}", e.getMessage());
+                }
+            }
+        }
+    }
+}
@@ -1,34 +1,42 @@
 package com.tuanzeebee.springboot.demosecurity.config;
 
+import com.tuanzeebee.springboot.demosecurity.cache.ReferenceDataRegistry;
 import com.tuanzeebee.springboot.demosecurity.entity.Role;
 import com.tuanzeebee.springboot.demosecurity.repository.RoleRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.stereotype.Component;
 
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
 @Component
 public class DataInitializer implements CommandLineRunner {
 
     private final RoleRepository roleRepository;
+    private final ReferenceDataRegistry referenceData;
 
     @Autowired
-    public DataInitializer(RoleRepository roleRepository) {
+    public DataInitializer(RoleRepository roleRepository, ReferenceDataRegistry referenceData) {
         this.roleRepository = roleRepository;
+        this.referenceData = referenceData;
     }
 
     @Override
     public void run(String... args) {
-        // Tạo các role mặc định nếu chúng chưa tồn tại
-        createRoleIfNotFound("USER");
-        createRoleIfNotFound("MANAGER");
-        createRoleIfNotFound("ADMIN");
-    }
-
-    private void createRoleIfNotFound(String name) {
-        if (!roleRepository.findByName(name).isPresent()) {
-            Role role = new Role();
-            role.setName(name);
-            roleRepository.save(role);
+        // Tạo các role mặc định nếu chúng chưa tồn tại (một câu SELECT khi đã đủ role, chạy trước khi nhận request)
+        Set<String> existing = roleRepository.findAll().stream()
+                .map(Role::getName)
+                .collect(Collectors.toSet());
+        for (String name : List.of("USER", "MANAGER", "ADMIN")) {
+            if (!existing.contains(name)) {
+                Role role = new Role();
+                role.setName(name);
+                roleRepository.save(role);
+            }
         }
+        // Quyền và nguyên liệu được tra trong bộ nhớ từ đây về sau
+        referenceData.reload();
     }
 }
@@ -0,0 +1,35 @@
+package com.tuanzeebee.springboot.demosecurity.config;
+
+import com.tuanzeebee.springboot.demosecurity.job.JobQueue;
+import com.tuanzeebee.springboot.demosecurity.service.PythonScriptService;
+import com.tuanzeebee.springboot.demosecurity.service.RecipeService;
+import com.tuanzeebee.springboot.demosecurity.service.UserService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Đăng ký handler cho các loại job nền. Handler gọi qua bean service (proxy) để mỗi lần chạy có transaction
+ * riêng; đăng ký ở đây thay vì trong chính service vì gọi this.method trong service sẽ bỏ qua proxy.
+ */
+@Component
+public class JobHandlerRegistrar {
+
+    @Autowired
+    public JobHandlerRegistrar(JobQueue jobQueue, UserService userService, RecipeService recipeService,
+                               PythonScriptService pythonScriptService) {
+        jobQueue.register(UserService.DELETE_JOB, "deletion", payload -> {
+            long userId = payload.get("userId").asLong();
+            return userService.deleteUserIfExists(userId)
+                    ? "Đã xóa người dùng " + userId : "Người dùng " + userId + " không còn tồn tại";
+        });
+        jobQueue.register(RecipeService.DELETE_JOB, "deletion", payload -> {
+            long recipeId = payload.get("recipeId").asLong();
+            return recipeService.deleteRecipeIfExists(recipeId)
+                    ? "Đã xóa công thức " + recipeId : "Công thức " + recipeId + " không còn tồn tại";
+        });
+        // Script crawl dữ liệu chạy lâu và tự ghi dữ liệu: chỉ thử lại một lần
+        jobQueue.register(PythonScriptService.SCRIPT_JOB, "scripts", 2, payload -> pythonScriptService.run(
+                payload.path("script").asText(),
+                payload.has("numRecipes") ? payload.get("numRecipes").asInt() : null));
+    }
+}
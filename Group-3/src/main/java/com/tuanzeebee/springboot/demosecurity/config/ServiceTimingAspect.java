@@ -0,0 +1,50 @@
+package com.tuanzeebee.springboot.demosecurity.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Đo thời gian mọi phương thức public trong package service (metric app.service.calls,
+ * tag theo class, method và exception). Bỏ qua các hàm ghi nhận sự kiện trên hot path
+ * (trending, lượt xem) vì chúng phải rẻ hơn chính chi phí đo.
+ */
+@Aspect
+@Component
+public class ServiceTimingAspect {
+
+    private final MeterRegistry meterRegistry;
+
+    @Autowired
+    public ServiceTimingAspect(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    // within(...) đứng đầu để AspectJ loại cả class ngoài package service (repository, controller...) mà không
+    // phải xét từng phương thức của nó lúc tạo bean
+    @Around("within(com.tuanzeebee.springboot.demosecurity.service..*)"
+            + " && execution(public * com.tuanzeebee.springboot.demosecurity.service..*(..))"
+            + " && !execution(* com.tuanzeebee.springboot.demosecurity.service.TrendingService.record(..))"
+            + " && !execution(* com.tuanzeebee.springboot.demosecurity.service.RecipeViewService.recordView(..))")
+    public Object timeServiceCall(ProceedingJoinPoint joinPoint) throws Throwable {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String exception = "none";
+        try {
+            return joinPoint.proceed();
+        } catch (Throwable e) {
+            exception = e.getClass().getSimpleName();
+            throw e;
+        } finally {
+            sample.stop(Timer.builder("app.service.calls")
+                    .description("Thời gian thực thi phương thức service")
+                    .tag("class", joinPoint.getSignature().getDeclaringType().getSimpleName())
+                    .tag("method", joinPoint.getSignature().getName())
+                    .tag("exception", exception)
+                    .register(meterRegistry));
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.tuanzeebee.springboot.demosecurity.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+/**
+ * Chế độ virtual thread (spring.threads.virtual.enabled=true, cần Java 21+): Tomcat, @Async
+ * và @Scheduled chạy trên virtual thread do Spring Boot cấu hình sẵn. Lớp này bổ sung giới hạn
+ * số truy cập DB đồng thời và theo dõi pinning.
+ */
+@Configuration
+@ConditionalOnProperty(name = "spring.threads.virtual.enabled", havingValue = "true")
+public class VirtualThreadConfig {
+
+    // Chỉ bọc bean "dataSource" (bean mà JPA/JdbcTemplate dùng), không bọc các pool con bên dưới
+    @Bean
+    public static BeanPostProcessor dbConcurrencyLimiter(Environment environment) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!"dataSource".equals(beanName) || !(bean instanceof DataSource dataSource)) {
+                    return bean;
+                }
+                int permits = environment.getProperty("virtual-threads.db-permits", Integer.class,
+                        environment.getProperty("spring.datasource.hikari.maximum-pool-size", Integer.class, 10));
+                Duration timeout = environment.getProperty("virtual-threads.db-acquire-timeout", Duration.class,
+                        Duration.ofSeconds(30));
+                return new ConcurrencyLimitedDataSource(dataSource, permits, timeout);
+            }
+        };
+    }
+
+    @Bean
+    public VirtualThreadPinningMonitor virtualThreadPinningMonitor(
+            @Value("${virtual-threads.pinned-threshold:20ms}") Duration threshold, MeterRegistry meterRegistry,
+            ObjectProvider<DataSource> dataSources) {
+        if (dataSources.getIfAvailable() instanceof ConcurrencyLimitedDataSource limited) {
+            Gauge.builder("app.db.permits.waiting", limited, ConcurrencyLimitedDataSource::getQueueLength)
+                    .description("Số thread đang chờ lượt truy cập DB")
+                    .register(meterRegistry);
+        }
+        return new VirtualThreadPinningMonitor(threshold, meterRegistry);
+    }
+}
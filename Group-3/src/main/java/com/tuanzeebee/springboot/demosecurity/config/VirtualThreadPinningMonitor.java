@@ -0,0 +1,78 @@
+package com.tuanzeebee.springboot.demosecurity.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Theo dõi sự kiện JFR jdk.VirtualThreadPinned: virtual thread bị giữ chặt trên carrier thread
+ * (thường do synchronized bao quanh I/O hoặc JDBC) lâu hơn ngưỡng cấu hình. Mỗi lần xảy ra
+ * sẽ tăng metric app.virtual-threads.pinned và log vài frame đầu tiên của code ứng dụng.
+ */
+public class VirtualThreadPinningMonitor implements SmartLifecycle {
+    private static final Logger logger = LoggerFactory.getLogger(VirtualThreadPinningMonitor.class);
+
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+    private static final String APP_PACKAGE = "com.tuanzeebee.";
+    private static final int LOGGED_FRAMES = 5;
+
+    private final Duration threshold;
+    private final Counter pinnedCounter;
+    private RecordingStream stream;
+
+    public VirtualThreadPinningMonitor(Duration threshold, MeterRegistry meterRegistry) {
+        this.threshold = threshold;
+        this.pinnedCounter = Counter.builder("app.virtual-threads.pinned")
+                .description("Số lần virtual thread bị pin vào carrier thread quá ngưỡng")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void start() {
+        if (Runtime.version().feature() < 21) {
+            logger.warn("JVM {} chưa hỗ trợ virtual thread, request vẫn chạy trên platform thread",
+                    Runtime.version());
+            return;
+        }
+        stream = new RecordingStream();
+        stream.enable(PINNED_EVENT).withThreshold(threshold).withStackTrace();
+        stream.onEvent(PINNED_EVENT, this::onPinned);
+        stream.startAsync();
+    }
+
+    @Override
+    public void stop() {
+        if (stream != null) {
+            stream.close();
+            stream = null;
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return stream != null;
+    }
+
+    private void onPinned(RecordedEvent event) {
+        pinnedCounter.increment();
+        List<RecordedFrame> frames = event.getStackTrace() == null ? List.of() : event.getStackTrace().getFrames();
+        String appFrames = frames.stream()
+                .filter(frame -> frame.getMethod().getType().getName().startsWith(APP_PACKAGE))
+                .limit(LOGGED_FRAMES)
+                .map(frame -> frame.getMethod().getType().getName() + "." + frame.getMethod().getName()
+                        + ":" + frame.getLineNumber())
+                .collect(Collectors.joining(" <- "));
+        logger.warn("Virtual thread bị pin {}ms tại {}", event.getDuration().toMillis(),
+                appFrames.isEmpty() ? frames.stream().limit(LOGGED_FRAMES).map(RecordedFrame::toString)
+                        .collect(Collectors.joining(" <- ")) : appFrames);
+    }
+}
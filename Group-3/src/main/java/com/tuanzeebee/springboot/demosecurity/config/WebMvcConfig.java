@@ -23,10 +23,11 @@ public class WebMvcConfig implements WebMvcConfigurer {
         registry.addInterceptor(new HandlerInterceptor() {
             @Override
             public void postHandle(HttpServletRequest request, HttpServletResponse response, Object handler, ModelAndView modelAndView) {
-                if (modelAndView != null) {
+                // Controller đã tự đặt "user" (trang hồ sơ, form đang sửa dở) thì giữ nguyên, khỏi truy vấn lại
+                if (modelAndView != null && !modelAndView.getModelMap().containsAttribute("user")) {
                     Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
                     if (authentication != null && authentication.isAuthenticated() && !authentication.getName().equals("anonymousUser")) {
-                        modelAndView.addObject("user", userService.findByUsername(authentication.getName()));
+                        modelAndView.addObject("user", userService.getProfile(authentication.getName()));
                     }
                 }
             }
@@ -0,0 +1,97 @@
+package com.tuanzeebee.springboot.demosecurity.controller;
+
+import org.springframework.context.annotation.Lazy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.tuanzeebee.springboot.demosecurity.activity.ActivityQueryService;
+import com.tuanzeebee.springboot.demosecurity.activity.ActivityType;
+import com.tuanzeebee.springboot.demosecurity.dao.ActivityCountDTO;
+
+import java.time.LocalDate;
+import java.util.List;
+
+// Thống kê nhật ký hoạt động của node đang phục vụ request; mặc định 30 ngày gần nhất, tối đa một năm
+@Lazy
+@RestController
+@RequestMapping("/api/admin/activity")
+public class AdminActivityController {
+
+    private static final int DEFAULT_DAYS = 30;
+    private static final int MAX_DAYS = 366;
+    private static final int MAX_LIMIT = 100;
+
+    private final ActivityQueryService activityQueryService;
+
+    @Autowired
+    public AdminActivityController(ActivityQueryService activityQueryService) {
+        this.activityQueryService = activityQueryService;
+    }
+
+    // /api/admin/activity/by-day?type=VIEW&from=2024-01-01&to=2024-01-31
+    @GetMapping("/by-day")
+    public ResponseEntity<List<ActivityCountDTO>> countByDay(
+            @RequestParam(required = false) ActivityType type,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        LocalDate end = to != null ? to : LocalDate.now();
+        LocalDate start = from != null ? from : end.minusDays(DEFAULT_DAYS - 1);
+        if (!isValidRange(start, end)) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(activityQueryService.countByDay(type, start, end));
+    }
+
+    @GetMapping("/by-recipe")
+    public ResponseEntity<List<ActivityCountDTO>> countByRecipe(
+            @RequestParam(required = false) ActivityType type,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "20") int limit) {
+        LocalDate end = to != null ? to : LocalDate.now();
+        LocalDate start = from != null ? from : end.minusDays(DEFAULT_DAYS - 1);
+        if (!isValidRange(start, end)) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(activityQueryService.countByRecipe(type, start, end, clamp(limit)));
+    }
+
+    @GetMapping("/by-user")
+    public ResponseEntity<List<ActivityCountDTO>> countByUser(
+            @RequestParam(required = false) ActivityType type,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "20") int limit) {
+        LocalDate end = to != null ? to : LocalDate.now();
+        LocalDate start = from != null ? from : end.minusDays(DEFAULT_DAYS - 1);
+        if (!isValidRange(start, end)) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(activityQueryService.countByUser(type, start, end, clamp(limit)));
+    }
+
+    @GetMapping("/daily-actives")
+    public ResponseEntity<List<ActivityCountDTO>> dailyActiveUsers(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        LocalDate end = to != null ? to : LocalDate.now();
+        LocalDate start = from != null ? from : end.minusDays(DEFAULT_DAYS - 1);
+        if (!isValidRange(start, end)) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(activityQueryService.dailyActiveUsers(start, end));
+    }
+
+    private static boolean isValidRange(LocalDate start, LocalDate end) {
+        return !end.isBefore(start) && end.toEpochDay() - start.toEpochDay() < MAX_DAYS;
+    }
+
+    private static int clamp(int limit) {
+        return Math.min(Math.max(limit, 1), MAX_LIMIT);
+    }
+}
@@ -13,8 +13,9 @@ import java.util.stream.Collectors;
 import java.util.regex.Pattern;
 
 import jakarta.validation.Valid;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.core.Authentication;
+import org.springframework.data.domain.Page;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.validation.BindingResult;
@@ -27,66 +28,81 @@ import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
+import com.tuanzeebee.springboot.demosecurity.cache.ReferenceDataRegistry;
+import com.tuanzeebee.springboot.demosecurity.dao.DashboardSnapshot;
 import com.tuanzeebee.springboot.demosecurity.dao.IngredientDTO;
 import com.tuanzeebee.springboot.demosecurity.dao.RecipeDTO;
+import com.tuanzeebee.springboot.demosecurity.dao.RecipeSummaryDTO;
+import com.tuanzeebee.springboot.demosecurity.dao.UserDTO;
 import com.tuanzeebee.springboot.demosecurity.entity.Ingredient;
 import com.tuanzeebee.springboot.demosecurity.entity.Role;
 import com.tuanzeebee.springboot.demosecurity.entity.User;
-import com.tuanzeebee.springboot.demosecurity.repository.RoleRepository;
 import com.tuanzeebee.springboot.demosecurity.service.IngredientService;
 import com.tuanzeebee.springboot.demosecurity.service.RecipeService;
 import com.tuanzeebee.springboot.demosecurity.service.UserService;
 import com.tuanzeebee.springboot.demosecurity.service.PostService;
+import com.tuanzeebee.springboot.demosecurity.service.StatsSnapshotService;
 
+@Lazy
 @Controller
 @RequestMapping("/admin")
 public class AdminController {
 
     private final UserService userService;
-    private final RoleRepository roleRepository;
+    private final ReferenceDataRegistry referenceData;
     private final IngredientService ingredientService;
     private final RecipeService recipeService;
     private final PostService postService;
+    private final StatsSnapshotService statsSnapshotService;
+
+    // Chỉ sắp xếp theo cột có index
+    private static final Set<String> USER_SORTS = Set.of("id", "username", "createdAt");
+    private static final Set<String> RECIPE_SORTS = Set.of("id", "name", "createdAt");
 
     // Regex kiểm tra email
     private static final String EMAIL_REGEX = "^[A-Za-z0-9+_.-]+@(.+)$";
 
     @Autowired
     public AdminController(UserService userService, 
-                           RoleRepository roleRepository, 
+                           ReferenceDataRegistry referenceData,
                            IngredientService ingredientService,
                            RecipeService recipeService,
-                           PostService postService) {
+                           PostService postService,
+                           StatsSnapshotService statsSnapshotService) {
         this.userService = userService;
-        this.roleRepository = roleRepository;
+        this.referenceData = referenceData;
         this.ingredientService = ingredientService;
         this.recipeService = recipeService;
         this.postService = postService;
+        this.statsSnapshotService = statsSnapshotService;
     }
     
     @GetMapping({"", "/", "/dashboard"})
-    public String dashboard(Model model, Authentication authentication) {
-        long totalUsers = userService.countUsers();
-        long totalRecipes = recipeService.countRecipes();
-        long totalIngredients = ingredientService.countIngredients();
-        long totalComments = postService.countPosts();
-
-        String username = authentication.getName();
-        User currentUser = userService.findByUsername(username);
-        model.addAttribute("user", currentUser);
+    public String dashboard(Model model) {
+        // Đọc snapshot đã tính sẵn; "user" được WebMvcConfig thêm vào model
+        DashboardSnapshot snapshot = statsSnapshotService.getSnapshot();
+        model.addAttribute("snapshot", snapshot);
 
-        model.addAttribute("totalUsers", totalUsers);
-        model.addAttribute("totalRecipes", totalRecipes);
-        model.addAttribute("totalIngredients", totalIngredients);
-        model.addAttribute("totalComments", totalComments);
+        model.addAttribute("totalUsers", snapshot.getTotalUsers());
+        model.addAttribute("totalRecipes", snapshot.getTotalRecipes());
+        model.addAttribute("totalIngredients", snapshot.getTotalIngredients());
+        model.addAttribute("totalComments", snapshot.getTotalPosts());
 
         return "admin/dashboard";
     }
 
     @GetMapping("/users")
-    public String userManagement(Model model) {
-        model.addAttribute("users", userService.getAllUsers());
-        model.addAttribute("roles", roleRepository.findAll());
+    public String userManagement(@RequestParam(defaultValue = "0") int page,
+                                 @RequestParam(defaultValue = "20") int size,
+                                 @RequestParam(required = false) String q,
+                                 @RequestParam(defaultValue = "id") String sort,
+                                 @RequestParam(defaultValue = "asc") String dir,
+                                 Model model) {
+        Page<UserDTO> users = userService.getUserPage(q, AdminPaging.pageable(page, size, sort, dir, USER_SORTS, "id"));
+        AdminPaging.addTo(model, users);
+        model.addAttribute("users", users.getContent());
+        model.addAttribute("q", q);
+        model.addAttribute("roles", referenceData.getRoles());
         model.addAttribute("newUser", new User());
         return "admin/users";
     }
@@ -117,7 +133,7 @@ public class AdminController {
 
         try {
             Set<Role> roles = roleIds.stream()
-                    .map(roleId -> roleRepository.findById(roleId).orElseThrow())
+                    .map(roleId -> referenceData.findRole(roleId).orElseThrow())
                     .collect(Collectors.toSet());
             user.setRoles(roles);
             userService.createUser(user);
@@ -175,7 +191,7 @@ public class AdminController {
             }
 
             Set<Role> roles = roleIds.stream()
-                    .map(roleId -> roleRepository.findById(roleId).orElseThrow())
+                    .map(roleId -> referenceData.findRole(roleId).orElseThrow())
                     .collect(Collectors.toSet());
             user.setRoles(roles);
 
@@ -229,9 +245,9 @@ public class AdminController {
     @PostMapping("/users/delete/{id}")
     public String deleteUser(@PathVariable Long id, RedirectAttributes redirectAttributes) {
         try {
-            userService.deleteUser(id);
+            long jobId = userService.requestDelete(id);
             redirectAttributes.addFlashAttribute("message", 
-                Map.of("type", "alert-success", "content", "Xóa người dùng thành công!"));
+                Map.of("type", "alert-success", "content", "Đang xóa người dùng trong nền (job #" + jobId + ")"));
         } catch (RuntimeException e) {
             redirectAttributes.addFlashAttribute("message", 
                 Map.of("type", "alert-danger", "content", e.getMessage()));
@@ -293,18 +309,19 @@ public class AdminController {
         return "redirect:/admin/ingredients";
     }
 
+    // Nguyên liệu của công thức được nạp khi mở form sửa (/api/recipes/{id}), chọn nguyên liệu bằng ô gợi ý
     @GetMapping("/recipes")
-    public String showRecipesPage(Model model) {
-        List<RecipeDTO> recipes = recipeService.getAllRecipes();
-        
-        recipes.forEach(recipe -> {
-            if (recipe.getIngredients() == null) {
-                recipe.setIngredients(new HashSet<>());
-            }
-        });
-        
-        model.addAttribute("recipes", recipes);
-        model.addAttribute("ingredients", ingredientService.getAllIngredients());
+    public String showRecipesPage(@RequestParam(defaultValue = "0") int page,
+                                  @RequestParam(defaultValue = "20") int size,
+                                  @RequestParam(required = false) String q,
+                                  @RequestParam(defaultValue = "id") String sort,
+                                  @RequestParam(defaultValue = "asc") String dir,
+                                  Model model) {
+        Page<RecipeSummaryDTO> recipes = recipeService.getRecipeSummaryPage(q,
+                AdminPaging.pageable(page, size, sort, dir, RECIPE_SORTS, "id"));
+        AdminPaging.addTo(model, recipes);
+        model.addAttribute("recipes", recipes.getContent());
+        model.addAttribute("q", q);
         return "admin/recipes";
     }
 
@@ -393,9 +410,9 @@ public class AdminController {
     @GetMapping("/recipes/delete/{id}")
     public String deleteRecipe(@PathVariable Long id, RedirectAttributes redirectAttributes) {
         try {
-            recipeService.deleteRecipe(id);
+            long jobId = recipeService.requestDelete(id);
             redirectAttributes.addFlashAttribute("message", 
-                Map.of("type", "alert-success", "content", "Xóa công thức thành công!"));
+                Map.of("type", "alert-success", "content", "Đang xóa công thức trong nền (job #" + jobId + ")"));
         } catch (RuntimeException e) {
             String errorMessage = e.getMessage() != null ? e.getMessage() : "Có lỗi xảy ra khi xóa công thức";
             redirectAttributes.addFlashAttribute("message", 
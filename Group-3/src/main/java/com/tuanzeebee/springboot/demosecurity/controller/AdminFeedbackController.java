@@ -1,18 +1,22 @@
 package com.tuanzeebee.springboot.demosecurity.controller;
 
-import com.tuanzeebee.springboot.demosecurity.dao.PostDTO;
+import com.tuanzeebee.springboot.demosecurity.dao.PostSummaryDTO;
 import com.tuanzeebee.springboot.demosecurity.entity.Post;
 import com.tuanzeebee.springboot.demosecurity.service.PostService;
 import com.tuanzeebee.springboot.demosecurity.service.UserService;
 import com.tuanzeebee.springboot.demosecurity.service.RecipeService;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
 import java.util.List;
+import java.util.Set;
 
+@Lazy
 @Controller
 @RequestMapping("/admin/feedback")
 public class AdminFeedbackController {
@@ -26,13 +30,30 @@ public class AdminFeedbackController {
     @Autowired
     private RecipeService recipeService;
 
+    // Chỉ sắp xếp theo cột có index
+    private static final Set<String> POST_SORTS = Set.of("createdAt", "id");
+
+    // Lọc theo người đăng / công thức chọn từ ô gợi ý (/admin/lookup), không nhúng danh sách đầy đủ vào trang
     @GetMapping
-    public String showFeedbackPage(Model model) {
+    public String showFeedbackPage(@RequestParam(defaultValue = "0") int page,
+                                   @RequestParam(defaultValue = "20") int size,
+                                   @RequestParam(required = false) Long userId,
+                                   @RequestParam(required = false) Long recipeId,
+                                   @RequestParam(defaultValue = "createdAt") String sort,
+                                   @RequestParam(defaultValue = "desc") String dir,
+                                   Model model) {
         try {
-            List<PostDTO> posts = postService.getAllPosts();
-            model.addAttribute("posts", posts);
-            model.addAttribute("users", userService.getAllUsers());
-            model.addAttribute("recipes", recipeService.getAllRecipes());
+            Page<PostSummaryDTO> posts = postService.getPostSummaryPage(userId, recipeId,
+                    AdminPaging.pageable(page, size, sort, dir, POST_SORTS, "createdAt"));
+            AdminPaging.addTo(model, posts);
+            model.addAttribute("posts", posts.getContent());
+            if (userId != null) {
+                model.addAttribute("filterUser", userService.getUserById(userId));
+            }
+            if (recipeId != null) {
+                model.addAttribute("filterRecipe", recipeService.getRecipeSummariesByIds(List.of(recipeId))
+                        .stream().findFirst().orElse(null));
+            }
         } catch (Exception e) {
             model.addAttribute("message", 
                 new Message("danger", "Lỗi khi tải danh sách bình luận: " + e.getMessage()));
@@ -0,0 +1,70 @@
+package com.tuanzeebee.springboot.demosecurity.controller;
+
+import org.springframework.context.annotation.Lazy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Controller;
+import org.springframework.ui.Model;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.servlet.mvc.support.RedirectAttributes;
+
+import com.tuanzeebee.springboot.demosecurity.job.JobQueue;
+
+import java.util.List;
+import java.util.Map;
+
+// Theo dõi hàng đợi job nền: số job theo trạng thái, job gần nhất, chạy lại hoặc xóa job DEAD
+@Lazy
+@Controller
+@RequestMapping("/admin/jobs")
+public class AdminJobController {
+
+    private static final int MAX_LIMIT = 500;
+
+    private final JobQueue jobQueue;
+
+    @Autowired
+    public AdminJobController(JobQueue jobQueue) {
+        this.jobQueue = jobQueue;
+    }
+
+    @GetMapping
+    public String showJobsPage(@RequestParam(required = false) String status,
+                               @RequestParam(required = false) String queue,
+                               @RequestParam(defaultValue = "100") int limit,
+                               Model model) {
+        model.addAttribute("counts", jobQueue.countByQueueAndStatus());
+        model.addAttribute("jobs", jobQueue.findJobs(status, queue, Math.min(Math.max(limit, 1), MAX_LIMIT)));
+        model.addAttribute("statuses", List.of(JobQueue.PENDING, JobQueue.RUNNING, JobQueue.SUCCEEDED, JobQueue.DEAD));
+        model.addAttribute("status", status);
+        model.addAttribute("queue", queue);
+        return "admin/jobs";
+    }
+
+    @PostMapping("/{id}/retry")
+    public String retryJob(@PathVariable long id, RedirectAttributes redirectAttributes) {
+        if (jobQueue.retry(id)) {
+            redirectAttributes.addFlashAttribute("message",
+                Map.of("type", "alert-success", "content", "Đã đưa job #" + id + " vào hàng đợi lại"));
+        } else {
+            redirectAttributes.addFlashAttribute("message",
+                Map.of("type", "alert-danger", "content", "Chỉ chạy lại được job DEAD"));
+        }
+        return "redirect:/admin/jobs";
+    }
+
+    @PostMapping("/{id}/delete")
+    public String deleteJob(@PathVariable long id, RedirectAttributes redirectAttributes) {
+        if (jobQueue.delete(id)) {
+            redirectAttributes.addFlashAttribute("message",
+                Map.of("type", "alert-success", "content", "Đã xóa job #" + id));
+        } else {
+            redirectAttributes.addFlashAttribute("message",
+                Map.of("type", "alert-danger", "content", "Không xóa được job đang chạy hoặc không tồn tại"));
+        }
+        return "redirect:/admin/jobs";
+    }
+}
@@ -0,0 +1,60 @@
+package com.tuanzeebee.springboot.demosecurity.controller;
+
+import java.util.List;
+
+import org.springframework.context.annotation.Lazy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.tuanzeebee.springboot.demosecurity.dao.LookupOptionDTO;
+import com.tuanzeebee.springboot.demosecurity.service.IngredientService;
+import com.tuanzeebee.springboot.demosecurity.service.RecipeService;
+import com.tuanzeebee.springboot.demosecurity.service.UserService;
+
+// Nguồn dữ liệu cho ô gợi ý (typeahead) trên các trang admin: tìm theo tiền tố, trả về vài dòng id + nhãn
+@Lazy
+@RestController
+@RequestMapping("/admin/lookup")
+public class AdminLookupController {
+
+    private static final int MAX_LIMIT = 20;
+
+    private final UserService userService;
+    private final RecipeService recipeService;
+    private final IngredientService ingredientService;
+
+    @Autowired
+    public AdminLookupController(UserService userService,
+                                 RecipeService recipeService,
+                                 IngredientService ingredientService) {
+        this.userService = userService;
+        this.recipeService = recipeService;
+        this.ingredientService = ingredientService;
+    }
+
+    @GetMapping("/users")
+    public ResponseEntity<List<LookupOptionDTO>> lookupUsers(@RequestParam(defaultValue = "") String q,
+                                                             @RequestParam(defaultValue = "10") int limit) {
+        return ResponseEntity.ok(userService.lookupUsers(q, clamp(limit)));
+    }
+
+    @GetMapping("/recipes")
+    public ResponseEntity<List<LookupOptionDTO>> lookupRecipes(@RequestParam(defaultValue = "") String q,
+                                                               @RequestParam(defaultValue = "10") int limit) {
+        return ResponseEntity.ok(recipeService.lookupRecipes(q, clamp(limit)));
+    }
+
+    @GetMapping("/ingredients")
+    public ResponseEntity<List<LookupOptionDTO>> lookupIngredients(@RequestParam(defaultValue = "") String q,
+                                                                   @RequestParam(defaultValue = "10") int limit) {
+        return ResponseEntity.ok(ingredientService.lookupIngredients(q, clamp(limit)));
+    }
+
+    private static int clamp(int limit) {
+        return Math.min(Math.max(limit, 1), MAX_LIMIT);
+    }
+}
@@ -0,0 +1,55 @@
+package com.tuanzeebee.springboot.demosecurity.controller;
+
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.ui.Model;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import org.springframework.web.util.UriComponents;
+
+// Phân trang, sắp xếp cho các bảng admin: kích thước trang bị chặn trên và chỉ sắp xếp theo cột có index,
+// để mỗi lần mở trang chỉ đọc một số dòng cố định dù bảng lớn đến đâu
+final class AdminPaging {
+
+    static final int MAX_SIZE = 100;
+    private static final int PAGE_LINKS_AROUND = 2;
+
+    private AdminPaging() {
+    }
+
+    static Pageable pageable(int page, int size, String sort, String dir, Set<String> sortable, String defaultSort) {
+        String property = sortable.contains(sort) ? sort : defaultSort;
+        Sort.Direction direction = "desc".equalsIgnoreCase(dir) ? Sort.Direction.DESC : Sort.Direction.ASC;
+        return PageRequest.of(Math.max(page, 0), Math.min(Math.max(size, 1), MAX_SIZE), Sort.by(direction, property));
+    }
+
+    // pageUrl / sortUrl là URL hiện tại bỏ tham số trang (và sắp xếp), kết thúc bằng '?' hoặc '&' để template nối tiếp
+    static void addTo(Model model, Page<?> page) {
+        Sort.Order order = page.getSort().stream().findFirst().orElse(null);
+        int first = Math.max(0, page.getNumber() - PAGE_LINKS_AROUND);
+        int last = Math.min(page.getTotalPages() - 1, page.getNumber() + PAGE_LINKS_AROUND);
+        List<Integer> pageNumbers = IntStream.rangeClosed(first, last).boxed().collect(Collectors.toList());
+
+        model.addAttribute("page", page);
+        model.addAttribute("pageNumbers", pageNumbers);
+        model.addAttribute("sort", order != null ? order.getProperty() : null);
+        model.addAttribute("dir", order != null && order.isDescending() ? "desc" : "asc");
+        model.addAttribute("pageUrl", currentUrlWithout("page"));
+        model.addAttribute("sortUrl", currentUrlWithout("page", "sort", "dir"));
+    }
+
+    private static String currentUrlWithout(String... params) {
+        ServletUriComponentsBuilder builder = ServletUriComponentsBuilder.fromCurrentRequest();
+        for (String param : params) {
+            builder.replaceQueryParam(param);
+        }
+        UriComponents uri = builder.build();
+        return uri.getPath() + (uri.getQuery() == null ? "?" : "?" + uri.getQuery() + "&");
+    }
+}
@@ -0,0 +1,34 @@
+package com.tuanzeebee.springboot.demosecurity.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.tuanzeebee.springboot.demosecurity.event.EventBroker;
+import com.tuanzeebee.springboot.demosecurity.event.LiveEvent;
+
+// Luồng SSE thay cho việc gọi lại /api/posts/recipe/{id} để xem bài đăng, like, bình luận mới
+@RestController
+@RequestMapping("/api/live")
+public class LiveEventController {
+    private final EventBroker eventBroker;
+
+    @Autowired
+    public LiveEventController(EventBroker eventBroker) {
+        this.eventBroker = eventBroker;
+    }
+
+    @GetMapping(path = "/recipes/{recipeId}", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter subscribeRecipe(@PathVariable Long recipeId) {
+        return eventBroker.subscribe(LiveEvent.recipeTopic(recipeId));
+    }
+
+    @GetMapping(path = "/posts/{postId}", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter subscribePost(@PathVariable Long postId) {
+        return eventBroker.subscribe(LiveEvent.postTopic(postId));
+    }
+}
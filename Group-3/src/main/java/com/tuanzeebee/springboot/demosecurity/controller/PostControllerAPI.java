@@ -1,45 +1,63 @@
 package com.tuanzeebee.springboot.demosecurity.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 
+import com.tuanzeebee.springboot.demosecurity.dao.LikeStateDTO;
 import com.tuanzeebee.springboot.demosecurity.dao.PostDTO;
 import com.tuanzeebee.springboot.demosecurity.entity.Post;
 import com.tuanzeebee.springboot.demosecurity.service.PostService;
 
 import java.util.List;
+import java.util.Set;
+import java.util.function.Supplier;
 @RestController
 @RequestMapping("/api/posts")
 public class PostControllerAPI {
+    // Trường có thể lấy từ projection rút gọn (user và recipe ở bản rút gọn chỉ còn id, tên, ảnh)
+    private static final Set<String> SUMMARY_FIELDS = Set.of("id", "content", "createdAt", "likesCount", "commentsCount");
+
     private final PostService postService;
+    private final ObjectMapper objectMapper;
     
     @Autowired
-    public PostControllerAPI(PostService postService) {
+    public PostControllerAPI(PostService postService, ObjectMapper objectMapper) {
         this.postService = postService;
+        this.objectMapper = objectMapper;
     }
     
+    // view=summary|full và fields=a,b,c giống /api/recipes
     @GetMapping
-    public ResponseEntity<List<PostDTO>> getAllPosts() {
-        return ResponseEntity.ok(postService.getAllPosts());
+    public ResponseEntity<?> getAllPosts(@RequestParam(required = false) String view,
+                                         @RequestParam(required = false) String fields) {
+        return listPosts(view, fields, postService::getPostSummaries, postService::getAllPosts);
     }
     
     @GetMapping("/{id}")
-    public ResponseEntity<PostDTO> getPostById(@PathVariable Long id) {
-        return ResponseEntity.ok(postService.getPostById(id));
+    public ResponseEntity<?> getPostById(@PathVariable Long id, @RequestParam(required = false) String fields) {
+        ResponseView responseView = ResponseView.parse("full", fields, SUMMARY_FIELDS);
+        return ResponseEntity.ok(responseView.select(postService.getPostById(id), objectMapper));
     }
     
     @GetMapping("/user/{userId}")
-    public ResponseEntity<List<PostDTO>> getPostsByUserId(@PathVariable Long userId) {
-        return ResponseEntity.ok(postService.getPostsByUserId(userId));
+    public ResponseEntity<?> getPostsByUserId(@PathVariable Long userId,
+                                              @RequestParam(required = false) String view,
+                                              @RequestParam(required = false) String fields) {
+        return listPosts(view, fields,
+                () -> postService.getPostSummariesByUserId(userId), () -> postService.getPostsByUserId(userId));
     }
     
     @GetMapping("/recipe/{recipeId}")
-    public ResponseEntity<?> getPostsByRecipeId(@PathVariable Long recipeId) {
+    public ResponseEntity<?> getPostsByRecipeId(@PathVariable Long recipeId,
+                                                @RequestParam(required = false) String view,
+                                                @RequestParam(required = false) String fields) {
         try {
-            List<PostDTO> posts = postService.getPostsByRecipeId(recipeId);
-            return ResponseEntity.ok(posts);
+            return listPosts(view, fields,
+                    () -> postService.getPostSummariesByRecipeId(recipeId), () -> postService.getPostsByRecipeId(recipeId));
         } catch (Exception e) {
             e.printStackTrace();
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -77,6 +95,26 @@ public class PostControllerAPI {
         return ResponseEntity.noContent().build();
     }
     
+    // Like / bỏ like của người dùng đang đăng nhập; gọi lại nhiều lần cho cùng kết quả
+    @PutMapping("/{id}/likes/me")
+    public ResponseEntity<LikeStateDTO> likeAsCurrentUser(@PathVariable Long id, Authentication authentication) {
+        return ResponseEntity.ok(postService.like(id, authentication.getName()));
+    }
+
+    @DeleteMapping("/{id}/likes/me")
+    public ResponseEntity<LikeStateDTO> unlikeAsCurrentUser(@PathVariable Long id, Authentication authentication) {
+        return ResponseEntity.ok(postService.unlike(id, authentication.getName()));
+    }
+
+    // /api/posts/likes/me?ids=1,2,3: trạng thái trái tim của cả trang bài đăng trong một truy vấn
+    @GetMapping("/likes/me")
+    public ResponseEntity<List<LikeStateDTO>> getLikeStates(@RequestParam List<Long> ids, Authentication authentication) {
+        if (ids.size() > RecipeControllerAPI.MAX_BATCH_IDS) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(postService.getLikeStates(authentication.getName(), ids));
+    }
+
     @PostMapping("/{postId}/like/{userId}")
     public ResponseEntity<?> likePost(@PathVariable Long postId, @PathVariable Long userId) {
         try {
@@ -107,6 +145,16 @@ public class PostControllerAPI {
         }
     }
 
+    private ResponseEntity<?> listPosts(String view, String fields,
+                                        Supplier<List<?>> summaries, Supplier<List<PostDTO>> fullPosts) {
+        ResponseView responseView = ResponseView.parse(view, fields, SUMMARY_FIELDS);
+        if (responseView == null) {
+            return ResponseEntity.badRequest().body(new ErrorResponse("view phải là summary hoặc full"));
+        }
+        List<?> posts = responseView.isSummary() ? summaries.get() : fullPosts.get();
+        return ResponseEntity.ok(responseView.select(posts, objectMapper));
+    }
+
     private static class ErrorResponse {
         private String message;
 
@@ -1,5 +1,6 @@
 package com.tuanzeebee.springboot.demosecurity.controller;
 
+import com.tuanzeebee.springboot.demosecurity.dao.UserDTO;
 import com.tuanzeebee.springboot.demosecurity.entity.User;
 import com.tuanzeebee.springboot.demosecurity.service.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -29,19 +30,6 @@ public class ProfileController {
 
     private final String UPLOAD_DIR = "src/main/resources/static/uploads/avatars/";
 
-    @ModelAttribute
-    public void addUserToModel(Authentication authentication, Model model) {
-        if (authentication != null && authentication.isAuthenticated()) {
-            String username = authentication.getName();
-            if (!username.equals("anonymousUser")) {
-                User user = userService.findByUsername(username);
-                if (user != null) {
-                    model.addAttribute("user", user);
-                }
-            }
-        }
-    }
-
     @GetMapping
     public String showProfile(Authentication authentication, Model model) {
         if (authentication == null || !authentication.isAuthenticated()) {
@@ -54,11 +42,7 @@ public class ProfileController {
         }
 
         try {
-            User user = userService.findByUsername(username);
-            if (user == null) {
-                throw new RuntimeException("Không tìm thấy người dùng");
-            }
-            model.addAttribute("user", user);
+            model.addAttribute("user", userService.getProfile(username));
             return "profile";
         } catch (Exception e) {
             model.addAttribute("error", "Có lỗi xảy ra: " + e.getMessage());
@@ -78,11 +62,7 @@ public class ProfileController {
         }
 
         try {
-            User user = userService.findByUsername(username);
-            if (user == null) {
-                throw new RuntimeException("Không tìm thấy người dùng");
-            }
-            model.addAttribute("user", user);
+            model.addAttribute("user", userService.getProfile(username));
             return "edit-profile";
         } catch (Exception e) {
             model.addAttribute("error", "Có lỗi xảy ra: " + e.getMessage());
@@ -183,14 +163,14 @@ public class ProfileController {
 
             // Thêm thông báo thành công vào model
             model.addAttribute("success", "Cập nhật thông tin thành công!");
-            model.addAttribute("user", user);
+            model.addAttribute("user", userService.getProfile(username));
             
             // Hiển thị thông báo trong 3 giây trước khi chuyển hướng
             return "edit-profile";
 
         } catch (Exception e) {
             // Giữ lại thông tin đã nhập
-            User user = userService.findByUsername(authentication.getName());
+            UserDTO user = userService.getProfile(authentication.getName());
             user.setFirstName(firstName);
             user.setLastName(lastName);
             user.setEmail(email);
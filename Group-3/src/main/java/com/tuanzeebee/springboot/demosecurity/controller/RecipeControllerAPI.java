@@ -1,32 +1,79 @@
 package com.tuanzeebee.springboot.demosecurity.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import com.tuanzeebee.springboot.demosecurity.dao.RecipeDTO;
+import com.tuanzeebee.springboot.demosecurity.dao.TrendingRecipeDTO;
+import com.tuanzeebee.springboot.demosecurity.service.PostService;
 import com.tuanzeebee.springboot.demosecurity.service.RecipeService;
+import com.tuanzeebee.springboot.demosecurity.service.TrendingService;
 
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 @RestController
 @RequestMapping("/api/recipes")
 public class RecipeControllerAPI {
+    // Giới hạn số ID trong một request batch
+    static final int MAX_BATCH_IDS = 200;
+    // Trường có thể lấy từ projection rút gọn (description ở bản rút gọn bị cắt ngắn nên không tính)
+    private static final Set<String> SUMMARY_FIELDS = Set.of("id", "name", "image");
+
     private final RecipeService recipeService;
+    private final TrendingService trendingService;
+    private final PostService postService;
+    private final ObjectMapper objectMapper;
     
     @Autowired
-    public RecipeControllerAPI(RecipeService recipeService) {
+    public RecipeControllerAPI(RecipeService recipeService, TrendingService trendingService, PostService postService,
+                               ObjectMapper objectMapper) {
         this.recipeService = recipeService;
+        this.trendingService = trendingService;
+        this.postService = postService;
+        this.objectMapper = objectMapper;
     }
     
+    // /api/recipes?ids=1,2,3 trả về đúng các công thức đó (theo thứ tự ID), không có ids thì trả về tất cả.
+    // view=summary chỉ trả về id, name, image và mô tả ngắn; fields=name,image chỉ giữ các trường đó
     @GetMapping
-    public ResponseEntity<List<RecipeDTO>> getAllRecipes() {
-        return ResponseEntity.ok(recipeService.getAllRecipes());
+    public ResponseEntity<?> getAllRecipes(@RequestParam(required = false) List<Long> ids,
+                                           @RequestParam(required = false) String view,
+                                           @RequestParam(required = false) String fields) {
+        ResponseView responseView = ResponseView.parse(view, fields, SUMMARY_FIELDS);
+        if (responseView == null || (ids != null && ids.size() > MAX_BATCH_IDS)) {
+            return ResponseEntity.badRequest().build();
+        }
+        Object recipes;
+        if (responseView.isSummary()) {
+            recipes = ids == null ? recipeService.getRecipeSummaries() : recipeService.getRecipeSummariesByIds(ids);
+        } else {
+            recipes = ids == null ? recipeService.getAllRecipes() : recipeService.getRecipesByIds(ids);
+        }
+        return ResponseEntity.ok(responseView.select(recipes, objectMapper));
+    }
+    
+    // Số bài đăng theo công thức: {"1": 3, "2": 0}
+    @GetMapping("/post-counts")
+    public ResponseEntity<Map<Long, Long>> getPostCounts(@RequestParam List<Long> ids) {
+        if (ids.size() > MAX_BATCH_IDS) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(postService.getPostCountsByRecipeIds(ids));
+    }
+    
+    @GetMapping("/trending")
+    public ResponseEntity<List<TrendingRecipeDTO>> getTrendingRecipes() {
+        return ResponseEntity.ok(trendingService.getTrendingRecipes());
     }
     
     @GetMapping("/{id}")
-    public ResponseEntity<RecipeDTO> getRecipeById(@PathVariable Long id) {
-        return ResponseEntity.ok(recipeService.getRecipeById(id));
+    public ResponseEntity<?> getRecipeById(@PathVariable Long id, @RequestParam(required = false) String fields) {
+        ResponseView responseView = ResponseView.parse("full", fields, SUMMARY_FIELDS);
+        return ResponseEntity.ok(responseView.select(recipeService.getRecipeById(id), objectMapper));
     }
     
     @GetMapping("/ingredient/{ingredientId}")
@@ -44,9 +91,9 @@ public class RecipeControllerAPI {
         return ResponseEntity.ok(recipeService.updateRecipe(id, recipeDTO));
     }
     
+    // Xóa chạy nền: 202 kèm ID job
     @DeleteMapping("/{id}")
-    public ResponseEntity<Void> deleteRecipe(@PathVariable Long id) {
-        recipeService.deleteRecipe(id);
-        return ResponseEntity.noContent().build();
+    public ResponseEntity<Map<String, Long>> deleteRecipe(@PathVariable Long id) {
+        return ResponseEntity.accepted().body(Map.of("jobId", recipeService.requestDelete(id)));
     }
 }
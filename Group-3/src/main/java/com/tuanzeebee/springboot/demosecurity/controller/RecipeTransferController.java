@@ -0,0 +1,99 @@
+package com.tuanzeebee.springboot.demosecurity.controller;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+
+import com.tuanzeebee.springboot.demosecurity.service.RecipeTransferService;
+import com.tuanzeebee.springboot.demosecurity.service.RecipeTransferService.Format;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+// Import/export công thức hàng loạt, đọc và ghi thẳng trên stream của request/response
+@Lazy
+@RestController
+@RequestMapping("/api/admin/recipes")
+public class RecipeTransferController {
+    private static final String NDJSON = "application/x-ndjson";
+    private static final String CSV = "text/csv";
+
+    private final RecipeTransferService recipeTransferService;
+
+    @Autowired
+    public RecipeTransferController(RecipeTransferService recipeTransferService) {
+        this.recipeTransferService = recipeTransferService;
+    }
+
+    // Body là NDJSON (mỗi dòng một công thức) hoặc CSV; format lấy từ tham số hoặc Content-Type.
+    // Body nén gzip khi có Content-Encoding: gzip hoặc gzip=true. Response là báo cáo NDJSON
+    @PostMapping("/import")
+    public void importRecipes(@RequestParam(required = false) String format,
+                              @RequestParam(defaultValue = "false") boolean gzip,
+                              HttpServletRequest request, HttpServletResponse response) throws IOException {
+        Format importFormat = format != null ? parseFormat(format) : formatOf(request.getContentType());
+        if (importFormat == null) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, "format phải là ndjson hoặc csv");
+            return;
+        }
+        String encoding = request.getHeader(HttpHeaders.CONTENT_ENCODING);
+        InputStream in = request.getInputStream();
+        if (gzip || "gzip".equalsIgnoreCase(encoding)) {
+            in = new GZIPInputStream(in);
+        }
+        response.setContentType(NDJSON);
+        response.setCharacterEncoding("UTF-8");
+        recipeTransferService.importRecipes(in, importFormat, response.getOutputStream());
+    }
+
+    // /api/admin/recipes/export?format=csv&gzip=true
+    @GetMapping("/export")
+    public void exportRecipes(@RequestParam(defaultValue = "ndjson") String format,
+                              @RequestParam(defaultValue = "false") boolean gzip,
+                              HttpServletResponse response) throws IOException {
+        Format exportFormat = parseFormat(format);
+        if (exportFormat == null) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, "format phải là ndjson hoặc csv");
+            return;
+        }
+        String fileName = "recipes." + (exportFormat == Format.CSV ? "csv" : "ndjson");
+        if (gzip) {
+            response.setContentType("application/gzip");
+            fileName += ".gz";
+        } else {
+            response.setContentType(exportFormat == Format.CSV ? CSV : NDJSON);
+            response.setCharacterEncoding("UTF-8");
+        }
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"");
+        OutputStream out = response.getOutputStream();
+        if (gzip) {
+            try (GZIPOutputStream gzipOut = new GZIPOutputStream(out, 8192)) {
+                recipeTransferService.exportRecipes(exportFormat, gzipOut);
+            }
+        } else {
+            recipeTransferService.exportRecipes(exportFormat, out);
+        }
+    }
+
+    private Format parseFormat(String format) {
+        return switch (format.toLowerCase()) {
+            case "ndjson", "json" -> Format.NDJSON;
+            case "csv" -> Format.CSV;
+            default -> null;
+        };
+    }
+
+    private Format formatOf(String contentType) {
+        if (contentType != null && MediaType.parseMediaType(contentType).isCompatibleWith(MediaType.parseMediaType(CSV))) {
+            return Format.CSV;
+        }
+        return Format.NDJSON;
+    }
+}
@@ -6,8 +6,12 @@ import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 
+import com.tuanzeebee.springboot.demosecurity.activity.ActivityLog;
+import com.tuanzeebee.springboot.demosecurity.activity.ActivityType;
 import com.tuanzeebee.springboot.demosecurity.dao.RecipeDTO;
 import com.tuanzeebee.springboot.demosecurity.service.RecipeService;
+import com.tuanzeebee.springboot.demosecurity.service.RecipeViewService;
+import com.tuanzeebee.springboot.demosecurity.service.TrendingService;
 
 @Controller
 public class RecipeViewController {
@@ -15,6 +19,15 @@ public class RecipeViewController {
     @Autowired
     private RecipeService recipeService;
 
+    @Autowired
+    private TrendingService trendingService;
+
+    @Autowired
+    private RecipeViewService recipeViewService;
+
+    @Autowired
+    private ActivityLog activityLog;
+
     @GetMapping("/recipe/view/{id}")
     public String viewRecipeDetail(@PathVariable Long id, Model model) {
         try {
@@ -24,6 +37,9 @@ public class RecipeViewController {
                 return "error/404";
             }
             
+            trendingService.record(id, TrendingService.Event.VIEW);
+            recipeViewService.recordView(id);
+            activityLog.record(ActivityType.VIEW, id, null);
             model.addAttribute("recipe", recipeDTO);
             return "recipedetail";
         } catch (Exception e) {
@@ -1,9 +1,12 @@
 package com.tuanzeebee.springboot.demosecurity.controller;
 
+import com.tuanzeebee.springboot.demosecurity.cache.ReferenceDataRegistry;
 import com.tuanzeebee.springboot.demosecurity.entity.Role;
 import com.tuanzeebee.springboot.demosecurity.entity.User;
 import com.tuanzeebee.springboot.demosecurity.repository.RoleRepository;
 import com.tuanzeebee.springboot.demosecurity.service.UserService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Controller;
@@ -25,14 +28,19 @@ public class RegisterController {
 
     private final UserService userService;
     private final RoleRepository roleRepository;
+    private final ReferenceDataRegistry referenceData;
+    private final Counter registrationCounter;
 
     // Regex đơn giản để kiểm tra email
     private static final String EMAIL_REGEX = "^[A-Za-z0-9+_.-]+@(.+)$";
 
     @Autowired
-    public RegisterController(UserService userService, RoleRepository roleRepository) {
+    public RegisterController(UserService userService, RoleRepository roleRepository,
+                              ReferenceDataRegistry referenceData, MeterRegistry meterRegistry) {
         this.userService = userService;
         this.roleRepository = roleRepository;
+        this.referenceData = referenceData;
+        this.registrationCounter = Counter.builder("app.registrations").register(meterRegistry);
     }
 
     @GetMapping
@@ -64,18 +72,21 @@ public class RegisterController {
             // [ĐÃ XÓA] Bước kiểm tra trùng username bằng findByUsername gây lỗi System Error
             // Chúng ta sẽ để userService.createUser tự kiểm tra và ném lỗi nếu trùng.
 
-            // 3. Xử lý Role
-            Role userRole = roleRepository.findByName("USER")
+            // 3. Xử lý Role (tra trong bộ nhớ, DataInitializer đã tạo sẵn quyền USER)
+            Role userRole = referenceData.findRoleByName("USER")
                 .orElseGet(() -> {
                     Role newRole = new Role();
                     newRole.setName("USER");
-                    return roleRepository.save(newRole);
+                    Role saved = roleRepository.save(newRole);
+                    referenceData.reload();
+                    return saved;
                 });
             
             user.setRoles(new HashSet<>(Collections.singletonList(userRole)));
             
             // 4. Lưu User (Hàm này sẽ ném Exception nếu username đã tồn tại)
             userService.createUser(user);
+            registrationCounter.increment();
             
             // 5. Thành công
             redirectAttributes.addFlashAttribute("successMessage", "Registration successful!");
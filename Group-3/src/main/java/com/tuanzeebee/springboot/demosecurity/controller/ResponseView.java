@@ -0,0 +1,75 @@
+package com.tuanzeebee.springboot.demosecurity.controller;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Tham số view=summary|full và fields=a,b,c của các API danh sách.
+ * Không truyền view: nếu mọi trường trong fields đều có trong bản rút gọn thì dùng bản rút gọn
+ * (truy vấn projection), ngược lại dùng bản đầy đủ. fields luôn kèm id.
+ */
+final class ResponseView {
+    private static final TypeReference<LinkedHashMap<String, Object>> MAP_TYPE = new TypeReference<>() {
+    };
+
+    private final boolean summary;
+    private final Set<String> fields;
+
+    private ResponseView(boolean summary, Set<String> fields) {
+        this.summary = summary;
+        this.fields = fields;
+    }
+
+    /**
+     * @return null nếu view không phải summary hoặc full
+     */
+    static ResponseView parse(String view, String fields, Set<String> summaryFields) {
+        Set<String> requested = null;
+        if (fields != null && !fields.isBlank()) {
+            requested = Arrays.stream(fields.split(","))
+                    .map(String::trim)
+                    .filter(field -> !field.isEmpty())
+                    .collect(Collectors.toCollection(LinkedHashSet::new));
+            requested.add("id");
+        }
+        if (view == null) {
+            return new ResponseView(requested != null && summaryFields.containsAll(requested), requested);
+        }
+        if ("summary".equalsIgnoreCase(view)) {
+            return new ResponseView(true, requested);
+        }
+        if ("full".equalsIgnoreCase(view)) {
+            return new ResponseView(false, requested);
+        }
+        return null;
+    }
+
+    boolean isSummary() {
+        return summary;
+    }
+
+    // Bỏ các trường không được yêu cầu; body là một DTO hoặc danh sách DTO
+    Object select(Object body, ObjectMapper objectMapper) {
+        if (fields == null) {
+            return body;
+        }
+        if (body instanceof Collection<?> items) {
+            return items.stream().map(item -> selectOne(item, objectMapper)).collect(Collectors.toList());
+        }
+        return selectOne(body, objectMapper);
+    }
+
+    private Map<String, Object> selectOne(Object item, ObjectMapper objectMapper) {
+        Map<String, Object> values = objectMapper.convertValue(item, MAP_TYPE);
+        values.keySet().retainAll(fields);
+        return values;
+    }
+}
@@ -16,6 +16,7 @@ import org.springframework.security.core.userdetails.UserDetails;
 
 
 import java.util.List;
+import java.util.Map;
 @RestController
 @RequestMapping("/api/users")
 public class UserController {
@@ -28,9 +29,16 @@ public class UserController {
         this.userRepository = userRepository;
     }
     
+    // /api/users?ids=1,2,3 trả về đúng các user đó (theo thứ tự ID), không có ids thì trả về tất cả
     @GetMapping
-    public ResponseEntity<List<UserDTO>> getAllUsers() {
-        return ResponseEntity.ok(userService.getAllUsers());
+    public ResponseEntity<List<UserDTO>> getAllUsers(@RequestParam(required = false) List<Long> ids) {
+        if (ids == null) {
+            return ResponseEntity.ok(userService.getAllUsers());
+        }
+        if (ids.size() > RecipeControllerAPI.MAX_BATCH_IDS) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(userService.getUsersByIds(ids));
     }
     
     @GetMapping("/{id}")
@@ -48,10 +56,10 @@ public class UserController {
         return ResponseEntity.ok(userService.updateUser(id, user));
     }
     
+    // Xóa chạy nền: 202 kèm ID job
     @DeleteMapping("/{id}")
-    public ResponseEntity<Void> deleteUser(@PathVariable Long id) {
-        userService.deleteUser(id);
-        return ResponseEntity.noContent().build();
+    public ResponseEntity<Map<String, Long>> deleteUser(@PathVariable Long id) {
+        return ResponseEntity.accepted().body(Map.of("jobId", userService.requestDelete(id)));
     }
     
     @PostMapping("/{followerId}/follow/{followedId}")
@@ -7,9 +7,12 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 
+import com.tuanzeebee.springboot.demosecurity.activity.ActivityLog;
+import com.tuanzeebee.springboot.demosecurity.activity.ActivityType;
 import com.tuanzeebee.springboot.demosecurity.dao.RecipeDTO;
 import com.tuanzeebee.springboot.demosecurity.service.IngredientService;
 import com.tuanzeebee.springboot.demosecurity.service.RecipeService;
+import com.tuanzeebee.springboot.demosecurity.service.RecipeViewService;
 
 import java.util.List;
 
@@ -19,11 +22,16 @@ public class UserRecipeController {
     
     private final RecipeService recipeService;
     private final IngredientService ingredientService;
+    private final RecipeViewService recipeViewService;
+    private final ActivityLog activityLog;
     
     @Autowired
-    public UserRecipeController(RecipeService recipeService, IngredientService ingredientService) {
+    public UserRecipeController(RecipeService recipeService, IngredientService ingredientService,
+                                RecipeViewService recipeViewService, ActivityLog activityLog) {
         this.recipeService = recipeService;
         this.ingredientService = ingredientService;
+        this.recipeViewService = recipeViewService;
+        this.activityLog = activityLog;
     }
     
     @GetMapping
@@ -37,6 +45,8 @@ public class UserRecipeController {
     public String getRecipeById(@PathVariable Long id, Model model) {
         try {
             RecipeDTO recipe = recipeService.getRecipeById(id);
+            recipeViewService.recordView(id);
+            activityLog.record(ActivityType.VIEW, id, null);
             model.addAttribute("recipe", recipe);
             return "recipe-detail";  // Trang chi tiết công thức (cần tạo thêm)
         } catch (RuntimeException e) {
@@ -0,0 +1,16 @@
+package com.tuanzeebee.springboot.demosecurity.dao;
+
+import lombok.Data;
+// Một dòng thống kê nhật ký hoạt động: key là ngày (yyyy-MM-dd), ID công thức hoặc username tùy truy vấn
+@Data
+public class ActivityCountDTO {
+    private String key;
+    private long count;
+
+    public static ActivityCountDTO of(String key, long count) {
+        ActivityCountDTO dto = new ActivityCountDTO();
+        dto.setKey(key);
+        dto.setCount(count);
+        return dto;
+    }
+}
@@ -0,0 +1,9 @@
+package com.tuanzeebee.springboot.demosecurity.dao;
+
+import java.time.LocalDate;
+
+// Projection cho các truy vấn thống kê GROUP BY theo ngày
+public interface DailyCount {
+    LocalDate getCreatedDate();
+    Long getTotal();
+}
@@ -0,0 +1,29 @@
+package com.tuanzeebee.springboot.demosecurity.dao;
+
+import lombok.Value;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Ảnh chụp bất biến của số liệu dashboard admin. Các list chuỗi ngày (days) và
+ * số lượng theo ngày có cùng độ dài, ngày không có dữ liệu được điền 0.
+ */
+@Value
+public class DashboardSnapshot {
+    long totalUsers;
+    long totalRecipes;
+    long totalIngredients;
+    long totalPosts;
+    long totalComments;
+    List<String> days;
+    List<Long> newUsers;
+    List<Long> newRecipes;
+    List<Long> newPosts;
+    List<Long> newComments;
+    LocalDateTime refreshedAt;
+
+    public static DashboardSnapshot empty() {
+        return new DashboardSnapshot(0, 0, 0, 0, 0,
+                List.of(), List.of(), List.of(), List.of(), List.of(), null);
+    }
+}
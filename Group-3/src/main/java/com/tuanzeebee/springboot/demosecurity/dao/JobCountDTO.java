@@ -0,0 +1,10 @@
+package com.tuanzeebee.springboot.demosecurity.dao;
+
+import lombok.Data;
+// Số job theo hàng đợi và trạng thái
+@Data
+public class JobCountDTO {
+    private String queue;
+    private String status;
+    private long count;
+}
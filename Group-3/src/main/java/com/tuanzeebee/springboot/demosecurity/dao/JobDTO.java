@@ -0,0 +1,22 @@
+package com.tuanzeebee.springboot.demosecurity.dao;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+// Một dòng của bảng jobs cho trang admin
+@Data
+public class JobDTO {
+    private Long id;
+    private String queue;
+    private String type;
+    private String payload;
+    private String status;
+    private int attempts;
+    private int maxAttempts;
+    private LocalDateTime runAt;
+    private String lockedBy;
+    private String lastError;
+    private String result;
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,11 @@
+package com.tuanzeebee.springboot.demosecurity.dao;
+
+import lombok.Data;
+
+@Data
+public class LikeStateDTO {
+    private Long postId;
+    private boolean liked;
+    // Chỉ có trong kết quả PUT/DELETE; truy vấn hàng loạt trạng thái like không đếm
+    private Integer likesCount;
+}
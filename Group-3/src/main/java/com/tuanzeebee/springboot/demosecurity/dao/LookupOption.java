@@ -0,0 +1,7 @@
+package com.tuanzeebee.springboot.demosecurity.dao;
+
+// Projection cho ô gợi ý (typeahead) của trang admin: chỉ id và nhãn hiển thị
+public interface LookupOption {
+    Long getId();
+    String getLabel();
+}
@@ -0,0 +1,15 @@
+package com.tuanzeebee.springboot.demosecurity.dao;
+
+import lombok.Data;
+@Data
+public class LookupOptionDTO {
+    private Long id;
+    private String label;
+
+    public static LookupOptionDTO from(LookupOption option) {
+        LookupOptionDTO dto = new LookupOptionDTO();
+        dto.setId(option.getId());
+        dto.setLabel(option.getLabel());
+        return dto;
+    }
+}
@@ -0,0 +1,7 @@
+package com.tuanzeebee.springboot.demosecurity.dao;
+
+// Projection sau khi like/bỏ like: số like hiện tại và công thức của bài (cho trending và sự kiện SSE)
+public interface PostLikeCount {
+    Long getRecipeId();
+    Integer getLikesCount();
+}
@@ -0,0 +1,18 @@
+package com.tuanzeebee.springboot.demosecurity.dao;
+
+import java.time.LocalDateTime;
+
+// Projection cho danh sách bài đăng: số like/bình luận đếm trong SQL thay vì nạp cả tập hợp
+public interface PostSummary {
+    Long getId();
+    String getContent();
+    LocalDateTime getCreatedAt();
+    Long getUserId();
+    String getUsername();
+    String getUserAvatar();
+    Long getRecipeId();
+    String getRecipeName();
+    String getRecipeImage();
+    Integer getLikesCount();
+    Integer getCommentsCount();
+}
@@ -0,0 +1,16 @@
+package com.tuanzeebee.springboot.demosecurity.dao;
+
+import lombok.Data;
+import java.time.LocalDateTime;
+
+// Cùng tên trường với PostDTO để client dùng chung code hiển thị (post.user.username, post.recipe.id...)
+@Data
+public class PostSummaryDTO {
+    private Long id;
+    private UserSummaryDTO user;
+    private RecipeSummaryDTO recipe;
+    private String content;
+    private LocalDateTime createdAt;
+    private int likesCount;
+    private int commentsCount;
+}
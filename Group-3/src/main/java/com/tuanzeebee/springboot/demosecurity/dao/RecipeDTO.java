@@ -11,4 +11,5 @@ public class RecipeDTO {
     private Set<IngredientDTO> ingredients;
     private Set<StepDTO> steps;
     private Boolean isSavedByCurrentUser;
+    private Long viewCount;
 }
\ No newline at end of file
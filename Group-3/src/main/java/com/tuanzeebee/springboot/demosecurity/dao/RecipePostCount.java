@@ -0,0 +1,7 @@
+package com.tuanzeebee.springboot.demosecurity.dao;
+
+// Projection cho truy vấn đếm bài đăng GROUP BY công thức
+public interface RecipePostCount {
+    Long getRecipeId();
+    Long getTotal();
+}
@@ -0,0 +1,9 @@
+package com.tuanzeebee.springboot.demosecurity.dao;
+
+// Projection cho danh sách công thức: chỉ các cột hiển thị trên thẻ, mô tả đã cắt ngắn trong SQL
+public interface RecipeSummary {
+    Long getId();
+    String getName();
+    String getImage();
+    String getDescription();
+}
@@ -0,0 +1,10 @@
+package com.tuanzeebee.springboot.demosecurity.dao;
+
+import lombok.Data;
+@Data
+public class RecipeSummaryDTO {
+    private Long id;
+    private String name;
+    private String image;
+    private String description;
+}
@@ -0,0 +1,14 @@
+package com.tuanzeebee.springboot.demosecurity.dao;
+
+import lombok.Data;
+import java.util.List;
+
+// Một dòng trong file import/export công thức (NDJSON hoặc CSV); nguyên liệu theo tên, bước nấu theo thứ tự
+@Data
+public class RecipeTransferRecord {
+    private String name;
+    private String description;
+    private String image;
+    private List<String> ingredients;
+    private List<String> steps;
+}
@@ -0,0 +1,8 @@
+package com.tuanzeebee.springboot.demosecurity.dao;
+
+import lombok.Data;
+@Data
+public class TrendingRecipeDTO {
+    private RecipeDTO recipe;
+    private double score;
+}
@@ -0,0 +1,12 @@
+package com.tuanzeebee.springboot.demosecurity.dao;
+
+// Projection cho bảng người dùng của admin: các cột của form sửa, không có password và các tập lazy
+public interface UserAdminRow {
+    Long getId();
+    String getUsername();
+    String getFirstName();
+    String getLastName();
+    String getEmail();
+    String getAvatar();
+    String getBio();
+}
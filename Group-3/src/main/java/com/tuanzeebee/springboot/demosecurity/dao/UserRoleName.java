@@ -0,0 +1,6 @@
+package com.tuanzeebee.springboot.demosecurity.dao;
+
+public interface UserRoleName {
+    Long getUserId();
+    String getRoleName();
+}
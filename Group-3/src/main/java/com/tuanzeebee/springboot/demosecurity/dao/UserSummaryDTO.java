@@ -0,0 +1,9 @@
+package com.tuanzeebee.springboot.demosecurity.dao;
+
+import lombok.Data;
+@Data
+public class UserSummaryDTO {
+    private Long id;
+    private String username;
+    private String avatar;
+}
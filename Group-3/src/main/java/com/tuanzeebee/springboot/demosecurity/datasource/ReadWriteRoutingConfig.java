@@ -0,0 +1,92 @@
+package com.tuanzeebee.springboot.demosecurity.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bật bằng app.datasource.routing.enabled=true. Primary lấy cấu hình từ spring.datasource.*,
+ * các replica từ app.datasource.routing.replicas[n].*; mọi pool dùng chung spring.datasource.hikari.*
+ * và xuất metric hikaricp.* với tag pool = primary / replica-n.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "app.datasource.routing", name = "enabled", havingValue = "true")
+@EnableConfigurationProperties(DataSourceRoutingProperties.class)
+public class ReadWriteRoutingConfig {
+
+    private ReadWriteRoutingDataSource routingDataSource;
+
+    @Bean
+    public ReadWriteRoutingDataSource readWriteRoutingDataSource(DataSourceProperties dataSourceProperties,
+                                                                 DataSourceRoutingProperties routingProperties,
+                                                                 Environment environment,
+                                                                 MeterRegistry meterRegistry) {
+        MicrometerMetricsTrackerFactory metrics = new MicrometerMetricsTrackerFactory(meterRegistry);
+
+        HikariDataSource primary = dataSourceProperties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class).build();
+        configurePool(primary, "primary", environment, metrics);
+
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        List<DataSourceRoutingProperties.Replica> replicaProperties = routingProperties.getReplicas();
+        for (int i = 0; i < replicaProperties.size(); i++) {
+            DataSourceRoutingProperties.Replica replicaConfig = replicaProperties.get(i);
+            HikariDataSource replica = new HikariDataSource();
+            replica.setJdbcUrl(replicaConfig.getUrl());
+            replica.setUsername(replicaConfig.getUsername() != null ? replicaConfig.getUsername() : primary.getUsername());
+            replica.setPassword(replicaConfig.getPassword() != null ? replicaConfig.getPassword() : primary.getPassword());
+            replica.setDriverClassName(primary.getDriverClassName());
+            configurePool(replica, "replica-" + (i + 1), environment, metrics);
+            replica.setReadOnly(true);
+            replicas.put(replica.getPoolName(), replica);
+        }
+
+        routingDataSource = new ReadWriteRoutingDataSource(primary, replicas,
+                routingProperties.getStalenessWindow(), meterRegistry);
+        return routingDataSource;
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ReadWriteRoutingDataSource readWriteRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(readWriteRoutingDataSource);
+    }
+
+    // Trả connection sau mỗi transaction để lần đọc/ghi tiếp theo trong cùng request được định tuyến lại
+    @Bean
+    public HibernatePropertiesCustomizer releaseConnectionAfterTransaction() {
+        return properties -> properties.put("hibernate.connection.handling_mode",
+                "DELAYED_ACQUISITION_AND_RELEASE_AFTER_TRANSACTION");
+    }
+
+    @Scheduled(fixedDelayString = "${app.datasource.routing.health-check-ms:10000}")
+    public void checkReplicaHealth() {
+        if (routingDataSource != null) {
+            routingDataSource.checkReplicaHealth();
+        }
+    }
+
+    private void configurePool(HikariDataSource pool, String poolName, Environment environment,
+                               MicrometerMetricsTrackerFactory metrics) {
+        Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(pool));
+        pool.setPoolName(poolName);
+        pool.setMetricsTrackerFactory(metrics);
+    }
+}
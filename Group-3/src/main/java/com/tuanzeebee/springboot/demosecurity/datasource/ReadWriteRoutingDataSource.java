@@ -0,0 +1,122 @@
+package com.tuanzeebee.springboot.demosecurity.datasource;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Chọn DataSource theo transaction hiện tại: transaction readOnly đi vào một replica còn sống
+ * (round-robin), mọi thứ khác đi vào primary. Nếu user vừa ghi trong khoảng stalenessWindow
+ * thì đọc cũng đi vào primary. Cần được bọc bởi LazyConnectionDataSourceProxy để cờ readOnly
+ * đã được thiết lập trước khi lấy connection thật.
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+    private static final Logger logger = LoggerFactory.getLogger(ReadWriteRoutingDataSource.class);
+
+    public static final String PRIMARY = "primary";
+
+    private final Map<String, DataSource> replicas;
+    private final List<String> replicaKeys;
+    private final Duration stalenessWindow;
+    private final Set<String> unhealthyReplicas = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger nextReplica = new AtomicInteger();
+    private final Map<String, Counter> routedCounters = new HashMap<>();
+
+    public ReadWriteRoutingDataSource(DataSource primary, Map<String, DataSource> replicas,
+                                      Duration stalenessWindow, MeterRegistry meterRegistry) {
+        this.replicas = new LinkedHashMap<>(replicas);
+        this.replicaKeys = new ArrayList<>(replicas.keySet());
+        this.stalenessWindow = stalenessWindow;
+
+        Map<Object, Object> targets = new HashMap<>(replicas);
+        targets.put(PRIMARY, primary);
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+
+        if (meterRegistry != null) {
+            for (Object key : targets.keySet()) {
+                routedCounters.put((String) key, Counter.builder("app.datasource.routed")
+                        .description("Số lần lấy connection theo từng đích")
+                        .tag("target", (String) key)
+                        .register(meterRegistry));
+            }
+            Gauge.builder("app.datasource.replicas.healthy", this, ds -> ds.healthyReplicaCount())
+                    .register(meterRegistry);
+        }
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        String key;
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            // Chỉ transaction ghi thật mới đánh dấu; truy cập ngoài transaction vẫn vào primary
+            if (TransactionSynchronizationManager.isActualTransactionActive()) {
+                RecentWriteTracker.markWrite();
+            }
+            key = PRIMARY;
+        } else if (RecentWriteTracker.wroteWithin(stalenessWindow)) {
+            key = PRIMARY;
+        } else {
+            key = pickReplica();
+        }
+        Counter counter = routedCounters.get(key);
+        if (counter != null) {
+            counter.increment();
+        }
+        return key;
+    }
+
+    /**
+     * Kiểm tra từng replica bằng Connection.isValid; replica lỗi bị loại khỏi vòng round-robin
+     * cho đến lần kiểm tra thành công tiếp theo.
+     */
+    public void checkReplicaHealth() {
+        for (Map.Entry<String, DataSource> replica : replicas.entrySet()) {
+            boolean healthy;
+            try (Connection connection = replica.getValue().getConnection()) {
+                healthy = connection.isValid(2);
+            } catch (Exception e) {
+                healthy = false;
+            }
+            if (healthy) {
+                if (unhealthyReplicas.remove(replica.getKey())) {
+                    logger.info("Replica {} đã hoạt động trở lại", replica.getKey());
+                }
+            } else if (unhealthyReplicas.add(replica.getKey())) {
+                logger.warn("Replica {} không phản hồi, chuyển các lần đọc sang primary", replica.getKey());
+            }
+        }
+    }
+
+    public int healthyReplicaCount() {
+        return replicaKeys.size() - unhealthyReplicas.size();
+    }
+
+    private String pickReplica() {
+        int size = replicaKeys.size();
+        for (int attempt = 0; attempt < size; attempt++) {
+            String key = replicaKeys.get(Math.floorMod(nextReplica.getAndIncrement(), size));
+            if (!unhealthyReplicas.contains(key)) {
+                return key;
+            }
+        }
+        return PRIMARY;
+    }
+}
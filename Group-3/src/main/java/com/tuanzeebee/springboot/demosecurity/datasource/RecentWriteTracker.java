@@ -0,0 +1,48 @@
+package com.tuanzeebee.springboot.demosecurity.datasource;
+
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.time.Duration;
+
+/**
+ * Đánh dấu thời điểm ghi gần nhất trên request hiện tại và trên session (nếu đã có),
+ * để các lần đọc ngay sau đó của cùng user không đọc phải dữ liệu cũ từ replica.
+ */
+final class RecentWriteTracker {
+
+    static final String LAST_WRITE_ATTRIBUTE = RecentWriteTracker.class.getName() + ".LAST_WRITE";
+
+    private RecentWriteTracker() {
+    }
+
+    static void markWrite() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes == null) {
+            return;
+        }
+        Long now = System.currentTimeMillis();
+        attributes.setAttribute(LAST_WRITE_ATTRIBUTE, now, RequestAttributes.SCOPE_REQUEST);
+        if (attributes instanceof ServletRequestAttributes servletAttributes
+                && servletAttributes.getRequest().getSession(false) != null) {
+            attributes.setAttribute(LAST_WRITE_ATTRIBUTE, now, RequestAttributes.SCOPE_SESSION);
+        }
+    }
+
+    static boolean wroteWithin(Duration window) {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes == null) {
+            return false;
+        }
+        if (attributes.getAttribute(LAST_WRITE_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST) != null) {
+            return true;
+        }
+        Object lastWrite = attributes instanceof ServletRequestAttributes servletAttributes
+                && servletAttributes.getRequest().getSession(false) != null
+                ? attributes.getAttribute(LAST_WRITE_ATTRIBUTE, RequestAttributes.SCOPE_SESSION)
+                : null;
+        return lastWrite instanceof Long timestamp
+                && System.currentTimeMillis() - timestamp < window.toMillis();
+    }
+}
@@ -0,0 +1,25 @@
+package com.tuanzeebee.springboot.demosecurity.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+// Bảng trung chuyển sự kiện giữa các node khi live-events.relay=jdbc (đọc/ghi bằng JdbcTemplate)
+@Entity
+@Data
+@Table(name = "live_event_relay", indexes = @Index(name = "idx_live_event_relay_created_at", columnList = "created_at"))
+public class LiveEventRecord {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, length = 64)
+    private String origin;
+
+    @Column(nullable = false, columnDefinition = "TEXT")
+    private String payload;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+}
@@ -3,6 +3,7 @@ package com.tuanzeebee.springboot.demosecurity.entity;
 import jakarta.persistence.*;
 
 import lombok.Data;
+import java.time.LocalDateTime;
 import java.util.HashSet;
 import java.util.Set;
 @Data
@@ -21,6 +22,9 @@ public class Recipe {
     
     private String image;
     
+    @Column(name = "created_at")
+    private LocalDateTime createdAt = LocalDateTime.now();
+    
     @ManyToMany
     @JoinTable(
         name = "recipe_ingredients",
@@ -0,0 +1,16 @@
+package com.tuanzeebee.springboot.demosecurity.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+@Data
+@Entity
+@Table(name = "recipe_views")
+public class RecipeView {
+    // Không dùng @GeneratedValue: khóa chính chính là ID công thức, để upsert theo recipe_id
+    @Id
+    @Column(name = "recipe_id")
+    private Long recipeId;
+    
+    @Column(name = "view_count", nullable = false)
+    private Long viewCount = 0L;
+}
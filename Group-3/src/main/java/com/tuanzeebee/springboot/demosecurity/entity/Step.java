@@ -6,8 +6,14 @@ import lombok.Data;
 @Entity
 @Table(name = "steps")
 public class Step {
+    // Khóa của dòng trong bảng id_generators cấp ID cho bước nấu
+    public static final String ID_SEQUENCE = "steps";
+
+    // Cấp ID theo khối 50 từ bảng id_generators (không dùng IDENTITY) để Hibernate gộp INSERT thành batch
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "step_ids")
+    @TableGenerator(name = "step_ids", table = "id_generators", pkColumnName = "sequence_name",
+            valueColumnName = "next_val", pkColumnValue = ID_SEQUENCE, allocationSize = 50)
     private Long id;
     
     @ManyToOne
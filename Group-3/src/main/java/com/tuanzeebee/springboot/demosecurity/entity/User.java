@@ -3,6 +3,9 @@ package com.tuanzeebee.springboot.demosecurity.entity;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank; // Import quan trọng
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+import java.time.LocalDateTime;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -41,6 +44,9 @@ public class User {
     @Column(name = "bio", length = 1000)
     private String bio;
 
+    @Column(name = "created_at")
+    private LocalDateTime createdAt = LocalDateTime.now();
+
     @ManyToMany(fetch = FetchType.EAGER, cascade = CascadeType.ALL)
     @JoinTable(
         name = "users_roles",
@@ -49,9 +55,15 @@ public class User {
     )
     private Set<Role> roles = new HashSet<>();
     
+    // Các tập lazy không tham gia equals/hashCode: Hibernate gọi hashCode khi nạp User vào một Set
+    // (vd likedByUsers), duyệt tiếp các tập này giữa chừng gây ConcurrentModificationException
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
     @OneToMany(mappedBy = "user")
     private Set<Post> posts = new HashSet<>();
 
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
     @ManyToMany
     @JoinTable(
         name = "saved_recipes",
@@ -60,6 +72,8 @@ public class User {
     )
     private Set<Recipe> savedRecipes = new HashSet<>();
 
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
     @ManyToMany
     @JoinTable(
         name = "follows",
@@ -68,6 +82,8 @@ public class User {
     )
     private Set<User> following = new HashSet<>();
 
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
     @ManyToMany(mappedBy = "following")
     private Set<User> followers = new HashSet<>();
 }
\ No newline at end of file
@@ -0,0 +1,230 @@
+package com.tuanzeebee.springboot.demosecurity.event;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Broker trong tiến trình cho sự kiện bài đăng / like / bình luận. Service gọi publish (sau khi
+ * transaction commit), broker xếp sự kiện vào hàng đợi của từng subscriber theo topic
+ * (recipe:{id}, post:{id}) và một nhóm thread gửi ra SSE. Relay mang sự kiện sang node khác.
+ * emitter.send ghi socket kiểu blocking: client ngừng đọc thì lần gửi bị treo tới khi Tomcat hết thời gian
+ * ghi. Nhóm thread gửi vì vậy không có giới hạn cứng (client treo chỉ giữ thread của chính nó), và
+ * watchdog ngắt subscriber có lần gửi chạy quá live-events.send-timeout-ms để không giao thêm việc cho nó.
+ */
+@Component
+public class EventBroker {
+    private static final Logger logger = LoggerFactory.getLogger(EventBroker.class);
+
+    private final ConcurrentHashMap<String, Set<Subscription>> subscriptions = new ConcurrentHashMap<>();
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+    private final String nodeId = UUID.randomUUID().toString();
+    private final EventRelay relay;
+    private final ExecutorService dispatcher;
+    private final ScheduledExecutorService watchdog;
+    private final int queueCapacity;
+    private final long timeoutMillis;
+    private final long sendTimeoutNanos;
+    private final Counter publishedCounter;
+    private final Counter droppedCounter;
+
+    @Autowired
+    public EventBroker(EventRelay relay, MeterRegistry meterRegistry,
+                       @Value("${live-events.queue-capacity:64}") int queueCapacity,
+                       @Value("${live-events.timeout-ms:1800000}") long timeoutMillis,
+                       @Value("${live-events.dispatcher-threads:4}") int dispatcherThreads,
+                       @Value("${live-events.send-timeout-ms:5000}") long sendTimeoutMillis) {
+        this.relay = relay;
+        this.queueCapacity = queueCapacity;
+        this.timeoutMillis = timeoutMillis;
+        this.sendTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(sendTimeoutMillis);
+        AtomicInteger threadNumber = new AtomicInteger();
+        // Giữ sẵn dispatcherThreads thread; khi tất cả đang gửi thì tạo thêm thay vì xếp hàng sau client chậm
+        this.dispatcher = new ThreadPoolExecutor(dispatcherThreads, Integer.MAX_VALUE, 60, TimeUnit.SECONDS,
+                new SynchronousQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "live-events-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.watchdog = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "live-events-watchdog");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long checkMillis = Math.max(1, sendTimeoutMillis / 2);
+        watchdog.scheduleWithFixedDelay(this::disconnectStalled, checkMillis, checkMillis, TimeUnit.MILLISECONDS);
+        this.publishedCounter = Counter.builder("app.live-events.published").register(meterRegistry);
+        this.droppedCounter = Counter.builder("app.live-events.dropped")
+                .description("Số subscriber bị ngắt vì không đọc kịp")
+                .register(meterRegistry);
+        Gauge.builder("app.live-events.subscribers", subscriberCount, AtomicInteger::get).register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void startRelay() {
+        relay.start(this::deliverRemote);
+    }
+
+    public SseEmitter subscribe(String topic) {
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        Subscription subscription = new Subscription(topic, emitter, queueCapacity);
+        subscriptions.compute(topic, (key, topicSubscriptions) -> {
+            Set<Subscription> result = topicSubscriptions != null ? topicSubscriptions : ConcurrentHashMap.newKeySet();
+            result.add(subscription);
+            return result;
+        });
+        subscriberCount.incrementAndGet();
+        emitter.onCompletion(() -> unsubscribe(subscription));
+        emitter.onTimeout(() -> unsubscribe(subscription));
+        emitter.onError(e -> unsubscribe(subscription));
+        return emitter;
+    }
+
+    /**
+     * Phát sự kiện. Nếu đang trong transaction thì chỉ phát sau khi commit,
+     * để client không tải lại trước khi dữ liệu thật sự được ghi.
+     */
+    public void publish(LiveEvent.Type type, Long recipeId, Long postId, Object data) {
+        LiveEvent event = new LiveEvent(type, recipeId, postId, data, nodeId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    dispatch(event);
+                }
+            });
+        } else {
+            dispatch(event);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${live-events.heartbeat-ms:15000}")
+    public void sendHeartbeats() {
+        for (Set<Subscription> topicSubscriptions : subscriptions.values()) {
+            for (Subscription subscription : topicSubscriptions) {
+                dispatcher.execute(() -> {
+                    try {
+                        subscription.heartbeat();
+                    } catch (IOException | IllegalStateException e) {
+                        unsubscribe(subscription);
+                    }
+                });
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        relay.stop();
+        watchdog.shutdownNow();
+        subscriptions.values().forEach(topicSubscriptions -> topicSubscriptions.forEach(Subscription::close));
+        dispatcher.shutdownNow();
+    }
+
+    void disconnectStalled() {
+        for (Set<Subscription> topicSubscriptions : subscriptions.values()) {
+            for (Subscription subscription : topicSubscriptions) {
+                if (subscription.isStalled(sendTimeoutNanos)) {
+                    // Socket của client đầy (client ngừng đọc): ngắt, EventSource sẽ kết nối lại khi đọc tiếp
+                    droppedCounter.increment();
+                    logger.debug("Ngắt subscriber {} vì gửi quá {} ms", subscription.getTopic(),
+                            TimeUnit.NANOSECONDS.toMillis(sendTimeoutNanos));
+                    unsubscribe(subscription);
+                }
+            }
+        }
+    }
+
+    private void dispatch(LiveEvent event) {
+        publishedCounter.increment();
+        deliverLocal(event);
+        try {
+            relay.publish(event);
+        } catch (RuntimeException e) {
+            logger.warn("Không thể chuyển sự kiện {} sang node khác: {}", event.type(), e.getMessage());
+        }
+    }
+
+    private void deliverRemote(LiveEvent event) {
+        if (!nodeId.equals(event.origin())) {
+            deliverLocal(event);
+        }
+    }
+
+    private void deliverLocal(LiveEvent event) {
+        if (event.recipeId() != null) {
+            deliver(LiveEvent.recipeTopic(event.recipeId()), event);
+        }
+        if (event.postId() != null) {
+            deliver(LiveEvent.postTopic(event.postId()), event);
+        }
+    }
+
+    private void deliver(String topic, LiveEvent event) {
+        Set<Subscription> topicSubscriptions = subscriptions.get(topic);
+        if (topicSubscriptions == null) {
+            return;
+        }
+        for (Subscription subscription : topicSubscriptions) {
+            if (subscription.offer(event)) {
+                scheduleDrain(subscription);
+            } else if (!subscription.isClosed()) {
+                // Client đọc quá chậm: ngắt kết nối, EventSource sẽ tự kết nối lại và tải lại dữ liệu
+                droppedCounter.increment();
+                unsubscribe(subscription);
+            }
+        }
+    }
+
+    private void scheduleDrain(Subscription subscription) {
+        if (!subscription.tryStartDraining()) {
+            return;
+        }
+        dispatcher.execute(() -> {
+            try {
+                subscription.drain();
+            } catch (IOException | IllegalStateException e) {
+                unsubscribe(subscription);
+                return;
+            }
+            // Sự kiện đến đúng lúc vừa gửi xong -> gửi tiếp
+            if (subscription.hasPending()) {
+                scheduleDrain(subscription);
+            }
+        });
+    }
+
+    private void unsubscribe(Subscription subscription) {
+        // compute giữ thao tác xóa topic rỗng nguyên tử so với subscribe cùng topic
+        subscriptions.computeIfPresent(subscription.getTopic(), (key, topicSubscriptions) -> {
+            if (topicSubscriptions.remove(subscription)) {
+                subscriberCount.decrementAndGet();
+            }
+            return topicSubscriptions.isEmpty() ? null : topicSubscriptions;
+        });
+        subscription.close();
+    }
+}
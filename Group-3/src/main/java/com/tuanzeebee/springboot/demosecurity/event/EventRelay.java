@@ -0,0 +1,20 @@
+package com.tuanzeebee.springboot.demosecurity.event;
+
+import java.util.function.Consumer;
+
+/**
+ * Chuyển sự kiện sang các node khác trong cluster. Chọn bằng live-events.relay
+ * (none | jdbc | udp); mặc định none khi chỉ chạy một node.
+ */
+public interface EventRelay {
+
+    void publish(LiveEvent event);
+
+    /**
+     * Bắt đầu nhận sự kiện từ node khác; sink chỉ phát tới subscriber cục bộ.
+     */
+    void start(Consumer<LiveEvent> sink);
+
+    default void stop() {
+    }
+}
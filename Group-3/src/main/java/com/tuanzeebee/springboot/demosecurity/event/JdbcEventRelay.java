@@ -0,0 +1,108 @@
+package com.tuanzeebee.springboot.demosecurity.event;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tuanzeebee.springboot.demosecurity.lock.ClusterLock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Relay qua bảng live_event_relay dùng chung: mỗi node ghi sự kiện của mình và định kỳ đọc
+ * các dòng mới của node khác. Đọc lùi lại một khoảng ID nhỏ (có lọc trùng) vì các insert đồng thời
+ * có thể commit không theo thứ tự ID.
+ */
+@Component
+@ConditionalOnProperty(name = "live-events.relay", havingValue = "jdbc")
+public class JdbcEventRelay implements EventRelay {
+    private static final Logger logger = LoggerFactory.getLogger(JdbcEventRelay.class);
+
+    private static final int LOOKBACK_IDS = 100;
+    private static final int MAX_ROWS = 500;
+    private static final int SEEN_CAPACITY = 2000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final long retentionMinutes;
+    private final Map<Long, Boolean> seenIds = new LinkedHashMap<>(SEEN_CAPACITY, 0.75f, false) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Boolean> eldest) {
+            return size() > SEEN_CAPACITY;
+        }
+    };
+    private volatile Consumer<LiveEvent> sink;
+    private long lastId;
+
+    @Autowired
+    public JdbcEventRelay(JdbcTemplate jdbcTemplate, ObjectMapper objectMapper,
+                          @Value("${live-events.relay.jdbc.retention-minutes:5}") long retentionMinutes) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.retentionMinutes = retentionMinutes;
+    }
+
+    @Override
+    public void publish(LiveEvent event) {
+        try {
+            jdbcTemplate.update("INSERT INTO live_event_relay (origin, payload, created_at) VALUES (?, ?, ?)",
+                    event.origin(), objectMapper.writeValueAsString(event), Timestamp.valueOf(LocalDateTime.now()));
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Không thể tuần tự hóa sự kiện: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void start(Consumer<LiveEvent> sink) {
+        // Chỉ nhận sự kiện phát sau khi node này khởi động
+        Long maxId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM live_event_relay", Long.class);
+        this.lastId = maxId != null ? maxId : 0;
+        this.sink = sink;
+    }
+
+    @Scheduled(fixedDelayString = "${live-events.relay.jdbc.poll-ms:500}")
+    public synchronized void poll() {
+        if (sink == null) {
+            return;
+        }
+        try {
+            jdbcTemplate.query("SELECT id, payload FROM live_event_relay WHERE id > ? ORDER BY id LIMIT " + MAX_ROWS,
+                    rs -> {
+                        long id = rs.getLong("id");
+                        lastId = Math.max(lastId, id);
+                        if (seenIds.put(id, Boolean.TRUE) == null) {
+                            deliver(rs.getString("payload"));
+                        }
+                    },
+                    Math.max(0, lastId - LOOKBACK_IDS));
+        } catch (DataAccessException e) {
+            logger.warn("Không thể đọc sự kiện từ live_event_relay: {}", e.getMessage());
+        }
+    }
+
+    @ClusterLock(value = "live-event-relay-cleanup", minHold = "${live-events.relay.jdbc.cleanup-ms:60000}")
+    @Scheduled(fixedDelayString = "${live-events.relay.jdbc.cleanup-ms:60000}")
+    public void deleteExpired() {
+        jdbcTemplate.update("DELETE FROM live_event_relay WHERE created_at < ?",
+                Timestamp.valueOf(LocalDateTime.now().minusMinutes(retentionMinutes)));
+    }
+
+    private void deliver(String payload) {
+        try {
+            sink.accept(objectMapper.readValue(payload, LiveEvent.class));
+        } catch (JsonProcessingException e) {
+            logger.warn("Bỏ qua sự kiện không đọc được: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.tuanzeebee.springboot.demosecurity.event;
+
+/**
+ * Sự kiện đẩy tới trình duyệt qua SSE. data là DTO (PostDTO, CommentDTO...) hoặc Map khi sự kiện
+ * đến từ node khác qua relay. origin là ID của node phát, dùng để relay không phát lại cho chính nó.
+ */
+public record LiveEvent(Type type, Long recipeId, Long postId, Object data, String origin) {
+
+    public enum Type {
+        POST_CREATED("post-created"),
+        POST_LIKED("post-liked"),
+        POST_UNLIKED("post-unliked"),
+        COMMENT_CREATED("comment-created");
+
+        private final String eventName;
+
+        Type(String eventName) {
+            this.eventName = eventName;
+        }
+
+        // Tên sự kiện SSE (event: ...) mà client lắng nghe
+        public String getEventName() {
+            return eventName;
+        }
+    }
+
+    public static String recipeTopic(Long recipeId) {
+        return "recipe:" + recipeId;
+    }
+
+    public static String postTopic(Long postId) {
+        return "post:" + postId;
+    }
+}
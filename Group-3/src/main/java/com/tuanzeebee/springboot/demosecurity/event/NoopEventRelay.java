@@ -0,0 +1,20 @@
+package com.tuanzeebee.springboot.demosecurity.event;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.function.Consumer;
+
+// Chạy một node: không cần chuyển sự kiện đi đâu
+@Component
+@ConditionalOnProperty(name = "live-events.relay", havingValue = "none", matchIfMissing = true)
+public class NoopEventRelay implements EventRelay {
+
+    @Override
+    public void publish(LiveEvent event) {
+    }
+
+    @Override
+    public void start(Consumer<LiveEvent> sink) {
+    }
+}
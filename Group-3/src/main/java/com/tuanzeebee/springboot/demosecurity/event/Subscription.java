@@ -0,0 +1,96 @@
+package com.tuanzeebee.springboot.demosecurity.event;
+
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Một kết nối SSE. Sự kiện được xếp vào hàng đợi có giới hạn; publisher không bao giờ chờ client.
+ * Khi hàng đợi đầy, kết nối bị đóng để client tự kết nối lại và tải lại dữ liệu.
+ */
+final class Subscription {
+
+    private final String topic;
+    private final SseEmitter emitter;
+    private final BlockingQueue<LiveEvent> queue;
+    private final AtomicBoolean draining = new AtomicBoolean();
+    // System.nanoTime() lúc lần gửi đang chạy bắt đầu, 0 khi không gửi
+    private volatile long sendStartedAt;
+    private volatile boolean closed;
+
+    Subscription(String topic, SseEmitter emitter, int capacity) {
+        this.topic = topic;
+        this.emitter = emitter;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+    }
+
+    String getTopic() {
+        return topic;
+    }
+
+    SseEmitter getEmitter() {
+        return emitter;
+    }
+
+    boolean isClosed() {
+        return closed;
+    }
+
+    boolean offer(LiveEvent event) {
+        return !closed && queue.offer(event);
+    }
+
+    // Chỉ một thread gửi cho mỗi subscriber tại một thời điểm, giữ đúng thứ tự sự kiện
+    boolean tryStartDraining() {
+        return draining.compareAndSet(false, true);
+    }
+
+    void drain() throws IOException {
+        try {
+            LiveEvent event;
+            while (!closed && (event = queue.poll()) != null) {
+                send(SseEmitter.event().name(event.type().getEventName()).data(event));
+            }
+        } finally {
+            draining.set(false);
+        }
+    }
+
+    boolean hasPending() {
+        return !closed && !queue.isEmpty();
+    }
+
+    void heartbeat() throws IOException {
+        send(SseEmitter.event().comment("ping"));
+    }
+
+    // Lần gửi hiện tại đã chạy lâu hơn timeoutNanos
+    boolean isStalled(long timeoutNanos) {
+        long startedAt = sendStartedAt;
+        return startedAt != 0 && System.nanoTime() - startedAt > timeoutNanos;
+    }
+
+    private void send(SseEmitter.SseEventBuilder event) throws IOException {
+        sendStartedAt = System.nanoTime();
+        try {
+            emitter.send(event);
+        } finally {
+            sendStartedAt = 0;
+        }
+    }
+
+    void close() {
+        if (!closed) {
+            closed = true;
+            queue.clear();
+            try {
+                emitter.complete();
+            } catch (RuntimeException ignored) {
+                // Kết nối đã bị client đóng trước đó
+            }
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.tuanzeebee.springboot.demosecurity.event;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Relay bằng UDP giữa các node đã biết trước (live-events.relay.udp.peers=host:port,...).
+ * Không bảo đảm giao nhận; client vẫn tải lại khi kết nối lại nên mất một gói chỉ làm chậm cập nhật.
+ * Mặc định chỉ lắng nghe trên loopback, dùng để chạy thử nhiều node trên một máy.
+ */
+@Component
+@ConditionalOnProperty(name = "live-events.relay", havingValue = "udp")
+public class UdpEventRelay implements EventRelay {
+    private static final Logger logger = LoggerFactory.getLogger(UdpEventRelay.class);
+
+    private static final int MAX_PACKET_BYTES = 60_000;
+
+    private final ObjectMapper objectMapper;
+    private final InetSocketAddress bindAddress;
+    private final List<InetSocketAddress> peers = new ArrayList<>();
+    private DatagramSocket socket;
+    private Thread receiver;
+
+    @Autowired
+    public UdpEventRelay(ObjectMapper objectMapper,
+                         @Value("${live-events.relay.udp.bind:127.0.0.1}") String bindHost,
+                         @Value("${live-events.relay.udp.port:9701}") int port,
+                         @Value("${live-events.relay.udp.peers:}") String peerList) {
+        this.objectMapper = objectMapper;
+        this.bindAddress = new InetSocketAddress(bindHost, port);
+        Arrays.stream(peerList.split(","))
+                .map(String::trim)
+                .filter(peer -> !peer.isEmpty())
+                .forEach(peer -> {
+                    int colon = peer.lastIndexOf(':');
+                    peers.add(new InetSocketAddress(peer.substring(0, colon), Integer.parseInt(peer.substring(colon + 1))));
+                });
+    }
+
+    @Override
+    public void publish(LiveEvent event) {
+        byte[] payload;
+        try {
+            payload = objectMapper.writeValueAsBytes(event);
+            if (payload.length > MAX_PACKET_BYTES) {
+                // Bỏ phần data quá lớn, client nhận sự kiện rỗng vẫn biết để tải lại
+                payload = objectMapper.writeValueAsBytes(
+                        new LiveEvent(event.type(), event.recipeId(), event.postId(), null, event.origin()));
+            }
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Không thể tuần tự hóa sự kiện: " + e.getMessage());
+        }
+        for (InetSocketAddress peer : peers) {
+            try {
+                socket.send(new DatagramPacket(payload, payload.length, peer));
+            } catch (IOException e) {
+                logger.debug("Không gửi được sự kiện tới {}: {}", peer, e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public void start(Consumer<LiveEvent> sink) {
+        try {
+            socket = new DatagramSocket(bindAddress);
+        } catch (SocketException e) {
+            throw new RuntimeException("Không thể mở cổng UDP " + bindAddress + ": " + e.getMessage());
+        }
+        receiver = new Thread(() -> receive(sink), "live-events-udp");
+        receiver.setDaemon(true);
+        receiver.start();
+    }
+
+    @Override
+    public void stop() {
+        if (socket != null) {
+            socket.close();
+        }
+    }
+
+    private void receive(Consumer<LiveEvent> sink) {
+        byte[] buffer = new byte[MAX_PACKET_BYTES + 1024];
+        while (!socket.isClosed()) {
+            DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+            try {
+                socket.receive(packet);
+                sink.accept(objectMapper.readValue(packet.getData(), packet.getOffset(), packet.getLength(), LiveEvent.class));
+            } catch (JsonProcessingException e) {
+                logger.warn("Bỏ qua gói UDP không đọc được từ {}: {}", packet.getSocketAddress(), e.getMessage());
+            } catch (IOException e) {
+                if (!socket.isClosed()) {
+                    logger.warn("Lỗi nhận sự kiện UDP: {}", e.getMessage());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.tuanzeebee.springboot.demosecurity.job;
+
+import java.time.Duration;
+
+// Handler chưa chạy được lúc này (tài nguyên đang bận): job quay lại hàng đợi sau delay, không tính là một lần thử
+public class JobDeferredException extends RuntimeException {
+
+    private final Duration delay;
+
+    public JobDeferredException(String message, Duration delay) {
+        super(message);
+        this.delay = delay;
+    }
+
+    public Duration getDelay() {
+        return delay;
+    }
+}
@@ -0,0 +1,14 @@
+package com.tuanzeebee.springboot.demosecurity.job;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * Xử lý một loại job. Ném exception nghĩa là thất bại và job được chạy lại sau (tới max-attempts lần); riêng
+ * JobDeferredException chỉ hoãn job, không tính là một lần thử. Một job có thể chạy nhiều hơn một lần
+ * (node chết giữa chừng, lease hết hạn) nên handler phải idempotent.
+ * Giá trị trả về (có thể null) được lưu vào cột result để xem trên trang admin.
+ */
+@FunctionalInterface
+public interface JobHandler {
+    String handle(JsonNode payload) throws Exception;
+}
@@ -0,0 +1,471 @@
+package com.tuanzeebee.springboot.demosecurity.job;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tuanzeebee.springboot.demosecurity.dao.JobCountDTO;
+import com.tuanzeebee.springboot.demosecurity.dao.JobDTO;
+import com.tuanzeebee.springboot.demosecurity.lock.ClusterLock;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hàng đợi job bền trong bảng jobs. enqueue chỉ ghi một dòng (cùng transaction với request nếu có) rồi trả về;
+ * mỗi node chạy số worker cấu hình trong job-queue.queues cho từng hàng đợi, worker giành job bằng
+ * SELECT ... FOR UPDATE SKIP LOCKED nên các node không chờ khóa của nhau và không chạy trùng một job.
+ * Job đang chạy giữ lease (locked_until, được gia hạn định kỳ); node chết thì lease hết hạn và job quay lại
+ * hàng đợi. Thất bại thì chạy lại sau backoff tăng gấp đôi, hết số lần thì chuyển DEAD.
+ */
+@Component
+public class JobQueue {
+    private static final Logger logger = LoggerFactory.getLogger(JobQueue.class);
+
+    public static final String PENDING = "PENDING";
+    public static final String RUNNING = "RUNNING";
+    public static final String SUCCEEDED = "SUCCEEDED";
+    public static final String DEAD = "DEAD";
+
+    private static final int MAX_ERROR_CHARS = 1000;
+    // result là cột text (64 KB), tiếng Việt tới 3 byte mỗi ký tự
+    private static final int MAX_RESULT_CHARS = 20000;
+    private static final String JOB_COLUMNS = "id, queue, type, payload, status, attempts, max_attempts, run_at,"
+            + " locked_by, last_error, result, created_at, updated_at";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final String nodeId = UUID.randomUUID().toString();
+    private final boolean workersEnabled;
+    private final Map<String, Integer> queueConcurrency = new LinkedHashMap<>();
+    private final Map<String, Semaphore> wakeups = new ConcurrentHashMap<>();
+    private final Map<String, Registration> handlers = new ConcurrentHashMap<>();
+    private final Set<Long> runningJobs = ConcurrentHashMap.newKeySet();
+    private final List<ExecutorService> workerPools = new ArrayList<>();
+    private final long pollMillis;
+    private final Duration lease;
+    private final Duration backoffBase;
+    private final Duration backoffMax;
+    private final Duration retention;
+    private final int defaultMaxAttempts;
+    private volatile boolean running;
+
+    @Autowired
+    public JobQueue(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                    ObjectMapper objectMapper, MeterRegistry meterRegistry,
+                    @Value("${job-queue.workers-enabled:true}") boolean workersEnabled,
+                    @Value("${job-queue.queues:default=2}") String queues,
+                    @Value("${job-queue.poll-interval:2s}") Duration pollInterval,
+                    @Value("${job-queue.lease:5m}") Duration lease,
+                    @Value("${job-queue.max-attempts:5}") int defaultMaxAttempts,
+                    @Value("${job-queue.backoff-base:10s}") Duration backoffBase,
+                    @Value("${job-queue.backoff-max:30m}") Duration backoffMax,
+                    @Value("${job-queue.retention:7d}") Duration retention) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.workersEnabled = workersEnabled;
+        this.pollMillis = pollInterval.toMillis();
+        this.lease = lease;
+        this.defaultMaxAttempts = defaultMaxAttempts;
+        this.backoffBase = backoffBase;
+        this.backoffMax = backoffMax;
+        this.retention = retention;
+        // "default=2,deletion=1,scripts=1": tên hàng đợi = số worker trên mỗi node
+        Arrays.stream(queues.split(","))
+                .map(String::trim)
+                .filter(queue -> !queue.isEmpty())
+                .forEach(queue -> {
+                    int equals = queue.indexOf('=');
+                    String name = equals < 0 ? queue : queue.substring(0, equals).trim();
+                    int workers = equals < 0 ? 1 : Integer.parseInt(queue.substring(equals + 1).trim());
+                    queueConcurrency.put(name, workers);
+                    wakeups.put(name, new Semaphore(0));
+                });
+        Gauge.builder("app.jobs.running", runningJobs, Set::size).register(meterRegistry);
+    }
+
+    public void register(String type, String queue, JobHandler handler) {
+        register(type, queue, defaultMaxAttempts, handler);
+    }
+
+    public void register(String type, String queue, int maxAttempts, JobHandler handler) {
+        if (!queueConcurrency.containsKey(queue)) {
+            throw new IllegalArgumentException("Hàng đợi job chưa được cấu hình trong job-queue.queues: " + queue);
+        }
+        if (handlers.putIfAbsent(type, new Registration(queue, maxAttempts, handler)) != null) {
+            throw new IllegalStateException("Loại job đã được đăng ký: " + type);
+        }
+    }
+
+    /**
+     * Xếp một job vào hàng đợi, payload được lưu dạng JSON. Trong transaction thì dòng job commit cùng
+     * thay đổi của request (rollback thì không có job) và worker của node này được đánh thức sau commit.
+     */
+    public long enqueue(String type, Object payload) {
+        Registration registration = handlers.get(type);
+        if (registration == null) {
+            throw new IllegalArgumentException("Loại job chưa được đăng ký: " + type);
+        }
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Không thể tuần tự hóa payload của job " + type + ": " + e.getMessage());
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.update(connection -> {
+            PreparedStatement ps = connection.prepareStatement(
+                    "INSERT INTO jobs (queue, type, payload, status, attempts, max_attempts, run_at, created_at, updated_at)"
+                            + " VALUES (?, ?, ?, '" + PENDING + "', 0, ?, ?, ?, ?)",
+                    Statement.RETURN_GENERATED_KEYS);
+            ps.setString(1, registration.queue());
+            ps.setString(2, type);
+            ps.setString(3, json);
+            ps.setInt(4, registration.maxAttempts());
+            ps.setTimestamp(5, now);
+            ps.setTimestamp(6, now);
+            ps.setTimestamp(7, now);
+            return ps;
+        }, keyHolder);
+        meterRegistry.counter("app.jobs.enqueued", "queue", registration.queue(), "type", type).increment();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    wake(registration.queue());
+                }
+            });
+        } else {
+            wake(registration.queue());
+        }
+        return keyHolder.getKey().longValue();
+    }
+
+    // Chờ tới khi context sẵn sàng: mọi handler đã đăng ký và Flyway đã tạo bảng
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void startWorkers() {
+        if (!workersEnabled || running) {
+            return;
+        }
+        running = true;
+        queueConcurrency.forEach((queue, workers) -> {
+            AtomicInteger threadNumber = new AtomicInteger();
+            ExecutorService pool = Executors.newFixedThreadPool(workers, runnable -> {
+                Thread thread = new Thread(runnable, "jobs-" + queue + "-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+            for (int i = 0; i < workers; i++) {
+                pool.execute(() -> workLoop(queue));
+            }
+            workerPools.add(pool);
+        });
+    }
+
+    /**
+     * Dừng worker và trả các job node này đang chạy về hàng đợi để node khác làm tiếp ngay,
+     * không phải chờ lease hết hạn.
+     */
+    @PreDestroy
+    public synchronized void shutdown() {
+        running = false;
+        workerPools.forEach(ExecutorService::shutdownNow);
+        for (ExecutorService pool : workerPools) {
+            try {
+                pool.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        workerPools.clear();
+        try {
+            Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+            jdbcTemplate.update("UPDATE jobs SET status = '" + PENDING + "', run_at = ?, locked_by = NULL,"
+                    + " locked_until = NULL, updated_at = ? WHERE locked_by = ? AND status = '" + RUNNING + "'",
+                    now, now, nodeId);
+        } catch (DataAccessException e) {
+            logger.warn("Không trả được job đang chạy về hàng đợi: {}", e.getMessage());
+        }
+    }
+
+    // Job chạy lâu (script Python) vẫn giữ lease chừng nào node còn sống
+    @Scheduled(fixedDelayString = "${job-queue.lease-renew-ms:60000}")
+    public void renewLeases() {
+        if (runningJobs.isEmpty()) {
+            return;
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.update("UPDATE jobs SET locked_until = ?, updated_at = ? WHERE locked_by = ? AND status = '"
+                + RUNNING + "'", Timestamp.valueOf(now.toLocalDateTime().plus(lease)), now, nodeId);
+    }
+
+    // Thu hồi job của node đã chết và dọn job xong cũ. Mỗi chu kỳ chỉ một node chạy; các câu lệnh đều
+    // idempotent nên chạy trùng lúc đổi chủ khóa cũng không sao
+    @ClusterLock(value = "job-queue-maintenance", minHold = "${job-queue.maintenance-ms:30000}")
+    @Scheduled(fixedDelayString = "${job-queue.maintenance-ms:30000}")
+    public void reclaimExpiredLeases() {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        int dead = jdbcTemplate.update("UPDATE jobs SET status = '" + DEAD + "', last_error = ?, locked_by = NULL,"
+                + " locked_until = NULL, updated_at = ? WHERE status = '" + RUNNING + "' AND locked_until < ?"
+                + " AND attempts >= max_attempts", "Lease hết hạn ở lần chạy cuối (node dừng giữa chừng?)", now, now);
+        int reclaimed = jdbcTemplate.update("UPDATE jobs SET status = '" + PENDING + "', run_at = ?, locked_by = NULL,"
+                + " locked_until = NULL, updated_at = ? WHERE status = '" + RUNNING + "' AND locked_until < ?",
+                now, now, now);
+        if (dead + reclaimed > 0) {
+            logger.warn("Thu hồi {} job có lease hết hạn ({} chuyển DEAD)", dead + reclaimed, dead);
+            wakeups.keySet().forEach(this::wake);
+        }
+        jdbcTemplate.update("DELETE FROM jobs WHERE status = '" + SUCCEEDED + "' AND updated_at < ?",
+                Timestamp.valueOf(now.toLocalDateTime().minus(retention)));
+    }
+
+    public List<JobCountDTO> countByQueueAndStatus() {
+        return jdbcTemplate.query("SELECT queue, status, COUNT(*) AS total FROM jobs GROUP BY queue, status"
+                + " ORDER BY queue, status", (rs, rowNum) -> {
+            JobCountDTO dto = new JobCountDTO();
+            dto.setQueue(rs.getString("queue"));
+            dto.setStatus(rs.getString("status"));
+            dto.setCount(rs.getLong("total"));
+            return dto;
+        });
+    }
+
+    // Các job mới nhất, lọc theo trạng thái / hàng đợi nếu có
+    public List<JobDTO> findJobs(String status, String queue, int limit) {
+        StringBuilder sql = new StringBuilder("SELECT " + JOB_COLUMNS + " FROM jobs WHERE 1 = 1");
+        List<Object> args = new ArrayList<>();
+        if (status != null && !status.isEmpty()) {
+            sql.append(" AND status = ?");
+            args.add(status);
+        }
+        if (queue != null && !queue.isEmpty()) {
+            sql.append(" AND queue = ?");
+            args.add(queue);
+        }
+        sql.append(" ORDER BY id DESC LIMIT ").append(Math.max(1, limit));
+        return jdbcTemplate.query(sql.toString(), JOB_MAPPER, args.toArray());
+    }
+
+    // Có job loại type đang chờ hoặc đang chạy không (ví dụ để không xếp trùng một việc chỉ nên chạy một lần)
+    public boolean hasActiveJob(String type) {
+        Registration registration = handlers.get(type);
+        if (registration == null) {
+            throw new IllegalArgumentException("Chưa đăng ký handler cho loại job " + type);
+        }
+        Integer active = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM jobs WHERE queue = ? AND status IN ('"
+                + PENDING + "', '" + RUNNING + "') AND type = ?", Integer.class, registration.queue(), type);
+        return active != null && active > 0;
+    }
+
+    public JobDTO getJob(long id) {
+        return jdbcTemplate.query("SELECT " + JOB_COLUMNS + " FROM jobs WHERE id = ?", JOB_MAPPER, id)
+                .stream().findFirst().orElse(null);
+    }
+
+    // Chạy lại job DEAD từ đầu (đủ max_attempts lần mới)
+    public boolean retry(long id) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        int updated = jdbcTemplate.update("UPDATE jobs SET status = '" + PENDING + "', attempts = 0, run_at = ?,"
+                + " last_error = NULL, updated_at = ? WHERE id = ? AND status = '" + DEAD + "'", now, now, id);
+        if (updated > 0) {
+            wakeups.keySet().forEach(this::wake);
+        }
+        return updated > 0;
+    }
+
+    // Không xóa job đang chạy: worker vẫn đang làm và sẽ ghi kết quả vào dòng đó
+    public boolean delete(long id) {
+        return jdbcTemplate.update("DELETE FROM jobs WHERE id = ? AND status <> '" + RUNNING + "'", id) > 0;
+    }
+
+    private void workLoop(String queue) {
+        Semaphore wakeup = wakeups.get(queue);
+        while (running && !Thread.currentThread().isInterrupted()) {
+            ClaimedJob job = null;
+            try {
+                job = claim(queue);
+            } catch (DataAccessException e) {
+                logger.warn("Không giành được job của hàng đợi {}: {}", queue, e.getMessage());
+            }
+            if (job != null) {
+                execute(queue, job);
+                continue;
+            }
+            try {
+                wakeup.tryAcquire(pollMillis, TimeUnit.MILLISECONDS);
+                // Một lần enqueue chỉ cần đánh thức một worker, bỏ các lần đánh thức dồn lại
+                wakeup.drainPermits();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    // Giành một job trong transaction ngắn, commit ngay để không giữ khóa dòng trong lúc chạy handler
+    ClaimedJob claim(String queue) {
+        return transactionTemplate.execute(status -> {
+            Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+            List<ClaimedJob> jobs = jdbcTemplate.query("SELECT id, type, payload, attempts, max_attempts FROM jobs"
+                            + " WHERE queue = ? AND status = '" + PENDING + "' AND run_at <= ?"
+                            + " ORDER BY run_at, id LIMIT 1 FOR UPDATE SKIP LOCKED",
+                    (rs, rowNum) -> new ClaimedJob(rs.getLong("id"), rs.getString("type"), rs.getString("payload"),
+                            rs.getInt("attempts") + 1, rs.getInt("max_attempts")),
+                    queue, now);
+            if (jobs.isEmpty()) {
+                return null;
+            }
+            ClaimedJob job = jobs.get(0);
+            jdbcTemplate.update("UPDATE jobs SET status = '" + RUNNING + "', attempts = ?, locked_by = ?,"
+                            + " locked_until = ?, updated_at = ? WHERE id = ?",
+                    job.attempt(), nodeId, Timestamp.valueOf(now.toLocalDateTime().plus(lease)), now, job.id());
+            return job;
+        });
+    }
+
+    void execute(String queue, ClaimedJob job) {
+        Registration registration = handlers.get(job.type());
+        runningJobs.add(job.id());
+        try {
+            if (registration == null) {
+                // Node chạy phiên bản cũ hơn node đã xếp job; node khác có thể xử lý được
+                throw new IllegalStateException("Node này không có handler cho loại job " + job.type());
+            }
+            String result = registration.handler().handle(objectMapper.readTree(job.payload()));
+            finish(job, SUCCEEDED, null, result, null);
+            meterRegistry.counter("app.jobs.completed", "queue", queue, "outcome", "succeeded").increment();
+        } catch (JobDeferredException e) {
+            logger.info("Job {} ({}) hoãn {}: {}", job.id(), job.type(), e.getDelay(), e.getMessage());
+            defer(job, LocalDateTime.now().plus(e.getDelay()));
+            meterRegistry.counter("app.jobs.completed", "queue", queue, "outcome", "deferred").increment();
+        } catch (InterruptedException e) {
+            // Node đang dừng: shutdown trả job về hàng đợi
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            String error = e.getClass().getSimpleName() + ": " + e.getMessage();
+            if (job.attempt() >= job.maxAttempts()) {
+                logger.error("Job {} ({}) thất bại lần cuối, chuyển DEAD: {}", job.id(), job.type(), error);
+                finish(job, DEAD, error, null, null);
+                meterRegistry.counter("app.jobs.completed", "queue", queue, "outcome", "dead").increment();
+            } else {
+                logger.warn("Job {} ({}) thất bại lần {}: {}", job.id(), job.type(), job.attempt(), error);
+                finish(job, PENDING, error, null, LocalDateTime.now().plus(backoff(job.attempt())));
+                meterRegistry.counter("app.jobs.completed", "queue", queue, "outcome", "retried").increment();
+            }
+        } finally {
+            runningJobs.remove(job.id());
+        }
+    }
+
+    // Chỉ ghi khi node này còn giữ job: lease hết hạn thì job đã thuộc về node khác
+    private void finish(ClaimedJob job, String status, String error, String result, LocalDateTime runAt) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        try {
+            jdbcTemplate.update("UPDATE jobs SET status = ?, last_error = ?, result = ?, run_at = COALESCE(?, run_at),"
+                            + " locked_by = NULL, locked_until = NULL, updated_at = ?"
+                            + " WHERE id = ? AND locked_by = ? AND status = '" + RUNNING + "'",
+                    status, truncate(error, MAX_ERROR_CHARS), truncate(result, MAX_RESULT_CHARS),
+                    runAt != null ? Timestamp.valueOf(runAt) : null, now, job.id(), nodeId);
+        } catch (DataAccessException e) {
+            // Lease sẽ hết hạn và job được chạy lại
+            logger.error("Không ghi được kết quả job {}: {}", job.id(), e.getMessage());
+        }
+    }
+
+    // Trả job về hàng đợi tới runAt mà không tính lần chạy này vào attempts
+    private void defer(ClaimedJob job, LocalDateTime runAt) {
+        try {
+            jdbcTemplate.update("UPDATE jobs SET status = '" + PENDING + "', attempts = attempts - 1, run_at = ?,"
+                            + " locked_by = NULL, locked_until = NULL, updated_at = ?"
+                            + " WHERE id = ? AND locked_by = ? AND status = '" + RUNNING + "'",
+                    Timestamp.valueOf(runAt), Timestamp.valueOf(LocalDateTime.now()), job.id(), nodeId);
+        } catch (DataAccessException e) {
+            logger.error("Không hoãn được job {}: {}", job.id(), e.getMessage());
+        }
+    }
+
+    // backoff-base * 2^(lần - 1), tối đa backoff-max, cộng ngẫu nhiên tới 20% để các job lỗi cùng lúc không dồn lại
+    Duration backoff(int attempt) {
+        long max = backoffMax.toMillis();
+        long delay = backoffBase.toMillis();
+        for (int i = 1; i < attempt && delay < max; i++) {
+            delay *= 2;
+        }
+        delay = Math.min(delay, max);
+        return Duration.ofMillis(delay + ThreadLocalRandom.current().nextLong(delay / 5 + 1));
+    }
+
+    private void wake(String queue) {
+        Semaphore wakeup = wakeups.get(queue);
+        if (wakeup != null) {
+            wakeup.release();
+        }
+    }
+
+    private static String truncate(String value, int maxChars) {
+        return value == null || value.length() <= maxChars ? value : value.substring(0, maxChars);
+    }
+
+    private static final RowMapper<JobDTO> JOB_MAPPER = (rs, rowNum) -> {
+        JobDTO dto = new JobDTO();
+        dto.setId(rs.getLong("id"));
+        dto.setQueue(rs.getString("queue"));
+        dto.setType(rs.getString("type"));
+        dto.setPayload(rs.getString("payload"));
+        dto.setStatus(rs.getString("status"));
+        dto.setAttempts(rs.getInt("attempts"));
+        dto.setMaxAttempts(rs.getInt("max_attempts"));
+        dto.setRunAt(rs.getTimestamp("run_at").toLocalDateTime());
+        dto.setLockedBy(rs.getString("locked_by"));
+        dto.setLastError(rs.getString("last_error"));
+        dto.setResult(rs.getString("result"));
+        dto.setCreatedAt(rs.getTimestamp("created_at").toLocalDateTime());
+        dto.setUpdatedAt(rs.getTimestamp("updated_at").toLocalDateTime());
+        return dto;
+    };
+
+    private record Registration(String queue, int maxAttempts, JobHandler handler) {
+    }
+
+    record ClaimedJob(long id, String type, String payload, int attempt, int maxAttempts) {
+    }
+}
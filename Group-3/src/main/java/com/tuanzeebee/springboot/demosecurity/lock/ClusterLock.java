@@ -0,0 +1,23 @@
+package com.tuanzeebee.springboot.demosecurity.lock;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Chỉ chạy phương thức (thường là @Scheduled) trên một node của cluster tại mỗi thời điểm: node không giành
+ * được khóa value() thì bỏ qua lượt này. Phương thức phải trả về void vì lượt bị bỏ qua không có kết quả.
+ * minHold giữ khóa thêm sau khi chạy xong (tới minHold kể từ lúc giành khóa) để các node khác không chạy lại
+ * ngay trong cùng chu kỳ; nhận placeholder và định dạng thời lượng của Spring ("60000", "PT1M", "1m").
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface ClusterLock {
+
+    String value();
+
+    String minHold() default "";
+}
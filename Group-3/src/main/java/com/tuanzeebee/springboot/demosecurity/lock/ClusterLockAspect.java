@@ -0,0 +1,49 @@
+package com.tuanzeebee.springboot.demosecurity.lock;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Bọc các phương thức @ClusterLock: giành khóa trước khi chạy, node khác đang giữ thì bỏ qua lượt này
+ * (metric app.locks.contended), chạy xong thì trả khóa.
+ */
+@Aspect
+@Component
+public class ClusterLockAspect {
+
+    private final DistributedLock distributedLock;
+    private final Environment environment;
+
+    @Autowired
+    public ClusterLockAspect(DistributedLock distributedLock, Environment environment) {
+        this.distributedLock = distributedLock;
+        this.environment = environment;
+    }
+
+    @Around("@annotation(clusterLock)")
+    public Object runOnOneNode(ProceedingJoinPoint joinPoint, ClusterLock clusterLock) throws Throwable {
+        Lease lease = distributedLock.tryAcquire(clusterLock.value());
+        if (lease == null) {
+            return null;
+        }
+        try {
+            return joinPoint.proceed();
+        } finally {
+            distributedLock.release(lease, minHold(clusterLock));
+        }
+    }
+
+    private Duration minHold(ClusterLock clusterLock) {
+        if (clusterLock.minHold().isEmpty()) {
+            return Duration.ZERO;
+        }
+        return DurationStyle.detectAndParse(environment.resolveRequiredPlaceholders(clusterLock.minHold()));
+    }
+}
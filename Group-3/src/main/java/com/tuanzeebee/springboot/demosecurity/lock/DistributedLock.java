@@ -0,0 +1,210 @@
+package com.tuanzeebee.springboot.demosecurity.lock;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Khóa phân tán theo lease trong bảng distributed_locks, dùng để một việc chỉ chạy trên một node của cluster
+ * (@ClusterLock cho @Scheduled, import bằng script). Node giành khóa khi lease cũ đã hết hạn, mỗi lần giành
+ * token tăng thêm 1. Lease được gia hạn trên thread riêng (không chờ sau các @Scheduled khác của scheduler một
+ * thread); gia hạn thất bại thì lease bị đánh dấu mất. Đồng hồ các node lệch nhau có thể làm hai node cùng tin
+ * mình giữ khóa trong chốc lát, nên việc cần ghi kết quả phải kiểm tra token bằng checkValid trước khi ghi.
+ */
+@Component
+public class DistributedLock {
+    private static final Logger logger = LoggerFactory.getLogger(DistributedLock.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    private final String nodeId = UUID.randomUUID().toString();
+    private final Duration defaultLease;
+    private final Set<Lease> heldLeases = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService renewer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "distributed-lock-renewer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Autowired
+    public DistributedLock(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                           MeterRegistry meterRegistry,
+                           @Value("${distributed-lock.lease:1m}") Duration defaultLease,
+                           @Value("${distributed-lock.renew-interval:20s}") Duration renewInterval) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.meterRegistry = meterRegistry;
+        this.defaultLease = defaultLease;
+        Gauge.builder("app.locks.held", heldLeases, Set::size).register(meterRegistry);
+        long renewMillis = renewInterval.toMillis();
+        renewer.scheduleWithFixedDelay(this::renewLeases, renewMillis, renewMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public Lease tryAcquire(String name) {
+        return tryAcquire(name, defaultLease);
+    }
+
+    // null nếu khóa đang được giữ (bởi node khác hoặc chính node này)
+    public Lease tryAcquire(String name, Duration leaseDuration) {
+        createIfMissing(name);
+        Lease lease = transactionTemplate.execute(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            // FOR UPDATE: hai node cùng xin khóa thì node sau chờ node trước commit rồi mới đọc locked_until
+            LockRow row = jdbcTemplate.queryForObject("SELECT owner, token, locked_until, released"
+                            + " FROM distributed_locks WHERE name = ? FOR UPDATE",
+                    (rs, rowNum) -> new LockRow(rs.getString("owner"), rs.getLong("token"),
+                            rs.getTimestamp("locked_until").toLocalDateTime(), rs.getBoolean("released")),
+                    name);
+            if (row.lockedUntil().isAfter(now)) {
+                return null;
+            }
+            if (!row.released()) {
+                meterRegistry.counter("app.locks.expired", "lock", name).increment();
+                logger.warn("Khóa {} hết lease mà node {} không trả (token {}), giành lại", name, row.owner(),
+                        row.token());
+            }
+            long token = row.token() + 1;
+            jdbcTemplate.update("UPDATE distributed_locks SET owner = ?, token = ?, locked_until = ?, acquired_at = ?,"
+                            + " released = FALSE WHERE name = ?",
+                    nodeId, token, Timestamp.valueOf(now.plus(leaseDuration)), Timestamp.valueOf(now), name);
+            return new Lease(name, token, leaseDuration, now);
+        });
+        if (lease == null) {
+            meterRegistry.counter("app.locks.contended", "lock", name).increment();
+            return null;
+        }
+        meterRegistry.counter("app.locks.acquired", "lock", name).increment();
+        heldLeases.add(lease);
+        return lease;
+    }
+
+    public void release(Lease lease) {
+        release(lease, Duration.ZERO);
+    }
+
+    // Trả khóa; minHold > 0 thì khóa còn chặn node khác tới minHold kể từ lúc giành
+    public void release(Lease lease, Duration minHold) {
+        heldLeases.remove(lease);
+        if (lease.isLost()) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime holdUntil = lease.getAcquiredAt().plus(minHold);
+        try {
+            jdbcTemplate.update("UPDATE distributed_locks SET locked_until = ?, released = TRUE"
+                            + " WHERE name = ? AND token = ? AND released = FALSE",
+                    Timestamp.valueOf(holdUntil.isAfter(now) ? holdUntil : now), lease.getName(), lease.getToken());
+        } catch (DataAccessException e) {
+            // Khóa tự hết hạn sau khi lease hết
+            logger.warn("Không trả được khóa {}: {}", lease.getName(), e.getMessage());
+        }
+    }
+
+    // Kiểm tra fencing token với DB ngay trước khi ghi nhận kết quả; lease đã mất thì ném LeaseLostException
+    public void checkValid(Lease lease) {
+        if (!lease.isLost()) {
+            Integer current = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM distributed_locks"
+                    + " WHERE name = ? AND token = ? AND released = FALSE", Integer.class, lease.getName(), lease.getToken());
+            if (current != null && current > 0) {
+                return;
+            }
+            markLost(lease);
+        }
+        throw new LeaseLostException("Mất khóa " + lease.getName() + " (token " + lease.getToken() + ")");
+    }
+
+    // Có node nào đang giữ khóa (chưa trả, lease chưa hết hạn) không
+    public boolean isHeld(String name) {
+        Integer held = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM distributed_locks"
+                        + " WHERE name = ? AND released = FALSE AND locked_until > ?",
+                Integer.class, name, Timestamp.valueOf(LocalDateTime.now()));
+        return held != null && held > 0;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        renewer.shutdownNow();
+        // Trả khóa để node khác không phải chờ lease hết hạn
+        List.copyOf(heldLeases).forEach(this::release);
+    }
+
+    void renewLeases() {
+        for (Lease lease : heldLeases) {
+            LocalDateTime now = LocalDateTime.now();
+            LocalDateTime expiresAt = now.plus(lease.getDuration());
+            try {
+                int updated = jdbcTemplate.update("UPDATE distributed_locks SET locked_until = ?"
+                                + " WHERE name = ? AND token = ? AND released = FALSE",
+                        Timestamp.valueOf(expiresAt), lease.getName(), lease.getToken());
+                if (updated > 0) {
+                    lease.renewed(expiresAt);
+                } else if (heldLeases.contains(lease)) {
+                    // Không phải vừa được trả: node khác đã giành khóa với token mới
+                    markLost(lease);
+                }
+            } catch (DataAccessException e) {
+                logger.warn("Không gia hạn được khóa {}: {}", lease.getName(), e.getMessage());
+                // Không liên lạc được DB tới lúc lease hết hạn thì node khác có thể đã giành khóa
+                if (!now.isBefore(lease.getExpiresAt())) {
+                    markLost(lease);
+                }
+            }
+        }
+    }
+
+    private void markLost(Lease lease) {
+        heldLeases.remove(lease);
+        if (!lease.markLost()) {
+            return;
+        }
+        meterRegistry.counter("app.locks.lease.lost", "lock", lease.getName()).increment();
+        logger.error("Mất khóa {} (token {})", lease.getName(), lease.getToken());
+        for (Runnable listener : lease.drainLostListeners()) {
+            try {
+                listener.run();
+            } catch (RuntimeException e) {
+                logger.error("Lỗi khi xử lý mất khóa {}", lease.getName(), e);
+            }
+        }
+    }
+
+    // Dòng của khóa được tạo lần đầu có node xin; INSERT trùng nghĩa là node khác vừa tạo
+    private void createIfMissing(String name) {
+        Integer exists = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM distributed_locks WHERE name = ?",
+                Integer.class, name);
+        if (exists != null && exists > 0) {
+            return;
+        }
+        try {
+            jdbcTemplate.update("INSERT INTO distributed_locks (name, owner, token, locked_until, released)"
+                    + " VALUES (?, NULL, 0, ?, TRUE)", name, Timestamp.valueOf(LocalDateTime.now()));
+        } catch (DuplicateKeyException e) {
+            // Node khác tạo trước
+        }
+    }
+
+    private record LockRow(String owner, long token, LocalDateTime lockedUntil, boolean released) {
+    }
+}
@@ -0,0 +1,81 @@
+package com.tuanzeebee.springboot.demosecurity.lock;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Lease của node này trên một khóa. token là fencing token: tăng mỗi lần khóa đổi chủ, nên mọi thao tác
+ * chỉ được ghi nhận khi token vẫn là token hiện tại của khóa (DistributedLock.checkValid).
+ * Lease bị coi là mất khi gia hạn thất bại; các listener đăng ký qua onLost được gọi trên thread gia hạn.
+ */
+public final class Lease {
+
+    private final String name;
+    private final long token;
+    private final Duration duration;
+    private final LocalDateTime acquiredAt;
+    private final List<Runnable> lostListeners = new CopyOnWriteArrayList<>();
+    private volatile LocalDateTime expiresAt;
+    private volatile boolean lost;
+
+    Lease(String name, long token, Duration duration, LocalDateTime acquiredAt) {
+        this.name = name;
+        this.token = token;
+        this.duration = duration;
+        this.acquiredAt = acquiredAt;
+        this.expiresAt = acquiredAt.plus(duration);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getToken() {
+        return token;
+    }
+
+    public boolean isLost() {
+        return lost;
+    }
+
+    // Ví dụ dừng tiến trình con khi node khác có thể đã giành khóa; lease đã mất thì chạy ngay
+    public void onLost(Runnable listener) {
+        lostListeners.add(listener);
+        if (lost && lostListeners.remove(listener)) {
+            listener.run();
+        }
+    }
+
+    Duration getDuration() {
+        return duration;
+    }
+
+    LocalDateTime getAcquiredAt() {
+        return acquiredAt;
+    }
+
+    LocalDateTime getExpiresAt() {
+        return expiresAt;
+    }
+
+    void renewed(LocalDateTime expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+
+    // true nếu đây là lần đầu lease bị đánh dấu mất
+    synchronized boolean markLost() {
+        if (lost) {
+            return false;
+        }
+        lost = true;
+        return true;
+    }
+
+    List<Runnable> drainLostListeners() {
+        List<Runnable> listeners = List.copyOf(lostListeners);
+        lostListeners.removeAll(listeners);
+        return listeners;
+    }
+}
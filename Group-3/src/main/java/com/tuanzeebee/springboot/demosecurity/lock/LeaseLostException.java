@@ -0,0 +1,8 @@
+package com.tuanzeebee.springboot.demosecurity.lock;
+
+// Lease không còn hiệu lực (hết hạn, node khác đã giành khóa với token mới): kết quả công việc không được ghi nhận
+public class LeaseLostException extends RuntimeException {
+    public LeaseLostException(String message) {
+        super(message);
+    }
+}
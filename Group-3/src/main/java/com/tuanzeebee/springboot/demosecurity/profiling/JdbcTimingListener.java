@@ -0,0 +1,25 @@
+package com.tuanzeebee.springboot.demosecurity.profiling;
+
+import org.hibernate.SessionEventListener;
+
+/**
+ * Đo thời gian thực thi JDBC. Hibernate tạo một instance cho mỗi Session
+ * (hibernate.session.events.auto), nên trạng thái trong field không cần đồng bộ.
+ */
+public class JdbcTimingListener implements SessionEventListener {
+
+    private long executeStart;
+
+    @Override
+    public void jdbcExecuteStatementStart() {
+        executeStart = System.nanoTime();
+    }
+
+    @Override
+    public void jdbcExecuteStatementEnd() {
+        QueryProfile profile = QueryProfile.current();
+        if (profile != null) {
+            profile.addJdbcTime(System.nanoTime() - executeStart);
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.tuanzeebee.springboot.demosecurity.profiling;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Đăng ký qua hibernate.session_factory.statement_inspector. Chỉ đếm, không sửa SQL.
+ */
+public class QueryCountInspector implements StatementInspector {
+
+    @Override
+    public String inspect(String sql) {
+        QueryProfile profile = QueryProfile.current();
+        if (profile != null) {
+            profile.onStatement(sql);
+        }
+        return sql;
+    }
+}
@@ -0,0 +1,100 @@
+package com.tuanzeebee.springboot.demosecurity.profiling;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Thống kê SQL của một request (hoặc một đoạn code trong test): số câu lệnh, tổng thời gian
+ * JDBC và số lần lặp lại của từng "dạng" câu lệnh. Dạng nào lặp lại từ ngưỡng trở lên
+ * được coi là nghi vấn N+1, kèm vị trí gọi đầu tiên trong code của ứng dụng.
+ * Gắn với thread hiện tại qua ThreadLocal; Hibernate gọi vào qua {@link QueryCountInspector}
+ * và {@link JdbcTimingListener}.
+ */
+public final class QueryProfile {
+
+    private static final ThreadLocal<QueryProfile> CURRENT = new ThreadLocal<>();
+    private static final Pattern IN_LIST = Pattern.compile("in\\s*\\((\\s*\\?\\s*,?)+\\)", Pattern.CASE_INSENSITIVE);
+    private static final String APP_PACKAGE = "com.tuanzeebee.springboot.demosecurity.";
+    private static final String PROFILING_PACKAGE = APP_PACKAGE + "profiling.";
+
+    private final int nPlusOneThreshold;
+    private final Map<String, Integer> statementShapes = new HashMap<>();
+    private final Map<String, String> callSites = new LinkedHashMap<>();
+    private int statementCount;
+    private long jdbcTimeNanos;
+
+    private QueryProfile(int nPlusOneThreshold) {
+        this.nPlusOneThreshold = nPlusOneThreshold;
+    }
+
+    public static QueryProfile start(int nPlusOneThreshold) {
+        QueryProfile profile = new QueryProfile(nPlusOneThreshold);
+        CURRENT.set(profile);
+        return profile;
+    }
+
+    public static QueryProfile current() {
+        return CURRENT.get();
+    }
+
+    public static void stop() {
+        CURRENT.remove();
+    }
+
+    void onStatement(String sql) {
+        statementCount++;
+        String shape = normalize(sql);
+        int count = statementShapes.merge(shape, 1, Integer::sum);
+        if (count == nPlusOneThreshold) {
+            // Chỉ lấy stack trace một lần cho mỗi dạng câu lệnh vượt ngưỡng
+            callSites.put(shape, findCallSite());
+        }
+    }
+
+    void addJdbcTime(long nanos) {
+        jdbcTimeNanos += nanos;
+    }
+
+    public int getStatementCount() {
+        return statementCount;
+    }
+
+    public long getJdbcTimeNanos() {
+        return jdbcTimeNanos;
+    }
+
+    /**
+     * Các dạng câu lệnh bị lặp từ ngưỡng trở lên, giá trị là số lần lặp.
+     */
+    public Map<String, Integer> getSuspectedNPlusOne() {
+        Map<String, Integer> suspects = new LinkedHashMap<>();
+        for (String shape : callSites.keySet()) {
+            suspects.put(shape, statementShapes.get(shape));
+        }
+        return Collections.unmodifiableMap(suspects);
+    }
+
+    public String getCallSite(String shape) {
+        return callSites.get(shape);
+    }
+
+    // Hibernate đã dùng tham số "?", chỉ cần gộp danh sách IN có độ dài khác nhau và khoảng trắng
+    static String normalize(String sql) {
+        String shape = IN_LIST.matcher(sql).replaceAll("in (...)");
+        return shape.replaceAll("\\s+", " ").trim();
+    }
+
+    private static String findCallSite() {
+        for (StackTraceElement frame : Thread.currentThread().getStackTrace()) {
+            String className = frame.getClassName();
+            if (className.startsWith(APP_PACKAGE) && !className.startsWith(PROFILING_PACKAGE)
+                    && !className.contains("$$")) {
+                return className + "." + frame.getMethodName() + ":" + frame.getLineNumber();
+            }
+        }
+        return "unknown";
+    }
+}
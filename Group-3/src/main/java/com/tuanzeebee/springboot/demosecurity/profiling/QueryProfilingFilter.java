@@ -0,0 +1,111 @@
+package com.tuanzeebee.springboot.demosecurity.profiling;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bật {@link QueryProfile} cho từng HTTP request, ghi metric số câu lệnh / thời gian JDBC
+ * theo endpoint và log cảnh báo khi phát hiện dạng câu lệnh lặp lại (nghi vấn N+1).
+ * Ngoài profile prod, response được đệm lại để gắn header X-Query-Count.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+public class QueryProfilingFilter extends OncePerRequestFilter {
+    private static final Logger logger = LoggerFactory.getLogger(QueryProfilingFilter.class);
+
+    public static final String QUERY_COUNT_HEADER = "X-Query-Count";
+    public static final String PROFILE_ATTRIBUTE = QueryProfile.class.getName();
+
+    private final MeterRegistry meterRegistry;
+    private final int nPlusOneThreshold;
+    private final boolean exposeHeader;
+
+    @Autowired
+    public QueryProfilingFilter(MeterRegistry meterRegistry,
+                                @Value("${query-profiler.n-plus-one-threshold:10}") int nPlusOneThreshold,
+                                @Value("${query-profiler.expose-header:true}") boolean exposeHeader) {
+        this.meterRegistry = meterRegistry;
+        this.nPlusOneThreshold = nPlusOneThreshold;
+        this.exposeHeader = exposeHeader;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        QueryProfile profile = QueryProfile.start(nPlusOneThreshold);
+        request.setAttribute(PROFILE_ATTRIBUTE, profile);
+        // Không đệm các response dạng stream (SSE, import/export hàng loạt), header sẽ không được gắn cho chúng
+        boolean buffer = exposeHeader && !acceptsEventStream(request) && !isBulkTransfer(request);
+        ContentCachingResponseWrapper wrapper = buffer ? new ContentCachingResponseWrapper(response) : null;
+        try {
+            filterChain.doFilter(request, buffer ? wrapper : response);
+        } finally {
+            QueryProfile.stop();
+            String endpoint = endpointOf(request);
+            record(profile, endpoint);
+            reportSuspects(profile, request.getMethod(), endpoint);
+            if (buffer) {
+                wrapper.setHeader(QUERY_COUNT_HEADER, String.valueOf(profile.getStatementCount()));
+                wrapper.copyBodyToResponse();
+            }
+        }
+    }
+
+    private void record(QueryProfile profile, String endpoint) {
+        DistributionSummary.builder("app.request.queries")
+                .description("Số câu lệnh SQL trên mỗi HTTP request")
+                .tag("uri", endpoint)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(profile.getStatementCount());
+        Timer.builder("app.request.jdbc.time")
+                .description("Tổng thời gian JDBC trên mỗi HTTP request")
+                .tag("uri", endpoint)
+                .register(meterRegistry)
+                .record(profile.getJdbcTimeNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    private void reportSuspects(QueryProfile profile, String method, String endpoint) {
+        for (Map.Entry<String, Integer> suspect : profile.getSuspectedNPlusOne().entrySet()) {
+            logger.warn("Nghi vấn N+1 tại {} {}: câu lệnh lặp {} lần (tổng {} câu lệnh), gọi từ {}: {}",
+                    method, endpoint, suspect.getValue(), profile.getStatementCount(),
+                    profile.getCallSite(suspect.getKey()), suspect.getKey());
+        }
+    }
+
+    // Dùng pattern của handler (vd /api/posts/{id}) để metric không bị nổ số lượng tag
+    private String endpointOf(HttpServletRequest request) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        return pattern != null ? pattern.toString() : "UNKNOWN";
+    }
+
+    private boolean acceptsEventStream(HttpServletRequest request) {
+        String accept = request.getHeader("Accept");
+        return accept != null && accept.contains(MediaType.TEXT_EVENT_STREAM_VALUE);
+    }
+
+    private boolean isBulkTransfer(HttpServletRequest request) {
+        String uri = request.getRequestURI();
+        return uri.endsWith("/api/admin/recipes/import") || uri.endsWith("/api/admin/recipes/export");
+    }
+}
@@ -0,0 +1,169 @@
+package com.tuanzeebee.springboot.demosecurity.ratelimit;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.PathContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Giới hạn tốc độ các API ghi (bài đăng, like, bình luận, follow) theo người dùng và theo IP.
+ * Chạy sau Spring Security để biết người dùng; vượt giới hạn thì trả 429 kèm Retry-After
+ * mà không chạm tới controller hay DB. Đường đi khi được phép chỉ gồm so khớp route đã biên dịch
+ * sẵn và một hai phép CAS, không khóa.
+ */
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private final List<RoutePolicy> policies;
+    private final TokenBucketTable buckets;
+    private final long idleNanos;
+    private final Counter evictedCounter;
+
+    public RateLimitFilter(RateLimitProperties properties, MeterRegistry meterRegistry) {
+        this.buckets = new TokenBucketTable(properties.getStripes());
+        this.idleNanos = properties.getIdleTimeout().toNanos();
+        List<RateLimitProperties.Policy> configured = properties.getPolicies();
+        this.policies = IntStream.range(0, configured.size())
+                .mapToObj(index -> new RoutePolicy(index, configured.get(index), meterRegistry))
+                .collect(Collectors.toList());
+        this.evictedCounter = Counter.builder("app.rate-limit.buckets.evicted").register(meterRegistry);
+        Gauge.builder("app.rate-limit.buckets", buckets, TokenBucketTable::size)
+                .description("Số bucket đang giữ trong bộ nhớ")
+                .register(meterRegistry);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        RoutePolicy policy = match(request);
+        if (policy != null) {
+            long now = System.nanoTime();
+            // IP trước: request bị chặn theo IP không tiêu token của người dùng. getRemoteAddr là IP client thật
+            // nhờ server.forward-headers-strategy (X-Forwarded-For từ load balancer tin cậy)
+            long waitNanos = buckets.tryAcquire(new TokenBucketTable.BucketKey(policy.index, false, request.getRemoteAddr()),
+                    policy.ipInterval, policy.ipBurst, now);
+            if (waitNanos > 0) {
+                policy.rejectedByIp.increment();
+            } else {
+                String user = currentUser();
+                if (user != null) {
+                    waitNanos = buckets.tryAcquire(new TokenBucketTable.BucketKey(policy.index, true, user),
+                            policy.userInterval, policy.userBurst, now);
+                    if (waitNanos > 0) {
+                        policy.rejectedByUser.increment();
+                    }
+                }
+            }
+            if (waitNanos > 0) {
+                reject(response, waitNanos);
+                return;
+            }
+        }
+        filterChain.doFilter(request, response);
+    }
+
+    // Dọn dần từng stripe để mỗi lần chạy chỉ tốn ít thời gian
+    @Scheduled(fixedDelayString = "${app.rate-limit.sweep-ms:5000}")
+    public void evictIdleBuckets() {
+        long now = System.nanoTime();
+        int evicted = 0;
+        for (int i = 0; i < buckets.stripeCount(); i++) {
+            evicted += buckets.evictIdle(now, idleNanos);
+        }
+        evictedCounter.increment(evicted);
+    }
+
+    private RoutePolicy match(HttpServletRequest request) {
+        String method = request.getMethod();
+        PathContainer path = null;
+        for (RoutePolicy policy : policies) {
+            if (!policy.methods.contains(method)) {
+                continue;
+            }
+            if (path == null) {
+                path = PathContainer.parsePath(request.getRequestURI().substring(request.getContextPath().length()));
+            }
+            for (PathPattern pattern : policy.patterns) {
+                if (pattern.matches(path)) {
+                    return policy;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static String currentUser() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || authentication instanceof AnonymousAuthenticationToken) {
+            return null;
+        }
+        return authentication.getName();
+    }
+
+    private static void reject(HttpServletResponse response, long waitNanos) throws IOException {
+        long retryAfterSeconds = Math.max(1, (waitNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader("Retry-After", String.valueOf(retryAfterSeconds));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding("UTF-8");
+        response.getWriter().write("{\"message\":\"Bạn thao tác quá nhanh, vui lòng thử lại sau "
+                + retryAfterSeconds + " giây\"}");
+    }
+
+    private static final class RoutePolicy {
+        private final int index;
+        private final Set<String> methods;
+        private final List<PathPattern> patterns;
+        private final long userInterval;
+        private final long userBurst;
+        private final long ipInterval;
+        private final long ipBurst;
+        private final Counter rejectedByUser;
+        private final Counter rejectedByIp;
+
+        RoutePolicy(int index, RateLimitProperties.Policy policy, MeterRegistry meterRegistry) {
+            this.index = index;
+            this.methods = Set.copyOf(policy.getMethods());
+            this.patterns = policy.getPaths().stream()
+                    .map(PathPatternParser.defaultInstance::parse)
+                    .collect(Collectors.toList());
+            this.userInterval = intervalNanos(policy.getRefillPerSecond());
+            this.userBurst = userInterval * (Math.max(1, policy.getCapacity()) - 1);
+            this.ipInterval = intervalNanos(policy.getIpRefillPerSecond());
+            this.ipBurst = ipInterval * (Math.max(1, policy.getIpCapacity()) - 1);
+            this.rejectedByUser = rejectedCounter(meterRegistry, policy.getName(), "user");
+            this.rejectedByIp = rejectedCounter(meterRegistry, policy.getName(), "ip");
+        }
+
+        private static long intervalNanos(double perSecond) {
+            return (long) (TimeUnit.SECONDS.toNanos(1) / perSecond);
+        }
+
+        private static Counter rejectedCounter(MeterRegistry meterRegistry, String policy, String key) {
+            return Counter.builder("app.rate-limit.rejected")
+                    .description("Số request bị trả 429")
+                    .tag("policy", policy)
+                    .tag("key", key)
+                    .register(meterRegistry);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.tuanzeebee.springboot.demosecurity.ratelimit;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+@Data
+@ConfigurationProperties(prefix = "app.rate-limit")
+public class RateLimitProperties {
+
+    private boolean enabled = true;
+
+    // Bucket không dùng quá khoảng này (đã đầy lại) thì bị xóa khỏi bộ nhớ
+    private Duration idleTimeout = Duration.ofMinutes(10);
+
+    private int stripes = 16;
+
+    // Xét theo thứ tự, request thuộc nhóm đầu tiên khớp
+    private List<Policy> policies = new ArrayList<>();
+
+    @Data
+    public static class Policy {
+        private String name;
+        private List<String> paths = new ArrayList<>();
+        private Set<String> methods = new LinkedHashSet<>(List.of("POST", "PUT", "PATCH", "DELETE"));
+        // Mỗi người dùng: tối đa capacity request liên tiếp, sau đó refillPerSecond request/giây
+        private int capacity = 20;
+        private double refillPerSecond = 1;
+        // Mỗi IP (nhiều người dùng sau cùng NAT) nên rộng hơn
+        private int ipCapacity = 100;
+        private double ipRefillPerSecond = 5;
+    }
+}
@@ -0,0 +1,86 @@
+package com.tuanzeebee.springboot.demosecurity.ratelimit;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bảng token bucket chia thành nhiều stripe (mỗi stripe một ConcurrentHashMap) để việc dọn bucket nhàn rỗi
+ * làm từng phần nhỏ. Mỗi bucket chỉ là một AtomicLong theo thuật toán GCRA: lưu thời điểm (nanoTime)
+ * bucket sẽ đầy lại, token được tính lười từ thời gian trôi qua nên không cần thread nạp token,
+ * và lấy token là một vòng CAS không khóa.
+ */
+final class TokenBucketTable {
+
+    record BucketKey(int policy, boolean perUser, String subject) {
+    }
+
+    private final ConcurrentHashMap<BucketKey, AtomicLong>[] stripes;
+    private final int mask;
+    private final AtomicInteger nextStripeToSweep = new AtomicInteger();
+
+    @SuppressWarnings("unchecked")
+    TokenBucketTable(int stripeCount) {
+        int size = Integer.highestOneBit(Math.max(1, stripeCount - 1)) << 1;
+        this.stripes = new ConcurrentHashMap[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new ConcurrentHashMap<>();
+        }
+        this.mask = size - 1;
+    }
+
+    /**
+     * Lấy một token. intervalNanos là thời gian nạp một token, burstNanos = intervalNanos * (capacity - 1).
+     * Trả về 0 nếu được phép, ngược lại là số nano giây phải chờ tới khi có token.
+     */
+    long tryAcquire(BucketKey key, long intervalNanos, long burstNanos, long now) {
+        ConcurrentHashMap<BucketKey, AtomicLong> stripe = stripeOf(key);
+        AtomicLong bucket = stripe.get(key);
+        if (bucket == null) {
+            AtomicLong created = new AtomicLong(now);
+            bucket = stripe.putIfAbsent(key, created);
+            if (bucket == null) {
+                bucket = created;
+            }
+        }
+        while (true) {
+            long fullAt = bucket.get();
+            long base = Math.max(fullAt, now);
+            if (base - now > burstNanos) {
+                return base - burstNanos - now;
+            }
+            if (bucket.compareAndSet(fullAt, base + intervalNanos)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Dọn một stripe (xoay vòng): bỏ các bucket đã đầy lại từ hơn idleNanos trước. Request đang dùng
+     * đúng bucket vừa bị xóa chỉ được thêm tối đa một token, chấp nhận được.
+     */
+    int evictIdle(long now, long idleNanos) {
+        ConcurrentHashMap<BucketKey, AtomicLong> stripe = stripes[nextStripeToSweep.getAndIncrement() & mask];
+        int before = stripe.size();
+        stripe.values().removeIf(bucket -> now - bucket.get() > idleNanos);
+        return before - stripe.size();
+    }
+
+    int stripeCount() {
+        return stripes.length;
+    }
+
+    int size() {
+        int size = 0;
+        for (Map<BucketKey, AtomicLong> stripe : stripes) {
+            size += stripe.size();
+        }
+        return size;
+    }
+
+    private ConcurrentHashMap<BucketKey, AtomicLong> stripeOf(BucketKey key) {
+        int hash = key.hashCode();
+        return stripes[(hash ^ (hash >>> 16)) & mask];
+    }
+}
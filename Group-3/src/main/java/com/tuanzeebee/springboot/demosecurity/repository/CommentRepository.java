@@ -1,10 +1,18 @@
 package com.tuanzeebee.springboot.demosecurity.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import com.tuanzeebee.springboot.demosecurity.dao.DailyCount;
 import com.tuanzeebee.springboot.demosecurity.entity.Comment;
 
+import java.time.LocalDateTime;
 import java.util.List;
 public interface CommentRepository extends JpaRepository<Comment, Long> {
     List<Comment> findByPostIdOrderByCreatedAtDesc(Long postId);
+
+    @Query("SELECT CAST(c.createdAt AS LocalDate) AS createdDate, COUNT(c) AS total FROM Comment c " +
+           "WHERE c.createdAt >= :since GROUP BY CAST(c.createdAt AS LocalDate)")
+    List<DailyCount> countDailySince(@Param("since") LocalDateTime since);
 }
\ No newline at end of file
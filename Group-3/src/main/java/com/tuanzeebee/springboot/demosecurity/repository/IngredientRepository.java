@@ -1,12 +1,20 @@
 package com.tuanzeebee.springboot.demosecurity.repository;
 
+import com.tuanzeebee.springboot.demosecurity.dao.LookupOption;
 import com.tuanzeebee.springboot.demosecurity.entity.Ingredient;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.List;
 
 @Repository
 public interface IngredientRepository extends JpaRepository<Ingredient, Long> {
     boolean existsByName(String name);
+
+    @Query("SELECT i.id AS id, i.name AS label FROM Ingredient i WHERE i.name LIKE :prefix ESCAPE '!' ORDER BY i.name")
+    List<LookupOption> findLookupByNamePrefix(@Param("prefix") String prefix, Pageable pageable);
 }
@@ -0,0 +1,19 @@
+package com.tuanzeebee.springboot.demosecurity.repository;
+
+// Mẫu LIKE "bắt đầu bằng" cho các truy vấn tìm theo tiền tố: dùng được index, khác với '%x%' phải quét toàn bảng.
+// Truy vấn dùng ESCAPE '!' nên ký tự đại diện người dùng gõ vào được so khớp nguyên văn.
+public final class LikePatterns {
+
+    private LikePatterns() {
+    }
+
+    public static String startsWith(String text) {
+        if (text == null || text.isBlank()) {
+            return "%";
+        }
+        return text.trim()
+                .replace("!", "!!")
+                .replace("%", "!%")
+                .replace("_", "!_") + "%";
+    }
+}
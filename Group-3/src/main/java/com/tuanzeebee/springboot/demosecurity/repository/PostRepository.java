@@ -1,16 +1,91 @@
 package com.tuanzeebee.springboot.demosecurity.repository;
 
 import java.util.List;
+import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import com.tuanzeebee.springboot.demosecurity.dao.DailyCount;
+import com.tuanzeebee.springboot.demosecurity.dao.PostLikeCount;
+import com.tuanzeebee.springboot.demosecurity.dao.PostSummary;
+import com.tuanzeebee.springboot.demosecurity.dao.RecipePostCount;
 import com.tuanzeebee.springboot.demosecurity.entity.Post;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Optional;
 
 public interface PostRepository extends JpaRepository<Post, Long> {
     List<Post> findByUserIdOrderByCreatedAtDesc(Long userId);
     List<Post> findByRecipeIdOrderByCreatedAtDesc(Long recipeId);
     List<Post> findAllByOrderByCreatedAtDesc();
-    
+
+    @Query("SELECT CAST(p.createdAt AS LocalDate) AS createdDate, COUNT(p) AS total FROM Post p " +
+           "WHERE p.createdAt >= :since GROUP BY CAST(p.createdAt AS LocalDate)")
+    List<DailyCount> countDailySince(@Param("since") LocalDateTime since);
+
+    @Query("SELECT p.recipe.id AS recipeId, COUNT(p) AS total FROM Post p " +
+           "WHERE p.recipe.id IN :recipeIds GROUP BY p.recipe.id")
+    List<RecipePostCount> countByRecipeIds(@Param("recipeIds") Collection<Long> recipeIds);
+
+    String SUMMARY_SELECT = "SELECT p.id AS id, p.content AS content, p.createdAt AS createdAt, " +
+            "u.id AS userId, u.username AS username, u.avatar AS userAvatar, " +
+            "r.id AS recipeId, r.name AS recipeName, r.image AS recipeImage, " +
+            "SIZE(p.likedByUsers) AS likesCount, SIZE(p.comments) AS commentsCount " +
+            "FROM Post p LEFT JOIN p.user u LEFT JOIN p.recipe r";
+
+    @Query(SUMMARY_SELECT + " ORDER BY p.createdAt DESC")
+    List<PostSummary> findAllSummaries();
+
+    @Query(SUMMARY_SELECT + " WHERE u.id = :userId ORDER BY p.createdAt DESC")
+    List<PostSummary> findSummariesByUserId(@Param("userId") Long userId);
+
+    @Query(SUMMARY_SELECT + " WHERE r.id = :recipeId ORDER BY p.createdAt DESC")
+    List<PostSummary> findSummariesByRecipeId(@Param("recipeId") Long recipeId);
+
+    // Bảng bài đăng của admin: từng trang một, lọc theo người đăng và/hoặc công thức bằng id chọn từ ô gợi ý
+    @Query(value = SUMMARY_SELECT, countQuery = "SELECT COUNT(p) FROM Post p")
+    Page<PostSummary> findSummaryPage(Pageable pageable);
+
+    @Query(value = SUMMARY_SELECT + " WHERE u.id = :userId",
+           countQuery = "SELECT COUNT(p) FROM Post p WHERE p.user.id = :userId")
+    Page<PostSummary> findSummaryPageByUserId(@Param("userId") Long userId, Pageable pageable);
+
+    @Query(value = SUMMARY_SELECT + " WHERE r.id = :recipeId",
+           countQuery = "SELECT COUNT(p) FROM Post p WHERE p.recipe.id = :recipeId")
+    Page<PostSummary> findSummaryPageByRecipeId(@Param("recipeId") Long recipeId, Pageable pageable);
+
+    @Query(value = SUMMARY_SELECT + " WHERE u.id = :userId AND r.id = :recipeId",
+           countQuery = "SELECT COUNT(p) FROM Post p WHERE p.user.id = :userId AND p.recipe.id = :recipeId")
+    Page<PostSummary> findSummaryPageByUserIdAndRecipeId(@Param("userId") Long userId,
+                                                         @Param("recipeId") Long recipeId, Pageable pageable);
+
+    // Like/bỏ like bằng một câu lệnh trên khóa chính (post_id, user_id): bấm trùng hay hai request đồng thời
+    // đều an toàn, số dòng trả về cho biết trạng thái có thật sự đổi không
+    @Modifying(flushAutomatically = true)
+    @Query(value = "INSERT IGNORE INTO likes (post_id, user_id) SELECT :postId, u.id FROM users u WHERE u.username = :username",
+           nativeQuery = true)
+    int insertLikeByUsername(@Param("postId") Long postId, @Param("username") String username);
+
+    @Modifying(flushAutomatically = true)
+    @Query(value = "INSERT IGNORE INTO likes (post_id, user_id) VALUES (:postId, :userId)", nativeQuery = true)
+    int insertLike(@Param("postId") Long postId, @Param("userId") Long userId);
+
+    @Modifying(flushAutomatically = true)
+    @Query(value = "DELETE FROM likes WHERE post_id = :postId AND user_id = (SELECT u.id FROM users u WHERE u.username = :username)",
+           nativeQuery = true)
+    int deleteLikeByUsername(@Param("postId") Long postId, @Param("username") String username);
+
+    @Modifying(flushAutomatically = true)
+    @Query(value = "DELETE FROM likes WHERE post_id = :postId AND user_id = :userId", nativeQuery = true)
+    int deleteLike(@Param("postId") Long postId, @Param("userId") Long userId);
+
+    @Query("SELECT r.id AS recipeId, SIZE(p.likedByUsers) AS likesCount FROM Post p LEFT JOIN p.recipe r WHERE p.id = :postId")
+    Optional<PostLikeCount> findLikeCount(@Param("postId") Long postId);
+
+    @Query(value = "SELECT l.post_id FROM likes l JOIN users u ON u.id = l.user_id " +
+                   "WHERE u.username = :username AND l.post_id IN (:postIds)", nativeQuery = true)
+    List<Long> findLikedPostIds(@Param("username") String username, @Param("postIds") Collection<Long> postIds);
 }
\ No newline at end of file
@@ -1,11 +1,18 @@
 package com.tuanzeebee.springboot.demosecurity.repository;
 
+import com.tuanzeebee.springboot.demosecurity.dao.DailyCount;
+import com.tuanzeebee.springboot.demosecurity.dao.LookupOption;
+import com.tuanzeebee.springboot.demosecurity.dao.RecipeSummary;
 import com.tuanzeebee.springboot.demosecurity.entity.Recipe;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -13,4 +20,35 @@ public interface RecipeRepository extends JpaRepository<Recipe, Long> {
 
     @Query("SELECT r FROM Recipe r JOIN r.ingredients i WHERE i.id = :ingredientId")
     List<Recipe> findByIngredientId(Long ingredientId);
+
+    // Nạp nguyên liệu cùng lúc để chuyển DTO không phát sinh truy vấn cho từng công thức
+    @Query("SELECT DISTINCT r FROM Recipe r LEFT JOIN FETCH r.ingredients")
+    List<Recipe> findAllWithIngredients();
+
+    @Query("SELECT DISTINCT r FROM Recipe r LEFT JOIN FETCH r.ingredients WHERE r.id IN :ids")
+    List<Recipe> findAllWithIngredientsByIdIn(@Param("ids") Collection<Long> ids);
+
+    String SUMMARY_SELECT = "SELECT r.id AS id, r.name AS name, r.image AS image, " +
+            "SUBSTRING(r.description, 1, 160) AS description FROM Recipe r";
+
+    @Query(SUMMARY_SELECT + " ORDER BY r.id")
+    List<RecipeSummary> findAllSummaries();
+
+    @Query(SUMMARY_SELECT + " WHERE r.id IN :ids")
+    List<RecipeSummary> findSummariesByIdIn(@Param("ids") Collection<Long> ids);
+
+    // Bảng công thức của admin: từng trang một, lọc theo tiền tố tên (idx_recipes_name)
+    @Query(value = SUMMARY_SELECT, countQuery = "SELECT COUNT(r) FROM Recipe r")
+    Page<RecipeSummary> findSummaryPage(Pageable pageable);
+
+    @Query(value = SUMMARY_SELECT + " WHERE r.name LIKE :prefix ESCAPE '!'",
+           countQuery = "SELECT COUNT(r) FROM Recipe r WHERE r.name LIKE :prefix ESCAPE '!'")
+    Page<RecipeSummary> findSummaryPageByNamePrefix(@Param("prefix") String prefix, Pageable pageable);
+
+    @Query("SELECT r.id AS id, r.name AS label FROM Recipe r WHERE r.name LIKE :prefix ESCAPE '!' ORDER BY r.name")
+    List<LookupOption> findLookupByNamePrefix(@Param("prefix") String prefix, Pageable pageable);
+
+    @Query("SELECT CAST(r.createdAt AS LocalDate) AS createdDate, COUNT(r) AS total FROM Recipe r " +
+           "WHERE r.createdAt >= :since GROUP BY CAST(r.createdAt AS LocalDate)")
+    List<DailyCount> countDailySince(@Param("since") LocalDateTime since);
 }
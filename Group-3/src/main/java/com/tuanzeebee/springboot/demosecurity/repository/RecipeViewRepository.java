@@ -0,0 +1,9 @@
+package com.tuanzeebee.springboot.demosecurity.repository;
+
+import com.tuanzeebee.springboot.demosecurity.entity.RecipeView;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface RecipeViewRepository extends JpaRepository<RecipeView, Long> {
+}
@@ -4,7 +4,9 @@ import org.springframework.data.jpa.repository.JpaRepository;
 
 import com.tuanzeebee.springboot.demosecurity.entity.Step;
 
+import java.util.Collection;
 import java.util.List;
 public interface StepRepository extends JpaRepository<Step, Long> {
     List<Step> findByRecipeIdOrderByStepNumberAsc(Long recipeId);
+    List<Step> findByRecipeIdInOrderByStepNumberAsc(Collection<Long> recipeIds);
 }
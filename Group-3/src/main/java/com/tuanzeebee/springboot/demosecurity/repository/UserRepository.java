@@ -1,18 +1,58 @@
 package com.tuanzeebee.springboot.demosecurity.repository;
 
+import com.tuanzeebee.springboot.demosecurity.dao.DailyCount;
+import com.tuanzeebee.springboot.demosecurity.dao.LookupOption;
+import com.tuanzeebee.springboot.demosecurity.dao.UserAdminRow;
+import com.tuanzeebee.springboot.demosecurity.dao.UserRoleName;
 import com.tuanzeebee.springboot.demosecurity.entity.User;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByUsername(String username);
+    // Dựng mô hình cho view: lấy luôn roles trong cùng câu lệnh
+    @EntityGraph(attributePaths = "roles")
+    Optional<User> findWithRolesByUsername(String username);
     Optional<User> findByEmail(String email);
     boolean existsByUsername(String username);
     boolean existsByEmail(String email);
-}
\ No newline at end of file
+
+    @Query("SELECT u.username FROM User u WHERE u.id = :id")
+    Optional<String> findUsernameById(@Param("id") Long id);
+
+    // roles là EAGER: fetch join để không có thêm một truy vấn roles cho mỗi user
+    @Query("SELECT DISTINCT u FROM User u LEFT JOIN FETCH u.roles WHERE u.id IN :ids")
+    List<User> findAllWithRolesByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT CAST(u.createdAt AS LocalDate) AS createdDate, COUNT(u) AS total FROM User u " +
+           "WHERE u.createdAt >= :since GROUP BY CAST(u.createdAt AS LocalDate)")
+    List<DailyCount> countDailySince(@Param("since") LocalDateTime since);
+
+    // Bảng người dùng của admin: mỗi lần chỉ một trang, lọc theo tiền tố username (dùng uk_users_username)
+    String ADMIN_ROW_SELECT = "SELECT u.id AS id, u.username AS username, u.firstName AS firstName, " +
+            "u.lastName AS lastName, u.email AS email, u.avatar AS avatar, u.bio AS bio FROM User u";
+
+    @Query(value = ADMIN_ROW_SELECT, countQuery = "SELECT COUNT(u) FROM User u")
+    Page<UserAdminRow> findAdminRows(Pageable pageable);
+
+    @Query(value = ADMIN_ROW_SELECT + " WHERE u.username LIKE :prefix ESCAPE '!'",
+           countQuery = "SELECT COUNT(u) FROM User u WHERE u.username LIKE :prefix ESCAPE '!'")
+    Page<UserAdminRow> findAdminRowsByUsernamePrefix(@Param("prefix") String prefix, Pageable pageable);
+
+    @Query("SELECT u.id AS userId, r.name AS roleName FROM User u JOIN u.roles r WHERE u.id IN :ids")
+    List<UserRoleName> findRoleNamesByUserIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT u.id AS id, u.username AS label FROM User u WHERE u.username LIKE :prefix ESCAPE '!' ORDER BY u.username")
+    List<LookupOption> findLookupByUsernamePrefix(@Param("prefix") String prefix, Pageable pageable);
+}
@@ -1,9 +1,12 @@
 package com.tuanzeebee.springboot.demosecurity.security;
 
+import com.tuanzeebee.springboot.demosecurity.activity.ActivityLog;
+import com.tuanzeebee.springboot.demosecurity.activity.ActivityType;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import jakarta.servlet.http.HttpSession;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.web.authentication.AuthenticationSuccessHandler;
 import org.springframework.stereotype.Component;
@@ -16,12 +19,20 @@ import java.io.IOException;
 @Component
 public class CustomAuthenticationSuccessHandler implements AuthenticationSuccessHandler {
 
+    private final ActivityLog activityLog;
+
+    @Autowired
+    public CustomAuthenticationSuccessHandler(ActivityLog activityLog) {
+        this.activityLog = activityLog;
+    }
+
     @Override
     public void onAuthenticationSuccess(HttpServletRequest request, HttpServletResponse response, 
                                         Authentication authentication) throws IOException, ServletException {
         
         HttpSession session = request.getSession();
         session.setAttribute("user", authentication.getName());
+        activityLog.record(ActivityType.LOGIN, authentication.getName(), null, null);
         
         boolean isAdmin = authentication.getAuthorities().stream()
                 .anyMatch(a -> a.getAuthority().equals("ROLE_ADMIN"));
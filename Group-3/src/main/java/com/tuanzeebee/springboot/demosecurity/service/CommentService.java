@@ -1,12 +1,18 @@
 package com.tuanzeebee.springboot.demosecurity.service;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import com.tuanzeebee.springboot.demosecurity.activity.ActivityLog;
+import com.tuanzeebee.springboot.demosecurity.activity.ActivityType;
 import com.tuanzeebee.springboot.demosecurity.dao.CommentDTO;
 import com.tuanzeebee.springboot.demosecurity.entity.Comment;
 import com.tuanzeebee.springboot.demosecurity.entity.Post;
 import com.tuanzeebee.springboot.demosecurity.entity.User;
+import com.tuanzeebee.springboot.demosecurity.event.EventBroker;
+import com.tuanzeebee.springboot.demosecurity.event.LiveEvent;
 import com.tuanzeebee.springboot.demosecurity.repository.CommentRepository;
 import com.tuanzeebee.springboot.demosecurity.repository.PostRepository;
 import com.tuanzeebee.springboot.demosecurity.repository.UserRepository;
@@ -19,13 +25,23 @@ public class CommentService {
     private final UserRepository userRepository;
     private final PostRepository postRepository;
     private final UserService userService;
+    private final TrendingService trendingService;
+    private final EventBroker eventBroker;
+    private final ActivityLog activityLog;
+    private final Counter commentCounter;
     @Autowired
     public CommentService(CommentRepository commentRepository, UserRepository userRepository, 
-                         PostRepository postRepository, UserService userService) {
+                         PostRepository postRepository, UserService userService,
+                         TrendingService trendingService, EventBroker eventBroker, ActivityLog activityLog,
+                         MeterRegistry meterRegistry) {
         this.commentRepository = commentRepository;
         this.userRepository = userRepository;
         this.postRepository = postRepository;
         this.userService = userService;
+        this.trendingService = trendingService;
+        this.eventBroker = eventBroker;
+        this.activityLog = activityLog;
+        this.commentCounter = Counter.builder("app.comments").register(meterRegistry);
     }
     public List<CommentDTO> getCommentsByPostId(Long postId) {
         return commentRepository.findByPostIdOrderByCreatedAtDesc(postId).stream()
@@ -47,7 +63,15 @@ public CommentDTO createComment(Comment comment, Long userId, Long postId) {
     comment.setUser(user);
     comment.setPost(post);
     Comment savedComment = commentRepository.save(comment);
-    return convertToDTO(savedComment);
+    commentCounter.increment();
+    if (post.getRecipe() != null) {
+        trendingService.record(post.getRecipe().getId(), TrendingService.Event.COMMENT);
+    }
+    Long recipeId = post.getRecipe() != null ? post.getRecipe().getId() : null;
+    CommentDTO dto = convertToDTO(savedComment);
+    eventBroker.publish(LiveEvent.Type.COMMENT_CREATED, recipeId, postId, dto);
+    activityLog.record(ActivityType.COMMENT, user.getUsername(), recipeId, postId);
+    return dto;
 }
 
         
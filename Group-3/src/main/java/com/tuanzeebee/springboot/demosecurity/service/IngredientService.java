@@ -1,11 +1,18 @@
 package com.tuanzeebee.springboot.demosecurity.service;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 
+import com.tuanzeebee.springboot.demosecurity.cache.EntityChange;
+import com.tuanzeebee.springboot.demosecurity.cache.InvalidationBus;
+import com.tuanzeebee.springboot.demosecurity.cache.ReferenceDataRegistry;
+
 import com.tuanzeebee.springboot.demosecurity.dao.IngredientDTO;
+import com.tuanzeebee.springboot.demosecurity.dao.LookupOptionDTO;
 import com.tuanzeebee.springboot.demosecurity.entity.Ingredient;
 import com.tuanzeebee.springboot.demosecurity.repository.IngredientRepository;
+import com.tuanzeebee.springboot.demosecurity.repository.LikePatterns;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -14,29 +21,40 @@ import java.util.stream.Collectors;
 @Service
 public class IngredientService {
     private final IngredientRepository ingredientRepository;
+    private final InvalidationBus invalidationBus;
+    private final ReferenceDataRegistry referenceData;
 
     @Autowired
-    public IngredientService(IngredientRepository ingredientRepository) {
+    public IngredientService(IngredientRepository ingredientRepository, InvalidationBus invalidationBus,
+                             ReferenceDataRegistry referenceData) {
         this.ingredientRepository = ingredientRepository;
+        this.invalidationBus = invalidationBus;
+        this.referenceData = referenceData;
     }
 
+    // Đọc từ ReferenceDataRegistry, không truy vấn DB; registry tự cập nhật theo sự kiện INGREDIENT
     public List<IngredientDTO> getAllIngredients() {
-        return ingredientRepository.findAll().stream()
-                .map(this::convertToDTO)
+        return referenceData.getIngredients();
+    }
+
+    public List<LookupOptionDTO> lookupIngredients(String namePrefix, int limit) {
+        return ingredientRepository.findLookupByNamePrefix(LikePatterns.startsWith(namePrefix), PageRequest.of(0, limit))
+                .stream()
+                .map(LookupOptionDTO::from)
                 .collect(Collectors.toList());
     }
 
     public IngredientDTO getIngredientById(Long id) {
-        return ingredientRepository.findById(id)
-                .map(this::convertToDTO)
+        return referenceData.findIngredient(id)
                 .orElseThrow(() -> new RuntimeException("Ingredient not found"));
     }
 
     public IngredientDTO createIngredient(Ingredient ingredient) {
-        if (ingredientRepository.existsByName(ingredient.getName())) {
+        if (referenceData.findIngredientByName(ingredient.getName()).isPresent()) {
             throw new RuntimeException("Ingredient with this name already exists");
         }
         Ingredient savedIngredient = ingredientRepository.save(ingredient);
+        invalidationBus.publish(EntityChange.Type.INGREDIENT, savedIngredient.getId());
         return convertToDTO(savedIngredient);
     }
 
@@ -45,13 +63,16 @@ public class IngredientService {
                 .map(ingredient -> {
                     ingredient.setName(updatedIngredient.getName());
                     ingredient.setIcon(updatedIngredient.getIcon());
-                    return convertToDTO(ingredientRepository.save(ingredient));
+                    IngredientDTO saved = convertToDTO(ingredientRepository.save(ingredient));
+                    invalidationBus.publish(EntityChange.Type.INGREDIENT, id);
+                    return saved;
                 })
                 .orElseThrow(() -> new RuntimeException("Ingredient not found"));
     }
 
     public void deleteIngredient(Long id) {
         ingredientRepository.deleteById(id);
+        invalidationBus.publish(EntityChange.Type.INGREDIENT, id);
     }
 
     public long countIngredients() {
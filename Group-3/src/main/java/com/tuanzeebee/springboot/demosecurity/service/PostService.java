@@ -1,20 +1,41 @@
 package com.tuanzeebee.springboot.demosecurity.service;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.tuanzeebee.springboot.demosecurity.activity.ActivityLog;
+import com.tuanzeebee.springboot.demosecurity.activity.ActivityType;
+import com.tuanzeebee.springboot.demosecurity.dao.LikeStateDTO;
 import com.tuanzeebee.springboot.demosecurity.dao.PostDTO;
+import com.tuanzeebee.springboot.demosecurity.dao.PostLikeCount;
+import com.tuanzeebee.springboot.demosecurity.dao.PostSummary;
+import com.tuanzeebee.springboot.demosecurity.dao.PostSummaryDTO;
+import com.tuanzeebee.springboot.demosecurity.dao.RecipeSummaryDTO;
+import com.tuanzeebee.springboot.demosecurity.dao.UserSummaryDTO;
 import com.tuanzeebee.springboot.demosecurity.entity.Post;
 import com.tuanzeebee.springboot.demosecurity.entity.Recipe;
 import com.tuanzeebee.springboot.demosecurity.entity.User;
+import com.tuanzeebee.springboot.demosecurity.event.EventBroker;
+import com.tuanzeebee.springboot.demosecurity.event.LiveEvent;
+import com.tuanzeebee.springboot.demosecurity.hadding.ResourceNotFoundException;
 import com.tuanzeebee.springboot.demosecurity.repository.PostRepository;
 import com.tuanzeebee.springboot.demosecurity.repository.RecipeRepository;
 import com.tuanzeebee.springboot.demosecurity.repository.UserRepository;
 
 import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.IntSupplier;
 import java.util.stream.Collectors;
 import java.util.HashSet;
 
@@ -25,35 +46,51 @@ public class PostService {
     private final RecipeRepository recipeRepository;
     private final UserService userService;
     private final RecipeService recipeService;
+    private final TrendingService trendingService;
+    private final EventBroker eventBroker;
+    private final ActivityLog activityLog;
+    private final Counter likeCounter;
+    private final Counter unlikeCounter;
 
     @Autowired
     public PostService(PostRepository postRepository, UserRepository userRepository, 
-                      RecipeRepository recipeRepository, UserService userService, RecipeService recipeService) {
+                      RecipeRepository recipeRepository, UserService userService, RecipeService recipeService,
+                      TrendingService trendingService, EventBroker eventBroker, ActivityLog activityLog,
+                      MeterRegistry meterRegistry) {
         this.postRepository = postRepository;
         this.userRepository = userRepository;
         this.recipeRepository = recipeRepository;
         this.userService = userService;
         this.recipeService = recipeService;
+        this.trendingService = trendingService;
+        this.eventBroker = eventBroker;
+        this.activityLog = activityLog;
+        this.likeCounter = Counter.builder("app.likes").tag("action", "like").register(meterRegistry);
+        this.unlikeCounter = Counter.builder("app.likes").tag("action", "unlike").register(meterRegistry);
     }
 
+    @Transactional(readOnly = true)
     public List<PostDTO> getAllPosts() {
         return postRepository.findAll().stream()
                 .map(this::convertToDTO)
                 .collect(Collectors.toList());
     }
 
+    @Transactional(readOnly = true)
     public PostDTO getPostById(Long id) {
         return postRepository.findById(id)
                 .map(this::convertToDTO)
                 .orElseThrow(() -> new RuntimeException("Post not found"));
     }
 
+    @Transactional(readOnly = true)
     public List<PostDTO> getPostsByUserId(Long userId) {
         return postRepository.findByUserIdOrderByCreatedAtDesc(userId).stream()
                 .map(this::convertToDTO)
                 .collect(Collectors.toList());
     }
 
+    @Transactional(readOnly = true)
     public List<PostDTO> getPostsByRecipeId(Long recipeId) {
         try {
             return postRepository.findByRecipeIdOrderByCreatedAtDesc(recipeId).stream()
@@ -65,6 +102,49 @@ public class PostService {
         }
     }
 
+    // Bản rút gọn cho danh sách: một truy vấn, không nạp RecipeDTO đầy đủ và danh sách người đã like
+    @Transactional(readOnly = true)
+    public List<PostSummaryDTO> getPostSummaries() {
+        return toSummaryDTOs(postRepository.findAllSummaries());
+    }
+
+    @Transactional(readOnly = true)
+    public List<PostSummaryDTO> getPostSummariesByUserId(Long userId) {
+        return toSummaryDTOs(postRepository.findSummariesByUserId(userId));
+    }
+
+    @Transactional(readOnly = true)
+    public List<PostSummaryDTO> getPostSummariesByRecipeId(Long recipeId) {
+        return toSummaryDTOs(postRepository.findSummariesByRecipeId(recipeId));
+    }
+
+    // Một trang cho bảng admin, lọc theo người đăng và/hoặc công thức (null = không lọc)
+    @Transactional(readOnly = true)
+    public Page<PostSummaryDTO> getPostSummaryPage(Long userId, Long recipeId, Pageable pageable) {
+        Page<PostSummary> summaries;
+        if (userId != null && recipeId != null) {
+            summaries = postRepository.findSummaryPageByUserIdAndRecipeId(userId, recipeId, pageable);
+        } else if (userId != null) {
+            summaries = postRepository.findSummaryPageByUserId(userId, pageable);
+        } else if (recipeId != null) {
+            summaries = postRepository.findSummaryPageByRecipeId(recipeId, pageable);
+        } else {
+            summaries = postRepository.findSummaryPage(pageable);
+        }
+        return new PageImpl<>(toSummaryDTOs(summaries.getContent()), summaries.getPageable(), summaries.getTotalElements());
+    }
+
+    // Số bài đăng của từng công thức bằng một truy vấn GROUP BY; công thức chưa có bài đăng trả về 0
+    public Map<Long, Long> getPostCountsByRecipeIds(List<Long> recipeIds) {
+        Map<Long, Long> counts = new LinkedHashMap<>();
+        recipeIds.forEach(recipeId -> counts.put(recipeId, 0L));
+        if (!recipeIds.isEmpty()) {
+            postRepository.countByRecipeIds(recipeIds)
+                    .forEach(count -> counts.put(count.getRecipeId(), count.getTotal()));
+        }
+        return counts;
+    }
+
     public PostDTO createPost(Post post, Long userId, Long recipeId) {
         try {
             User user = userRepository.findById(userId)
@@ -79,13 +159,17 @@ public class PostService {
             post.setUser(user);
             post.setRecipe(recipe);
             Post savedPost = postRepository.save(post);
-            return convertToDTO(savedPost);
+            trendingService.record(recipeId, TrendingService.Event.POST);
+            PostDTO dto = convertToDTO(savedPost);
+            eventBroker.publish(LiveEvent.Type.POST_CREATED, recipeId, savedPost.getId(), dto);
+            return dto;
         } catch (Exception e) {
             e.printStackTrace();
             throw new RuntimeException("Error creating post: " + e.getMessage());
         }
     }
 
+    @Transactional
     public PostDTO updatePost(Long id, Post updatedPost) {
         return postRepository.findById(id)
                 .map(post -> {
@@ -99,50 +183,115 @@ public class PostService {
         postRepository.deleteById(id);
     }
 
+    /**
+     * Like bài đăng thay cho người dùng đang đăng nhập. Idempotent: like lại không báo lỗi,
+     * chỉ lần thay đổi thật mới được đếm, ghi trending và phát sự kiện.
+     */
     @Transactional
-    public PostDTO likePost(Long postId, Long userId) {
-        try {
-            Post post = postRepository.findById(postId)
-                    .orElseThrow(() -> new RuntimeException("Khong tim thay bai dang voi ID: " + postId));
-            
-            User user = userRepository.findById(userId)
-                    .orElseThrow(() -> new RuntimeException("Khong tim thay nguoi dung voi ID: " + userId));
-            
-            // Kiểm tra xem người dùng đã like chưa
-            if (post.getLikedByUsers().contains(user)) {
-                throw new RuntimeException("Nguoi dung da thich bai dang nay");
-            }
-            
-            post.getLikedByUsers().add(user);
-            Post updatedPost = postRepository.save(post);
-            return convertToDTO(updatedPost);
-        } catch (Exception e) {
-            e.printStackTrace();
-            throw new RuntimeException("Lỗi khi thích bài đăng: " + e.getMessage());
+    public LikeStateDTO like(Long postId, String username) {
+        return applyLike(postId, true, username, () -> postRepository.insertLikeByUsername(postId, username));
+    }
+
+    @Transactional
+    public LikeStateDTO unlike(Long postId, String username) {
+        return applyLike(postId, false, username, () -> postRepository.deleteLikeByUsername(postId, username));
+    }
+
+    // Trạng thái like của người dùng cho cả trang bài đăng trong một truy vấn, giữ thứ tự ID truyền vào
+    @Transactional(readOnly = true)
+    public List<LikeStateDTO> getLikeStates(String username, List<Long> postIds) {
+        if (postIds.isEmpty()) {
+            return List.of();
         }
+        Set<Long> liked = new HashSet<>(postRepository.findLikedPostIds(username, postIds));
+        return postIds.stream()
+                .distinct()
+                .map(postId -> {
+                    LikeStateDTO state = new LikeStateDTO();
+                    state.setPostId(postId);
+                    state.setLiked(liked.contains(postId));
+                    return state;
+                })
+                .collect(Collectors.toList());
+    }
+
+    // API cũ theo userId: giờ dùng cùng câu lệnh INSERT IGNORE / DELETE nên cũng idempotent.
+    // Nhật ký hoạt động ghi cho userId có lượt thích thay đổi, không phải người đang đăng nhập
+    @Transactional
+    public PostDTO likePost(Long postId, Long userId) {
+        String username = usernameOf(userId);
+        applyLike(postId, true, username, () -> postRepository.insertLike(postId, userId));
+        return getPostById(postId);
     }
 
     @Transactional
     public PostDTO unlikePost(Long postId, Long userId) {
+        String username = usernameOf(userId);
+        applyLike(postId, false, username, () -> postRepository.deleteLike(postId, userId));
+        return getPostById(postId);
+    }
+
+    private String usernameOf(Long userId) {
+        return userRepository.findUsernameById(userId)
+                .orElseThrow(() -> new ResourceNotFoundException("Khong tim thay nguoi dung voi ID: " + userId));
+    }
+
+    private LikeStateDTO applyLike(Long postId, boolean like, String username, IntSupplier statement) {
+        int changed;
         try {
-            Post post = postRepository.findById(postId)
-                    .orElseThrow(() -> new RuntimeException("Khong tim thay bai dang voi ID: " + postId));
-            
-            User user = userRepository.findById(userId)
-                    .orElseThrow(() -> new RuntimeException("Khong tim thay nguoi dung voi ID: " + userId));
-            
-            // Kiểm tra xem người dùng đã like chưa
-            if (!post.getLikedByUsers().contains(user)) {
-                throw new RuntimeException("Nguoi dung chua thich bai dang nay");
+            changed = statement.getAsInt();
+        } catch (DataIntegrityViolationException e) {
+            // Khóa ngoại tới posts: bài đăng không tồn tại
+            throw new ResourceNotFoundException("Khong tim thay bai dang voi ID: " + postId);
+        }
+        PostLikeCount count = postRepository.findLikeCount(postId)
+                .orElseThrow(() -> new ResourceNotFoundException("Khong tim thay bai dang voi ID: " + postId));
+        if (changed > 0) {
+            if (like) {
+                likeCounter.increment();
+                if (count.getRecipeId() != null) {
+                    trendingService.record(count.getRecipeId(), TrendingService.Event.LIKE);
+                }
+            } else {
+                unlikeCounter.increment();
             }
-            
-            post.getLikedByUsers().remove(user);
-            Post updatedPost = postRepository.save(post);
-            return convertToDTO(updatedPost);
-        } catch (Exception e) {
-            e.printStackTrace();
-            throw new RuntimeException("Lỗi khi bỏ thích bài đăng: " + e.getMessage());
+            activityLog.record(like ? ActivityType.LIKE : ActivityType.UNLIKE, username, count.getRecipeId(), postId);
+            eventBroker.publish(like ? LiveEvent.Type.POST_LIKED : LiveEvent.Type.POST_UNLIKED, count.getRecipeId(), postId,
+                    Map.of("postId", postId, "likesCount", count.getLikesCount()));
         }
+        LikeStateDTO state = new LikeStateDTO();
+        state.setPostId(postId);
+        state.setLiked(like);
+        state.setLikesCount(count.getLikesCount());
+        return state;
+    }
+
+    private List<PostSummaryDTO> toSummaryDTOs(List<PostSummary> summaries) {
+        return summaries.stream()
+                .map(summary -> {
+                    PostSummaryDTO dto = new PostSummaryDTO();
+                    dto.setId(summary.getId());
+                    dto.setContent(summary.getContent());
+                    dto.setCreatedAt(summary.getCreatedAt());
+                    dto.setLikesCount(summary.getLikesCount());
+                    dto.setCommentsCount(summary.getCommentsCount());
+                    if (summary.getUserId() != null) {
+                        UserSummaryDTO user = new UserSummaryDTO();
+                        user.setId(summary.getUserId());
+                        user.setUsername(summary.getUsername());
+                        user.setAvatar(summary.getUserAvatar());
+                        dto.setUser(user);
+                    }
+                    if (summary.getRecipeId() != null) {
+                        RecipeSummaryDTO recipe = new RecipeSummaryDTO();
+                        recipe.setId(summary.getRecipeId());
+                        recipe.setName(summary.getRecipeName());
+                        recipe.setImage(summary.getRecipeImage());
+                        dto.setRecipe(recipe);
+                    }
+                    return dto;
+                })
+                .collect(Collectors.toList());
     }
 
     private PostDTO convertToDTO(Post post) {
@@ -0,0 +1,261 @@
+package com.tuanzeebee.springboot.demosecurity.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Service;
+
+import com.tuanzeebee.springboot.demosecurity.job.JobDeferredException;
+import com.tuanzeebee.springboot.demosecurity.job.JobQueue;
+import com.tuanzeebee.springboot.demosecurity.lock.DistributedLock;
+import com.tuanzeebee.springboot.demosecurity.lock.Lease;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.InputStreamReader;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Chạy các script Python nhập dữ liệu (getdatarecipes.py, changeicon.py). Script chạy hàng phút nên request
+ * chỉ xếp job SCRIPT_JOB vào hàng đợi "scripts"; worker của node nào rảnh sẽ gọi run, output được lưu
+ * làm kết quả job để xem ở /admin/jobs. Hai script cùng ghi bảng nguyên liệu nên dùng chung khóa IMPORT_LOCK:
+ * cả cluster chỉ một script chạy tại một thời điểm, node mất lease thì tiến trình bị dừng và kết quả không được
+ * ghi nhận.
+ */
+@Service
+public class PythonScriptService {
+    private static final Logger logger = LoggerFactory.getLogger(PythonScriptService.class);
+
+    public static final String SCRIPT_JOB = "python.script";
+    public static final String GET_DATA_RECIPES = "getdatarecipes";
+    public static final String CHANGE_ICON = "changeicon";
+    public static final String IMPORT_LOCK = "recipe-import";
+    // Script chạy hàng phút: khóa bận thì thử lại sau khoảng này, không tính là một lần thử của job
+    private static final Duration LOCK_RETRY = Duration.ofSeconds(30);
+
+    private final ResourceLoader resourceLoader;
+    private final StatsSnapshotService statsSnapshotService;
+    private final MeterRegistry meterRegistry;
+    private final JobQueue jobQueue;
+    private final DistributedLock distributedLock;
+    private final String scriptDirectory;
+    private volatile String pythonPath;
+
+    @Autowired
+    public PythonScriptService(ResourceLoader resourceLoader, StatsSnapshotService statsSnapshotService,
+                               MeterRegistry meterRegistry, JobQueue jobQueue, DistributedLock distributedLock,
+                               @Value("${python.path}") String pythonPath,
+                               @Value("${python.script.path}") String scriptDirectory) {
+        this.resourceLoader = resourceLoader;
+        this.statsSnapshotService = statsSnapshotService;
+        this.meterRegistry = meterRegistry;
+        this.jobQueue = jobQueue;
+        this.distributedLock = distributedLock;
+        this.pythonPath = pythonPath;
+        this.scriptDirectory = scriptDirectory;
+    }
+
+    public long enqueueGetDataRecipes(int numRecipes) {
+        return jobQueue.enqueue(SCRIPT_JOB, Map.of("script", GET_DATA_RECIPES, "numRecipes", numRecipes));
+    }
+
+    public long enqueueChangeIcon() {
+        return jobQueue.enqueue(SCRIPT_JOB, Map.of("script", CHANGE_ICON));
+    }
+
+    // Có script nhập dữ liệu đang chờ trong hàng đợi hoặc đang chạy trên node nào đó không
+    public boolean isImportPendingOrRunning() {
+        return jobQueue.hasActiveJob(SCRIPT_JOB) || distributedLock.isHeld(IMPORT_LOCK);
+    }
+
+    /**
+     * Chạy script và trả về output; Python không có, không thấy file hoặc script trả mã lỗi thì ném
+     * RuntimeException kèm output để job được ghi nhận thất bại. Script khác đang giữ IMPORT_LOCK thì ném
+     * JobDeferredException: job chờ tới khi khóa rảnh mà không tốn lần thử nào.
+     */
+    public String run(String script, Integer numRecipes) throws Exception {
+        if (!GET_DATA_RECIPES.equals(script) && !CHANGE_ICON.equals(script)) {
+            throw new IllegalArgumentException("Script không hợp lệ: " + script);
+        }
+        String scriptName = script + ".py";
+        String outcome = "error";
+        Lease lease = distributedLock.tryAcquire(IMPORT_LOCK);
+        if (lease == null) {
+            countScriptRun(script, "locked");
+            throw new JobDeferredException("Đang có script nhập dữ liệu khác chạy, chưa chạy " + scriptName, LOCK_RETRY);
+        }
+        try {
+            logger.info("Bắt đầu chạy script {} (fencing token {})", scriptName, lease.getToken());
+
+            // Kiểm tra Python có được cài đặt không
+            if (!checkPythonInstallation()) {
+                throw new RuntimeException("Lỗi: Python không được cài đặt hoặc không thể chạy");
+            }
+
+            // Lấy đường dẫn tuyệt đối của file Python
+            String scriptPath = getScriptPath(scriptName);
+            if (scriptPath == null) {
+                throw new RuntimeException("Lỗi: Không tìm thấy file script " + scriptName);
+            }
+
+            logger.info("Đường dẫn script: {}", scriptPath);
+            logger.info("Sử dụng Python path: {}", pythonPath);
+
+            List<String> command = new ArrayList<>(List.of(pythonPath, scriptPath));
+            if (GET_DATA_RECIPES.equals(script)) {
+                command.add(String.valueOf(numRecipes != null ? numRecipes : 10));
+            }
+            ProcessBuilder processBuilder = new ProcessBuilder(command);
+            processBuilder.redirectErrorStream(true);
+            Process process = processBuilder.start();
+            // Gia hạn thất bại thì node khác có thể đã giành khóa và chạy script: dừng bản chạy này
+            lease.onLost(process::destroyForcibly);
+
+            String output;
+            int exitCode;
+            try {
+                output = readProcessOutput(process);
+                exitCode = process.waitFor();
+            } catch (InterruptedException e) {
+                // Node đang dừng: không để script chạy tiếp khi job đã được trả về hàng đợi
+                process.destroyForcibly();
+                throw e;
+            }
+
+            // Chỉ ghi nhận kết quả khi token vẫn là token hiện tại của khóa
+            distributedLock.checkValid(lease);
+            if (exitCode != 0) {
+                logger.error("Script chạy thất bại với mã lỗi: {}", exitCode);
+                outcome = "failure";
+                throw new RuntimeException(scriptName + " chạy thất bại với mã lỗi: " + exitCode + "\nOutput: " + output);
+            }
+            logger.info("Script chạy thành công");
+            if (GET_DATA_RECIPES.equals(script)) {
+                // Script nhập công thức hàng loạt -> làm mới số liệu dashboard
+                statsSnapshotService.requestRefresh();
+            }
+            outcome = "success";
+            return output;
+        } finally {
+            distributedLock.release(lease);
+            countScriptRun(script, outcome);
+        }
+    }
+
+    private void countScriptRun(String script, String outcome) {
+        meterRegistry.counter("app.script.runs", "script", script, "outcome", outcome).increment();
+    }
+
+    private boolean checkPythonInstallation() {
+        try {
+            logger.info("Kiểm tra Python installation với path: {}", pythonPath);
+
+            // Danh sách các lệnh Python có thể có
+            String[] pythonCommands = {"py", "python", "python3"};
+
+            for (String cmd : pythonCommands) {
+                try {
+                    logger.info("Thử với lệnh: {}", cmd);
+                    ProcessBuilder checkPython = new ProcessBuilder(cmd, "--version");
+                    Process checkProcess = checkPython.start();
+                    String versionOutput = readProcessOutput(checkProcess);
+                    int checkExitCode = checkProcess.waitFor();
+
+                    if (checkExitCode == 0) {
+                        logger.info("Tìm thấy Python version: {}", versionOutput.trim());
+                        pythonPath = cmd; // Cập nhật pythonPath
+                        return true;
+                    }
+                } catch (Exception e) {
+                    logger.warn("Không thể chạy lệnh {}: {}", cmd, e.getMessage());
+                }
+            }
+
+            // Kiểm tra trong PATH
+            try {
+                ProcessBuilder whereCmd = new ProcessBuilder("where", "python");
+                Process whereProcess = whereCmd.start();
+                String whereOutput = readProcessOutput(whereProcess);
+                int whereExitCode = whereProcess.waitFor();
+
+                if (whereExitCode == 0 && !whereOutput.trim().isEmpty()) {
+                    logger.info("Tìm thấy Python trong PATH: {}", whereOutput.trim());
+                    pythonPath = "python";
+                    return true;
+                }
+            } catch (Exception e) {
+                logger.warn("Không thể tìm Python trong PATH: {}", e.getMessage());
+            }
+
+            logger.error("Không tìm thấy Python installation");
+            return false;
+        } catch (Exception e) {
+            logger.error("Lỗi khi kiểm tra Python", e);
+            return false;
+        }
+    }
+
+    private String getScriptPath(String scriptName) {
+        try {
+            // Thử với đường dẫn tương đối
+            String fullPath = "classpath:" + scriptDirectory + "/" + scriptName;
+            logger.info("Tìm kiếm script tại: {}", fullPath);
+
+            try {
+                String scriptPath = resourceLoader.getResource(fullPath).getFile().getAbsolutePath();
+                File scriptFile = new File(scriptPath);
+
+                if (scriptFile.exists()) {
+                    logger.info("Tìm thấy script tại: {}", scriptPath);
+                    return scriptPath;
+                }
+            } catch (Exception e) {
+                logger.warn("Không tìm thấy script tại đường dẫn tương đối: {}", fullPath);
+            }
+
+            // Thử với đường dẫn tuyệt đối
+            String absolutePath = "src/main/resources/" + scriptDirectory + "/" + scriptName;
+            logger.info("Thử tìm kiếm script tại đường dẫn tuyệt đối: {}", absolutePath);
+
+            File scriptFile = new File(absolutePath);
+            if (scriptFile.exists()) {
+                logger.info("Tìm thấy script tại: {}", scriptFile.getAbsolutePath());
+                return scriptFile.getAbsolutePath();
+            }
+
+            logger.error("Không tìm thấy file script tại cả hai đường dẫn");
+            return null;
+        } catch (Exception e) {
+            logger.error("Lỗi khi lấy đường dẫn script", e);
+            return null;
+        }
+    }
+
+    private String readProcessOutput(Process process) throws Exception {
+        StringBuilder output = new StringBuilder();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                output.append(line).append("\n");
+                logger.info("Process output: {}", line);
+            }
+        }
+
+        // Đọc cả stderr
+        try (BufferedReader errorReader = new BufferedReader(new InputStreamReader(process.getErrorStream()))) {
+            String line;
+            while ((line = errorReader.readLine()) != null) {
+                output.append("Error: ").append(line).append("\n");
+                logger.error("Process error: {}", line);
+            }
+        }
+
+        return output.toString();
+    }
+}
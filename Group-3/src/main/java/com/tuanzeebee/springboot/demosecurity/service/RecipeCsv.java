@@ -0,0 +1,199 @@
+package com.tuanzeebee.springboot.demosecurity.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tuanzeebee.springboot.demosecurity.dao.RecipeTransferRecord;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * CSV cho import/export công thức (RFC 4180): cột name, description, image, ingredients, steps.
+ * Danh sách nguyên liệu và bước nấu nằm trong một ô dưới dạng mảng JSON, nên bước nấu có xuống dòng hay
+ * khoảng trắng đầu/cuối vẫn giữ nguyên khi import lại; ô không phải mảng JSON (file soạn tay) thì mỗi dòng
+ * một phần tử.
+ * Đọc từng bản ghi một, không nạp cả file.
+ */
+final class RecipeCsv {
+    static final List<String> HEADER = List.of("name", "description", "image", "ingredients", "steps");
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+    private static final TypeReference<List<String>> STRING_LIST = new TypeReference<>() {
+    };
+
+    private RecipeCsv() {
+    }
+
+    static void writeHeader(Writer out) throws IOException {
+        writeRow(out, HEADER);
+    }
+
+    static void write(Writer out, RecipeTransferRecord record) throws IOException {
+        writeRow(out, Arrays.asList(record.getName(), record.getDescription(), record.getImage(),
+                joinList(record.getIngredients()), joinList(record.getSteps())));
+    }
+
+    private static void writeRow(Writer out, List<String> fields) throws IOException {
+        for (int i = 0; i < fields.size(); i++) {
+            if (i > 0) {
+                out.write(',');
+            }
+            String field = fields.get(i);
+            if (field == null) {
+                continue;
+            }
+            if (field.indexOf(',') >= 0 || field.indexOf('"') >= 0 || field.indexOf('\n') >= 0 || field.indexOf('\r') >= 0) {
+                out.write('"');
+                out.write(field.replace("\"", "\"\""));
+                out.write('"');
+            } else {
+                out.write(field);
+            }
+        }
+        out.write("\r\n");
+    }
+
+    private static String joinList(List<String> values) throws IOException {
+        return values == null ? null : JSON.writeValueAsString(values);
+    }
+
+    private static List<String> splitList(String value) {
+        if (value == null || value.isBlank()) {
+            return new ArrayList<>();
+        }
+        if (value.startsWith("[")) {
+            try {
+                return JSON.readValue(value, STRING_LIST);
+            } catch (JsonProcessingException e) {
+                // Không phải mảng JSON hợp lệ: đọc như ô soạn tay
+            }
+        }
+        return Arrays.stream(value.split("\r?\n"))
+                .map(String::trim)
+                .filter(item -> !item.isEmpty())
+                .collect(Collectors.toList());
+    }
+
+    static final class RecordReader {
+        private final Reader in;
+        private final Map<String, Integer> columns = new HashMap<>();
+        private long line = 1;
+        private long recordLine;
+        private int pushedBack = -2;
+
+        RecordReader(Reader in) throws IOException {
+            this.in = in;
+            List<String> header = nextRow();
+            if (header == null) {
+                throw new IOException("File CSV rỗng");
+            }
+            for (int i = 0; i < header.size(); i++) {
+                columns.put(header.get(i).trim().toLowerCase(), i);
+            }
+            if (!columns.containsKey("name")) {
+                throw new IOException("Thiếu cột name trong dòng tiêu đề CSV");
+            }
+        }
+
+        // Dòng bắt đầu của bản ghi vừa đọc, dùng cho báo lỗi
+        long getRecordLine() {
+            return recordLine;
+        }
+
+        RecipeTransferRecord next() throws IOException {
+            List<String> row;
+            do {
+                row = nextRow();
+                if (row == null) {
+                    return null;
+                }
+            } while (row.size() == 1 && row.get(0).isEmpty());
+            RecipeTransferRecord record = new RecipeTransferRecord();
+            record.setName(column(row, "name"));
+            record.setDescription(column(row, "description"));
+            record.setImage(column(row, "image"));
+            record.setIngredients(splitList(column(row, "ingredients")));
+            record.setSteps(splitList(column(row, "steps")));
+            return record;
+        }
+
+        private String column(List<String> row, String name) {
+            Integer index = columns.get(name);
+            if (index == null || index >= row.size()) {
+                return null;
+            }
+            String value = row.get(index);
+            return value.isEmpty() ? null : value;
+        }
+
+        private List<String> nextRow() throws IOException {
+            int c = read();
+            if (c == -1) {
+                return null;
+            }
+            recordLine = line;
+            List<String> row = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            while (true) {
+                if (quoted) {
+                    if (c == -1) {
+                        throw new IOException("Thiếu dấu \" đóng cho bản ghi bắt đầu ở dòng " + recordLine);
+                    }
+                    if (c == '"') {
+                        int next = read();
+                        if (next == '"') {
+                            field.append('"');
+                        } else {
+                            quoted = false;
+                            c = next;
+                            continue;
+                        }
+                    } else {
+                        if (c == '\n') {
+                            line++;
+                        }
+                        field.append((char) c);
+                    }
+                } else if (c == '"' && field.length() == 0) {
+                    quoted = true;
+                } else if (c == ',') {
+                    row.add(field.toString());
+                    field.setLength(0);
+                } else if (c == '\r' || c == '\n' || c == -1) {
+                    if (c == '\r') {
+                        int next = read();
+                        if (next != '\n') {
+                            pushedBack = next;
+                        }
+                    }
+                    if (c != -1) {
+                        line++;
+                    }
+                    row.add(field.toString());
+                    return row;
+                } else {
+                    field.append((char) c);
+                }
+                c = read();
+            }
+        }
+
+        private int read() throws IOException {
+            if (pushedBack != -2) {
+                int c = pushedBack;
+                pushedBack = -2;
+                return c;
+            }
+            return in.read();
+        }
+    }
+}
@@ -1,99 +1,247 @@
 package com.tuanzeebee.springboot.demosecurity.service;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.tuanzeebee.springboot.demosecurity.cache.EntityChange;
+import com.tuanzeebee.springboot.demosecurity.cache.InvalidationBus;
+import com.tuanzeebee.springboot.demosecurity.cache.LocalEntityCache;
 
 import com.tuanzeebee.springboot.demosecurity.dao.IngredientDTO;
+import com.tuanzeebee.springboot.demosecurity.dao.LookupOptionDTO;
 import com.tuanzeebee.springboot.demosecurity.dao.RecipeDTO;
+import com.tuanzeebee.springboot.demosecurity.dao.RecipeSummary;
+import com.tuanzeebee.springboot.demosecurity.dao.RecipeSummaryDTO;
 import com.tuanzeebee.springboot.demosecurity.dao.StepDTO;
 import com.tuanzeebee.springboot.demosecurity.entity.Ingredient;
 import com.tuanzeebee.springboot.demosecurity.entity.Recipe;
 import com.tuanzeebee.springboot.demosecurity.entity.Step;
+import com.tuanzeebee.springboot.demosecurity.job.JobQueue;
 import com.tuanzeebee.springboot.demosecurity.repository.IngredientRepository;
+import com.tuanzeebee.springboot.demosecurity.repository.LikePatterns;
 import com.tuanzeebee.springboot.demosecurity.repository.RecipeRepository;
 import com.tuanzeebee.springboot.demosecurity.repository.StepRepository;
 
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 @Service
 public class RecipeService {
+    public static final String DELETE_JOB = "recipe.delete";
+
     private final RecipeRepository recipeRepository;
     private final IngredientRepository ingredientRepository;
     private final StepRepository stepRepository;
+    private final RecipeViewService recipeViewService;
+    private final StatsSnapshotService statsSnapshotService;
+    private final InvalidationBus invalidationBus;
+    private final JobQueue jobQueue;
+    private final LocalEntityCache<RecipeDTO> recipeCache;
     @Autowired
-    public RecipeService(RecipeRepository recipeRepository, IngredientRepository ingredientRepository, StepRepository stepRepository) {
+    public RecipeService(RecipeRepository recipeRepository, IngredientRepository ingredientRepository, StepRepository stepRepository,
+                         RecipeViewService recipeViewService, StatsSnapshotService statsSnapshotService,
+                         InvalidationBus invalidationBus, JobQueue jobQueue,
+                         @Value("${local-cache.recipes.max-entries:2000}") int maxEntries) {
         this.recipeRepository = recipeRepository;
         this.ingredientRepository = ingredientRepository;
         this.stepRepository = stepRepository;
+        this.recipeViewService = recipeViewService;
+        this.statsSnapshotService = statsSnapshotService;
+        this.invalidationBus = invalidationBus;
+        this.jobQueue = jobQueue;
+        this.recipeCache = invalidationBus.createCache("recipes", maxEntries);
+        invalidationBus.onChange(EntityChange.Type.RECIPE, recipeCache::invalidate);
+        // RecipeDTO chứa tên/icon nguyên liệu; sửa nguyên liệu hiếm nên xóa cả cache cho đơn giản
+        invalidationBus.onChange(EntityChange.Type.INGREDIENT, id -> recipeCache.clear());
     }
+    @Transactional(readOnly = true)
     public List<RecipeDTO> getAllRecipes() {
-        return recipeRepository.findAll().stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+        return withViewCounts(convertAllToDTO(recipeRepository.findAllWithIngredients()));
     }
+    // Chi tiết công thức lấy từ cache cục bộ (bị xóa qua InvalidationBus khi sửa); lượt xem luôn đọc mới
+    @Transactional(readOnly = true)
     public RecipeDTO getRecipeById(Long id) {
-        return recipeRepository.findById(id)
+        RecipeDTO cached = recipeCache.get(id, key -> recipeRepository.findById(key)
                 .map(this::convertToDTO)
-                .orElseThrow(() -> new RuntimeException("Recipe not found"));
+                .orElse(null));
+        if (cached == null) {
+            throw new RuntimeException("Recipe not found");
+        }
+        RecipeDTO dto = copyOf(cached);
+        dto.setViewCount(recipeViewService.getViewCount(id));
+        return dto;
+    }
+    // Giữ nguyên thứ tự của danh sách ID truyền vào, bỏ qua ID không tồn tại
+    @Transactional(readOnly = true)
+    public List<RecipeDTO> getRecipesByIds(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, RecipeDTO> recipesById = convertAllToDTO(recipeRepository.findAllWithIngredientsByIdIn(ids)).stream()
+                .collect(Collectors.toMap(RecipeDTO::getId, Function.identity()));
+        return withViewCounts(ids.stream()
+                .distinct()
+                .map(recipesById::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList()));
+    }
+    // Bản rút gọn cho trang danh sách: một truy vấn chỉ lấy các cột cần, không nạp nguyên liệu và bước nấu
+    @Transactional(readOnly = true)
+    public List<RecipeSummaryDTO> getRecipeSummaries() {
+        return recipeRepository.findAllSummaries().stream()
+                .map(RecipeService::toSummaryDTO)
+                .collect(Collectors.toList());
     }
+    @Transactional(readOnly = true)
+    public List<RecipeSummaryDTO> getRecipeSummariesByIds(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, RecipeSummaryDTO> summariesById = recipeRepository.findSummariesByIdIn(ids).stream()
+                .collect(Collectors.toMap(RecipeSummary::getId, RecipeService::toSummaryDTO));
+        return ids.stream()
+                .distinct()
+                .map(summariesById::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+    // Một trang cho bảng admin; nguyên liệu và bước nấu chỉ nạp khi mở form sửa một công thức
+    @Transactional(readOnly = true)
+    public Page<RecipeSummaryDTO> getRecipeSummaryPage(String namePrefix, Pageable pageable) {
+        Page<RecipeSummary> summaries = namePrefix == null || namePrefix.isBlank()
+                ? recipeRepository.findSummaryPage(pageable)
+                : recipeRepository.findSummaryPageByNamePrefix(LikePatterns.startsWith(namePrefix), pageable);
+        return summaries.map(RecipeService::toSummaryDTO);
+    }
+    public List<LookupOptionDTO> lookupRecipes(String namePrefix, int limit) {
+        return recipeRepository.findLookupByNamePrefix(LikePatterns.startsWith(namePrefix), PageRequest.of(0, limit))
+                .stream()
+                .map(LookupOptionDTO::from)
+                .collect(Collectors.toList());
+    }
+    @Transactional
     public RecipeDTO createRecipe(RecipeDTO recipeDTO) {
         Recipe recipe = new Recipe();
         recipe.setName(recipeDTO.getName());
         recipe.setDescription(recipeDTO.getDescription());
         recipe.setImage(recipeDTO.getImage());
-        Set<Ingredient> ingredients = new HashSet<>();
-        if (recipeDTO.getIngredients() != null) {
-            for (IngredientDTO ingredientDTO : recipeDTO.getIngredients()) {
-                Ingredient ingredient = ingredientRepository.findById(ingredientDTO.getId())
-                        .orElseThrow(() -> new RuntimeException("Ingredient not found with id: " + ingredientDTO.getId()));
-                ingredients.add(ingredient);
-            }
-        }
-        recipe.setIngredients(ingredients);
+        recipe.setIngredients(new HashSet<>(resolveIngredients(recipeDTO.getIngredients())));
         Recipe savedRecipe = recipeRepository.save(recipe);
-        if (recipeDTO.getSteps() != null) {
-            for (StepDTO stepDTO : recipeDTO.getSteps()) {
-                Step step = new Step();
-                step.setRecipe(savedRecipe);
-                step.setStepNumber(stepDTO.getStepNumber());
-                step.setDescription(stepDTO.getDescription());
-                stepRepository.save(step);
-            }
+        List<Step> steps = new ArrayList<>();
+        for (StepDTO stepDTO : stepsByNumber(recipeDTO.getSteps()).values()) {
+            steps.add(newStep(savedRecipe, stepDTO));
         }
-        return convertToDTO(savedRecipe);
+        // ID bước nấu cấp theo khối nên các INSERT được gửi thành một batch
+        stepRepository.saveAll(steps);
+        return convertToDTO(savedRecipe, steps);
     }
+    // Chỉ ghi phần thay đổi: nguyên liệu thêm/bớt, bước nấu so theo stepNumber (thêm, sửa mô tả, xóa)
+    @Transactional
     public RecipeDTO updateRecipe(Long id, RecipeDTO recipeDTO) {
         Recipe recipe = recipeRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Recipe not found"));
         recipe.setName(recipeDTO.getName());
         recipe.setDescription(recipeDTO.getDescription());
         recipe.setImage(recipeDTO.getImage());
-        Set<Ingredient> ingredients = new HashSet<>();
-        if (recipeDTO.getIngredients() != null) {
-            for (IngredientDTO ingredientDTO : recipeDTO.getIngredients()) {
-                Ingredient ingredient = ingredientRepository.findById(ingredientDTO.getId())
-                        .orElseThrow(() -> new RuntimeException("Ingredient not found with id: " + ingredientDTO.getId()));
-                ingredients.add(ingredient);
+        // Sửa tập hiện có thay vì gán tập mới để Hibernate không xóa rồi chèn lại toàn bộ recipe_ingredients
+        List<Ingredient> ingredients = resolveIngredients(recipeDTO.getIngredients());
+        Set<Long> ingredientIds = ingredients.stream().map(Ingredient::getId).collect(Collectors.toSet());
+        recipe.getIngredients().removeIf(ingredient -> !ingredientIds.contains(ingredient.getId()));
+        Set<Long> currentIds = recipe.getIngredients().stream().map(Ingredient::getId).collect(Collectors.toSet());
+        ingredients.stream()
+                .filter(ingredient -> !currentIds.contains(ingredient.getId()))
+                .forEach(recipe.getIngredients()::add);
+
+        Map<Integer, StepDTO> wanted = stepsByNumber(recipeDTO.getSteps());
+        List<Step> steps = new ArrayList<>();
+        List<Step> added = new ArrayList<>();
+        List<Step> removed = new ArrayList<>();
+        for (Step existing : stepRepository.findByRecipeIdOrderByStepNumberAsc(id)) {
+            StepDTO stepDTO = wanted.remove(existing.getStepNumber());
+            if (stepDTO == null) {
+                removed.add(existing);
+                continue;
             }
+            // Bước đã được quản lý bởi persistence context: đổi mô tả thì Hibernate tự sinh UPDATE khi flush
+            if (!Objects.equals(existing.getDescription(), stepDTO.getDescription())) {
+                existing.setDescription(stepDTO.getDescription());
+            }
+            steps.add(existing);
+        }
+        for (StepDTO stepDTO : wanted.values()) {
+            added.add(newStep(recipe, stepDTO));
+        }
+        stepRepository.deleteAll(removed);
+        stepRepository.saveAll(added);
+        steps.addAll(added);
+        steps.sort(Comparator.comparing(Step::getStepNumber));
+        invalidationBus.publish(EntityChange.Type.RECIPE, id);
+        return convertToDTO(recipe, steps);
+    }
+    // Lấy tất cả nguyên liệu trong một truy vấn, báo lỗi nếu có ID không tồn tại
+    private List<Ingredient> resolveIngredients(Set<IngredientDTO> ingredientDTOs) {
+        if (ingredientDTOs == null || ingredientDTOs.isEmpty()) {
+            return List.of();
+        }
+        Set<Long> ids = ingredientDTOs.stream().map(IngredientDTO::getId).collect(Collectors.toSet());
+        List<Ingredient> ingredients = ingredientRepository.findAllById(ids);
+        if (ingredients.size() < ids.size()) {
+            Set<Long> found = ingredients.stream().map(Ingredient::getId).collect(Collectors.toSet());
+            Long missing = ids.stream().filter(ingredientId -> !found.contains(ingredientId)).findFirst().orElse(null);
+            throw new RuntimeException("Ingredient not found with id: " + missing);
         }
-        recipe.setIngredients(ingredients);
-        Recipe updatedRecipe = recipeRepository.save(recipe);
-        // Update steps
-        List<Step> existingSteps = stepRepository.findByRecipeIdOrderByStepNumberAsc(id);
-        stepRepository.deleteAll(existingSteps);
-        if (recipeDTO.getSteps() != null) {
-            for (StepDTO stepDTO : recipeDTO.getSteps()) {
-                Step step = new Step();
-                step.setRecipe(updatedRecipe);
-                step.setStepNumber(stepDTO.getStepNumber());
-                step.setDescription(stepDTO.getDescription());
-                stepRepository.save(step);
+        return ingredients;
+    }
+    private Map<Integer, StepDTO> stepsByNumber(Set<StepDTO> stepDTOs) {
+        Map<Integer, StepDTO> byNumber = new TreeMap<>();
+        if (stepDTOs != null) {
+            for (StepDTO stepDTO : stepDTOs) {
+                if (stepDTO.getStepNumber() == null) {
+                    throw new RuntimeException("Step number is required");
+                }
+                if (byNumber.put(stepDTO.getStepNumber(), stepDTO) != null) {
+                    throw new RuntimeException("Duplicate step number: " + stepDTO.getStepNumber());
+                }
             }
         }
-        return convertToDTO(updatedRecipe);
+        return byNumber;
+    }
+    private Step newStep(Recipe recipe, StepDTO stepDTO) {
+        Step step = new Step();
+        step.setRecipe(recipe);
+        step.setStepNumber(stepDTO.getStepNumber());
+        step.setDescription(stepDTO.getDescription());
+        return step;
+    }
+    // Xóa công thức cùng bước nấu, bài đăng, lượt xem... chạy nền trong hàng đợi "deletion"; trả về ID job
+    public long requestDelete(Long id) {
+        if (!recipeRepository.existsById(id)) {
+            throw new RuntimeException("Không tìm thấy công thức với ID: " + id);
+        }
+        return jobQueue.enqueue(DELETE_JOB, Map.of("recipeId", id));
+    }
+    // Handler của DELETE_JOB: job có thể chạy lại sau khi đã xóa xong nên công thức không còn thì coi như xong
+    @Transactional
+    public boolean deleteRecipeIfExists(Long id) {
+        if (!recipeRepository.existsById(id)) {
+            return false;
+        }
+        deleteRecipe(id);
+        return true;
     }
+    @Transactional
     public void deleteRecipe(Long id) {
         Recipe recipe = recipeRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Không tìm thấy công thức với ID: " + id));
@@ -109,13 +257,60 @@ public class RecipeService {
         
         // Sau đó mới xóa recipe
         recipeRepository.deleteById(id);
+        recipeViewService.deleteViews(id);
+        invalidationBus.publish(EntityChange.Type.RECIPE, id);
+        // Làm mới sau khi transaction xóa commit, không đọc dữ liệu còn dở
+        statsSnapshotService.requestRefresh();
     }
+    @Transactional(readOnly = true)
     public List<RecipeDTO> getRecipesByIngredientId(Long ingredientId) {
-        return recipeRepository.findByIngredientId(ingredientId).stream()
+        return withViewCounts(recipeRepository.findByIngredientId(ingredientId).stream()
                 .map(this::convertToDTO)
+                .collect(Collectors.toList()));
+    }
+    // Lấy lượt xem cho cả danh sách bằng một truy vấn thay vì từng công thức
+    private List<RecipeDTO> withViewCounts(List<RecipeDTO> recipes) {
+        Map<Long, Long> viewCounts = recipeViewService.getViewCounts(
+                recipes.stream().map(RecipeDTO::getId).collect(Collectors.toList()));
+        recipes.forEach(recipe -> recipe.setViewCount(viewCounts.getOrDefault(recipe.getId(), 0L)));
+        return recipes;
+    }
+    static RecipeSummaryDTO toSummaryDTO(RecipeSummary summary) {
+        RecipeSummaryDTO dto = new RecipeSummaryDTO();
+        dto.setId(summary.getId());
+        dto.setName(summary.getName());
+        dto.setImage(summary.getImage());
+        dto.setDescription(summary.getDescription());
+        return dto;
+    }
+    // Bước nấu của cả danh sách lấy trong một truy vấn; nguyên liệu cần được fetch join từ trước
+    private List<RecipeDTO> convertAllToDTO(List<Recipe> recipes) {
+        if (recipes.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Long, List<Step>> stepsByRecipeId = stepRepository.findByRecipeIdInOrderByStepNumberAsc(
+                        recipes.stream().map(Recipe::getId).collect(Collectors.toList()))
+                .stream()
+                .collect(Collectors.groupingBy(step -> step.getRecipe().getId()));
+        return recipes.stream()
+                .map(recipe -> convertToDTO(recipe, stepsByRecipeId.getOrDefault(recipe.getId(), List.of())))
                 .collect(Collectors.toList());
     }
+    // Bản trong cache dùng chung giữa các request: caller được set viewCount, isSavedByCurrentUser... trên bản sao
+    private static RecipeDTO copyOf(RecipeDTO cached) {
+        RecipeDTO dto = new RecipeDTO();
+        dto.setId(cached.getId());
+        dto.setName(cached.getName());
+        dto.setDescription(cached.getDescription());
+        dto.setImage(cached.getImage());
+        dto.setIngredients(new HashSet<>(cached.getIngredients()));
+        dto.setSteps(new HashSet<>(cached.getSteps()));
+        return dto;
+    }
     private RecipeDTO convertToDTO(Recipe recipe) {
+        return convertToDTO(recipe, stepRepository.findByRecipeIdOrderByStepNumberAsc(recipe.getId()));
+    }
+    private RecipeDTO convertToDTO(Recipe recipe, List<Step> steps) {
         RecipeDTO dto = new RecipeDTO();
         dto.setId(recipe.getId());
         dto.setName(recipe.getName());
@@ -131,7 +326,6 @@ public class RecipeService {
                 })
                 .collect(Collectors.toSet());
         dto.setIngredients(ingredientDTOs);
-        List<Step> steps = stepRepository.findByRecipeIdOrderByStepNumberAsc(recipe.getId());
         Set<StepDTO> stepDTOs = steps.stream()
                 .map(step -> {
                     StepDTO stepDTO = new StepDTO();
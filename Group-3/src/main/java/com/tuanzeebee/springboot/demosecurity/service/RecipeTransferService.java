@@ -0,0 +1,534 @@
+package com.tuanzeebee.springboot.demosecurity.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.tuanzeebee.springboot.demosecurity.dao.RecipeTransferRecord;
+import com.tuanzeebee.springboot.demosecurity.entity.Step;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Import/export công thức hàng loạt dạng NDJSON hoặc CSV, không giữ toàn bộ dữ liệu trong heap.
+ * Import: đọc từng bản ghi, kiểm tra theo lô trên một nhóm thread (tra nguyên liệu theo tên trong
+ * bộ nhớ), ghi mỗi lô bằng JDBC batch trong một transaction riêng và báo lỗi theo từng dòng.
+ * Export: đọc công thức bằng một cursor JDBC, nguyên liệu và bước nấu lấy theo lô.
+ */
+@Service
+@Lazy
+public class RecipeTransferService {
+    private static final Logger logger = LoggerFactory.getLogger(RecipeTransferService.class);
+
+    public enum Format {
+        NDJSON, CSV
+    }
+
+    private static final int MAX_NAME_LENGTH = 255;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate idReservationTemplate;
+    private final ObjectMapper objectMapper;
+    private final StatsSnapshotService statsSnapshotService;
+    private final ExecutorService validationPool;
+    private final int chunkSize;
+    private final int maxChunksInFlight;
+
+    @Autowired
+    public RecipeTransferService(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                                 ObjectMapper objectMapper, StatsSnapshotService statsSnapshotService,
+                                 @Value("${recipe-transfer.chunk-size:500}") int chunkSize,
+                                 @Value("${recipe-transfer.validation-threads:4}") int validationThreads) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        // Giữ chỗ ID trong transaction riêng để không khóa dòng id_generators suốt thời gian ghi một lô
+        this.idReservationTemplate = new TransactionTemplate(transactionManager);
+        this.idReservationTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.objectMapper = objectMapper;
+        this.statsSnapshotService = statsSnapshotService;
+        this.chunkSize = chunkSize;
+        // Giới hạn số lô đang chờ để bộ nhớ không tăng theo kích thước file
+        this.maxChunksInFlight = validationThreads * 2;
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.validationPool = Executors.newFixedThreadPool(validationThreads, runnable -> {
+            Thread thread = new Thread(runnable, "recipe-import-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        validationPool.shutdownNow();
+    }
+
+    /**
+     * Đọc file từ in, ghi báo cáo NDJSON ra report: một dòng cho mỗi bản ghi lỗi
+     * ({"line","name","error"}) và một dòng tổng kết cuối cùng ({"imported","failed"}).
+     */
+    public ImportResult importRecipes(InputStream in, Format format, OutputStream report) throws IOException {
+        Map<String, Long> ingredientIndex = loadIngredientIndex();
+        SequenceWriter reportWriter = objectMapper.writer().withRootValueSeparator("\n").writeValues(report);
+        ImportResult result = new ImportResult();
+        Deque<Future<List<ImportRow>>> inFlight = new ArrayDeque<>();
+        List<ImportRow> chunk = new ArrayList<>(chunkSize);
+        try (RowSource rows = format == Format.CSV ? new CsvRowSource(in) : new NdjsonRowSource(in)) {
+            ImportRow row;
+            while ((row = rows.next()) != null) {
+                chunk.add(row);
+                if (chunk.size() == chunkSize) {
+                    inFlight.add(submitValidation(chunk, ingredientIndex));
+                    chunk = new ArrayList<>(chunkSize);
+                    if (inFlight.size() >= maxChunksInFlight) {
+                        writeChunk(await(inFlight.poll()), result, reportWriter);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            // Lỗi định dạng không thể đọc tiếp (vd CSV thiếu dấu "): vẫn ghi các lô đã đọc
+            result.failed++;
+            reportWriter.write(Map.of("line", 0, "error", e.getMessage()));
+        }
+        if (!chunk.isEmpty()) {
+            inFlight.add(submitValidation(chunk, ingredientIndex));
+        }
+        while (!inFlight.isEmpty()) {
+            writeChunk(await(inFlight.poll()), result, reportWriter);
+        }
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("imported", result.imported);
+        summary.put("failed", result.failed);
+        reportWriter.write(summary);
+        reportWriter.flush();
+        report.write('\n');
+        report.flush();
+        if (result.imported > 0) {
+            statsSnapshotService.requestRefresh();
+        }
+        return result;
+    }
+
+    /**
+     * Ghi toàn bộ công thức ra out theo thứ tự ID. Bảng recipes được đọc bằng một cursor
+     * (MySQL: streaming result set), mỗi chunkSize công thức thì lấy nguyên liệu và bước nấu một lần.
+     */
+    public long exportRecipes(Format format, OutputStream out) throws IOException {
+        Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+        SequenceWriter jsonWriter = format == Format.NDJSON
+                ? objectMapper.writer().withRootValueSeparator("\n").writeValues(writer)
+                : null;
+        if (format == Format.CSV) {
+            RecipeCsv.writeHeader(writer);
+        }
+        long[] exported = {0};
+        Map<Long, RecipeTransferRecord> batch = new LinkedHashMap<>();
+        ExportSink sink = records -> {
+            for (RecipeTransferRecord record : records) {
+                if (jsonWriter != null) {
+                    jsonWriter.write(record);
+                } else {
+                    RecipeCsv.write(writer, record);
+                }
+                exported[0]++;
+            }
+            writer.flush();
+        };
+        try {
+            jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+                try (PreparedStatement statement = connection.prepareStatement(
+                        "SELECT id, name, description, image FROM recipes ORDER BY id",
+                        ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                    statement.setFetchSize(cursorFetchSize(connection));
+                    try (ResultSet rs = statement.executeQuery()) {
+                        while (rs.next()) {
+                            RecipeTransferRecord record = new RecipeTransferRecord();
+                            record.setName(rs.getString("name"));
+                            record.setDescription(rs.getString("description"));
+                            record.setImage(rs.getString("image"));
+                            record.setIngredients(new ArrayList<>());
+                            record.setSteps(new ArrayList<>());
+                            batch.put(rs.getLong("id"), record);
+                            if (batch.size() == chunkSize) {
+                                flushExportBatch(batch, sink);
+                            }
+                        }
+                    }
+                }
+                flushExportBatch(batch, sink);
+                return null;
+            });
+        } catch (UncheckedExportException e) {
+            throw e.getCause();
+        }
+        if (jsonWriter != null) {
+            jsonWriter.flush();
+            if (exported[0] > 0) {
+                writer.write('\n');
+            }
+        }
+        writer.flush();
+        return exported[0];
+    }
+
+    // Tên nguyên liệu viết thường -> ID; bảng nguyên liệu nhỏ nên nạp một lần cho mỗi lần import
+    private Map<String, Long> loadIngredientIndex() {
+        Map<String, Long> index = new HashMap<>();
+        jdbcTemplate.query("SELECT id, name FROM ingredients", rs -> {
+            index.putIfAbsent(normalizeName(rs.getString("name")), rs.getLong("id"));
+        });
+        return Collections.unmodifiableMap(index);
+    }
+
+    private static String normalizeName(String name) {
+        return name == null ? "" : name.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private Future<List<ImportRow>> submitValidation(List<ImportRow> chunk, Map<String, Long> ingredientIndex) {
+        return validationPool.submit(() -> {
+            chunk.forEach(row -> validate(row, ingredientIndex));
+            return chunk;
+        });
+    }
+
+    private void validate(ImportRow row, Map<String, Long> ingredientIndex) {
+        if (row.error != null) {
+            return;
+        }
+        RecipeTransferRecord record = row.record;
+        if (record.getName() == null || record.getName().isBlank()) {
+            row.error = "Thiếu tên công thức";
+            return;
+        }
+        if (record.getName().length() > MAX_NAME_LENGTH) {
+            row.error = "Tên công thức dài quá " + MAX_NAME_LENGTH + " ký tự";
+            return;
+        }
+        if (record.getImage() != null && record.getImage().length() > MAX_NAME_LENGTH) {
+            row.error = "Đường dẫn ảnh dài quá " + MAX_NAME_LENGTH + " ký tự";
+            return;
+        }
+        List<String> steps = record.getSteps() != null ? record.getSteps() : List.of();
+        for (String step : steps) {
+            if (step == null || step.isBlank()) {
+                row.error = "Bước nấu không được để trống";
+                return;
+            }
+        }
+        List<Long> ingredientIds = new ArrayList<>();
+        if (record.getIngredients() != null) {
+            for (String ingredient : record.getIngredients()) {
+                Long ingredientId = ingredientIndex.get(normalizeName(ingredient));
+                if (ingredientId == null) {
+                    row.error = "Không tìm thấy nguyên liệu: " + ingredient;
+                    return;
+                }
+                if (!ingredientIds.contains(ingredientId)) {
+                    ingredientIds.add(ingredientId);
+                }
+            }
+        }
+        row.ingredientIds = ingredientIds;
+    }
+
+    private List<ImportRow> await(Future<List<ImportRow>> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Import bị ngắt", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Lỗi kiểm tra dữ liệu: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    private void writeChunk(List<ImportRow> chunk, ImportResult result, SequenceWriter reportWriter) throws IOException {
+        List<ImportRow> valid = new ArrayList<>(chunk.size());
+        for (ImportRow row : chunk) {
+            if (row.error == null) {
+                valid.add(row);
+            } else {
+                result.failed++;
+                reportWriter.write(errorLine(row, row.error));
+            }
+        }
+        if (!valid.isEmpty()) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> insertChunk(valid));
+                result.imported += valid.size();
+            } catch (DataAccessException e) {
+                // Cả lô bị rollback: báo lỗi cho từng dòng để có thể import lại riêng chúng
+                logger.warn("Không thể ghi lô {} công thức: {}", valid.size(), e.getMostSpecificCause().getMessage());
+                for (ImportRow row : valid) {
+                    result.failed++;
+                    reportWriter.write(errorLine(row, "Lỗi ghi database: " + e.getMostSpecificCause().getMessage()));
+                }
+            }
+        }
+        reportWriter.flush();
+    }
+
+    private Map<String, Object> errorLine(ImportRow row, String error) {
+        Map<String, Object> line = new LinkedHashMap<>();
+        line.put("line", row.line);
+        line.put("name", row.record != null ? row.record.getName() : null);
+        line.put("error", error);
+        return line;
+    }
+
+    private void insertChunk(List<ImportRow> rows) {
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+            try (PreparedStatement recipes = connection.prepareStatement(
+                    "INSERT INTO recipes (name, description, image, created_at) VALUES (?, ?, ?, ?)",
+                    Statement.RETURN_GENERATED_KEYS)) {
+                for (ImportRow row : rows) {
+                    recipes.setString(1, row.record.getName().trim());
+                    recipes.setString(2, row.record.getDescription());
+                    recipes.setString(3, row.record.getImage());
+                    recipes.setTimestamp(4, now);
+                    recipes.addBatch();
+                }
+                recipes.executeBatch();
+                try (ResultSet keys = recipes.getGeneratedKeys()) {
+                    for (ImportRow row : rows) {
+                        if (!keys.next()) {
+                            throw new IllegalStateException("Driver không trả về đủ ID cho batch insert");
+                        }
+                        row.recipeId = keys.getLong(1);
+                    }
+                }
+            }
+            int stepCount = rows.stream()
+                    .mapToInt(row -> row.record.getSteps() != null ? row.record.getSteps().size() : 0)
+                    .sum();
+            long nextStepId = stepCount > 0 ? reserveStepIds(stepCount) : 0;
+            try (PreparedStatement ingredients = connection.prepareStatement(
+                    "INSERT INTO recipe_ingredients (recipe_id, ingredient_id) VALUES (?, ?)");
+                 PreparedStatement steps = connection.prepareStatement(
+                         "INSERT INTO steps (id, recipe_id, step_number, description) VALUES (?, ?, ?, ?)")) {
+                boolean hasIngredients = false;
+                boolean hasSteps = false;
+                for (ImportRow row : rows) {
+                    for (Long ingredientId : row.ingredientIds) {
+                        ingredients.setLong(1, row.recipeId);
+                        ingredients.setLong(2, ingredientId);
+                        ingredients.addBatch();
+                        hasIngredients = true;
+                    }
+                    List<String> recipeSteps = row.record.getSteps() != null ? row.record.getSteps() : List.of();
+                    for (int i = 0; i < recipeSteps.size(); i++) {
+                        steps.setLong(1, nextStepId++);
+                        steps.setLong(2, row.recipeId);
+                        steps.setInt(3, i + 1);
+                        // Giữ nguyên nội dung bước nấu (xuống dòng, khoảng trắng) như khi export
+                        steps.setString(4, recipeSteps.get(i));
+                        steps.addBatch();
+                        hasSteps = true;
+                    }
+                }
+                if (hasIngredients) {
+                    ingredients.executeBatch();
+                }
+                if (hasSteps) {
+                    steps.executeBatch();
+                }
+            }
+            return null;
+        });
+    }
+
+    // Lấy count ID liên tiếp từ cùng dòng id_generators mà Hibernate dùng cho Step (next_val là ID đã cấp cuối cùng)
+    private long reserveStepIds(int count) {
+        Long first = idReservationTemplate.execute(status -> {
+            int updated = jdbcTemplate.update(
+                    "UPDATE id_generators SET next_val = next_val + ? WHERE sequence_name = ?", count, Step.ID_SEQUENCE);
+            if (updated == 0) {
+                throw new IllegalStateException("Thiếu dòng '" + Step.ID_SEQUENCE + "' trong bảng id_generators");
+            }
+            return jdbcTemplate.queryForObject("SELECT next_val FROM id_generators WHERE sequence_name = ?",
+                    Long.class, Step.ID_SEQUENCE) - count + 1;
+        });
+        return first;
+    }
+
+    private void flushExportBatch(Map<Long, RecipeTransferRecord> batch, ExportSink sink) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        MapSqlParameterSource ids = new MapSqlParameterSource("ids", batch.keySet());
+        namedJdbcTemplate.query("SELECT ri.recipe_id, i.name FROM recipe_ingredients ri " +
+                        "JOIN ingredients i ON i.id = ri.ingredient_id WHERE ri.recipe_id IN (:ids) ORDER BY i.name",
+                ids, rs -> {
+                    batch.get(rs.getLong("recipe_id")).getIngredients().add(rs.getString("name"));
+                });
+        namedJdbcTemplate.query("SELECT recipe_id, description FROM steps WHERE recipe_id IN (:ids) " +
+                        "ORDER BY recipe_id, step_number",
+                ids, rs -> {
+                    batch.get(rs.getLong("recipe_id")).getSteps().add(rs.getString("description"));
+                });
+        try {
+            sink.write(batch.values());
+        } catch (IOException e) {
+            throw new UncheckedExportException(e);
+        }
+        batch.clear();
+    }
+
+    // MySQL chỉ stream từng dòng khi fetchSize = Integer.MIN_VALUE; driver khác dùng fetchSize thường
+    private int cursorFetchSize(Connection connection) throws java.sql.SQLException {
+        String product = connection.getMetaData().getDatabaseProductName();
+        return product != null && product.toLowerCase(Locale.ROOT).contains("mysql") ? Integer.MIN_VALUE : chunkSize;
+    }
+
+    public static class ImportResult {
+        private long imported;
+        private long failed;
+
+        public long getImported() {
+            return imported;
+        }
+
+        public long getFailed() {
+            return failed;
+        }
+    }
+
+    private static final class ImportRow {
+        private final long line;
+        private final RecipeTransferRecord record;
+        private String error;
+        private List<Long> ingredientIds;
+        private long recipeId;
+
+        private ImportRow(long line, RecipeTransferRecord record, String error) {
+            this.line = line;
+            this.record = record;
+            this.error = error;
+        }
+    }
+
+    private interface RowSource extends AutoCloseable {
+        ImportRow next() throws IOException;
+
+        @Override
+        void close() throws IOException;
+    }
+
+    private final class NdjsonRowSource implements RowSource {
+        private final BufferedReader reader;
+        private long line;
+
+        private NdjsonRowSource(InputStream in) {
+            this.reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public ImportRow next() throws IOException {
+            String text;
+            do {
+                text = reader.readLine();
+                line++;
+                if (text == null) {
+                    return null;
+                }
+            } while (text.isBlank());
+            try {
+                RecipeTransferRecord record = objectMapper.readValue(text, RecipeTransferRecord.class);
+                // Dòng "null" đọc ra null: báo lỗi dòng đó thay vì để validate ném NPE làm hỏng cả lần import
+                if (record == null) {
+                    return new ImportRow(line, null, "Dòng phải là một đối tượng JSON");
+                }
+                return new ImportRow(line, record, null);
+            } catch (JsonProcessingException e) {
+                return new ImportRow(line, null, "JSON không hợp lệ: " + e.getOriginalMessage());
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            reader.close();
+        }
+    }
+
+    private static final class CsvRowSource implements RowSource {
+        private final BufferedReader reader;
+        private final RecipeCsv.RecordReader records;
+
+        private CsvRowSource(InputStream in) throws IOException {
+            this.reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+            this.records = new RecipeCsv.RecordReader(reader);
+        }
+
+        @Override
+        public ImportRow next() throws IOException {
+            RecipeTransferRecord record = records.next();
+            return record == null ? null : new ImportRow(records.getRecordLine(), record, null);
+        }
+
+        @Override
+        public void close() throws IOException {
+            reader.close();
+        }
+    }
+
+    @FunctionalInterface
+    private interface ExportSink {
+        void write(Iterable<RecipeTransferRecord> records) throws IOException;
+    }
+
+    private static final class UncheckedExportException extends RuntimeException {
+        private UncheckedExportException(IOException cause) {
+            super(cause);
+        }
+
+        @Override
+        public synchronized IOException getCause() {
+            return (IOException) super.getCause();
+        }
+    }
+}
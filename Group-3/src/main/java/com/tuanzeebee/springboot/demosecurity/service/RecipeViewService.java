@@ -0,0 +1,191 @@
+package com.tuanzeebee.springboot.demosecurity.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.tuanzeebee.springboot.demosecurity.entity.RecipeView;
+import com.tuanzeebee.springboot.demosecurity.repository.RecipeViewRepository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Đếm lượt xem công thức. Request thread chỉ tăng một LongAdder trong bộ nhớ;
+ * phần chênh lệch được ghi xuống bảng recipe_views bằng một batch upsert định kỳ
+ * và một lần nữa khi ứng dụng tắt.
+ */
+@Service
+public class RecipeViewService {
+    private static final Logger logger = LoggerFactory.getLogger(RecipeViewService.class);
+
+    private static final String UPSERT_SQL =
+            "INSERT INTO recipe_views (recipe_id, view_count) VALUES (?, ?) " +
+            "ON DUPLICATE KEY UPDATE view_count = view_count + VALUES(view_count)";
+
+    private final ConcurrentHashMap<Long, PendingViews> pendingViews = new ConcurrentHashMap<>();
+    // Không dùng synchronized quanh JDBC: trên virtual thread nó giữ chặt carrier thread (pinning)
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final JdbcTemplate jdbcTemplate;
+    private final RecipeViewRepository recipeViewRepository;
+    private final TransactionTemplate cleanupTemplate;
+
+    @Autowired
+    public RecipeViewService(JdbcTemplate jdbcTemplate, RecipeViewRepository recipeViewRepository,
+                             PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.recipeViewRepository = recipeViewRepository;
+        // Chạy sau khi transaction xóa công thức đã commit nên cần transaction riêng
+        this.cleanupTemplate = new TransactionTemplate(transactionManager);
+        this.cleanupTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    public void recordView(Long recipeId) {
+        if (recipeId == null) {
+            return;
+        }
+        addPending(recipeId, 1);
+    }
+
+    public long getViewCount(Long recipeId) {
+        long persisted = recipeViewRepository.findById(recipeId)
+                .map(RecipeView::getViewCount)
+                .orElse(0L);
+        return persisted + pendingCount(recipeId);
+    }
+
+    // Một truy vấn cho cả danh sách, cộng thêm lượt xem chưa flush của node này
+    public Map<Long, Long> getViewCounts(Collection<Long> recipeIds) {
+        Map<Long, Long> counts = new HashMap<>();
+        for (RecipeView view : recipeViewRepository.findAllById(recipeIds)) {
+            counts.put(view.getRecipeId(), view.getViewCount());
+        }
+        for (Long recipeId : recipeIds) {
+            counts.merge(recipeId, pendingCount(recipeId), Long::sum);
+        }
+        return counts;
+    }
+
+    /**
+     * Xóa lượt xem của công thức sau khi transaction đang chạy (xóa công thức) commit; rollback thì lượt xem
+     * giữ nguyên. Giữ flushLock để lần flush đang chạy (đã lấy phần chênh lệch của công thức này) ghi xong
+     * trước khi DELETE, không để lại dòng recipe_views của công thức đã xóa.
+     */
+    public void deleteViews(Long recipeId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    removeViews(recipeId);
+                }
+            });
+        } else {
+            removeViews(recipeId);
+        }
+    }
+
+    private void removeViews(Long recipeId) {
+        flushLock.lock();
+        try {
+            pendingViews.remove(recipeId);
+            cleanupTemplate.executeWithoutResult(status -> recipeViewRepository.deleteById(recipeId));
+        } catch (DataAccessException e) {
+            logger.warn("Không thể xóa lượt xem của công thức {}: {}", recipeId, e.getMessage());
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${recipe-views.flush-ms:5000}")
+    public void flush() {
+        flushLock.lock();
+        try {
+            flushPending();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    private void flushPending() {
+        List<Object[]> batch = new ArrayList<>();
+        for (Map.Entry<Long, PendingViews> entry : pendingViews.entrySet()) {
+            PendingViews pending = entry.getValue();
+            long delta = pending.views.sumThenReset();
+            if (delta > 0) {
+                batch.add(new Object[]{entry.getKey(), delta});
+                continue;
+            }
+            // Không có lượt xem trong cả chu kỳ: bỏ khỏi map để map không lớn dần theo số công thức từng được
+            // xem. Đánh dấu retired trước rồi mới đọc lại: lượt xem đến cùng lúc hoặc được tính ở đây (giữ
+            // lại), hoặc addPending thấy retired và tự chuyển sang bộ đếm mới
+            pending.retired = true;
+            if (pending.views.sum() == 0) {
+                pendingViews.remove(entry.getKey(), pending);
+            } else {
+                pending.retired = false;
+            }
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            jdbcTemplate.batchUpdate(UPSERT_SQL, batch);
+        } catch (DataAccessException e) {
+            // Trả lại phần chênh lệch để lần flush sau ghi tiếp, không làm mất lượt xem
+            logger.warn("Không thể ghi lượt xem công thức ({} dòng), sẽ thử lại: {}", batch.size(), e.getMessage());
+            for (Object[] row : batch) {
+                addPending((Long) row[0], (Long) row[1]);
+            }
+        }
+    }
+
+    private void addPending(Long recipeId, long views) {
+        long remaining = views;
+        while (remaining > 0) {
+            PendingViews pending = pendingViews.get(recipeId);
+            if (pending == null) {
+                pending = pendingViews.computeIfAbsent(recipeId, id -> new PendingViews());
+            }
+            pending.views.add(remaining);
+            // Flush vừa bỏ bộ đếm này khỏi map: lấy lại phần vừa cộng và cộng vào bộ đếm đang dùng
+            remaining = pending.retired ? pending.views.sumThenReset() : 0;
+        }
+    }
+
+    // Số công thức đang có bộ đếm trong bộ nhớ
+    int pendingRecipeCount() {
+        return pendingViews.size();
+    }
+
+    private long pendingCount(Long recipeId) {
+        PendingViews pending = pendingViews.get(recipeId);
+        return pending == null ? 0 : pending.views.sum();
+    }
+
+    private static final class PendingViews {
+        private final LongAdder views = new LongAdder();
+        // Flush đã (hoặc sắp) bỏ bộ đếm khỏi map
+        private volatile boolean retired;
+    }
+}
@@ -0,0 +1,152 @@
+package com.tuanzeebee.springboot.demosecurity.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.tuanzeebee.springboot.demosecurity.dao.DailyCount;
+import com.tuanzeebee.springboot.demosecurity.dao.DashboardSnapshot;
+import com.tuanzeebee.springboot.demosecurity.repository.CommentRepository;
+import com.tuanzeebee.springboot.demosecurity.repository.IngredientRepository;
+import com.tuanzeebee.springboot.demosecurity.repository.PostRepository;
+import com.tuanzeebee.springboot.demosecurity.repository.RecipeRepository;
+import com.tuanzeebee.springboot.demosecurity.repository.UserRepository;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+/**
+ * Số liệu dashboard admin được tính sẵn ở background (định kỳ và sau các thao tác
+ * xóa/nhập hàng loạt). Controller chỉ đọc snapshot hiện tại, không chạy COUNT(*) mỗi lần tải trang.
+ */
+@Service
+public class StatsSnapshotService {
+    private static final Logger logger = LoggerFactory.getLogger(StatsSnapshotService.class);
+
+    private final UserRepository userRepository;
+    private final RecipeRepository recipeRepository;
+    private final IngredientRepository ingredientRepository;
+    private final PostRepository postRepository;
+    private final CommentRepository commentRepository;
+    private final int seriesDays;
+
+    // Một thread duy nhất, các yêu cầu refresh liên tiếp được gộp lại thành một lần chạy
+    private final ExecutorService refreshExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "stats-snapshot");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean refreshQueued = new AtomicBoolean();
+
+    private volatile DashboardSnapshot snapshot = DashboardSnapshot.empty();
+
+    @Autowired
+    public StatsSnapshotService(UserRepository userRepository, RecipeRepository recipeRepository,
+                                IngredientRepository ingredientRepository, PostRepository postRepository,
+                                CommentRepository commentRepository,
+                                @Value("${dashboard.series-days:90}") int seriesDays) {
+        this.userRepository = userRepository;
+        this.recipeRepository = recipeRepository;
+        this.ingredientRepository = ingredientRepository;
+        this.postRepository = postRepository;
+        this.commentRepository = commentRepository;
+        this.seriesDays = seriesDays;
+    }
+
+    public DashboardSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    // Gọi trong transaction (xóa, nhập dữ liệu) thì chỉ làm mới sau khi commit: chạy ngay sẽ đọc dữ liệu
+    // chưa commit và snapshot cũ giữ nguyên tới lần làm mới định kỳ sau
+    public void requestRefresh() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    queueRefresh();
+                }
+            });
+        } else {
+            queueRefresh();
+        }
+    }
+
+    private void queueRefresh() {
+        if (refreshQueued.compareAndSet(false, true)) {
+            refreshExecutor.execute(() -> {
+                refreshQueued.set(false);
+                refresh();
+            });
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        requestRefresh();
+    }
+
+    @Scheduled(fixedDelayString = "${dashboard.refresh-ms:300000}", initialDelayString = "${dashboard.refresh-ms:300000}")
+    public void scheduledRefresh() {
+        requestRefresh();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        refreshExecutor.shutdownNow();
+    }
+
+    private void refresh() {
+        try {
+            LocalDate firstDay = LocalDate.now().minusDays(seriesDays - 1L);
+            LocalDateTime since = firstDay.atStartOfDay();
+
+            List<String> days = new ArrayList<>(seriesDays);
+            for (int i = 0; i < seriesDays; i++) {
+                days.add(firstDay.plusDays(i).toString());
+            }
+
+            snapshot = new DashboardSnapshot(
+                    userRepository.count(),
+                    recipeRepository.count(),
+                    ingredientRepository.count(),
+                    postRepository.count(),
+                    commentRepository.count(),
+                    Collections.unmodifiableList(days),
+                    toSeries(userRepository.countDailySince(since), firstDay),
+                    toSeries(recipeRepository.countDailySince(since), firstDay),
+                    toSeries(postRepository.countDailySince(since), firstDay),
+                    toSeries(commentRepository.countDailySince(since), firstDay),
+                    LocalDateTime.now());
+        } catch (RuntimeException e) {
+            // Giữ snapshot cũ nếu lần refresh này lỗi
+            logger.warn("Không thể làm mới số liệu dashboard: {}", e.getMessage());
+        }
+    }
+
+    private List<Long> toSeries(List<DailyCount> counts, LocalDate firstDay) {
+        Map<LocalDate, Long> byDay = counts.stream()
+                .collect(Collectors.toMap(DailyCount::getCreatedDate, DailyCount::getTotal));
+        List<Long> series = new ArrayList<>(seriesDays);
+        for (int i = 0; i < seriesDays; i++) {
+            series.add(byDay.getOrDefault(firstDay.plusDays(i), 0L));
+        }
+        return Collections.unmodifiableList(series);
+    }
+}
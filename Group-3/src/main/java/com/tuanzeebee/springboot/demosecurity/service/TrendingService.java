@@ -0,0 +1,177 @@
+package com.tuanzeebee.springboot.demosecurity.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.tuanzeebee.springboot.demosecurity.dao.RecipeDTO;
+import com.tuanzeebee.springboot.demosecurity.dao.TrendingRecipeDTO;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Điểm "trending" của công thức dựa trên hoạt động gần đây (view, like, comment, post).
+ * Mỗi công thức có một vòng bucket theo thời gian, ghi nhận sự kiện bằng CAS (không khóa,
+ * không cấp phát bộ nhớ), điểm được tính với hệ số suy giảm theo hàm mũ.
+ * Top-K được tính lại định kỳ trên thread của scheduler, không bao giờ chạm database.
+ */
+@Service
+public class TrendingService {
+
+    public enum Event {
+        VIEW(1), LIKE(3), COMMENT(4), POST(5);
+
+        private final int weight;
+
+        Event(int weight) {
+            this.weight = weight;
+        }
+
+        public int getWeight() {
+            return weight;
+        }
+    }
+
+    private final RecipeService recipeService;
+    private final ConcurrentHashMap<Long, DecayingCounter> counters = new ConcurrentHashMap<>();
+    private final long bucketMillis;
+    private final int bucketCount;
+    private final int topK;
+    // decay[age] = 0.5^(age * bucket / halfLife), tính sẵn một lần
+    private final double[] decay;
+
+    private volatile List<ScoredRecipe> topRecipes = Collections.emptyList();
+
+    public TrendingService(RecipeService recipeService,
+                           @Value("${trending.bucket-minutes:60}") long bucketMinutes,
+                           @Value("${trending.buckets:24}") int bucketCount,
+                           @Value("${trending.half-life-minutes:360}") long halfLifeMinutes,
+                           @Value("${trending.top-k:10}") int topK) {
+        this.recipeService = recipeService;
+        this.bucketMillis = bucketMinutes * 60_000L;
+        this.bucketCount = bucketCount;
+        this.topK = topK;
+        this.decay = new double[bucketCount];
+        for (int age = 0; age < bucketCount; age++) {
+            decay[age] = Math.pow(0.5, (double) (age * bucketMinutes) / halfLifeMinutes);
+        }
+    }
+
+    public void record(Long recipeId, Event event) {
+        if (recipeId == null) {
+            return;
+        }
+        DecayingCounter counter = counters.get(recipeId);
+        if (counter == null) {
+            counter = counters.computeIfAbsent(recipeId, id -> new DecayingCounter(bucketCount));
+        }
+        counter.add(currentBucket(), event.getWeight());
+    }
+
+    /**
+     * Danh sách top-K hiện tại, sắp xếp điểm giảm dần. Đọc snapshot, không tính lại.
+     */
+    public List<ScoredRecipe> getTopRecipes() {
+        return topRecipes;
+    }
+
+    public List<TrendingRecipeDTO> getTrendingRecipes() {
+        List<ScoredRecipe> top = topRecipes;
+        Map<Long, RecipeDTO> recipesById = recipeService.getRecipesByIds(
+                        top.stream().map(ScoredRecipe::recipeId).collect(Collectors.toList()))
+                .stream()
+                .collect(Collectors.toMap(RecipeDTO::getId, Function.identity()));
+        return top.stream()
+                .filter(scored -> recipesById.containsKey(scored.recipeId()))
+                .map(scored -> {
+                    TrendingRecipeDTO dto = new TrendingRecipeDTO();
+                    dto.setRecipe(recipesById.get(scored.recipeId()));
+                    dto.setScore(scored.score());
+                    return dto;
+                })
+                .collect(Collectors.toList());
+    }
+
+    @Scheduled(fixedDelayString = "${trending.refresh-ms:10000}")
+    public void refreshTopRecipes() {
+        long now = currentBucket();
+        PriorityQueue<ScoredRecipe> heap = new PriorityQueue<>(topK + 1, Comparator.comparingDouble(ScoredRecipe::score));
+        for (Map.Entry<Long, DecayingCounter> entry : counters.entrySet()) {
+            double score = entry.getValue().score(now, decay);
+            if (score <= 0) {
+                // Tất cả bucket đã hết hạn -> bỏ khỏi map để giới hạn bộ nhớ
+                counters.remove(entry.getKey(), entry.getValue());
+                continue;
+            }
+            if (heap.size() < topK) {
+                heap.add(new ScoredRecipe(entry.getKey(), score));
+            } else if (score > heap.peek().score()) {
+                heap.poll();
+                heap.add(new ScoredRecipe(entry.getKey(), score));
+            }
+        }
+        List<ScoredRecipe> result = new ArrayList<>(heap);
+        result.sort(Comparator.comparingDouble(ScoredRecipe::score).reversed());
+        topRecipes = Collections.unmodifiableList(result);
+    }
+
+    private long currentBucket() {
+        return System.currentTimeMillis() / bucketMillis;
+    }
+
+    public record ScoredRecipe(Long recipeId, double score) {
+    }
+
+    /**
+     * Vòng bucket không khóa. Mỗi ô là một long: 32 bit cao là số thứ tự bucket,
+     * 32 bit thấp là tổng trọng số trong bucket đó. Ghi đè ô cũ và cộng dồn trong cùng một CAS
+     * nên không mất sự kiện khi bucket xoay vòng.
+     */
+    static final class DecayingCounter {
+        private static final long COUNT_MASK = 0xFFFF_FFFFL;
+
+        private final AtomicLongArray slots;
+
+        DecayingCounter(int bucketCount) {
+            this.slots = new AtomicLongArray(bucketCount);
+        }
+
+        void add(long bucket, int weight) {
+            int index = (int) (bucket % slots.length());
+            while (true) {
+                long current = slots.get(index);
+                long next;
+                if ((current >>> 32) == bucket) {
+                    long count = Math.min((current & COUNT_MASK) + weight, COUNT_MASK);
+                    next = (bucket << 32) | count;
+                } else {
+                    next = (bucket << 32) | weight;
+                }
+                if (slots.compareAndSet(index, current, next)) {
+                    return;
+                }
+            }
+        }
+
+        double score(long nowBucket, double[] decay) {
+            double score = 0;
+            for (int i = 0; i < slots.length(); i++) {
+                long value = slots.get(i);
+                long age = nowBucket - (value >>> 32);
+                if (age >= 0 && age < decay.length) {
+                    score += (value & COUNT_MASK) * decay[(int) age];
+                }
+            }
+            return score;
+        }
+    }
+}
@@ -1,44 +1,84 @@
 package com.tuanzeebee.springboot.demosecurity.service;
 
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.context.annotation.Lazy; // [QUAN TRỌNG] Import Lazy
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.tuanzeebee.springboot.demosecurity.activity.ActivityLog;
+import com.tuanzeebee.springboot.demosecurity.activity.ActivityType;
+import com.tuanzeebee.springboot.demosecurity.cache.EntityChange;
+import com.tuanzeebee.springboot.demosecurity.cache.InvalidationBus;
+import com.tuanzeebee.springboot.demosecurity.cache.LocalEntityCache;
+import com.tuanzeebee.springboot.demosecurity.dao.LookupOptionDTO;
+import com.tuanzeebee.springboot.demosecurity.dao.UserAdminRow;
 import com.tuanzeebee.springboot.demosecurity.dao.UserDTO;
+import com.tuanzeebee.springboot.demosecurity.dao.UserRoleName;
 import com.tuanzeebee.springboot.demosecurity.entity.User;
+import com.tuanzeebee.springboot.demosecurity.job.JobQueue;
 import com.tuanzeebee.springboot.demosecurity.entity.Post;
 import com.tuanzeebee.springboot.demosecurity.entity.Comment;
 import com.tuanzeebee.springboot.demosecurity.repository.RoleRepository;
 import com.tuanzeebee.springboot.demosecurity.repository.UserRepository;
 import com.tuanzeebee.springboot.demosecurity.repository.PostRepository;
 import com.tuanzeebee.springboot.demosecurity.repository.CommentRepository;
+import com.tuanzeebee.springboot.demosecurity.repository.LikePatterns;
 
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
 public class UserService {
+    public static final String DELETE_JOB = "user.delete";
+
     private final UserRepository userRepository;
     private final RoleRepository roleRepository;
     private final PasswordEncoder passwordEncoder;
     private final PostRepository postRepository;
-    private final CommentService commentService;
-    private final PostService postService;
+    private final ObjectProvider<CommentService> commentService;
+    private final ObjectProvider<PostService> postService;
+    private final StatsSnapshotService statsSnapshotService;
+    private final InvalidationBus invalidationBus;
+    private final ActivityLog activityLog;
+    private final JobQueue jobQueue;
+    private final LocalEntityCache<UserDTO> userCache;
 
     @Autowired
     public UserService(UserRepository userRepository, RoleRepository roleRepository, 
                        PasswordEncoder passwordEncoder, PostRepository postRepository,
-                       @Lazy CommentService commentService, // [SỬA] Thêm @Lazy để phá vòng lặp
-                       @Lazy PostService postService) {     // [SỬA] Thêm @Lazy để phá vòng lặp
+                       // Lấy khi dùng để phá vòng lặp. Không dùng @Lazy ở tham số: proxy lazy của class
+                       // xung đột với proxy AOP sinh sẵn khi chạy bằng mã AOT (profile fast-startup)
+                       ObjectProvider<CommentService> commentService,
+                       ObjectProvider<PostService> postService,
+                       StatsSnapshotService statsSnapshotService,
+                       InvalidationBus invalidationBus,
+                       ActivityLog activityLog,
+                       JobQueue jobQueue,
+                       @Value("${local-cache.users.max-entries:5000}") int maxEntries) {
         this.userRepository = userRepository;
         this.roleRepository = roleRepository;
         this.passwordEncoder = passwordEncoder;
         this.postRepository = postRepository;
         this.commentService = commentService;
         this.postService = postService;
+        this.statsSnapshotService = statsSnapshotService;
+        this.invalidationBus = invalidationBus;
+        this.activityLog = activityLog;
+        this.jobQueue = jobQueue;
+        // Bài đăng/bình luận gọi getUserById cho từng tác giả và người like nên rất hay trúng cache
+        this.userCache = invalidationBus.createCache("users", maxEntries);
+        invalidationBus.onChange(EntityChange.Type.USER, userCache::invalidate);
     }
 
     // --- [QUAN TRỌNG] Hàm này dùng cho AdminController ---
@@ -66,7 +106,9 @@ public class UserService {
                 // Mật khẩu đã được xử lý ở Controller (giữ nguyên hoặc mã hóa mới)
                 // Nếu muốn cập nhật pass tại đây, cần check xem updatedUser.getPassword() có khác không
                 
-                return convertToDTO(userRepository.save(user));
+                UserDTO saved = convertToDTO(userRepository.save(user));
+                invalidationBus.publish(EntityChange.Type.USER, id);
+                return saved;
             })
             .orElseThrow(() -> new RuntimeException("User not found"));
     }
@@ -75,9 +117,60 @@ public class UserService {
     public List<UserDTO> getAllUsers() {
         return userRepository.findAll().stream().map(this::convertToDTO).collect(Collectors.toList());
     }
+    // Một trang cho bảng admin: trang người dùng + quyền của đúng các người dùng đó (2 truy vấn, thêm COUNT nếu cần)
+    @Transactional(readOnly = true)
+    public Page<UserDTO> getUserPage(String usernamePrefix, Pageable pageable) {
+        Page<UserAdminRow> rows = usernamePrefix == null || usernamePrefix.isBlank()
+                ? userRepository.findAdminRows(pageable)
+                : userRepository.findAdminRowsByUsernamePrefix(LikePatterns.startsWith(usernamePrefix), pageable);
+        Map<Long, Set<String>> rolesByUserId = new HashMap<>();
+        if (rows.hasContent()) {
+            List<Long> ids = rows.map(UserAdminRow::getId).getContent();
+            for (UserRoleName roleName : userRepository.findRoleNamesByUserIdIn(ids)) {
+                rolesByUserId.computeIfAbsent(roleName.getUserId(), key -> new HashSet<>()).add(roleName.getRoleName());
+            }
+        }
+        return rows.map(row -> {
+            UserDTO dto = new UserDTO();
+            dto.setId(row.getId());
+            dto.setUsername(row.getUsername());
+            dto.setFirstName(row.getFirstName());
+            dto.setLastName(row.getLastName());
+            dto.setEmail(row.getEmail());
+            dto.setAvatar(row.getAvatar());
+            dto.setBio(row.getBio());
+            dto.setRoles(rolesByUserId.getOrDefault(row.getId(), Set.of()));
+            return dto;
+        });
+    }
+    public List<LookupOptionDTO> lookupUsers(String usernamePrefix, int limit) {
+        return userRepository.findLookupByUsernamePrefix(LikePatterns.startsWith(usernamePrefix), PageRequest.of(0, limit))
+                .stream()
+                .map(LookupOptionDTO::from)
+                .collect(Collectors.toList());
+    }
+    // Giữ nguyên thứ tự ID truyền vào, bỏ qua ID không tồn tại
+    public List<UserDTO> getUsersByIds(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, User> usersById = userRepository.findAllWithRolesByIdIn(ids).stream()
+                .collect(Collectors.toMap(User::getId, Function.identity()));
+        return ids.stream()
+                .distinct()
+                .map(usersById::get)
+                .filter(Objects::nonNull)
+                .map(this::convertToDTO)
+                .collect(Collectors.toList());
+    }
     public UserDTO getUserById(Long id) {
-        return userRepository.findById(id).map(this::convertToDTO).orElseThrow(() -> new RuntimeException("User not found"));
+        UserDTO cached = userCache.get(id, key -> userRepository.findById(key).map(this::convertToDTO).orElse(null));
+        if (cached == null) {
+            throw new RuntimeException("User not found");
+        }
+        return copyOf(cached);
     }
+    @Transactional
     public UserDTO createUser(User user) {
         if (userRepository.existsByUsername(user.getUsername())) {
             throw new RuntimeException("Username already exists");
@@ -85,11 +178,32 @@ public class UserService {
         if (user.getEmail() != null && !user.getEmail().isEmpty() && userRepository.existsByEmail(user.getEmail())) {
              throw new RuntimeException("Email already exists");
         }
+        // Role do controller đưa vào không thuộc persistence context (không còn open-in-view),
+        // roles cascade ALL nên phải gắn lại, nếu không persist sẽ báo "detached entity"
+        user.setRoles(user.getRoles().stream()
+                .map(role -> roleRepository.getReferenceById(role.getId()))
+                .collect(Collectors.toSet()));
         user.setPassword(passwordEncoder.encode(user.getPassword()));
         User savedUser = userRepository.save(user);
         return convertToDTO(savedUser);
     }
     
+    // Xóa tài khoản (bài đăng, like, theo dõi...) chạy nền trong hàng đợi "deletion"; trả về ID job
+    public long requestDelete(Long id) {
+        if (!userRepository.existsById(id)) {
+            throw new RuntimeException("Không tìm thấy người dùng với ID: " + id);
+        }
+        return jobQueue.enqueue(DELETE_JOB, Map.of("userId", id));
+    }
+    // Handler của DELETE_JOB: job có thể chạy lại sau khi đã xóa xong nên người dùng không còn thì coi như xong
+    @Transactional
+    public boolean deleteUserIfExists(Long id) {
+        if (!userRepository.existsById(id)) {
+            return false;
+        }
+        deleteUser(id);
+        return true;
+    }
     @Transactional
     public void deleteUser(Long id) {
         User userToDelete = userRepository.findById(id)
@@ -103,7 +217,7 @@ public class UserService {
         }
         Set<Post> userPosts = userToDelete.getPosts();
         for (Post post : userPosts) {
-            postService.deletePost(post.getId()); 
+            postService.getObject().deletePost(post.getId()); 
         }
         userToDelete.getSavedRecipes().clear();
         userToDelete.getFollowing().clear(); 
@@ -115,23 +229,38 @@ public class UserService {
         userToDelete.getRoles().clear();
         userRepository.save(userToDelete);
         userRepository.delete(userToDelete);
+        invalidationBus.publish(EntityChange.Type.USER, id);
+        statsSnapshotService.requestRefresh();
     }
 
     public User findByUsername(String username) {
         return userRepository.findByUsername(username)
                 .orElseThrow(() -> new RuntimeException("User not found with username: " + username));
     }
+    // Mô hình cho view (header, trang hồ sơ): open-in-view đã tắt nên template chỉ nhận DTO dựng sẵn ở đây
+    @Transactional(readOnly = true)
+    public UserDTO getProfile(String username) {
+        return userRepository.findWithRolesByUsername(username)
+                .map(this::convertToDTO)
+                .orElseThrow(() -> new RuntimeException("User not found with username: " + username));
+    }
+    @Transactional
     public UserDTO followUser(Long followerId, Long followedId) {
         User follower = userRepository.findById(followerId).orElseThrow(() -> new RuntimeException("Follower not found"));
         User followed = userRepository.findById(followedId).orElseThrow(() -> new RuntimeException("Followed user not found"));
-        follower.getFollowing().add(followed);
+        if (follower.getFollowing().add(followed)) {
+            activityLog.record(ActivityType.FOLLOW, follower.getUsername(), null, followedId);
+        }
         userRepository.save(follower);
         return convertToDTO(follower);
     }
+    @Transactional
     public UserDTO unfollowUser(Long followerId, Long followedId) {
         User follower = userRepository.findById(followerId).orElseThrow(() -> new RuntimeException("Follower not found"));
         User followed = userRepository.findById(followedId).orElseThrow(() -> new RuntimeException("Followed user not found"));
-        follower.getFollowing().remove(followed);
+        if (follower.getFollowing().remove(followed)) {
+            activityLog.record(ActivityType.UNFOLLOW, follower.getUsername(), null, followedId);
+        }
         userRepository.save(follower);
         return convertToDTO(follower);
     }
@@ -147,9 +276,26 @@ public class UserService {
         dto.setRoles(user.getRoles().stream().map(role -> role.getName()).collect(Collectors.toSet()));
         return dto;
     }
+    // Bản trong cache dùng chung giữa các request nên trả về bản sao
+    private static UserDTO copyOf(UserDTO cached) {
+        UserDTO dto = new UserDTO();
+        dto.setId(cached.getId());
+        dto.setUsername(cached.getUsername());
+        dto.setFirstName(cached.getFirstName());
+        dto.setLastName(cached.getLastName());
+        dto.setEmail(cached.getEmail());
+        dto.setAvatar(cached.getAvatar());
+        dto.setBio(cached.getBio());
+        dto.setRoles(new HashSet<>(cached.getRoles()));
+        return dto;
+    }
     public UserDTO findByEmail(String email) {
         return userRepository.findByEmail(email).map(this::convertToDTO).orElseThrow(() -> new RuntimeException("User not found with email: " + email));
     }
     public long countUsers() { return userRepository.count(); }
-    public User save(User user) { return userRepository.save(user); }
+    public User save(User user) {
+        User saved = userRepository.save(user);
+        invalidationBus.publish(EntityChange.Type.USER, saved.getId());
+        return saved;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,37 @@
+package com.tuanzeebee.springboot.demosecurity.session;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.session.config.annotation.web.http.EnableSpringHttpSession;
+
+import java.time.Duration;
+
+/**
+ * Bật bằng app.session.store=jdbc: SessionRepositoryFilter của Spring Session thay session của Tomcat
+ * bằng {@link JdbcSessionRepository} (bảng app_sessions). Thời gian hết hạn lấy từ server.servlet.session.timeout,
+ * cookie cấu hình qua server.servlet.session.cookie.*.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "app.session", name = "store", havingValue = "jdbc")
+@EnableSpringHttpSession
+@EnableConfigurationProperties(SessionStoreProperties.class)
+public class JdbcSessionConfig {
+
+    @Bean
+    public JdbcSessionRepository sessionRepository(JdbcTemplate jdbcTemplate, SessionStoreProperties properties,
+                                                   @Value("${server.servlet.session.timeout:30m}") Duration timeout,
+                                                   MeterRegistry meterRegistry) {
+        return new JdbcSessionRepository(jdbcTemplate, properties, timeout,
+                JdbcSessionConfig.class.getClassLoader(), meterRegistry);
+    }
+
+    @Bean
+    public SessionCleanupTask sessionCleanupTask(JdbcSessionRepository sessionRepository) {
+        return new SessionCleanupTask(sessionRepository);
+    }
+}
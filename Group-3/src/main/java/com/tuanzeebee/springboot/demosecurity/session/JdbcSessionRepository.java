@@ -0,0 +1,347 @@
+package com.tuanzeebee.springboot.demosecurity.session;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.session.MapSession;
+import org.springframework.session.Session;
+import org.springframework.session.SessionRepository;
+
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Lưu session trong bảng app_sessions để mọi node sau load balancer (không sticky) dùng chung.
+ * Mỗi dòng có version tăng khi attribute đổi: lúc ghi chỉ áp các attribute request đã set/remove
+ * lên bản mới nhất nên hai request đồng thời trên hai node không ghi đè lẫn nhau.
+ * Near-cache giữ bản mã hóa của session hay dùng; khi trúng cache chỉ cần đọc các cột nhỏ để so version.
+ */
+public class JdbcSessionRepository implements SessionRepository<JdbcSessionRepository.JdbcSession> {
+    private static final Logger logger = LoggerFactory.getLogger(JdbcSessionRepository.class);
+
+    private static final int MAX_SAVE_ATTEMPTS = 3;
+    private static final String SELECT_FULL =
+            "SELECT version, created_at, last_access, max_inactive, attributes FROM app_sessions WHERE id = ?";
+    private static final String SELECT_HEADER =
+            "SELECT version, created_at, last_access, max_inactive FROM app_sessions WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final SessionAttributeCodec codec;
+    private final SessionNearCache nearCache;
+    private final Duration defaultMaxInactiveInterval;
+    private final Duration touchInterval;
+    private final int cleanupBatchSize;
+    private final Counter cacheHits;
+    private final Counter cacheStale;
+    private final Counter cacheMisses;
+    private final Counter saveConflicts;
+    private final Counter expired;
+
+    public JdbcSessionRepository(JdbcTemplate jdbcTemplate, SessionStoreProperties properties,
+                                 Duration defaultMaxInactiveInterval, ClassLoader classLoader,
+                                 MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.codec = new SessionAttributeCodec(properties.getCompressThreshold(), classLoader);
+        this.nearCache = new SessionNearCache(properties.getNearCacheSize());
+        this.defaultMaxInactiveInterval = defaultMaxInactiveInterval;
+        this.touchInterval = properties.getTouchInterval();
+        this.cleanupBatchSize = properties.getCleanupBatchSize();
+        this.cacheHits = cacheCounter(meterRegistry, "hit");
+        this.cacheStale = cacheCounter(meterRegistry, "stale");
+        this.cacheMisses = cacheCounter(meterRegistry, "miss");
+        this.saveConflicts = Counter.builder("app.session.save.conflicts")
+                .description("Số lần ghi session phải áp lại thay đổi vì node khác vừa ghi")
+                .register(meterRegistry);
+        this.expired = Counter.builder("app.session.expired")
+                .description("Số session hết hạn đã bị xóa")
+                .register(meterRegistry);
+        Gauge.builder("app.session.near-cache.size", nearCache, SessionNearCache::size)
+                .register(meterRegistry);
+    }
+
+    private static Counter cacheCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("app.session.near-cache")
+                .description("Kết quả tra near-cache khi nạp session")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public JdbcSession createSession() {
+        MapSession delegate = new MapSession();
+        delegate.setMaxInactiveInterval(defaultMaxInactiveInterval);
+        return new JdbcSession(delegate);
+    }
+
+    @Override
+    public void save(JdbcSession session) {
+        if (session.isNew) {
+            insert(session);
+        } else {
+            if (!session.getId().equals(session.persistedId)) {
+                jdbcTemplate.update("UPDATE app_sessions SET id = ? WHERE id = ?", session.getId(), session.persistedId);
+                nearCache.evict(session.persistedId);
+            }
+            if (!session.changedAttributes.isEmpty()) {
+                updateAttributes(session);
+            } else if (session.metadataChanged
+                    || Duration.between(session.persistedLastAccess, session.getLastAccessedTime()).compareTo(touchInterval) >= 0) {
+                jdbcTemplate.update("UPDATE app_sessions SET last_access = ?, max_inactive = ?, expiry_at = ? WHERE id = ?",
+                        session.getLastAccessedTime().toEpochMilli(), maxInactiveSeconds(session),
+                        expiryOf(session), session.getId());
+            } else {
+                session.persistedId = session.getId();
+                return;
+            }
+        }
+        session.persistedId = session.getId();
+        session.persistedLastAccess = session.getLastAccessedTime();
+        session.changedAttributes.clear();
+        session.metadataChanged = false;
+        session.isNew = false;
+    }
+
+    @Override
+    public JdbcSession findById(String id) {
+        JdbcSession session;
+        try {
+            session = load(id);
+        } catch (IllegalArgumentException | UncheckedIOException e) {
+            // Dữ liệu không đọc được (vd class đổi sau khi deploy): bỏ session, người dùng đăng nhập lại
+            logger.warn("Không đọc được session {}, xóa session: {}", id, e.getMessage());
+            deleteById(id);
+            return null;
+        }
+        if (session != null && session.isExpired()) {
+            deleteById(id);
+            return null;
+        }
+        return session;
+    }
+
+    @Override
+    public void deleteById(String id) {
+        jdbcTemplate.update("DELETE FROM app_sessions WHERE id = ?", id);
+        nearCache.evict(id);
+    }
+
+    /**
+     * Xóa session hết hạn theo từng lô nhỏ để mỗi câu DELETE chỉ giữ khóa trong thời gian ngắn.
+     */
+    public int cleanUpExpiredSessions() {
+        long now = System.currentTimeMillis();
+        int total = 0;
+        int deleted;
+        do {
+            deleted = jdbcTemplate.update("DELETE FROM app_sessions WHERE expiry_at < ? LIMIT ?", now, cleanupBatchSize);
+            total += deleted;
+        } while (deleted == cleanupBatchSize);
+        if (total > 0) {
+            expired.increment(total);
+            logger.debug("Đã xóa {} session hết hạn", total);
+        }
+        return total;
+    }
+
+    private JdbcSession load(String id) {
+        SessionNearCache.Entry cached = nearCache.get(id);
+        if (cached != null) {
+            List<JdbcSession> headers = jdbcTemplate.query(SELECT_HEADER, (rs, rowNum) -> {
+                long version = rs.getLong("version");
+                if (version != cached.version()) {
+                    return null;
+                }
+                return toSession(id, version, rs.getLong("created_at"), rs.getLong("last_access"),
+                        rs.getInt("max_inactive"), codec.decode(cached.attributes()));
+            }, id);
+            if (headers.isEmpty()) {
+                nearCache.evict(id);
+                return null;
+            }
+            if (headers.get(0) != null) {
+                cacheHits.increment();
+                return headers.get(0);
+            }
+            cacheStale.increment();
+        } else {
+            cacheMisses.increment();
+        }
+        List<JdbcSession> sessions = jdbcTemplate.query(SELECT_FULL, (rs, rowNum) -> {
+            long version = rs.getLong("version");
+            byte[] attributes = rs.getBytes("attributes");
+            nearCache.put(id, version, attributes);
+            return toSession(id, version, rs.getLong("created_at"), rs.getLong("last_access"),
+                    rs.getInt("max_inactive"), codec.decode(attributes));
+        }, id);
+        return sessions.isEmpty() ? null : sessions.get(0);
+    }
+
+    private JdbcSession toSession(String id, long version, long createdAt, long lastAccess, int maxInactive,
+                                  Map<String, Object> attributes) {
+        MapSession delegate = new MapSession(id);
+        delegate.setCreationTime(Instant.ofEpochMilli(createdAt));
+        delegate.setLastAccessedTime(Instant.ofEpochMilli(lastAccess));
+        delegate.setMaxInactiveInterval(Duration.ofSeconds(maxInactive));
+        attributes.forEach(delegate::setAttribute);
+        JdbcSession session = new JdbcSession(delegate);
+        session.isNew = false;
+        session.persistedId = id;
+        session.persistedLastAccess = delegate.getLastAccessedTime();
+        session.version = version;
+        return session;
+    }
+
+    private void insert(JdbcSession session) {
+        byte[] attributes = codec.encode(session.attributes());
+        jdbcTemplate.update("INSERT INTO app_sessions (id, created_at, last_access, max_inactive, expiry_at, version, attributes) " +
+                        "VALUES (?, ?, ?, ?, ?, ?, ?)",
+                session.getId(), session.getCreationTime().toEpochMilli(), session.getLastAccessedTime().toEpochMilli(),
+                maxInactiveSeconds(session), expiryOf(session), 1L, attributes);
+        session.version = 1;
+        nearCache.put(session.getId(), 1, attributes);
+    }
+
+    // Ghi có điều kiện version; nếu node khác vừa ghi thì đọc bản mới, áp lại các attribute đã đổi rồi thử lại
+    private void updateAttributes(JdbcSession session) {
+        Map<String, Object> attributes = session.attributes();
+        long expectedVersion = session.version;
+        for (int attempt = 1; attempt <= MAX_SAVE_ATTEMPTS; attempt++) {
+            byte[] encoded = codec.encode(attributes);
+            int updated = jdbcTemplate.update("UPDATE app_sessions SET attributes = ?, version = version + 1, " +
+                            "last_access = ?, max_inactive = ?, expiry_at = ? WHERE id = ? AND version = ?",
+                    encoded, session.getLastAccessedTime().toEpochMilli(), maxInactiveSeconds(session),
+                    expiryOf(session), session.getId(), expectedVersion);
+            if (updated == 1) {
+                session.version = expectedVersion + 1;
+                nearCache.put(session.getId(), session.version, encoded);
+                return;
+            }
+            saveConflicts.increment();
+            JdbcSession latest = load(session.getId());
+            if (latest == null) {
+                // Session đã bị hủy ở node khác (đăng xuất) thì không tạo lại
+                return;
+            }
+            attributes = latest.attributes();
+            for (String name : session.changedAttributes) {
+                Object value = session.getAttribute(name);
+                if (value == null) {
+                    attributes.remove(name);
+                } else {
+                    attributes.put(name, value);
+                }
+            }
+            expectedVersion = latest.version;
+        }
+        logger.warn("Không ghi được session {} sau {} lần do xung đột ghi đồng thời", session.getId(), MAX_SAVE_ATTEMPTS);
+    }
+
+    private static int maxInactiveSeconds(Session session) {
+        return (int) session.getMaxInactiveInterval().getSeconds();
+    }
+
+    // max_inactive âm nghĩa là không bao giờ hết hạn
+    private static long expiryOf(Session session) {
+        long maxInactive = session.getMaxInactiveInterval().toMillis();
+        return maxInactive < 0 ? Long.MAX_VALUE : session.getLastAccessedTime().toEpochMilli() + maxInactive;
+    }
+
+    /**
+     * Session bọc {@link MapSession}, ghi nhận attribute nào đã được set/remove trong request.
+     */
+    public static final class JdbcSession implements Session {
+        private final MapSession delegate;
+        private final Set<String> changedAttributes = new HashSet<>();
+        private boolean isNew = true;
+        private boolean metadataChanged;
+        private String persistedId;
+        private Instant persistedLastAccess;
+        private long version;
+
+        private JdbcSession(MapSession delegate) {
+            this.delegate = delegate;
+            this.persistedId = delegate.getId();
+            this.persistedLastAccess = delegate.getLastAccessedTime();
+        }
+
+        private Map<String, Object> attributes() {
+            Map<String, Object> attributes = new LinkedHashMap<>();
+            for (String name : delegate.getAttributeNames()) {
+                attributes.put(name, delegate.getAttribute(name));
+            }
+            return attributes;
+        }
+
+        @Override
+        public String getId() {
+            return delegate.getId();
+        }
+
+        @Override
+        public String changeSessionId() {
+            return delegate.changeSessionId();
+        }
+
+        @Override
+        public <T> T getAttribute(String attributeName) {
+            return delegate.getAttribute(attributeName);
+        }
+
+        @Override
+        public Set<String> getAttributeNames() {
+            return delegate.getAttributeNames();
+        }
+
+        @Override
+        public void setAttribute(String attributeName, Object attributeValue) {
+            delegate.setAttribute(attributeName, attributeValue);
+            changedAttributes.add(attributeName);
+        }
+
+        @Override
+        public void removeAttribute(String attributeName) {
+            delegate.removeAttribute(attributeName);
+            changedAttributes.add(attributeName);
+        }
+
+        @Override
+        public Instant getCreationTime() {
+            return delegate.getCreationTime();
+        }
+
+        @Override
+        public void setLastAccessedTime(Instant lastAccessedTime) {
+            delegate.setLastAccessedTime(lastAccessedTime);
+        }
+
+        @Override
+        public Instant getLastAccessedTime() {
+            return delegate.getLastAccessedTime();
+        }
+
+        @Override
+        public void setMaxInactiveInterval(Duration interval) {
+            delegate.setMaxInactiveInterval(interval);
+            metadataChanged = true;
+        }
+
+        @Override
+        public Duration getMaxInactiveInterval() {
+            return delegate.getMaxInactiveInterval();
+        }
+
+        @Override
+        public boolean isExpired() {
+            return delegate.isExpired();
+        }
+    }
+}
@@ -0,0 +1,430 @@
+package com.tuanzeebee.springboot.demosecurity.session;
+
+import org.springframework.core.ConfigurableObjectInputStream;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextImpl;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.web.authentication.WebAuthenticationDetails;
+import org.springframework.security.web.csrf.DefaultCsrfToken;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.servlet.FlashMap;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Mã hóa attribute của session thành byte gọn: mỗi giá trị có một byte kiểu rồi tới dữ liệu.
+ * Các attribute hay gặp (SecurityContext sau khi đăng nhập form, CSRF token, FlashMap, chuỗi, số)
+ * được ghi theo từng trường; kiểu khác mới dùng Java serialization.
+ */
+final class SessionAttributeCodec {
+
+    private static final byte FORMAT_PLAIN = 1;
+    private static final byte FORMAT_DEFLATE = 2;
+
+    private static final byte NULL = 0;
+    private static final byte STRING = 1;
+    private static final byte LONG = 2;
+    private static final byte INTEGER = 3;
+    private static final byte BOOLEAN = 4;
+    private static final byte LIST = 5;
+    private static final byte MAP = 6;
+    private static final byte FLASH_MAP = 7;
+    // Package-private để test kiểm tra được SecurityContext đi nhánh ghi gọn
+    static final byte SECURITY_CONTEXT = 8;
+    private static final byte CSRF_TOKEN = 9;
+    private static final byte SERIALIZED = 10;
+
+    private final int compressThreshold;
+    private final ClassLoader classLoader;
+
+    SessionAttributeCodec(int compressThreshold, ClassLoader classLoader) {
+        this.compressThreshold = compressThreshold;
+        this.classLoader = classLoader;
+    }
+
+    byte[] encode(Map<String, Object> attributes) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            writeVarInt(out, attributes.size());
+            for (Map.Entry<String, Object> attribute : attributes.entrySet()) {
+                writeString(out, attribute.getKey());
+                writeValue(out, attribute.getValue());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        byte[] plain = bytes.toByteArray();
+        if (plain.length > compressThreshold) {
+            byte[] compressed = deflate(plain);
+            if (compressed.length < plain.length) {
+                return withFormat(FORMAT_DEFLATE, compressed);
+            }
+        }
+        return withFormat(FORMAT_PLAIN, plain);
+    }
+
+    Map<String, Object> decode(byte[] data) {
+        if (data == null || data.length == 0) {
+            return new LinkedHashMap<>();
+        }
+        byte[] body = new byte[data.length - 1];
+        System.arraycopy(data, 1, body, 0, body.length);
+        if (data[0] == FORMAT_DEFLATE) {
+            body = inflate(body);
+        } else if (data[0] != FORMAT_PLAIN) {
+            throw new IllegalArgumentException("Định dạng session không hỗ trợ: " + data[0]);
+        }
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(body))) {
+            int count = readVarInt(in);
+            Map<String, Object> attributes = new LinkedHashMap<>(count * 2);
+            for (int i = 0; i < count; i++) {
+                String name = readString(in);
+                attributes.put(name, readValue(in));
+            }
+            return attributes;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void writeValue(DataOutputStream out, Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(NULL);
+        } else if (value instanceof String string) {
+            out.writeByte(STRING);
+            writeString(out, string);
+        } else if (value instanceof Long number) {
+            out.writeByte(LONG);
+            out.writeLong(number);
+        } else if (value instanceof Integer number) {
+            out.writeByte(INTEGER);
+            writeVarInt(out, number);
+        } else if (value instanceof Boolean flag) {
+            out.writeByte(BOOLEAN);
+            out.writeBoolean(flag);
+        } else if (value instanceof FlashMap flashMap) {
+            out.writeByte(FLASH_MAP);
+            writeFlashMap(out, flashMap);
+        } else if (value instanceof List<?> list) {
+            out.writeByte(LIST);
+            writeVarInt(out, list.size());
+            for (Object item : list) {
+                writeValue(out, item);
+            }
+        } else if (value instanceof Map<?, ?> map) {
+            out.writeByte(MAP);
+            writeVarInt(out, map.size());
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                writeValue(out, entry.getKey());
+                writeValue(out, entry.getValue());
+            }
+        } else if (value instanceof SecurityContext context && isCompactSecurityContext(context)) {
+            out.writeByte(SECURITY_CONTEXT);
+            writeSecurityContext(out, context);
+        } else if (value instanceof DefaultCsrfToken token) {
+            out.writeByte(CSRF_TOKEN);
+            writeString(out, token.getHeaderName());
+            writeString(out, token.getParameterName());
+            writeString(out, token.getToken());
+        } else if (value instanceof Serializable) {
+            out.writeByte(SERIALIZED);
+            byte[] serialized = serialize(value);
+            writeVarInt(out, serialized.length);
+            out.write(serialized);
+        } else {
+            throw new IllegalArgumentException("Attribute session không serialize được: " + value.getClass().getName());
+        }
+    }
+
+    private Object readValue(DataInputStream in) throws IOException {
+        byte type = in.readByte();
+        switch (type) {
+            case NULL:
+                return null;
+            case STRING:
+                return readString(in);
+            case LONG:
+                return in.readLong();
+            case INTEGER:
+                return readVarInt(in);
+            case BOOLEAN:
+                return in.readBoolean();
+            case FLASH_MAP:
+                return readFlashMap(in);
+            case LIST: {
+                int size = readVarInt(in);
+                List<Object> list = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    list.add(readValue(in));
+                }
+                return list;
+            }
+            case MAP: {
+                int size = readVarInt(in);
+                Map<Object, Object> map = new LinkedHashMap<>(size * 2);
+                for (int i = 0; i < size; i++) {
+                    map.put(readValue(in), readValue(in));
+                }
+                return map;
+            }
+            case SECURITY_CONTEXT:
+                return readSecurityContext(in);
+            case CSRF_TOKEN:
+                return new DefaultCsrfToken(readString(in), readString(in), readString(in));
+            case SERIALIZED: {
+                byte[] serialized = new byte[readVarInt(in)];
+                in.readFully(serialized);
+                return deserialize(serialized);
+            }
+            default:
+                throw new IllegalArgumentException("Kiểu attribute session không hỗ trợ: " + type);
+        }
+    }
+
+    private void writeFlashMap(DataOutputStream out, FlashMap flashMap) throws IOException {
+        writeNullableString(out, flashMap.getTargetRequestPath());
+        MultiValueMap<String, String> params = flashMap.getTargetRequestParams();
+        writeVarInt(out, params.size());
+        for (Map.Entry<String, List<String>> param : params.entrySet()) {
+            writeString(out, param.getKey());
+            writeVarInt(out, param.getValue().size());
+            for (String value : param.getValue()) {
+                writeNullableString(out, value);
+            }
+        }
+        out.writeLong(flashMap.getExpirationTime());
+        writeVarInt(out, flashMap.size());
+        for (Map.Entry<String, Object> entry : flashMap.entrySet()) {
+            writeString(out, entry.getKey());
+            writeValue(out, entry.getValue());
+        }
+    }
+
+    private FlashMap readFlashMap(DataInputStream in) throws IOException {
+        FlashMap flashMap = new FlashMap();
+        flashMap.setTargetRequestPath(readNullableString(in));
+        int paramCount = readVarInt(in);
+        MultiValueMap<String, String> params = new LinkedMultiValueMap<>();
+        for (int i = 0; i < paramCount; i++) {
+            String name = readString(in);
+            int valueCount = readVarInt(in);
+            for (int j = 0; j < valueCount; j++) {
+                params.add(name, readNullableString(in));
+            }
+        }
+        flashMap.addTargetRequestParams(params);
+        flashMap.setExpirationTime(in.readLong());
+        int size = readVarInt(in);
+        for (int i = 0; i < size; i++) {
+            String name = readString(in);
+            flashMap.put(name, readValue(in));
+        }
+        return flashMap;
+    }
+
+    // Chỉ ghi gọn dạng đăng nhập form: UsernamePasswordAuthenticationToken với principal là User, mật khẩu đã xóa
+    private boolean isCompactSecurityContext(SecurityContext context) {
+        if (!(context instanceof SecurityContextImpl)) {
+            return false;
+        }
+        Authentication authentication = context.getAuthentication();
+        if (authentication == null) {
+            return true;
+        }
+        return authentication.getClass() == UsernamePasswordAuthenticationToken.class
+                && authentication.isAuthenticated()
+                && authentication.getCredentials() == null
+                && authentication.getPrincipal() instanceof User user && user.getPassword() == null
+                && (authentication.getDetails() == null || authentication.getDetails().getClass() == WebAuthenticationDetails.class)
+                && authentication.getAuthorities().stream().allMatch(a -> a.getClass() == SimpleGrantedAuthority.class);
+    }
+
+    private void writeSecurityContext(DataOutputStream out, SecurityContext context) throws IOException {
+        Authentication authentication = context.getAuthentication();
+        out.writeBoolean(authentication != null);
+        if (authentication == null) {
+            return;
+        }
+        User user = (User) authentication.getPrincipal();
+        writeString(out, user.getUsername());
+        int flags = (user.isEnabled() ? 1 : 0)
+                | (user.isAccountNonExpired() ? 2 : 0)
+                | (user.isAccountNonLocked() ? 4 : 0)
+                | (user.isCredentialsNonExpired() ? 8 : 0);
+        out.writeByte(flags);
+        writeAuthorities(out, user.getAuthorities());
+        writeAuthorities(out, authentication.getAuthorities());
+        WebAuthenticationDetails details = (WebAuthenticationDetails) authentication.getDetails();
+        out.writeBoolean(details != null);
+        if (details != null) {
+            writeNullableString(out, details.getRemoteAddress());
+            writeNullableString(out, details.getSessionId());
+        }
+    }
+
+    private SecurityContext readSecurityContext(DataInputStream in) throws IOException {
+        SecurityContextImpl context = new SecurityContextImpl();
+        if (!in.readBoolean()) {
+            return context;
+        }
+        String username = readString(in);
+        int flags = in.readByte();
+        List<GrantedAuthority> userAuthorities = readAuthorities(in);
+        List<GrantedAuthority> authorities = readAuthorities(in);
+        User user = new User(username, "", (flags & 1) != 0, (flags & 2) != 0, (flags & 8) != 0, (flags & 4) != 0,
+                userAuthorities);
+        user.eraseCredentials();
+        UsernamePasswordAuthenticationToken authentication =
+                UsernamePasswordAuthenticationToken.authenticated(user, null, authorities);
+        if (in.readBoolean()) {
+            authentication.setDetails(new WebAuthenticationDetails(readNullableString(in), readNullableString(in)));
+        }
+        context.setAuthentication(authentication);
+        return context;
+    }
+
+    private void writeAuthorities(DataOutputStream out, Collection<? extends GrantedAuthority> authorities)
+            throws IOException {
+        writeVarInt(out, authorities.size());
+        for (GrantedAuthority authority : authorities) {
+            writeString(out, authority.getAuthority());
+        }
+    }
+
+    private List<GrantedAuthority> readAuthorities(DataInputStream in) throws IOException {
+        int size = readVarInt(in);
+        List<GrantedAuthority> authorities = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            authorities.add(new SimpleGrantedAuthority(readString(in)));
+        }
+        return authorities;
+    }
+
+    private byte[] serialize(Object value) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(value);
+        }
+        return bytes.toByteArray();
+    }
+
+    // Dùng classloader của ứng dụng (devtools nạp class của app bằng classloader riêng)
+    private Object deserialize(byte[] serialized) throws IOException {
+        try (ObjectInputStream in = new ConfigurableObjectInputStream(new ByteArrayInputStream(serialized), classLoader)) {
+            return in.readObject();
+        } catch (ClassNotFoundException e) {
+            throw new IOException("Không tìm thấy class khi đọc session: " + e.getMessage(), e);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(out, bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[readVarInt(in)];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeNullableString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            writeString(out, value);
+        }
+    }
+
+    private static String readNullableString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? readString(in) : null;
+    }
+
+    // Số nguyên không âm nhỏ chỉ tốn 1 byte (độ dài chuỗi, số phần tử)
+    private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        int remaining = value;
+        while ((remaining & ~0x7F) != 0) {
+            out.writeByte((remaining & 0x7F) | 0x80);
+            remaining >>>= 7;
+        }
+        out.writeByte(remaining);
+    }
+
+    private static int readVarInt(DataInputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Varint không hợp lệ");
+    }
+
+    private static byte[] withFormat(byte format, byte[] body) {
+        byte[] data = new byte[body.length + 1];
+        data[0] = format;
+        System.arraycopy(body, 0, data, 1, body.length);
+        return data;
+    }
+
+    private static byte[] deflate(byte[] plain) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(plain);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(plain.length / 2);
+            byte[] buffer = new byte[1024];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] compressed) {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(compressed.length * 3);
+            byte[] buffer = new byte[1024];
+            while (!inflater.finished()) {
+                int read = inflater.inflate(buffer);
+                if (read == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IllegalArgumentException("Dữ liệu session nén bị cắt cụt");
+                }
+                out.write(buffer, 0, read);
+            }
+            return out.toByteArray();
+        } catch (DataFormatException e) {
+            throw new IllegalArgumentException("Dữ liệu session nén không hợp lệ", e);
+        } finally {
+            inflater.end();
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.tuanzeebee.springboot.demosecurity.session;
+
+import com.tuanzeebee.springboot.demosecurity.lock.ClusterLock;
+import org.springframework.scheduling.annotation.Scheduled;
+
+// Xóa session hết hạn khỏi app_sessions; tạo trong JdbcSessionConfig nên chỉ có khi app.session.store=jdbc
+public class SessionCleanupTask {
+
+    private final JdbcSessionRepository sessionRepository;
+
+    public SessionCleanupTask(JdbcSessionRepository sessionRepository) {
+        this.sessionRepository = sessionRepository;
+    }
+
+    // Mỗi chu kỳ chỉ một node dọn, các node khác bỏ qua thay vì cùng quét bảng app_sessions
+    @ClusterLock(value = "session-cleanup", minHold = "${app.session.cleanup-interval:PT1M}")
+    @Scheduled(fixedDelayString = "${app.session.cleanup-interval:PT1M}")
+    public void cleanUpExpiredSessions() {
+        sessionRepository.cleanUpExpiredSessions();
+    }
+}
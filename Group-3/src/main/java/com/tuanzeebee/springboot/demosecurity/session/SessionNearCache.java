@@ -0,0 +1,46 @@
+package com.tuanzeebee.springboot.demosecurity.session;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cache LRU giữ bản đã mã hóa của các session hay dùng, kèm version của dòng trong DB.
+ * Chỉ giữ byte chứ không giữ object đã giải mã, vì các attribute (vd danh sách FlashMap)
+ * bị request sửa trực tiếp và không được dùng chung giữa các request.
+ */
+class SessionNearCache {
+
+    record Entry(long version, byte[] attributes) {
+    }
+
+    private final int maxEntries;
+    private final Map<String, Entry> entries;
+
+    SessionNearCache(int maxEntries) {
+        this.maxEntries = maxEntries;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > SessionNearCache.this.maxEntries;
+            }
+        };
+    }
+
+    synchronized Entry get(String id) {
+        return maxEntries > 0 ? entries.get(id) : null;
+    }
+
+    synchronized void put(String id, long version, byte[] attributes) {
+        if (maxEntries > 0) {
+            entries.put(id, new Entry(version, attributes));
+        }
+    }
+
+    synchronized void evict(String id) {
+        entries.remove(id);
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+}
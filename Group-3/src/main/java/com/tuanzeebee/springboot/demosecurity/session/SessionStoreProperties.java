@@ -0,0 +1,26 @@
+package com.tuanzeebee.springboot.demosecurity.session;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "app.session")
+public class SessionStoreProperties {
+
+    // container: session trong bộ nhớ Tomcat (mỗi node riêng); jdbc: lưu trong bảng app_sessions, dùng chung giữa các node
+    private String store = "container";
+
+    // Số session giữ bản mã hóa trong bộ nhớ; mỗi lần dùng vẫn kiểm tra version trên DB. 0 để tắt
+    private int nearCacheSize = 10_000;
+
+    // Request không đổi attribute chỉ ghi lại thời điểm truy cập khi đã cách lần ghi trước ít nhất khoảng này
+    private Duration touchInterval = Duration.ofSeconds(30);
+
+    // Dữ liệu attribute lớn hơn ngưỡng này (byte) được nén deflate
+    private int compressThreshold = 1024;
+
+    // Số dòng tối đa mỗi câu DELETE khi dọn session hết hạn
+    private int cleanupBatchSize = 500;
+}
@@ -0,0 +1,124 @@
+-- Schema trước khi chuyển sang Flyway (do spring.jpa.hibernate.ddl-auto=update tạo ra từ các entity lúc đó).
+-- Database đã có dữ liệu được baseline ở version 1 nên file này chỉ chạy trên database mới; mọi thay đổi
+-- schema sau đó nằm ở các migration tiếp theo để database cũ cũng nhận được.
+
+CREATE TABLE roles (
+  id bigint NOT NULL AUTO_INCREMENT,
+  name varchar(255) NOT NULL,
+  PRIMARY KEY (id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+CREATE TABLE users (
+  id bigint NOT NULL AUTO_INCREMENT,
+  username varchar(255) NOT NULL,
+  password varchar(255) NOT NULL,
+  enabled bit DEFAULT 1,
+  first_name varchar(255) DEFAULT NULL,
+  last_name varchar(255) DEFAULT NULL,
+  email varchar(255) DEFAULT NULL,
+  avatar varchar(255) DEFAULT NULL,
+  bio varchar(1000) DEFAULT NULL,
+  PRIMARY KEY (id),
+  CONSTRAINT uk_users_username UNIQUE (username)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+CREATE TABLE users_roles (
+  user_id bigint NOT NULL,
+  role_id bigint NOT NULL,
+  PRIMARY KEY (user_id, role_id),
+  CONSTRAINT fk_users_roles_user FOREIGN KEY (user_id) REFERENCES users (id),
+  CONSTRAINT fk_users_roles_role FOREIGN KEY (role_id) REFERENCES roles (id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+CREATE TABLE follows (
+  follower_id bigint NOT NULL,
+  followed_id bigint NOT NULL,
+  created_at timestamp NULL DEFAULT CURRENT_TIMESTAMP,
+  PRIMARY KEY (follower_id, followed_id),
+  CONSTRAINT fk_follows_follower FOREIGN KEY (follower_id) REFERENCES users (id),
+  CONSTRAINT fk_follows_followed FOREIGN KEY (followed_id) REFERENCES users (id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+CREATE TABLE ingredients (
+  id bigint NOT NULL AUTO_INCREMENT,
+  name varchar(255) NOT NULL,
+  icon varchar(255) DEFAULT NULL,
+  PRIMARY KEY (id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+CREATE TABLE recipes (
+  id bigint NOT NULL AUTO_INCREMENT,
+  name varchar(255) NOT NULL,
+  description text,
+  image varchar(255) DEFAULT NULL,
+  PRIMARY KEY (id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+CREATE TABLE recipe_ingredients (
+  recipe_id bigint NOT NULL,
+  ingredient_id bigint NOT NULL,
+  PRIMARY KEY (recipe_id, ingredient_id),
+  CONSTRAINT fk_recipe_ingredients_recipe FOREIGN KEY (recipe_id) REFERENCES recipes (id),
+  CONSTRAINT fk_recipe_ingredients_ingredient FOREIGN KEY (ingredient_id) REFERENCES ingredients (id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+CREATE TABLE steps (
+  id bigint NOT NULL AUTO_INCREMENT,
+  recipe_id bigint DEFAULT NULL,
+  step_number int NOT NULL,
+  description text NOT NULL,
+  PRIMARY KEY (id),
+  CONSTRAINT fk_steps_recipe FOREIGN KEY (recipe_id) REFERENCES recipes (id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+CREATE TABLE saved_recipes (
+  user_id bigint NOT NULL,
+  recipe_id bigint NOT NULL,
+  created_at timestamp NULL DEFAULT CURRENT_TIMESTAMP,
+  PRIMARY KEY (user_id, recipe_id),
+  CONSTRAINT fk_saved_recipes_user FOREIGN KEY (user_id) REFERENCES users (id),
+  CONSTRAINT fk_saved_recipes_recipe FOREIGN KEY (recipe_id) REFERENCES recipes (id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+CREATE TABLE posts (
+  id bigint NOT NULL AUTO_INCREMENT,
+  user_id bigint DEFAULT NULL,
+  recipe_id bigint DEFAULT NULL,
+  content text,
+  created_at datetime(6) DEFAULT NULL,
+  PRIMARY KEY (id),
+  CONSTRAINT fk_posts_user FOREIGN KEY (user_id) REFERENCES users (id),
+  CONSTRAINT fk_posts_recipe FOREIGN KEY (recipe_id) REFERENCES recipes (id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+CREATE TABLE likes (
+  user_id bigint NOT NULL,
+  post_id bigint NOT NULL,
+  created_at timestamp NULL DEFAULT CURRENT_TIMESTAMP,
+  PRIMARY KEY (post_id, user_id),
+  CONSTRAINT fk_likes_user FOREIGN KEY (user_id) REFERENCES users (id),
+  CONSTRAINT fk_likes_post FOREIGN KEY (post_id) REFERENCES posts (id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+CREATE TABLE comments (
+  id bigint NOT NULL AUTO_INCREMENT,
+  user_id bigint DEFAULT NULL,
+  post_id bigint DEFAULT NULL,
+  content text NOT NULL,
+  created_at datetime(6) DEFAULT NULL,
+  PRIMARY KEY (id),
+  CONSTRAINT fk_comments_user FOREIGN KEY (user_id) REFERENCES users (id),
+  CONSTRAINT fk_comments_post FOREIGN KEY (post_id) REFERENCES posts (id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+CREATE TABLE feedbacks (
+  id bigint NOT NULL AUTO_INCREMENT,
+  content varchar(255) NOT NULL,
+  user_id bigint NOT NULL,
+  recipe_id bigint NOT NULL,
+  created_at datetime(6) DEFAULT NULL,
+  updated_at datetime(6) DEFAULT NULL,
+  PRIMARY KEY (id),
+  CONSTRAINT fk_feedbacks_user FOREIGN KEY (user_id) REFERENCES users (id),
+  CONSTRAINT fk_feedbacks_recipe FOREIGN KEY (recipe_id) REFERENCES recipes (id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
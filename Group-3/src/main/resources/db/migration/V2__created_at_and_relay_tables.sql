@@ -0,0 +1,43 @@
+-- Các cột và bảng entity có thêm sau schema V1 (trước đây ddl-auto=update tự tạo).
+
+-- Thời điểm tạo người dùng / công thức cho thống kê theo ngày. Dòng cũ lấy theo hoạt động sớm nhất còn lưu
+-- (bài đăng, rồi bình luận); không có hoạt động nào thì để NULL vì không biết thời điểm tạo thật, các truy
+-- vấn created_at >= ? bỏ qua các dòng này thay vì dồn hết vào ngày chạy migration
+ALTER TABLE recipes ADD COLUMN created_at datetime(6) DEFAULT NULL;
+ALTER TABLE users ADD COLUMN created_at datetime(6) DEFAULT NULL;
+
+UPDATE recipes SET created_at = (SELECT MIN(p.created_at) FROM posts p WHERE p.recipe_id = recipes.id);
+UPDATE users SET created_at = (SELECT MIN(p.created_at) FROM posts p WHERE p.user_id = users.id);
+UPDATE users SET created_at = (SELECT MIN(c.created_at) FROM comments c WHERE c.user_id = users.id)
+WHERE created_at IS NULL;
+
+-- Lượt xem công thức được gộp trong bộ nhớ rồi ghi định kỳ (RecipeViewService)
+CREATE TABLE recipe_views (
+  recipe_id bigint NOT NULL,
+  view_count bigint NOT NULL,
+  PRIMARY KEY (recipe_id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+-- Trung chuyển sự kiện trực tiếp giữa các node khi live-events.relay=jdbc
+CREATE TABLE live_event_relay (
+  id bigint NOT NULL AUTO_INCREMENT,
+  origin varchar(64) NOT NULL,
+  payload text NOT NULL,
+  created_at datetime(6) NOT NULL,
+  PRIMARY KEY (id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+CREATE INDEX idx_live_event_relay_created_at ON live_event_relay (created_at);
+
+-- File dump (dumpnew/all.sql) không có bảng feedbacks: trước đây ddl-auto=update tạo khi ứng dụng khởi động
+CREATE TABLE IF NOT EXISTS feedbacks (
+  id bigint NOT NULL AUTO_INCREMENT,
+  content varchar(255) NOT NULL,
+  user_id bigint NOT NULL,
+  recipe_id bigint NOT NULL,
+  created_at datetime(6) DEFAULT NULL,
+  updated_at datetime(6) DEFAULT NULL,
+  PRIMARY KEY (id),
+  CONSTRAINT fk_feedbacks_user FOREIGN KEY (user_id) REFERENCES users (id),
+  CONSTRAINT fk_feedbacks_recipe FOREIGN KEY (recipe_id) REFERENCES recipes (id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
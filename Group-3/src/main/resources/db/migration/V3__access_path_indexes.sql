@@ -0,0 +1,28 @@
+-- Index cho các đường truy cập của repository (lọc theo khóa ngoại rồi sắp xếp theo thời gian),
+-- các truy vấn thống kê theo ngày (created_at >= ?) và các cột tra cứu theo giá trị duy nhất.
+
+-- Bài đăng theo công thức / theo người dùng / mới nhất
+CREATE INDEX idx_posts_recipe_created ON posts (recipe_id, created_at);
+CREATE INDEX idx_posts_user_created ON posts (user_id, created_at);
+CREATE INDEX idx_posts_created ON posts (created_at);
+
+-- Bình luận của một bài đăng theo thời gian
+CREATE INDEX idx_comments_post_created ON comments (post_id, created_at);
+CREATE INDEX idx_comments_created ON comments (created_at);
+
+-- Bài đăng một người đã thích (khóa chính bắt đầu bằng post_id)
+CREATE INDEX idx_likes_user ON likes (user_id);
+
+-- Công thức có một nguyên liệu
+CREATE INDEX idx_recipe_ingredients_ingredient ON recipe_ingredients (ingredient_id);
+
+-- Các bước của công thức theo thứ tự
+CREATE INDEX idx_steps_recipe_number ON steps (recipe_id, step_number);
+
+CREATE INDEX idx_recipes_created ON recipes (created_at);
+CREATE INDEX idx_users_created ON users (created_at);
+CREATE INDEX idx_ingredients_name ON ingredients (name);
+
+-- Email và tên quyền là duy nhất; migration sẽ dừng nếu dữ liệu cũ bị trùng, cần dọn trước khi chạy
+CREATE UNIQUE INDEX uk_users_email ON users (email);
+CREATE UNIQUE INDEX uk_roles_name ON roles (name);
@@ -0,0 +1,10 @@
+-- Bước nấu chuyển từ AUTO_INCREMENT sang cấp ID theo khối (hi/lo) để INSERT được gộp thành batch.
+-- next_val là ID đã cấp cuối cùng (hibernate.id.generator.stored_last_used=true).
+CREATE TABLE id_generators (
+  sequence_name varchar(255) NOT NULL,
+  next_val bigint DEFAULT NULL,
+  PRIMARY KEY (sequence_name)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+INSERT INTO id_generators (sequence_name, next_val)
+SELECT 'steps', COALESCE(MAX(id), 0) FROM steps;
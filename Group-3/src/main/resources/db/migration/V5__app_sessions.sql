@@ -0,0 +1,14 @@
+-- Session dùng chung giữa các node (app.session.store=jdbc). Thời gian lưu dạng epoch millis,
+-- attributes là dữ liệu nhị phân do SessionAttributeCodec mã hóa.
+CREATE TABLE app_sessions (
+  id varchar(64) NOT NULL,
+  created_at bigint NOT NULL,
+  last_access bigint NOT NULL,
+  max_inactive int NOT NULL,
+  expiry_at bigint NOT NULL,
+  version bigint NOT NULL,
+  attributes mediumblob,
+  PRIMARY KEY (id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+CREATE INDEX idx_app_sessions_expiry ON app_sessions (expiry_at);
@@ -0,0 +1,13 @@
+-- Outbox của InvalidationBus (cache-invalidation.transport=jdbc): ghi cùng transaction với thay đổi,
+-- các node khác đọc theo id tăng dần; dòng cũ hơn cache-invalidation.jdbc.retention bị xóa.
+CREATE TABLE cache_invalidation_outbox (
+  id bigint NOT NULL AUTO_INCREMENT,
+  origin varchar(64) NOT NULL,
+  entity_type varchar(32) NOT NULL,
+  entity_id bigint NOT NULL,
+  version bigint NOT NULL,
+  created_at datetime(6) NOT NULL,
+  PRIMARY KEY (id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+CREATE INDEX idx_cache_invalidation_outbox_created_at ON cache_invalidation_outbox (created_at);
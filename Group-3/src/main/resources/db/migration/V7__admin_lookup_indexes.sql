@@ -0,0 +1,3 @@
+-- Trang admin lọc và gợi ý công thức theo tiền tố tên (name LIKE 'abc%'), sắp xếp theo tên.
+-- username đã có uk_users_username, ingredients.name đã có idx_ingredients_name.
+CREATE INDEX idx_recipes_name ON recipes (name);
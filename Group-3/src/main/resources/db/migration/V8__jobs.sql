@@ -0,0 +1,27 @@
+-- Hàng đợi job nền (JobQueue): request chỉ ghi một dòng PENDING, worker của mọi node giành job bằng
+-- SELECT ... FOR UPDATE SKIP LOCKED. Job RUNNING giữ lease tới locked_until; node chết thì lease hết hạn
+-- và job được trả lại hàng đợi. Hết max_attempts lần thì chuyển DEAD, chờ admin chạy lại hoặc xóa.
+CREATE TABLE jobs (
+  id bigint NOT NULL AUTO_INCREMENT,
+  queue varchar(32) NOT NULL,
+  type varchar(64) NOT NULL,
+  payload text NOT NULL,
+  status varchar(16) NOT NULL,
+  attempts int NOT NULL,
+  max_attempts int NOT NULL,
+  run_at datetime(6) NOT NULL,
+  locked_by varchar(64) DEFAULT NULL,
+  locked_until datetime(6) DEFAULT NULL,
+  last_error varchar(1000) DEFAULT NULL,
+  result text,
+  created_at datetime(6) NOT NULL,
+  updated_at datetime(6) NOT NULL,
+  PRIMARY KEY (id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+-- Worker giành job: WHERE queue = ? AND status = 'PENDING' AND run_at <= ? ORDER BY run_at
+CREATE INDEX idx_jobs_queue_status_run_at ON jobs (queue, status, run_at);
+-- Thu hồi lease hết hạn (status = 'RUNNING' AND locked_until < ?)
+CREATE INDEX idx_jobs_status_locked_until ON jobs (status, locked_until);
+-- Dọn job đã xong cũ hơn job-queue.retention
+CREATE INDEX idx_jobs_status_updated_at ON jobs (status, updated_at);
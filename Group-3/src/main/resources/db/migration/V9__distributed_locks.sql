@@ -0,0 +1,13 @@
+-- Khóa phân tán theo lease (DistributedLock): mỗi tên khóa một dòng, được tạo lần đầu khi có node xin khóa.
+-- Node giành được khóa khi locked_until đã qua; mỗi lần giành token tăng thêm 1 (fencing token), nên node
+-- cũ mất lease không thể ghi đè kết quả của node giữ khóa hiện tại. released = FALSE mà locked_until đã qua
+-- nghĩa là node trước chết hoặc không gia hạn được lease.
+CREATE TABLE distributed_locks (
+  name varchar(100) NOT NULL,
+  owner varchar(64) DEFAULT NULL,
+  token bigint NOT NULL,
+  locked_until datetime(6) NOT NULL,
+  acquired_at datetime(6) DEFAULT NULL,
+  released boolean NOT NULL,
+  PRIMARY KEY (name)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
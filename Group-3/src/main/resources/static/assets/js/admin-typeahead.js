@@ -0,0 +1,98 @@
+// Ô gợi ý cho các trang admin: gõ tiền tố rồi gọi /admin/lookup/... (vài dòng) thay vì nhúng cả bảng vào trang.
+//   <input data-typeahead="/admin/lookup/users" data-typeahead-target="userId">
+//       chọn một: nhãn hiện trong ô, id ghi vào input ẩn #userId (phát sự kiện change)
+//   <input data-typeahead="/admin/lookup/ingredients" data-typeahead-chips="chips" data-typeahead-name="ingredients">
+//       chọn nhiều: mỗi lựa chọn là một chip trong #chips kèm input ẩn name="ingredients"
+(function () {
+  function debounce(fn, ms) {
+    let timer;
+    return function () {
+      clearTimeout(timer);
+      timer = setTimeout(fn, ms);
+    };
+  }
+
+  function addChip(container, name, id, label) {
+    if (container.querySelector('input[value="' + id + '"]')) {
+      return;
+    }
+    const chip = document.createElement('span');
+    chip.className = 'badge bg-primary me-1 mb-1';
+    chip.textContent = label + ' ';
+    const hidden = document.createElement('input');
+    hidden.type = 'hidden';
+    hidden.name = name;
+    hidden.value = id;
+    const remove = document.createElement('a');
+    remove.href = '#';
+    remove.className = 'text-white text-decoration-none';
+    remove.textContent = '×';
+    remove.addEventListener('click', function (e) {
+      e.preventDefault();
+      chip.remove();
+    });
+    chip.append(hidden, remove);
+    container.appendChild(chip);
+  }
+
+  function attach(input) {
+    const target = input.dataset.typeaheadTarget && document.getElementById(input.dataset.typeaheadTarget);
+    const chips = input.dataset.typeaheadChips && document.getElementById(input.dataset.typeaheadChips);
+    const menu = document.createElement('div');
+    menu.className = 'dropdown-menu w-100';
+    menu.style.top = '100%';
+    menu.style.left = '0';
+    input.parentNode.style.position = 'relative';
+    input.setAttribute('autocomplete', 'off');
+    input.after(menu);
+
+    function choose(option) {
+      if (chips) {
+        addChip(chips, input.dataset.typeaheadName, option.id, option.label);
+        input.value = '';
+      } else {
+        input.value = option.label;
+        target.value = option.id;
+        target.dispatchEvent(new Event('change'));
+      }
+      menu.classList.remove('show');
+    }
+
+    const search = debounce(function () {
+      fetch(input.dataset.typeahead + '?q=' + encodeURIComponent(input.value.trim()))
+        .then(response => response.ok ? response.json() : [])
+        .then(options => {
+          menu.innerHTML = '';
+          options.forEach(option => {
+            const item = document.createElement('button');
+            item.type = 'button';
+            item.className = 'dropdown-item';
+            item.textContent = option.label;
+            // mousedown chạy trước blur của ô nhập nên menu chưa bị ẩn khi chọn
+            item.addEventListener('mousedown', function (e) {
+              e.preventDefault();
+              choose(option);
+            });
+            menu.appendChild(item);
+          });
+          menu.classList.toggle('show', options.length > 0 && document.activeElement === input);
+        });
+    }, 200);
+
+    input.addEventListener('input', function () {
+      if (target) {
+        target.value = '';
+      }
+      search();
+    });
+    input.addEventListener('focus', search);
+    input.addEventListener('blur', function () {
+      menu.classList.remove('show');
+    });
+  }
+
+  window.AdminTypeahead = { addChip: addChip };
+  document.addEventListener('DOMContentLoaded', function () {
+    document.querySelectorAll('[data-typeahead]').forEach(attach);
+  });
+})();
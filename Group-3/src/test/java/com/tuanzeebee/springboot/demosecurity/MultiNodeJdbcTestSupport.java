@@ -0,0 +1,62 @@
+package com.tuanzeebee.springboot.demosecurity;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Nền cho test nhiều "node" (mỗi instance của component là một node) trên cùng một DB H2 đã chạy Flyway.
+ * Test không bọc trong transaction để thread của các node thấy dữ liệu đã commit của nhau; các bảng truyền
+ * vào constructor được xóa trước mỗi test, node đăng ký qua node(...) được dừng sau mỗi test.
+ */
+@DataJpaTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:multi-node;MODE=MySQL;DATABASE_TO_LOWER=TRUE",
+		"spring.datasource.username=sa",
+		"spring.datasource.password=",
+		"spring.jpa.hibernate.ddl-auto=validate",
+		"spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public abstract class MultiNodeJdbcTestSupport {
+
+	@Autowired
+	protected JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	protected PlatformTransactionManager transactionManager;
+
+	private final String[] tables;
+	private final List<Runnable> shutdowns = new ArrayList<>();
+
+	protected MultiNodeJdbcTestSupport(String... tables) {
+		this.tables = tables;
+	}
+
+	@BeforeEach
+	void clearTables() {
+		for (String table : tables) {
+			jdbcTemplate.update("DELETE FROM " + table);
+		}
+	}
+
+	@AfterEach
+	void stopNodes() {
+		shutdowns.forEach(Runnable::run);
+	}
+
+	protected <T> T node(T node, Consumer<T> shutdown) {
+		shutdowns.add(() -> shutdown.accept(node));
+		return node;
+	}
+}
@@ -0,0 +1,139 @@
+package com.tuanzeebee.springboot.demosecurity.activity;
+
+import com.tuanzeebee.springboot.demosecurity.dao.ActivityCountDTO;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ActivityLogTests {
+
+	private static final LocalDate DAY = LocalDate.of(2024, 3, 1);
+
+	@TempDir
+	Path directory;
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private final List<ActivityQueryService> queryServices = new ArrayList<>();
+
+	@AfterEach
+	void shutdown() {
+		queryServices.forEach(ActivityQueryService::shutdown);
+	}
+
+	@Test
+	void rollupsSurviveFlushAndReopen() throws Exception {
+		ActivityLog log = openLog(1024, 4);
+		log.record(at(DAY, 9), ActivityType.VIEW, "an", 10L, null, 1);
+		log.record(at(DAY, 10), ActivityType.VIEW, "binh", 10L, null, 2);
+		log.record(at(DAY, 11), ActivityType.VIEW, null, 11L, null, 3);
+		log.record(at(DAY, 12), ActivityType.LIKE, "an", 10L, 100L, 1);
+		log.record(at(DAY, 13), ActivityType.COMMENT, "binh", 11L, 101L, 2);
+		log.record(at(DAY.plusDays(1), 8), ActivityType.VIEW, "an", 11L, null, 1);
+		log.record(at(DAY.plusDays(1), 9), ActivityType.LOGIN, "chi", null, null, 4);
+		log.flush();
+
+		try (Stream<Path> files = Files.list(directory)) {
+			assertEquals(2, files.filter(file -> file.toString().endsWith(".seg")).count());
+		}
+
+		// Mở lại từ đĩa như sau khi khởi động lại
+		ActivityQueryService query = queryService(openLog(1024, 4));
+		LocalDate to = DAY.plusDays(2);
+
+		assertEquals(List.of(dto(DAY.toString(), 3), dto(DAY.plusDays(1).toString(), 1), dto(to.toString(), 0)),
+				query.countByDay(ActivityType.VIEW, DAY, to));
+		assertEquals(List.of(dto("10", 3), dto("11", 3)), query.countByRecipe(null, DAY, to, 10));
+		assertEquals(List.of(dto("an", 2), dto("binh", 1)), query.countByUser(ActivityType.VIEW, DAY, to, 10));
+		assertEquals(List.of(dto("an", 3)), query.countByUser(null, DAY, to, 1));
+		assertEquals(List.of(dto(DAY.toString(), 2), dto(DAY.plusDays(1).toString(), 2), dto(to.toString(), 0)),
+				query.dailyActiveUsers(DAY, to));
+		assertEquals(List.of(dto(DAY.minusDays(1).toString(), 0)),
+				query.countByDay(null, DAY.minusDays(1), DAY.minusDays(1)));
+	}
+
+	@Test
+	void dropsEventsInsteadOfBlockingWhenTheBufferIsFull() {
+		ActivityLog log = openLog(8, 8);
+		for (int i = 0; i < 12; i++) {
+			log.record(at(DAY, 9), ActivityType.VIEW, "an", 1L, null, 0);
+		}
+
+		assertEquals(8, meterRegistry.counter("app.activity.recorded").count());
+		assertEquals(4, meterRegistry.counter("app.activity.dropped").count());
+
+		log.flush();
+		log.record(at(DAY, 10), ActivityType.VIEW, "an", 1L, null, 0);
+		log.flush();
+		assertEquals(List.of(dto(DAY.toString(), 9)), queryService(log).countByDay(null, DAY, DAY));
+	}
+
+	@Test
+	void concurrentProducersLoseNothingThatFits() throws Exception {
+		ActivityLog log = openLog(1 << 16, 1 << 16);
+		int threads = 8;
+		int perThread = 2000;
+		CountDownLatch start = new CountDownLatch(1);
+		List<Thread> producers = new ArrayList<>();
+		for (int t = 0; t < threads; t++) {
+			String user = "user" + t;
+			Thread producer = new Thread(() -> {
+				try {
+					start.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				for (int i = 0; i < perThread; i++) {
+					log.record(at(DAY, 12), ActivityType.VIEW, user, (long) i % 50, null, 0);
+				}
+			});
+			producer.start();
+			producers.add(producer);
+		}
+		start.countDown();
+		for (Thread producer : producers) {
+			producer.join();
+		}
+		log.flush();
+
+		ActivityQueryService query = queryService(log);
+		assertEquals((long) threads * perThread, query.countByDay(ActivityType.VIEW, DAY, DAY).get(0).getCount());
+		List<ActivityCountDTO> byUser = query.countByUser(null, DAY, DAY, 100);
+		assertEquals(threads, byUser.size());
+		assertTrue(byUser.stream().allMatch(row -> row.getCount() == perThread));
+	}
+
+	private ActivityLog openLog(int bufferSize, int segmentRows) {
+		ActivityLog log = new ActivityLog(meterRegistry, true, directory.toString(), bufferSize, segmentRows,
+				Duration.ofSeconds(60), Duration.ofDays(90));
+		log.open();
+		return log;
+	}
+
+	private ActivityQueryService queryService(ActivityLog log) {
+		ActivityQueryService query = new ActivityQueryService(log, 2);
+		queryServices.add(query);
+		return query;
+	}
+
+	private static long at(LocalDate day, int hour) {
+		return day.atTime(hour, 0).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+	}
+
+	private static ActivityCountDTO dto(String key, long count) {
+		return ActivityCountDTO.of(key, count);
+	}
+}
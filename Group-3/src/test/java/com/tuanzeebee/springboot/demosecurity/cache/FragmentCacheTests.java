@@ -0,0 +1,97 @@
+package com.tuanzeebee.springboot.demosecurity.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.thymeleaf.TemplateEngine;
+import org.thymeleaf.spring6.SpringTemplateEngine;
+import org.thymeleaf.context.Context;
+import org.thymeleaf.templatemode.TemplateMode;
+import org.thymeleaf.templateresolver.ClassLoaderTemplateResolver;
+import org.thymeleaf.templateresolver.StringTemplateResolver;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FragmentCacheTests {
+
+	private static final String PAGE =
+			"<div cache:fragment=\"fragments/recipe :: detail-header\" cache:recipe=\"${recipe.id}\"></div>";
+
+	private final InvalidationBus bus = new InvalidationBus(new NoopInvalidationTransport(), new SimpleMeterRegistry(), 5000);
+
+	@Test
+	void servesCachedHtmlUntilEntityChanges() {
+		TemplateEngine engine = engine(65536);
+		Map<String, Object> recipe = recipe("Pho bo");
+
+		assertTrue(engine.process(PAGE, context(recipe)).contains("Pho bo"));
+		recipe.put("name", "Bun cha");
+		assertTrue(engine.process(PAGE, context(recipe)).contains("Pho bo"));
+
+		bus.publish(EntityChange.Type.RECIPE, 1L);
+
+		assertTrue(engine.process(PAGE, context(recipe)).contains("Bun cha"));
+	}
+
+	@Test
+	void ingredientChangeClearsRecipeFragments() {
+		TemplateEngine engine = engine(65536);
+		Map<String, Object> recipe = recipe("Pho bo");
+		engine.process(PAGE, context(recipe));
+		recipe.put("name", "Bun cha");
+
+		bus.publish(EntityChange.Type.INGREDIENT, 7L);
+
+		assertTrue(engine.process(PAGE, context(recipe)).contains("Bun cha"));
+	}
+
+	@Test
+	void doesNotCacheOversizedFragments() {
+		TemplateEngine engine = engine(10);
+		Map<String, Object> recipe = recipe("Pho bo");
+		engine.process(PAGE, context(recipe));
+		recipe.put("name", "Bun cha");
+
+		String html = engine.process(PAGE, context(recipe));
+
+		assertTrue(html.contains("Bun cha"));
+		assertFalse(html.contains("cache:fragment"));
+	}
+
+	private TemplateEngine engine(int maxFragmentChars) {
+		bus.startTransport();
+		ClassLoaderTemplateResolver files = new ClassLoaderTemplateResolver();
+		files.setPrefix("templates/");
+		files.setSuffix(".html");
+		files.setTemplateMode(TemplateMode.HTML);
+		files.setCheckExistence(true);
+		files.setOrder(1);
+		StringTemplateResolver strings = new StringTemplateResolver();
+		strings.setOrder(2);
+
+		TemplateEngine engine = new SpringTemplateEngine();
+		engine.addTemplateResolver(files);
+		engine.addTemplateResolver(strings);
+		engine.addDialect(new FragmentCacheDialect(new FragmentCache(bus, true, 100, maxFragmentChars)));
+		return engine;
+	}
+
+	private static Map<String, Object> recipe(String name) {
+		Map<String, Object> recipe = new HashMap<>();
+		recipe.put("id", 1L);
+		recipe.put("name", name);
+		recipe.put("description", "desc");
+		recipe.put("image", null);
+		return recipe;
+	}
+
+	private static Context context(Map<String, Object> recipe) {
+		Context context = new Context();
+		context.setVariable("recipe", recipe);
+		return context;
+	}
+
+}
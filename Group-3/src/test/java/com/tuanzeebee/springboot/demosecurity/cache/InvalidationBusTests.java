@@ -0,0 +1,107 @@
+package com.tuanzeebee.springboot.demosecurity.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class InvalidationBusTests {
+
+	private final RecordingTransport transport = new RecordingTransport();
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+	@Test
+	void invalidatesLocallyAndSendsToOtherNodes() {
+		InvalidationBus bus = startBus(5000);
+		LocalEntityCache<String> cache = recipeCache(bus);
+		cache.get(1L, id -> "v1");
+
+		bus.publish(EntityChange.Type.RECIPE, 1L);
+
+		assertEquals("v2", cache.get(1L, id -> "v2"));
+		assertEquals(1, transport.sent.size());
+		assertEquals(1, transport.sent.get(0).sequence());
+	}
+
+	@Test
+	void appliesRemoteChangesAndToleratesReordering() {
+		InvalidationBus bus = startBus(5000);
+		LocalEntityCache<String> cache = recipeCache(bus);
+		cache.get(1L, id -> "v1");
+		cache.get(2L, id -> "v1");
+
+		transport.sink.accept(change(1L, 1));
+		transport.sink.accept(change(2L, 3));
+		transport.sink.accept(change(2L, 2));
+		bus.expireGaps();
+
+		assertEquals(0, meterRegistry.counter("app.cache.invalidation.dropped").count());
+		assertEquals(3, meterRegistry.counter("app.cache.invalidation.received").count());
+		assertEquals("v2", cache.get(1L, id -> "v2"));
+	}
+
+	@Test
+	void clearsAllCachesWhenEventsAreLost() throws InterruptedException {
+		InvalidationBus bus = startBus(0);
+		LocalEntityCache<String> cache = recipeCache(bus);
+		cache.get(7L, id -> "v1");
+
+		transport.sink.accept(change(1L, 1));
+		transport.sink.accept(change(1L, 4));
+		Thread.sleep(5);
+		bus.expireGaps();
+
+		assertEquals(2, meterRegistry.counter("app.cache.invalidation.dropped").count());
+		assertEquals("v2", cache.get(7L, id -> "v2"));
+	}
+
+	@Test
+	void doesNotCacheValuesLoadedBeforeAnInvalidation() {
+		InvalidationBus bus = startBus(5000);
+		LocalEntityCache<String> cache = recipeCache(bus);
+
+		String loaded = cache.get(1L, id -> {
+			bus.publish(EntityChange.Type.RECIPE, 1L);
+			return "stale";
+		});
+
+		assertEquals("stale", loaded);
+		assertEquals("fresh", cache.get(1L, id -> "fresh"));
+		assertEquals(0, meterRegistry.counter("app.cache.invalidation.resyncs").count());
+	}
+
+	private InvalidationBus startBus(long gapGraceMillis) {
+		InvalidationBus bus = new InvalidationBus(transport, meterRegistry, gapGraceMillis);
+		bus.startTransport();
+		return bus;
+	}
+
+	private static LocalEntityCache<String> recipeCache(InvalidationBus bus) {
+		LocalEntityCache<String> cache = bus.createCache("recipes", 10);
+		bus.onChange(EntityChange.Type.RECIPE, cache::invalidate);
+		return cache;
+	}
+
+	private static EntityChange change(long id, long sequence) {
+		return new EntityChange(EntityChange.Type.RECIPE, id, System.currentTimeMillis(), "other-node", sequence);
+	}
+
+	private static class RecordingTransport implements InvalidationTransport {
+		private final List<EntityChange> sent = new ArrayList<>();
+		private Consumer<EntityChange> sink;
+
+		@Override
+		public void publish(List<EntityChange> changes) {
+			sent.addAll(changes);
+		}
+
+		@Override
+		public void start(Consumer<EntityChange> sink, Runnable resync) {
+			this.sink = sink;
+		}
+	}
+}
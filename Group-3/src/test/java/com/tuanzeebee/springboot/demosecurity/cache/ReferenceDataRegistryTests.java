@@ -0,0 +1,127 @@
+package com.tuanzeebee.springboot.demosecurity.cache;
+
+import com.tuanzeebee.springboot.demosecurity.dao.IngredientDTO;
+import com.tuanzeebee.springboot.demosecurity.entity.Ingredient;
+import com.tuanzeebee.springboot.demosecurity.entity.Role;
+import com.tuanzeebee.springboot.demosecurity.profiling.QueryBudget;
+import com.tuanzeebee.springboot.demosecurity.repository.IngredientRepository;
+import com.tuanzeebee.springboot.demosecurity.repository.RoleRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Không bọc test trong transaction: sự kiện của InvalidationBus được áp dụng ngay như khi service tự commit
+@DataJpaTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:reference-data;MODE=MySQL;DATABASE_TO_LOWER=TRUE",
+		"spring.datasource.username=sa",
+		"spring.datasource.password=",
+		"spring.jpa.hibernate.ddl-auto=validate",
+		"spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ReferenceDataRegistryTests {
+
+	@Autowired
+	private RoleRepository roleRepository;
+
+	@Autowired
+	private IngredientRepository ingredientRepository;
+
+	private final ResyncTransport transport = new ResyncTransport();
+	private InvalidationBus bus;
+	private ReferenceDataRegistry registry;
+
+	@BeforeEach
+	void loadRegistry() {
+		ingredientRepository.deleteAll();
+		if (roleRepository.count() == 0) {
+			Role role = new Role();
+			role.setName("USER");
+			roleRepository.save(role);
+		}
+		SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+		bus = new InvalidationBus(transport, meterRegistry, 5000);
+		bus.startTransport();
+		registry = new ReferenceDataRegistry(roleRepository, ingredientRepository, bus, meterRegistry);
+		registry.reload();
+	}
+
+	@Test
+	void lookupsNeverQueryTheDatabase() {
+		Ingredient saved = saveIngredient("Thịt bò");
+		bus.publish(EntityChange.Type.INGREDIENT, saved.getId());
+
+		QueryBudget.assertQueryCountAtMost(0, () -> {
+			assertEquals("USER", registry.findRoleByName(" user ").orElseThrow().getName());
+			assertTrue(registry.findRole(registry.getRoles().get(0).getId()).isPresent());
+			assertEquals(saved.getId(), registry.findIngredientByName("  THỊT   bò").orElseThrow().getId());
+			assertEquals("Thịt bò", registry.findIngredient(saved.getId()).orElseThrow().getName());
+			assertEquals(1, registry.getIngredients().size());
+		});
+	}
+
+	@Test
+	void changesSwapInANewSnapshot() {
+		Ingredient saved = saveIngredient("Hành");
+		bus.publish(EntityChange.Type.INGREDIENT, saved.getId());
+		List<IngredientDTO> before = registry.getIngredients();
+
+		// Bản trả ra là bản sao: sửa nó không ảnh hưởng registry
+		registry.findIngredient(saved.getId()).orElseThrow().setName("Tỏi");
+		saved.setName("Hành lá");
+		ingredientRepository.save(saved);
+		bus.publish(EntityChange.Type.INGREDIENT, saved.getId());
+
+		assertEquals("Hành", before.get(0).getName());
+		assertEquals("Hành lá", registry.findIngredient(saved.getId()).orElseThrow().getName());
+		assertFalse(registry.findIngredientByName("hành").isPresent());
+
+		ingredientRepository.deleteById(saved.getId());
+		bus.publish(EntityChange.Type.INGREDIENT, saved.getId());
+
+		assertTrue(registry.getIngredients().isEmpty());
+	}
+
+	@Test
+	void reloadsEverythingWhenEventsWereMissed() {
+		Ingredient saved = saveIngredient("Nước mắm");
+		assertFalse(registry.findIngredient(saved.getId()).isPresent());
+
+		transport.resync.run();
+
+		assertTrue(registry.findIngredientByName("nước mắm").isPresent());
+	}
+
+	private Ingredient saveIngredient(String name) {
+		Ingredient ingredient = new Ingredient();
+		ingredient.setName(name);
+		return ingredientRepository.save(ingredient);
+	}
+
+	private static class ResyncTransport implements InvalidationTransport {
+		private Runnable resync;
+
+		@Override
+		public void publish(List<EntityChange> changes) {
+		}
+
+		@Override
+		public void start(Consumer<EntityChange> sink, Runnable resync) {
+			this.resync = resync;
+		}
+	}
+
+}
@@ -0,0 +1,167 @@
+package com.tuanzeebee.springboot.demosecurity.config;
+
+import com.tuanzeebee.springboot.demosecurity.entity.Post;
+import com.tuanzeebee.springboot.demosecurity.entity.Recipe;
+import com.tuanzeebee.springboot.demosecurity.entity.User;
+import com.tuanzeebee.springboot.demosecurity.repository.PostRepository;
+import com.tuanzeebee.springboot.demosecurity.repository.RecipeRepository;
+import com.tuanzeebee.springboot.demosecurity.repository.UserRepository;
+import com.tuanzeebee.springboot.demosecurity.service.RecipeService;
+import com.tuanzeebee.springboot.demosecurity.service.StatsSnapshotService;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.orm.jpa.support.OpenEntityManagerInViewInterceptor;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.fail;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Open-in-view tắt: trang dùng người dùng đăng nhập (header, hồ sơ) phải render được chỉ với dữ liệu
+ * service dựng sẵn. LazyLoadGuard (đăng ký cho mọi test) biến mọi lần nạp lazy ngoài transaction thành lỗi.
+ */
+@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:open-in-view;MODE=MySQL;DATABASE_TO_LOWER=TRUE",
+		"spring.datasource.username=sa",
+		"spring.datasource.password=",
+		"spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+		"spring.jpa.show-sql=false",
+		"activity-log.dir=target/activity-log"
+})
+@AutoConfigureMockMvc
+class OpenInViewDisabledTests {
+
+	private static final String USERNAME = "lazyguard";
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private ApplicationContext applicationContext;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private PostRepository postRepository;
+
+	@Autowired
+	private RecipeRepository recipeRepository;
+
+	@Autowired
+	private RecipeService recipeService;
+
+	@Autowired
+	private StatsSnapshotService statsSnapshotService;
+
+	@BeforeEach
+	void createUserWithLazyAssociations() {
+		if (userRepository.existsByUsername(USERNAME)) {
+			return;
+		}
+		// Các tập lazy posts, followers, savedRecipes đều có dữ liệu để lần nạp lazy nào cũng phải chạy SQL
+		transactionTemplate.executeWithoutResult(status -> {
+			User follower = userRepository.save(newUser(USERNAME + "-follower"));
+			User user = userRepository.save(newUser(USERNAME));
+			Recipe recipe = new Recipe();
+			recipe.setName("Phở bò");
+			recipe = recipeRepository.save(recipe);
+			user.getSavedRecipes().add(recipe);
+			follower.getFollowing().add(user);
+			Post post = new Post();
+			post.setUser(user);
+			post.setRecipe(recipe);
+			post.setContent("Nấu thử");
+			postRepository.save(post);
+		});
+	}
+
+	@Test
+	void openEntityManagerInViewIsNotRegistered() {
+		assertEquals(0, applicationContext.getBeanNamesForType(OpenEntityManagerInViewInterceptor.class).length);
+	}
+
+	@Test
+	void profilePagesRenderFromPreparedViewModel() throws Exception {
+		mockMvc.perform(get("/profile").with(user(USERNAME)))
+				.andExpect(status().isOk())
+				.andExpect(content().string(containsString(USERNAME)));
+		mockMvc.perform(get("/profile/edit").with(user(USERNAME)))
+				.andExpect(status().isOk())
+				.andExpect(content().string(containsString(USERNAME + "@example.com")));
+		// Header của các trang khác lấy "user" từ interceptor trong WebMvcConfig
+		mockMvc.perform(get("/recipes").with(user(USERNAME)))
+				.andExpect(status().isOk());
+	}
+
+	@Test
+	void lazyLoadOutsideTransactionFailsTests() {
+		EntityManager entityManager = entityManagerFactory.createEntityManager();
+		try {
+			User user = entityManager.createQuery("SELECT u FROM User u WHERE u.username = :username", User.class)
+					.setParameter("username", USERNAME)
+					.getSingleResult();
+			assertThrows(IllegalStateException.class, () -> user.getFollowers().size());
+		} finally {
+			entityManager.close();
+		}
+	}
+
+	@Test
+	void recipeDeletionRefreshesDashboardAfterCommit() throws InterruptedException {
+		Long recipeId = transactionTemplate.execute(status -> {
+			Recipe recipe = new Recipe();
+			recipe.setName("Bún chả");
+			return recipeRepository.save(recipe).getId();
+		});
+		long remaining = recipeRepository.count() - 1;
+
+		transactionTemplate.executeWithoutResult(status -> {
+			recipeService.deleteRecipe(recipeId);
+			// Transaction còn mở lâu hơn một lần làm mới: làm mới ngay lúc này sẽ vẫn đếm công thức vừa xóa
+			try {
+				Thread.sleep(500);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		});
+
+		long deadline = System.currentTimeMillis() + 5000;
+		while (statsSnapshotService.getSnapshot().getTotalRecipes() != remaining) {
+			if (System.currentTimeMillis() > deadline) {
+				fail("Snapshot vẫn đếm " + statsSnapshotService.getSnapshot().getTotalRecipes() + " công thức");
+			}
+			Thread.sleep(20);
+		}
+	}
+
+	private static User newUser(String username) {
+		User user = new User();
+		user.setUsername(username);
+		user.setPassword("{noop}secret");
+		user.setFirstName("Lazy");
+		user.setLastName("Guard");
+		user.setEmail(username + "@example.com");
+		return user;
+	}
+
+}
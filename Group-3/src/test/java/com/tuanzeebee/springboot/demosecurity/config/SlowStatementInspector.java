@@ -0,0 +1,22 @@
+package com.tuanzeebee.springboot.demosecurity.config;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Giả lập độ trễ mạng tới DB thật: mỗi câu lệnh SQL chặn thread gọi thêm vài mili giây.
+ */
+public class SlowStatementInspector implements StatementInspector {
+
+	static final long LATENCY_MILLIS = 20;
+
+	@Override
+	public String inspect(String sql) {
+		try {
+			Thread.sleep(LATENCY_MILLIS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		return sql;
+	}
+
+}
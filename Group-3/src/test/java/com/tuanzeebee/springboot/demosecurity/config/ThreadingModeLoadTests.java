@@ -0,0 +1,100 @@
+package com.tuanzeebee.springboot.demosecurity.config;
+
+import com.tuanzeebee.springboot.demosecurity.DemosecurityApplication;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * So sánh throughput của GET /api/recipes giữa platform thread và virtual thread khi request
+ * bị chặn bởi I/O (mỗi câu SQL trễ thêm {@link SlowStatementInspector#LATENCY_MILLIS}ms).
+ * Tomcat chỉ có 20 thread, pool DB có 50 connection: platform thread bị giới hạn bởi Tomcat,
+ * virtual thread bị giới hạn bởi DB.
+ *
+ * Chạy bằng: mvn test -Pload-test (phần virtual thread cần JDK 21+).
+ */
+@Tag("load")
+class ThreadingModeLoadTests {
+
+	private static final Logger logger = LoggerFactory.getLogger(ThreadingModeLoadTests.class);
+
+	private static final int CLIENTS = 200;
+	private static final int REQUESTS = 4000;
+
+	@Test
+	void virtualThreadsOutperformPlatformThreadsOnBlockingRequests() throws Exception {
+		double platform = measureThroughput(false);
+		logger.info("platform threads: {} req/s", String.format("%.1f", platform));
+
+		assumeTrue(Runtime.version().feature() >= 21, "virtual thread cần JDK 21+");
+		double virtual = measureThroughput(true);
+		String summary = String.format("virtual threads: %.1f req/s, platform threads: %.1f req/s (x%.2f)",
+				virtual, platform, virtual / platform);
+		logger.info(summary);
+
+		assertTrue(virtual > platform, summary);
+	}
+
+	private double measureThroughput(boolean virtualThreads) throws Exception {
+		try (ConfigurableApplicationContext context = new SpringApplicationBuilder(DemosecurityApplication.class)
+				.run(
+						"--server.port=0",
+						"--server.tomcat.threads.max=20",
+						"--spring.threads.virtual.enabled=" + virtualThreads,
+						"--spring.datasource.url=jdbc:h2:mem:load-" + UUID.randomUUID() + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE",
+						"--spring.datasource.username=sa",
+						"--spring.datasource.password=",
+						"--spring.datasource.hikari.maximum-pool-size=50",
+						"--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+						"--spring.jpa.properties.hibernate.session_factory.statement_inspector="
+								+ SlowStatementInspector.class.getName(),
+						"--spring.jpa.show-sql=false",
+						"--logging.level.root=WARN",
+						// Giữ log kết quả đo của chính test khi ứng dụng hạ log gốc xuống WARN
+						"--logging.level." + ThreadingModeLoadTests.class.getName() + "=INFO")) {
+			URI uri = URI.create("http://localhost:" + context.getEnvironment().getProperty("local.server.port")
+					+ "/api/recipes");
+			HttpClient client = HttpClient.newHttpClient();
+			ExecutorService clients = Executors.newFixedThreadPool(CLIENTS);
+			try {
+				// Làm nóng JIT và pool trước khi đo
+				runRequests(client, clients, uri, CLIENTS);
+				long start = System.nanoTime();
+				runRequests(client, clients, uri, REQUESTS);
+				return REQUESTS / ((System.nanoTime() - start) / 1e9);
+			} finally {
+				clients.shutdownNow();
+			}
+		}
+	}
+
+	private void runRequests(HttpClient client, ExecutorService clients, URI uri, int count) throws Exception {
+		HttpRequest request = HttpRequest.newBuilder(uri).GET().build();
+		List<Future<Integer>> responses = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			responses.add(clients.submit(() -> client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode()));
+		}
+		for (Future<Integer> response : responses) {
+			assertEquals(200, response.get());
+		}
+	}
+
+}
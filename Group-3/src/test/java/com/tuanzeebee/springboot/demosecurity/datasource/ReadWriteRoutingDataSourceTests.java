@@ -0,0 +1,101 @@
+package com.tuanzeebee.springboot.demosecurity.datasource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Hai database H2 trong bộ nhớ đóng vai primary và replica, mỗi bên có một dòng đánh dấu khác nhau.
+ */
+class ReadWriteRoutingDataSourceTests {
+
+	private DriverManagerDataSource replica;
+	private JdbcTemplate jdbcTemplate;
+	private TransactionTemplate writeTx;
+	private TransactionTemplate readTx;
+	private ReadWriteRoutingDataSource routing;
+
+	@BeforeEach
+	void setUp() {
+		DataSource primary = h2("primary");
+		replica = h2("replica");
+		routing = new ReadWriteRoutingDataSource(primary, Map.of("replica-1", replica), Duration.ofSeconds(5), null);
+
+		DataSource dataSource = new LazyConnectionDataSourceProxy(routing);
+		jdbcTemplate = new JdbcTemplate(dataSource);
+		DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+		writeTx = new TransactionTemplate(transactionManager);
+		readTx = new TransactionTemplate(transactionManager);
+		readTx.setReadOnly(true);
+	}
+
+	@AfterEach
+	void tearDown() {
+		RequestContextHolder.resetRequestAttributes();
+	}
+
+	@Test
+	void routesReadOnlyTransactionsToReplica() {
+		assertEquals("replica", readMarker());
+		assertEquals("primary", writeTx.execute(status -> currentMarker()));
+	}
+
+	@Test
+	void readsOwnWritesFromPrimary() {
+		MockHttpServletRequest request = new MockHttpServletRequest();
+		request.getSession(true);
+		RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+		assertEquals("replica", readMarker());
+
+		writeTx.executeWithoutResult(status -> jdbcTemplate.update("update marker set name = name"));
+		assertEquals("primary", readMarker());
+
+		// Request tiếp theo của cùng session vẫn đọc từ primary
+		MockHttpServletRequest next = new MockHttpServletRequest();
+		next.setSession(request.getSession());
+		RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(next));
+		assertEquals("primary", readMarker());
+	}
+
+	@Test
+	void fallsBackToPrimaryWhenReplicaIsDown() {
+		replica.setUrl("jdbc:h2:mem:missing;IFEXISTS=TRUE");
+		routing.checkReplicaHealth();
+
+		assertEquals(0, routing.healthyReplicaCount());
+		assertEquals("primary", readMarker());
+	}
+
+	private String readMarker() {
+		return readTx.execute(status -> currentMarker());
+	}
+
+	private String currentMarker() {
+		return jdbcTemplate.queryForObject("select name from marker", String.class);
+	}
+
+	private static DriverManagerDataSource h2(String marker) {
+		DriverManagerDataSource dataSource = new DriverManagerDataSource(
+				"jdbc:h2:mem:" + marker + "-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+		JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+		jdbc.execute("create table marker (name varchar(20))");
+		jdbc.update("insert into marker values (?)", marker);
+		return dataSource;
+	}
+
+}
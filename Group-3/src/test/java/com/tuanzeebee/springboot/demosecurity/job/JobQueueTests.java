@@ -0,0 +1,162 @@
+package com.tuanzeebee.springboot.demosecurity.job;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tuanzeebee.springboot.demosecurity.MultiNodeJdbcTestSupport;
+import com.tuanzeebee.springboot.demosecurity.dao.JobDTO;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+// Mỗi JobQueue là một node; worker chạy trên thread riêng nên chỉ thấy job đã commit
+class JobQueueTests extends MultiNodeJdbcTestSupport {
+
+	JobQueueTests() {
+		super("jobs");
+	}
+
+	@Test
+	void runsCommittedJobsAndKeepsTheResult() {
+		JobQueue queue = node("default=1");
+		queue.register("echo", "default", payload -> "xin chào " + payload.get("name").asText());
+		queue.startWorkers();
+
+		long id = queue.enqueue("echo", Map.of("name", "An"));
+		// Transaction rollback thì job cũng không tồn tại
+		TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+		transaction.executeWithoutResult(status -> {
+			queue.enqueue("echo", Map.of("name", "Bình"));
+			status.setRollbackOnly();
+		});
+
+		await(() -> JobQueue.SUCCEEDED.equals(queue.getJob(id).getStatus()));
+		JobDTO job = queue.getJob(id);
+		assertEquals("xin chào An", job.getResult());
+		assertEquals(1, job.getAttempts());
+		assertEquals(1, queue.findJobs(null, null, 10).size());
+	}
+
+	@Test
+	void failedJobsBackOffThenGoToTheDeadLetterState() {
+		JobQueue queue = node("default=1");
+		AtomicBoolean broken = new AtomicBoolean(true);
+		queue.register("flaky", "default", 3, payload -> {
+			if (broken.get()) {
+				throw new IllegalStateException("hỏng");
+			}
+			return "ok";
+		});
+		queue.startWorkers();
+
+		long id = queue.enqueue("flaky", Map.of());
+		await(() -> JobQueue.DEAD.equals(queue.getJob(id).getStatus()));
+		JobDTO dead = queue.getJob(id);
+		assertEquals(3, dead.getAttempts());
+		assertEquals("IllegalStateException: hỏng", dead.getLastError());
+
+		broken.set(false);
+		assertTrue(queue.retry(id));
+		await(() -> JobQueue.SUCCEEDED.equals(queue.getJob(id).getStatus()));
+		assertFalse(queue.retry(id));
+	}
+
+	@Test
+	void deferredJobsWaitWithoutUsingAttempts() {
+		JobQueue queue = node("default=1");
+		AtomicInteger busyRuns = new AtomicInteger(5);
+		queue.register("import", "default", 2, payload -> {
+			if (busyRuns.getAndDecrement() > 0) {
+				throw new JobDeferredException("khóa đang bận", Duration.ofMillis(20));
+			}
+			return "ok";
+		});
+		long id = queue.enqueue("import", Map.of());
+		assertTrue(queue.hasActiveJob("import"));
+		queue.startWorkers();
+
+		// 5 lần hoãn vượt max_attempts = 2 nhưng job vẫn chạy xong ở lần thử đầu tiên
+		await(() -> JobQueue.SUCCEEDED.equals(queue.getJob(id).getStatus()));
+		assertEquals(1, queue.getJob(id).getAttempts());
+		assertFalse(queue.hasActiveJob("import"));
+	}
+
+	@Test
+	void workersOnSeveralNodesRunEachJobExactlyOnce() {
+		Map<Long, AtomicInteger> runs = new ConcurrentHashMap<>();
+		JobQueue first = node("default=4");
+		JobQueue second = node("default=4");
+		for (JobQueue queue : List.of(first, second)) {
+			queue.register("count", "default", payload -> {
+				runs.computeIfAbsent(payload.get("n").asLong(), n -> new AtomicInteger()).incrementAndGet();
+				Thread.sleep(2);
+				return null;
+			});
+		}
+		for (int n = 0; n < 200; n++) {
+			first.enqueue("count", Map.of("n", n));
+		}
+		first.startWorkers();
+		second.startWorkers();
+
+		await(() -> jdbcTemplate.queryForObject("SELECT COUNT(*) FROM jobs WHERE status = 'SUCCEEDED'",
+				Integer.class) == 200);
+		assertEquals(200, runs.size());
+		assertTrue(runs.values().stream().allMatch(count -> count.get() == 1));
+	}
+
+	@Test
+	void jobsOfADeadNodeAreReclaimedWhenTheLeaseExpires() {
+		JobQueue crashed = node("default=1");
+		crashed.register("work", "default", payload -> "xong");
+		long id = crashed.enqueue("work", Map.of());
+		assertNotNull(crashed.claim("default"));
+		// Node giành job rồi chết: lease không được gia hạn nữa
+		jdbcTemplate.update("UPDATE jobs SET locked_until = ? WHERE id = ?",
+				Timestamp.valueOf(LocalDateTime.now().minusSeconds(1)), id);
+
+		JobQueue survivor = node("default=1");
+		survivor.register("work", "default", payload -> "xong");
+		survivor.reclaimExpiredLeases();
+		assertEquals(JobQueue.PENDING, survivor.getJob(id).getStatus());
+		survivor.startWorkers();
+
+		await(() -> JobQueue.SUCCEEDED.equals(survivor.getJob(id).getStatus()));
+		assertEquals(2, survivor.getJob(id).getAttempts());
+	}
+
+	private JobQueue node(String queues) {
+		return node(new JobQueue(jdbcTemplate, transactionManager, new ObjectMapper(), new SimpleMeterRegistry(),
+				true, queues, Duration.ofMillis(20), Duration.ofMinutes(5), 5, Duration.ofMillis(10),
+				Duration.ofMillis(50), Duration.ofDays(7)), JobQueue::shutdown);
+	}
+
+	private static void await(BooleanSupplier condition) {
+		long deadline = System.currentTimeMillis() + 10_000;
+		while (!condition.getAsBoolean()) {
+			if (System.currentTimeMillis() > deadline) {
+				fail("Hết thời gian chờ job");
+			}
+			try {
+				Thread.sleep(20);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				fail("Bị ngắt khi chờ job");
+			}
+		}
+	}
+}
@@ -0,0 +1,143 @@
+package com.tuanzeebee.springboot.demosecurity.lock;
+
+import com.tuanzeebee.springboot.demosecurity.MultiNodeJdbcTestSupport;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Mỗi DistributedLock đóng vai một node với renew-interval riêng
+class DistributedLockTests extends MultiNodeJdbcTestSupport {
+
+	DistributedLockTests() {
+		super("distributed_locks");
+	}
+
+	@Test
+	void onlyOneNodeHoldsTheLockAndTokensIncrease() {
+		DistributedLock first = node(Duration.ofHours(1));
+		DistributedLock second = node(Duration.ofHours(1));
+
+		Lease lease = first.tryAcquire("cleanup");
+		assertNotNull(lease);
+		assertEquals(1, lease.getToken());
+		assertNull(second.tryAcquire("cleanup"));
+		assertTrue(second.isHeld("cleanup"));
+
+		first.release(lease);
+		assertFalse(first.isHeld("cleanup"));
+		Lease next = second.tryAcquire("cleanup");
+		assertNotNull(next);
+		assertEquals(2, next.getToken());
+		assertThrows(LeaseLostException.class, () -> first.checkValid(lease));
+		second.checkValid(next);
+	}
+
+	@Test
+	void expiredLeaseIsTakenOverAndTheOldHolderIsFenced() throws InterruptedException {
+		SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+		DistributedLock crashed = node(Duration.ofHours(1));
+		DistributedLock survivor = node(meterRegistry, Duration.ofHours(1));
+
+		Lease stale = crashed.tryAcquire("import", Duration.ofMillis(50));
+		AtomicBoolean stopped = new AtomicBoolean();
+		stale.onLost(() -> stopped.set(true));
+		Thread.sleep(100);
+
+		Lease lease = survivor.tryAcquire("import");
+		assertNotNull(lease);
+		assertEquals(stale.getToken() + 1, lease.getToken());
+		assertEquals(1.0, meterRegistry.counter("app.locks.expired", "lock", "import").count());
+
+		// Node cũ tỉnh lại: không ghi nhận được kết quả, công việc đang chạy bị dừng
+		assertThrows(LeaseLostException.class, () -> crashed.checkValid(stale));
+		assertTrue(stopped.get());
+		assertTrue(stale.isLost());
+		crashed.release(stale);
+		assertTrue(survivor.isHeld("import"));
+	}
+
+	@Test
+	void renewalKeepsALongRunningLeaseAlive() throws InterruptedException {
+		DistributedLock holder = node(Duration.ofMillis(50));
+		DistributedLock other = node(Duration.ofHours(1));
+
+		Lease lease = holder.tryAcquire("import", Duration.ofMillis(300));
+		Thread.sleep(900);
+
+		assertNull(other.tryAcquire("import"));
+		assertFalse(lease.isLost());
+		holder.checkValid(lease);
+	}
+
+	@Test
+	void minHoldKeepsOtherNodesOutForTheRestOfThePeriod() {
+		SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+		DistributedLock first = node(Duration.ofHours(1));
+		DistributedLock second = node(meterRegistry, Duration.ofHours(1));
+
+		first.release(first.tryAcquire("session-cleanup"), Duration.ofMinutes(1));
+
+		assertFalse(first.isHeld("session-cleanup"));
+		assertNull(second.tryAcquire("session-cleanup"));
+		assertEquals(1.0, meterRegistry.counter("app.locks.contended", "lock", "session-cleanup").count());
+	}
+
+	@Test
+	void concurrentNodesNeverHoldTheLockAtTheSameTime() throws InterruptedException {
+		List<DistributedLock> cluster = List.of(node(Duration.ofHours(1)), node(Duration.ofHours(1)),
+				node(Duration.ofHours(1)));
+		AtomicInteger holders = new AtomicInteger();
+		AtomicInteger overlaps = new AtomicInteger();
+		ConcurrentLinkedQueue<Long> tokens = new ConcurrentLinkedQueue<>();
+		CountDownLatch done = new CountDownLatch(6);
+		for (int i = 0; i < 6; i++) {
+			DistributedLock lock = cluster.get(i % cluster.size());
+			new Thread(() -> {
+				try {
+					for (int attempt = 0; attempt < 40; attempt++) {
+						Lease lease = lock.tryAcquire("maintenance");
+						if (lease == null) {
+							continue;
+						}
+						if (holders.incrementAndGet() > 1) {
+							overlaps.incrementAndGet();
+						}
+						tokens.add(lease.getToken());
+						holders.decrementAndGet();
+						lock.release(lease);
+					}
+				} finally {
+					done.countDown();
+				}
+			}).start();
+		}
+		done.await();
+
+		assertEquals(0, overlaps.get());
+		assertFalse(tokens.isEmpty());
+		// Mỗi lần giành khóa có token riêng
+		assertEquals(tokens.size(), tokens.stream().distinct().count());
+	}
+
+	private DistributedLock node(Duration renewInterval) {
+		return node(new SimpleMeterRegistry(), renewInterval);
+	}
+
+	private DistributedLock node(SimpleMeterRegistry meterRegistry, Duration renewInterval) {
+		return node(new DistributedLock(jdbcTemplate, transactionManager, meterRegistry, Duration.ofMinutes(1),
+				renewInterval), DistributedLock::shutdown);
+	}
+}
@@ -0,0 +1,47 @@
+package com.tuanzeebee.springboot.demosecurity.profiling;
+
+import org.hibernate.boot.Metadata;
+import org.hibernate.boot.spi.BootstrapContext;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.InitializeCollectionEventListener;
+import org.hibernate.event.spi.LoadEventListener;
+import org.hibernate.integrator.spi.Integrator;
+import org.hibernate.service.spi.SessionFactoryServiceRegistry;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Làm fail test khi một tập lazy hoặc proxy được nạp ngoài transaction Spring, tức là code đang dựa vào
+ * session còn mở sau khi service trả về (open-in-view, EntityManager tự mở) thay vì dựng DTO trong
+ * method {@code @Transactional}. Đăng ký cho mọi test qua META-INF/services.
+ */
+public class LazyLoadGuard implements Integrator {
+
+    @Override
+    public void integrate(Metadata metadata, BootstrapContext bootstrapContext, SessionFactoryImplementor sessionFactory) {
+        EventListenerRegistry registry = sessionFactory.getServiceRegistry().getService(EventListenerRegistry.class);
+        // Tập EAGER (User.roles) cũng đi qua INIT_COLLECTION khi được nạp bằng câu lệnh riêng, chỉ xét tập lazy
+        registry.prependListeners(EventType.INIT_COLLECTION, (InitializeCollectionEventListener) event -> {
+            String role = event.getCollection().getRole();
+            if (sessionFactory.getMappingMetamodel().getCollectionDescriptor(role).isLazy()) {
+                check("tập " + role);
+            }
+        });
+        registry.prependListeners(EventType.LOAD, (LoadEventListener) (event, loadType) -> {
+            if (loadType == LoadEventListener.IMMEDIATE_LOAD) {
+                check("proxy " + event.getEntityClassName() + "#" + event.getEntityId());
+            }
+        });
+    }
+
+    @Override
+    public void disintegrate(SessionFactoryImplementor sessionFactory, SessionFactoryServiceRegistry serviceRegistry) {
+    }
+
+    private static void check(String what) {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("Nạp lazy " + what + " ngoài transaction");
+        }
+    }
+}
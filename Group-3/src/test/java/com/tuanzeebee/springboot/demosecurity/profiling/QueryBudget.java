@@ -0,0 +1,60 @@
+package com.tuanzeebee.springboot.demosecurity.profiling;
+
+import org.springframework.test.web.servlet.MvcResult;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Assertion cho "ngân sách" câu lệnh SQL trong test.
+ *
+ * <pre>
+ * MvcResult result = mockMvc.perform(get("/api/posts")).andReturn();
+ * QueryBudget.assertQueryCountAtMost(result, 3);
+ * QueryBudget.assertNoNPlusOne(result);
+ *
+ * QueryBudget.assertQueryCountAtMost(2, () -&gt; recipeService.getRecipeById(1L));
+ * </pre>
+ */
+public final class QueryBudget {
+
+    private static final int DEFAULT_THRESHOLD = 10;
+
+    private QueryBudget() {
+    }
+
+    public static QueryProfile profile(Runnable action) {
+        QueryProfile profile = QueryProfile.start(DEFAULT_THRESHOLD);
+        try {
+            action.run();
+        } finally {
+            QueryProfile.stop();
+        }
+        return profile;
+    }
+
+    public static void assertQueryCountAtMost(int max, Runnable action) {
+        assertAtMost(profile(action), max);
+    }
+
+    public static void assertQueryCountAtMost(MvcResult result, int max) {
+        assertAtMost(profileOf(result), max);
+    }
+
+    public static void assertNoNPlusOne(MvcResult result) {
+        QueryProfile profile = profileOf(result);
+        assertTrue(profile.getSuspectedNPlusOne().isEmpty(),
+                () -> "Phát hiện nghi vấn N+1: " + profile.getSuspectedNPlusOne());
+    }
+
+    private static QueryProfile profileOf(MvcResult result) {
+        Object profile = result.getRequest().getAttribute(QueryProfilingFilter.PROFILE_ATTRIBUTE);
+        assertNotNull(profile, "Request không đi qua QueryProfilingFilter");
+        return (QueryProfile) profile;
+    }
+
+    private static void assertAtMost(QueryProfile profile, int max) {
+        assertTrue(profile.getStatementCount() <= max,
+                () -> "Vượt ngân sách SQL: " + profile.getStatementCount() + " câu lệnh (tối đa " + max + ")");
+    }
+}
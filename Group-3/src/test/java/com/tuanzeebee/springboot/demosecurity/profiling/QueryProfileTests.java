@@ -0,0 +1,55 @@
+package com.tuanzeebee.springboot.demosecurity.profiling;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class QueryProfileTests {
+
+	private final QueryCountInspector inspector = new QueryCountInspector();
+
+	@Test
+	void countsStatementsOnlyWhileProfiling() {
+		inspector.inspect("select 1");
+
+		QueryProfile profile = QueryBudget.profile(() -> {
+			inspector.inspect("select * from recipes where id=?");
+			inspector.inspect("select * from steps where recipe_id=?");
+		});
+
+		assertEquals(2, profile.getStatementCount());
+		assertNull(QueryProfile.current());
+	}
+
+	@Test
+	void flagsRepeatedStatementShapesAsNPlusOne() {
+		QueryProfile profile = QueryBudget.profile(() -> {
+			inspector.inspect("select * from posts");
+			for (int i = 0; i < 12; i++) {
+				inspector.inspect("select * from users  where id=?");
+			}
+		});
+
+		assertEquals(1, profile.getSuspectedNPlusOne().size());
+		assertEquals(12, profile.getSuspectedNPlusOne().get("select * from users where id=?"));
+		assertNotNull(profile.getCallSite("select * from users where id=?"));
+	}
+
+	@Test
+	void treatsInListsOfDifferentLengthAsOneShape() {
+		assertEquals(QueryProfile.normalize("select * from recipes where id in (?, ?)"),
+				QueryProfile.normalize("select * from recipes where id in (?,?,?,?)"));
+	}
+
+	@Test
+	void failsWhenBudgetIsExceeded() {
+		assertThrows(AssertionError.class, () -> QueryBudget.assertQueryCountAtMost(1, () -> {
+			inspector.inspect("select 1");
+			inspector.inspect("select 2");
+		}));
+	}
+
+}
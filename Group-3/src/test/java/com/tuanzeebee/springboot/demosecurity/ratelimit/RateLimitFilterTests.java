@@ -0,0 +1,62 @@
+package com.tuanzeebee.springboot.demosecurity.ratelimit;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class RateLimitFilterTests {
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private final RateLimitFilter filter = new RateLimitFilter(properties(), meterRegistry);
+
+	@AfterEach
+	void clearUser() {
+		SecurityContextHolder.clearContext();
+	}
+
+	@Test
+	void requestsRejectedByIpDoNotSpendTheUserBudget() throws Exception {
+		SecurityContextHolder.getContext().setAuthentication(
+				UsernamePasswordAuthenticationToken.authenticated("u1", null, List.of()));
+
+		// IP chỉ cho 2 request; 3 request sau bị chặn theo IP
+		for (int i = 0; i < 5; i++) {
+			assertEquals(i < 2 ? 200 : 429, post("10.0.0.1"));
+		}
+		// Người dùng còn 1 trong 3 token khi chuyển sang mạng khác, sau đó mới bị chặn theo người dùng
+		assertEquals(200, post("10.0.0.2"));
+		assertEquals(429, post("10.0.0.2"));
+		assertEquals(1.0, meterRegistry.counter("app.rate-limit.rejected", "policy", "posts", "key", "user").count());
+		assertEquals(3.0, meterRegistry.counter("app.rate-limit.rejected", "policy", "posts", "key", "ip").count());
+	}
+
+	private int post(String remoteAddr) throws Exception {
+		MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/posts");
+		request.setRemoteAddr(remoteAddr);
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		filter.doFilter(request, response, new MockFilterChain());
+		return response.getStatus();
+	}
+
+	private static RateLimitProperties properties() {
+		RateLimitProperties.Policy policy = new RateLimitProperties.Policy();
+		policy.setName("posts");
+		policy.setPaths(List.of("/api/posts/**"));
+		policy.setCapacity(3);
+		policy.setRefillPerSecond(0.001);
+		policy.setIpCapacity(2);
+		policy.setIpRefillPerSecond(0.001);
+		RateLimitProperties properties = new RateLimitProperties();
+		properties.setPolicies(List.of(policy));
+		return properties;
+	}
+}
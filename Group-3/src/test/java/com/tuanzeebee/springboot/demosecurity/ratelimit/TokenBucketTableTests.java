@@ -0,0 +1,71 @@
+package com.tuanzeebee.springboot.demosecurity.ratelimit;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TokenBucketTableTests {
+
+	private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+	// 5 request liên tiếp, sau đó 1 request/giây
+	private static final long INTERVAL = SECOND;
+	private static final long BURST = 4 * SECOND;
+
+	private final TokenBucketTable table = new TokenBucketTable(4);
+	private final TokenBucketTable.BucketKey key = new TokenBucketTable.BucketKey(0, true, "u1");
+
+	@Test
+	void allowsBurstThenReportsWaitUntilNextToken() {
+		long now = 1_000 * SECOND;
+		for (int i = 0; i < 5; i++) {
+			assertEquals(0, table.tryAcquire(key, INTERVAL, BURST, now));
+		}
+
+		assertEquals(SECOND, table.tryAcquire(key, INTERVAL, BURST, now));
+		assertEquals(SECOND / 2, table.tryAcquire(key, INTERVAL, BURST, now + SECOND / 2));
+		assertEquals(0, table.tryAcquire(key, INTERVAL, BURST, now + SECOND));
+	}
+
+	@Test
+	void refillsLazilyUpToCapacity() {
+		long now = 1_000 * SECOND;
+		for (int i = 0; i < 5; i++) {
+			table.tryAcquire(key, INTERVAL, BURST, now);
+		}
+
+		long later = now + 60 * SECOND;
+		for (int i = 0; i < 5; i++) {
+			assertEquals(0, table.tryAcquire(key, INTERVAL, BURST, later));
+		}
+		assertTrue(table.tryAcquire(key, INTERVAL, BURST, later) > 0);
+	}
+
+	@Test
+	void keepsSubjectsIndependent() {
+		long now = 1_000 * SECOND;
+		for (int i = 0; i < 5; i++) {
+			table.tryAcquire(key, INTERVAL, BURST, now);
+		}
+
+		assertEquals(0, table.tryAcquire(new TokenBucketTable.BucketKey(0, true, "u2"), INTERVAL, BURST, now));
+		assertEquals(0, table.tryAcquire(new TokenBucketTable.BucketKey(0, false, "u1"), INTERVAL, BURST, now));
+	}
+
+	@Test
+	void evictsOnlyBucketsIdleSinceRefilled() {
+		long now = 1_000 * SECOND;
+		table.tryAcquire(key, INTERVAL, BURST, now);
+		table.tryAcquire(new TokenBucketTable.BucketKey(0, true, "u2"), INTERVAL, BURST, now + 100 * SECOND);
+
+		int evicted = 0;
+		for (int i = 0; i < table.stripeCount(); i++) {
+			evicted += table.evictIdle(now + 100 * SECOND, 60 * SECOND);
+		}
+
+		assertEquals(1, evicted);
+		assertEquals(1, table.size());
+	}
+}
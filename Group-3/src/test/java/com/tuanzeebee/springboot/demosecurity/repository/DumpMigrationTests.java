@@ -0,0 +1,119 @@
+package com.tuanzeebee.springboot.demosecurity.repository;
+
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.MigrationInfo;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Database cũ nạp từ dumpnew/all.sql (kèm vài dòng dữ liệu) được Flyway baseline ở version 1 rồi chạy tiếp các
+ * migration tới bản mới nhất; context chỉ lên được khi schema sau migration khớp entity (ddl-auto=validate).
+ */
+@DataJpaTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:dump-migration;MODE=MySQL;DATABASE_TO_LOWER=TRUE",
+		"spring.datasource.username=sa",
+		"spring.datasource.password=",
+		"spring.jpa.hibernate.ddl-auto=validate",
+		"spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class DumpMigrationTests {
+
+	private static final LocalDateTime FIRST_POST = LocalDateTime.of(2025, 4, 1, 10, 0);
+
+	@Autowired
+	private Flyway flyway;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Test
+	void baselinedDumpIsMigratedToTheLatestVersion() {
+		MigrationInfo[] applied = flyway.info().applied();
+		assertEquals("1", applied[0].getVersion().getVersion());
+		assertEquals("BASELINE", applied[0].getType().name());
+		assertEquals(0, flyway.info().pending().length);
+		MigrationInfo[] all = flyway.info().all();
+		assertEquals(all[all.length - 1].getVersion(), flyway.info().current().getVersion());
+	}
+
+	@Test
+	void createdAtIsBackfilledFromTheEarliestActivity() {
+		assertEquals(Timestamp.valueOf(FIRST_POST),
+				jdbcTemplate.queryForObject("SELECT created_at FROM recipes WHERE id = 1", Timestamp.class));
+		assertEquals(Timestamp.valueOf(FIRST_POST),
+				jdbcTemplate.queryForObject("SELECT created_at FROM users WHERE id = 1", Timestamp.class));
+		// Người dùng chưa có hoạt động nào: không đoán thời điểm tạo
+		assertNull(jdbcTemplate.queryForObject("SELECT created_at FROM users WHERE id = 2", Timestamp.class));
+		assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM recipe_views", Integer.class));
+	}
+
+	@TestConfiguration
+	static class DumpLoader {
+
+		@Bean
+		FlywayMigrationStrategy loadDumpThenMigrate() {
+			return flyway -> {
+				loadDump(new JdbcTemplate(flyway.getConfiguration().getDataSource()));
+				flyway.migrate();
+			};
+		}
+
+		private static void loadDump(JdbcTemplate jdbcTemplate) {
+			String dump;
+			try {
+				dump = Files.readString(Path.of("dumpnew/all.sql"));
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			// Tên index trong H2 là duy nhất cả schema (MySQL: trong từng bảng) nên bỏ các KEY thường của dump;
+			// driver MySQL báo tinyint(1) là BIT, H2 thì không nên đổi sẵn sang bit.
+			// File dump tạo bảng trước bảng mà khóa ngoại của nó trỏ tới: chạy lại các câu lỗi tới khi hết
+			String statements = dump.replaceAll("(?m)^/$", "").replaceAll("(?m)^\s*KEY .*\n", "")
+					.replace("tinyint(1)", "bit");
+			List<String> pending = new ArrayList<>(Arrays.stream(statements.split(";"))
+					.map(String::strip)
+					.filter(sql -> sql.startsWith("CREATE TABLE"))
+					.toList());
+			while (!pending.isEmpty()) {
+				List<String> failed = new ArrayList<>();
+				for (String sql : pending) {
+					try {
+						jdbcTemplate.execute(sql);
+					} catch (RuntimeException e) {
+						failed.add(sql);
+					}
+				}
+				if (failed.size() == pending.size()) {
+					throw new IllegalStateException("Không nạp được file dump: " + failed);
+				}
+				pending = failed;
+			}
+			jdbcTemplate.update("INSERT INTO users (id, username, password) VALUES (1, 'an', 'x'), (2, 'binh', 'x')");
+			jdbcTemplate.update("INSERT INTO recipes (id, name) VALUES (1, 'Phở')");
+			jdbcTemplate.update("INSERT INTO posts (user_id, recipe_id, content, created_at) VALUES (1, 1, 'Ngon', ?)",
+					Timestamp.valueOf(FIRST_POST));
+			jdbcTemplate.update("INSERT INTO posts (user_id, recipe_id, content, created_at) VALUES (1, 1, 'Lại ngon', ?)",
+					Timestamp.valueOf(FIRST_POST.plusDays(3)));
+		}
+	}
+}
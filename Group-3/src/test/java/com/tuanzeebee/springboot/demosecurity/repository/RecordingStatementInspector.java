@@ -0,0 +1,27 @@
+package com.tuanzeebee.springboot.demosecurity.repository;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Ghi lại các câu SQL Hibernate sinh ra trên thread hiện tại để test có thể EXPLAIN lại chúng.
+ */
+public class RecordingStatementInspector implements StatementInspector {
+
+	private static final ThreadLocal<List<String>> RECORDED = ThreadLocal.withInitial(ArrayList::new);
+
+	@Override
+	public String inspect(String sql) {
+		RECORDED.get().add(sql);
+		return sql;
+	}
+
+	static List<String> drain() {
+		List<String> statements = new ArrayList<>(RECORDED.get());
+		RECORDED.get().clear();
+		return statements;
+	}
+
+}
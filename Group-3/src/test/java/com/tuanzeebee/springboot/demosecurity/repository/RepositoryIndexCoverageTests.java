@@ -0,0 +1,175 @@
+package com.tuanzeebee.springboot.demosecurity.repository;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.repository.support.Repositories;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.sql.ParameterMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Chạy migration Flyway trên H2 (MODE=MySQL), gọi mọi finder khai báo trong package repository
+ * rồi EXPLAIN từng câu SQL Hibernate sinh ra: câu lệnh có điều kiện lọc không được quét toàn bảng,
+ * câu lệnh liệt kê toàn bộ có ORDER BY phải đọc theo thứ tự của index.
+ */
+@DataJpaTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:index-coverage;MODE=MySQL;DATABASE_TO_LOWER=TRUE",
+		"spring.datasource.username=sa",
+		"spring.datasource.password=",
+		"spring.jpa.hibernate.ddl-auto=validate",
+		"spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+		"spring.jpa.properties.hibernate.session_factory.statement_inspector="
+				+ "com.tuanzeebee.springboot.demosecurity.repository.RecordingStatementInspector"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class RepositoryIndexCoverageTests {
+
+	private static final Set<String> FINDER_PREFIXES = Set.of("find", "exists", "count", "get", "read", "query");
+
+	@Autowired
+	private ApplicationContext applicationContext;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Test
+	void everyRepositoryFinderIsBackedByAnIndex() throws Exception {
+		List<String> violations = new ArrayList<>();
+		int checked = 0;
+		Repositories repositories = new Repositories(applicationContext);
+		for (Class<?> domainType : repositories) {
+			Class<?> repositoryInterface = repositories.getRepositoryInformationFor(domainType)
+					.orElseThrow().getRepositoryInterface();
+			if (!repositoryInterface.getPackageName().equals(getClass().getPackageName())) {
+				continue;
+			}
+			Object repository = repositories.getRepositoryFor(domainType).orElseThrow();
+			for (Method method : repositoryInterface.getDeclaredMethods()) {
+				if (!isFinder(method)) {
+					continue;
+				}
+				RecordingStatementInspector.drain();
+				method.invoke(repository, argumentsFor(method));
+				List<String> statements = RecordingStatementInspector.drain();
+				assertFalse(statements.isEmpty(), "Không ghi nhận được SQL cho " + method);
+				for (String sql : statements) {
+					String plan = explain(sql);
+					String problem = problemWith(sql, plan);
+					if (problem != null) {
+						violations.add(repositoryInterface.getSimpleName() + "." + method.getName()
+								+ ": " + problem + "\n    " + plan.replace("\n", "\n    "));
+					}
+				}
+				checked++;
+			}
+		}
+		assertTrue(checked > 0, "Không tìm thấy finder nào trong package repository");
+		assertTrue(violations.isEmpty(), "Finder không dùng index:\n" + String.join("\n", violations));
+	}
+
+	private boolean isFinder(Method method) {
+		if (method.isDefault() || Modifier.isStatic(method.getModifiers()) || method.isSynthetic()) {
+			return false;
+		}
+		return FINDER_PREFIXES.stream().anyMatch(method.getName()::startsWith);
+	}
+
+	private Object[] argumentsFor(Method method) {
+		Class<?>[] types = method.getParameterTypes();
+		Object[] args = new Object[types.length];
+		for (int i = 0; i < types.length; i++) {
+			Class<?> type = types[i];
+			if (type == Long.class || type == long.class) {
+				args[i] = 1L;
+			} else if (type == Integer.class || type == int.class) {
+				args[i] = 1;
+			} else if (type == String.class) {
+				args[i] = "x";
+			} else if (Collection.class.isAssignableFrom(type)) {
+				args[i] = List.of(1L, 2L);
+			} else if (type == LocalDateTime.class) {
+				args[i] = LocalDateTime.now().minusDays(7);
+			} else if (type == Pageable.class) {
+				args[i] = PageRequest.of(0, 10);
+			} else {
+				throw new IllegalArgumentException("Chưa hỗ trợ tham số " + type + " của " + method);
+			}
+		}
+		return args;
+	}
+
+	// H2 suy ra kiểu tham số từ cột được so sánh; tham số không suy ra được thì dùng số
+	private String explain(String sql) {
+		return jdbcTemplate.execute("EXPLAIN " + sql, (PreparedStatement statement) -> {
+			ParameterMetaData parameters = statement.getParameterMetaData();
+			for (int i = 1; i <= parameters.getParameterCount(); i++) {
+				int type = parameters.getParameterType(i);
+				if (type == Types.TIMESTAMP || type == Types.TIMESTAMP_WITH_TIMEZONE || type == Types.DATE) {
+					statement.setTimestamp(i, Timestamp.valueOf(LocalDateTime.now()));
+				} else if (type == Types.VARCHAR || type == Types.CHAR) {
+					statement.setString(i, "x");
+				} else {
+					statement.setLong(i, 1L);
+				}
+			}
+			StringBuilder plan = new StringBuilder();
+			try (ResultSet rs = statement.executeQuery()) {
+				while (rs.next()) {
+					plan.append(rs.getString(1));
+				}
+			}
+			return plan.toString();
+		});
+	}
+
+	private String problemWith(String sql, String plan) {
+		String lowerPlan = plan.toLowerCase();
+		if (!lowerPlan.contains("tablescan")) {
+			return null;
+		}
+		String outerSql = withoutSubqueries(sql.toLowerCase());
+		if (outerSql.contains(" where ")) {
+			return "quét toàn bảng dù có điều kiện lọc";
+		}
+		if (outerSql.contains(" order by ") && !lowerPlan.contains("index sorted")) {
+			return "quét toàn bảng và sắp xếp lại thay vì đọc theo index";
+		}
+		return null;
+	}
+
+	// Bỏ phần trong ngoặc (subquery, danh sách IN) để chỉ xét WHERE / ORDER BY của câu lệnh ngoài cùng
+	private String withoutSubqueries(String sql) {
+		StringBuilder outer = new StringBuilder(sql.length());
+		int depth = 0;
+		for (char c : sql.toCharArray()) {
+			if (c == '(') {
+				depth++;
+			} else if (c == ')') {
+				depth--;
+			} else if (depth == 0) {
+				outer.append(c);
+			}
+		}
+		return outer.toString();
+	}
+
+}
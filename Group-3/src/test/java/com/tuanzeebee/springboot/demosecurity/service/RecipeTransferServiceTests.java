@@ -0,0 +1,94 @@
+package com.tuanzeebee.springboot.demosecurity.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+
+// Import ghi từng lô trong transaction riêng trên H2 đã chạy Flyway, test không bọc trong transaction
+@DataJpaTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:recipe-transfer;MODE=MySQL;DATABASE_TO_LOWER=TRUE",
+		"spring.datasource.username=sa",
+		"spring.datasource.password=",
+		"spring.jpa.hibernate.ddl-auto=validate",
+		"spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class RecipeTransferServiceTests {
+
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	private RecipeTransferService service;
+
+	@Autowired
+	void createService(PlatformTransactionManager transactionManager) {
+		service = new RecipeTransferService(jdbcTemplate, transactionManager, objectMapper,
+				mock(StatsSnapshotService.class), 2, 2);
+	}
+
+	@AfterEach
+	void clearRecipes() {
+		service.shutdown();
+		jdbcTemplate.update("DELETE FROM steps");
+		jdbcTemplate.update("DELETE FROM recipe_ingredients");
+		jdbcTemplate.update("DELETE FROM recipes");
+	}
+
+	@Test
+	void nullNdjsonLineIsReportedAsARowError() throws IOException {
+		String file = "{\"name\":\"Phở\"}\nnull\n{\"name\":\"Bún chả\"}\n";
+		ByteArrayOutputStream report = new ByteArrayOutputStream();
+
+		RecipeTransferService.ImportResult result = service.importRecipes(
+				new ByteArrayInputStream(file.getBytes(StandardCharsets.UTF_8)), RecipeTransferService.Format.NDJSON,
+				report);
+
+		assertEquals(2, result.getImported());
+		assertEquals(1, result.getFailed());
+		List<String> lines = report.toString(StandardCharsets.UTF_8).lines().toList();
+		JsonNode error = objectMapper.readTree(lines.get(0));
+		assertEquals(2, error.get("line").asInt());
+		assertEquals(2, objectMapper.readTree(lines.get(lines.size() - 1)).get("imported").asInt());
+	}
+
+	@Test
+	void csvExportRoundTripsMultiLineSteps() throws IOException {
+		List<String> steps = List.of("Ninh xương 6 tiếng.\nVớt bọt thường xuyên.", "  Chần bánh phở, giữ khoảng trắng  ");
+		jdbcTemplate.update("INSERT INTO recipes (id, name, description) VALUES (1, 'Phở', 'Món nước')");
+		jdbcTemplate.update("INSERT INTO steps (id, recipe_id, step_number, description) VALUES (1, 1, 1, ?), (2, 1, 2, ?)",
+				steps.get(0), steps.get(1));
+		ByteArrayOutputStream exported = new ByteArrayOutputStream();
+		service.exportRecipes(RecipeTransferService.Format.CSV, exported);
+		jdbcTemplate.update("DELETE FROM steps");
+		jdbcTemplate.update("DELETE FROM recipes");
+
+		RecipeTransferService.ImportResult result = service.importRecipes(
+				new ByteArrayInputStream(exported.toByteArray()), RecipeTransferService.Format.CSV,
+				new ByteArrayOutputStream());
+
+		assertEquals(1, result.getImported());
+		assertEquals(0, result.getFailed());
+		assertEquals(steps, jdbcTemplate.queryForList("SELECT description FROM steps ORDER BY step_number",
+				String.class));
+	}
+}
@@ -0,0 +1,85 @@
+package com.tuanzeebee.springboot.demosecurity.service;
+
+import com.tuanzeebee.springboot.demosecurity.repository.RecipeViewRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Transaction do test tự mở bằng TransactionTemplate để kiểm tra commit / rollback
+@DataJpaTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:recipe-views;MODE=MySQL;DATABASE_TO_LOWER=TRUE",
+		"spring.datasource.username=sa",
+		"spring.datasource.password=",
+		"spring.jpa.hibernate.ddl-auto=validate",
+		"spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class RecipeViewServiceTests {
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private RecipeViewRepository recipeViewRepository;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	private RecipeViewService service;
+
+	@BeforeEach
+	void createService() {
+		jdbcTemplate.update("DELETE FROM recipe_views");
+		service = new RecipeViewService(jdbcTemplate, recipeViewRepository, transactionManager);
+	}
+
+	@Test
+	void idleCountersArePrunedAfterAFlush() {
+		service.recordView(1L);
+		service.recordView(1L);
+		service.recordView(2L);
+
+		service.flush();
+		assertEquals(2, service.pendingRecipeCount());
+		service.flush();
+		assertEquals(0, service.pendingRecipeCount());
+
+		service.recordView(1L);
+		assertEquals(3, service.getViewCount(1L));
+		service.flush();
+		assertEquals(3, service.getViewCount(1L));
+		assertEquals(1, service.getViewCount(2L));
+	}
+
+	@Test
+	void viewsAreDeletedOnlyWhenTheDeletionCommits() {
+		TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+		service.recordView(1L);
+		service.flush();
+		service.recordView(1L);
+
+		transaction.executeWithoutResult(status -> {
+			service.deleteViews(1L);
+			status.setRollbackOnly();
+		});
+		assertEquals(2, service.getViewCount(1L));
+
+		transaction.executeWithoutResult(status -> {
+			service.deleteViews(1L);
+			// Chưa commit: vẫn còn nguyên
+			assertEquals(2, service.getViewCount(1L));
+		});
+		assertEquals(0, service.getViewCount(1L));
+		assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM recipe_views", Integer.class));
+	}
+}
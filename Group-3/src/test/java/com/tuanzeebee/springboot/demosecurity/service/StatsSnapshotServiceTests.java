@@ -0,0 +1,70 @@
+package com.tuanzeebee.springboot.demosecurity.service;
+
+import com.tuanzeebee.springboot.demosecurity.repository.CommentRepository;
+import com.tuanzeebee.springboot.demosecurity.repository.IngredientRepository;
+import com.tuanzeebee.springboot.demosecurity.repository.PostRepository;
+import com.tuanzeebee.springboot.demosecurity.repository.RecipeRepository;
+import com.tuanzeebee.springboot.demosecurity.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class StatsSnapshotServiceTests {
+
+	private final UserRepository userRepository = mock(UserRepository.class);
+	private final StatsSnapshotService service = new StatsSnapshotService(userRepository,
+			mock(RecipeRepository.class), mock(IngredientRepository.class), mock(PostRepository.class),
+			mock(CommentRepository.class), 7);
+
+	@AfterEach
+	void shutdown() {
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.clearSynchronization();
+		}
+		service.shutdown();
+	}
+
+	@Test
+	void refreshesRightAwayOutsideTransactions() {
+		when(userRepository.count()).thenReturn(3L);
+
+		service.requestRefresh();
+
+		verify(userRepository, timeout(2000)).count();
+	}
+
+	@Test
+	void refreshRequestedInsideATransactionWaitsForCommit() {
+		when(userRepository.count()).thenReturn(2L);
+		TransactionSynchronizationManager.initSynchronization();
+
+		// Ví dụ deleteUser: snapshot không được dựng từ dữ liệu chưa commit
+		service.requestRefresh();
+		verify(userRepository, after(300).never()).count();
+
+		TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+		TransactionSynchronizationManager.clearSynchronization();
+		verify(userRepository, timeout(2000)).count();
+	}
+
+	@Test
+	void rolledBackTransactionDoesNotRefresh() {
+		TransactionSynchronizationManager.initSynchronization();
+
+		service.requestRefresh();
+		TransactionSynchronizationManager.getSynchronizations()
+				.forEach(synchronization -> synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+		TransactionSynchronizationManager.clearSynchronization();
+
+		verify(userRepository, after(300).never()).count();
+		assertEquals(0, service.getSnapshot().getTotalUsers());
+	}
+}
@@ -0,0 +1,84 @@
+package com.tuanzeebee.springboot.demosecurity.session;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextImpl;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.web.csrf.DefaultCsrfToken;
+import org.springframework.web.servlet.FlashMap;
+
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SessionAttributeCodecTests {
+
+	private final SessionAttributeCodec codec = new SessionAttributeCodec(1024, getClass().getClassLoader());
+
+	@Test
+	void roundTripsLoginSessionAttributes() {
+		User user = new User("u1", "{noop}secret", List.of(new SimpleGrantedAuthority("ROLE_USER")));
+		// Spring Security xóa mật khẩu sau khi đăng nhập; chỉ khi đó context mới được ghi gọn
+		user.eraseCredentials();
+		SecurityContext context = new SecurityContextImpl(
+				UsernamePasswordAuthenticationToken.authenticated(user, null, user.getAuthorities()));
+		FlashMap flashMap = new FlashMap();
+		flashMap.put("message", "Đăng ký thành công");
+		flashMap.setTargetRequestPath("/login");
+
+		Map<String, Object> attributes = new LinkedHashMap<>();
+		attributes.put("SPRING_SECURITY_CONTEXT", context);
+		attributes.put("csrf", new DefaultCsrfToken("X-CSRF-TOKEN", "_csrf", "abc"));
+		attributes.put("flash", List.of(flashMap));
+		attributes.put("day", LocalDate.of(2024, 1, 2));
+
+		Map<String, Object> decoded = codec.decode(codec.encode(attributes));
+
+		SecurityContext decodedContext = (SecurityContext) decoded.get("SPRING_SECURITY_CONTEXT");
+		assertEquals("u1", decodedContext.getAuthentication().getName());
+		assertTrue(decodedContext.getAuthentication().isAuthenticated());
+		assertEquals(List.copyOf(user.getAuthorities()), List.copyOf(decodedContext.getAuthentication().getAuthorities()));
+		assertEquals(user, decodedContext.getAuthentication().getPrincipal());
+		assertEquals("abc", ((DefaultCsrfToken) decoded.get("csrf")).getToken());
+		FlashMap decodedFlash = (FlashMap) ((List<?>) decoded.get("flash")).get(0);
+		assertEquals("Đăng ký thành công", decodedFlash.get("message"));
+		assertEquals("/login", decodedFlash.getTargetRequestPath());
+		assertEquals(LocalDate.of(2024, 1, 2), decoded.get("day"));
+
+		// Format, số attribute, độ dài tên "c", "c", rồi byte kiểu của giá trị
+		byte[] compact = codec.encode(Map.of("c", context));
+		assertEquals(SessionAttributeCodec.SECURITY_CONTEXT, compact[4]);
+		assertTrue(compact.length < 64, "SecurityContext ghi gọn chiếm " + compact.length + " byte");
+	}
+
+	@Test
+	void fallsBackToSerializationWhenCredentialsAreKept() {
+		User user = new User("u1", "{noop}secret", List.of(new SimpleGrantedAuthority("ROLE_USER")));
+		SecurityContext context = new SecurityContextImpl(
+				UsernamePasswordAuthenticationToken.authenticated(user, null, user.getAuthorities()));
+
+		byte[] encoded = codec.encode(Map.of("c", context));
+
+		assertNotEquals(SessionAttributeCodec.SECURITY_CONTEXT, encoded[4]);
+		SecurityContext decoded = (SecurityContext) codec.decode(encoded).get("c");
+		assertEquals(user, decoded.getAuthentication().getPrincipal());
+	}
+
+	@Test
+	void compressesLargeSessions() {
+		Map<String, Object> attributes = Map.of("cart", "x".repeat(10_000));
+
+		byte[] encoded = codec.encode(attributes);
+
+		assertTrue(encoded.length < 1000);
+		assertEquals(attributes, codec.decode(encoded));
+	}
+
+}
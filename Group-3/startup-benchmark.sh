@@ -0,0 +1,68 @@
+#!/usr/bin/env bash
+# Đo thời gian khởi động: từ lúc chạy java đến khi request đầu tiên trả về 200 (time-to-first-request)
+# và RSS của tiến trình tại thời điểm đó. So sánh jar thường (profile prod) với bản fast-startup (AOT + CDS).
+#
+#   ./mvnw -Pfast-startup package -DskipTests     # build jar có mã AOT
+#   ./startup-benchmark.sh [số lần chạy] [tham số thêm cho app...]
+#
+# Ví dụ với database tạm (cần H2 trên classpath runtime):
+#   ./startup-benchmark.sh 5 --spring.datasource.url=jdbc:h2:mem:bench;MODE=MySQL;DATABASE_TO_LOWER=TRUE
+#
+# Biến môi trường: JAR (mặc định target/*.jar), PORT (18090), URL_PATH (/login), JAVA (java).
+set -euo pipefail
+
+cd "$(dirname "$0")"
+RUNS="${1:-5}"
+shift || true
+JAVA="${JAVA:-java}"
+PORT="${PORT:-18090}"
+URL_PATH="${URL_PATH:-/login}"
+JAR="${JAR:-$(ls target/*.jar | grep -v '\.original$' | head -1)}"
+WORK="target/startup-benchmark"
+
+extract() {
+    # Bố cục đã giải nén (application.jar + lib/) để dùng được CDS, rồi tạo archive bằng một lần chạy huấn luyện:
+    # khởi động, phục vụ request đầu tiên rồi dừng bình thường, JVM ghi các class đã nạp vào application.jsa
+    rm -rf "$WORK"
+    "$JAVA" -Djarmode=tools -jar "$JAR" extract --destination "$WORK" --application-filename application.jar > /dev/null
+    measure -XX:ArchiveClassesAtExit="$WORK/application.jsa" -Dspring.aot.enabled=true \
+        -jar "$WORK/application.jar" --spring.profiles.active=prod,fast-startup "$@" > /dev/null
+    [ -f "$WORK/application.jsa" ] || { echo "Không tạo được CDS archive, xem $WORK/run.log" >&2; exit 1; }
+}
+
+# In ra "<ms> <rss KB>" của một lần khởi động
+measure() {
+    local start pid ms rss
+    start=$(date +%s%N)
+    "$JAVA" "$@" --server.port="$PORT" > "$WORK/run.log" 2>&1 &
+    pid=$!
+    until curl -s -o /dev/null -f "http://localhost:$PORT$URL_PATH"; do
+        if ! kill -0 "$pid" 2> /dev/null; then
+            echo "Ứng dụng dừng trước khi nhận request, xem $WORK/run.log" >&2
+            exit 1
+        fi
+        sleep 0.05
+    done
+    ms=$(( ($(date +%s%N) - start) / 1000000 ))
+    rss=$(awk '/VmRSS/ {print $2}' "/proc/$pid/status")
+    kill "$pid"
+    wait "$pid" 2> /dev/null || true
+    echo "$ms $rss"
+}
+
+report() {
+    local name="$1"
+    shift
+    local total_ms=0 total_rss=0 result
+    for _ in $(seq "$RUNS"); do
+        result=$(measure "$@")
+        total_ms=$((total_ms + ${result% *}))
+        total_rss=$((total_rss + ${result#* }))
+    done
+    printf "%-14s time-to-first-request %6d ms   RSS %6d MB\n" "$name" $((total_ms / RUNS)) $((total_rss / RUNS / 1024))
+}
+
+extract "$@"
+report "baseline" -jar "$JAR" --spring.profiles.active=prod "$@"
+report "fast-startup" -XX:SharedArchiveFile="$WORK/application.jsa" -Dspring.aot.enabled=true \
+    -jar "$WORK/application.jar" --spring.profiles.active=prod,fast-startup "$@"